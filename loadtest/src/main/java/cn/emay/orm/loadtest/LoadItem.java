@@ -0,0 +1,98 @@
+package cn.emay.orm.loadtest;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 压测数据
+ *
+ * @author Frank
+ */
+@Entity
+@Table(name = "load_item")
+public class LoadItem implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 渠道，分页查询的条件
+     */
+    @Column(name = "channel_id")
+    private Integer channelId;
+
+    /**
+     * 状态
+     */
+    @Column(name = "status")
+    private String status;
+
+    /**
+     * 内容
+     */
+    @Column(name = "content")
+    private String content;
+
+    /**
+     * 创建时间
+     */
+    @Column(name = "create_time")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createTime;
+
+    public LoadItem() {
+
+    }
+
+    public LoadItem(Integer channelId, String status, String content, Date createTime) {
+        this.channelId = channelId;
+        this.status = status;
+        this.content = content;
+        this.createTime = createTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(Integer channelId) {
+        this.channelId = channelId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+}
@@ -0,0 +1,42 @@
+package cn.emay.orm.loadtest;
+
+import cn.emay.orm.AbstractPojoDaoSupport;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTemplate;
+
+/**
+ * 压测数据DAO
+ *
+ * @author Frank
+ */
+public class LoadItemDao extends AbstractPojoDaoSupport<LoadItem> {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final HibernateTemplate hibernateTemplate;
+
+    private final SessionFactory sessionFactory;
+
+    public LoadItemDao(JdbcTemplate jdbcTemplate, SessionFactory sessionFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionFactory = sessionFactory;
+        this.hibernateTemplate = new HibernateTemplate(sessionFactory);
+    }
+
+    @Override
+    protected JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    protected HibernateTemplate getHibernateTemplate() {
+        return hibernateTemplate;
+    }
+
+    @Override
+    protected SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+}
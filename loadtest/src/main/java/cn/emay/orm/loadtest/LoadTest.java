@@ -0,0 +1,470 @@
+package cn.emay.orm.loadtest;
+
+import cn.emay.orm.loadtest.LoadTestConfig.Operation;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.HdrHistogram.Histogram;
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * DAO层多线程压测<br/>
+ * 在内嵌H2及Hikari连接池上，按配置的比例混合执行saveByAutoNamed、分页查询、findById、deleteById。<br/>
+ * 每个线程按固定时间表发起请求，耗时从计划发起时间算起，执行落后于计划时排队的时间也计入耗时，避免协调遗漏；
+ * 相同的配置及随机种子生成相同的操作序列。<br/>
+ * 用法：mvn -q compile exec:java -Dexec.args="threads=64 poolSize=16 rate=5000 durationSeconds=30"
+ *
+ * @author Frank
+ */
+public class LoadTest {
+
+    /**
+     * 分页查询的SQL
+     */
+    private static final String PAGE_SQL = "select * from load_item where channel_id = ? order by id desc";
+
+    /**
+     * 分页查询的最大页数
+     */
+    private static final int PAGE_RANGE = 10;
+
+    private final LoadTestConfig config;
+
+    /**
+     * 操作，按权重展开，随机数取模选择
+     */
+    private final Operation[] schedule;
+
+    private HikariDataSource dataSource;
+
+    private SessionFactory sessionFactory;
+
+    private LoadItemDao dao;
+
+    private TransactionTemplate transactionTemplate;
+
+    public LoadTest(LoadTestConfig config) {
+        this.config = config;
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> weight : config.getWeights().entrySet()) {
+            for (int i = 0; i < weight.getValue(); i++) {
+                operations.add(weight.getKey());
+            }
+        }
+        this.schedule = operations.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        LoadTest loadTest = new LoadTest(config);
+        try {
+            loadTest.setUp();
+            Result result = loadTest.run();
+            System.out.println(config);
+            System.out.println(result);
+        } finally {
+            loadTest.tearDown();
+        }
+    }
+
+    /**
+     * 创建连接池、表、初始数据
+     */
+    public void setUp() {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(config.getJdbcUrl());
+        hikariConfig.setUsername("sa");
+        hikariConfig.setPassword("");
+        hikariConfig.setMaximumPoolSize(config.getPoolSize());
+        hikariConfig.setMinimumIdle(config.getPoolSize());
+        hikariConfig.setPoolName("emay-orm-loadtest");
+        dataSource = new HikariDataSource(hikariConfig);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop table if exists load_item");
+        jdbcTemplate.execute("create table load_item (id bigint auto_increment primary key, channel_id int, status varchar(16), content varchar(255), create_time timestamp)");
+        jdbcTemplate.execute("create index idx_load_item_channel on load_item (channel_id, id)");
+
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+        builder.addAnnotatedClasses(LoadItem.class);
+        builder.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        builder.setProperty("hibernate.jdbc.batch_size", "50");
+        sessionFactory = builder.buildSessionFactory();
+        transactionTemplate = new TransactionTemplate(new HibernateTransactionManager(sessionFactory));
+        dao = new LoadItemDao(jdbcTemplate, sessionFactory);
+        dao.warmUp();
+
+        Random random = new Random(config.getSeed());
+        List<LoadItem> batch = new ArrayList<>(1000);
+        for (int i = 0; i < config.getInitialRows(); i++) {
+            batch.add(newItem(random));
+            if (batch.size() == 1000) {
+                dao.saveByAutoNamed("load_item", batch, false, true);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            dao.saveByAutoNamed("load_item", batch, false, true);
+        }
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public void tearDown() {
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * 执行压测
+     *
+     * @return 结果
+     * @throws InterruptedException 中断
+     */
+    public Result run() throws InterruptedException {
+        int threads = config.getThreads();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * threads / config.getRate();
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        Worker[] workers = new Worker[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            // 各线程的时间表错开，合计为均匀的目标速率
+            long offset = TimeUnit.SECONDS.toNanos(1) * i / config.getRate();
+            workers[i] = new Worker(config.getSeed() + i, start + offset, intervalNanos, measureStart, end, done);
+            Thread thread = new Thread(workers[i], "emay-orm-loadtest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        long lastCompleted = measureStart;
+        for (Worker worker : workers) {
+            lastCompleted = Math.max(lastCompleted, worker.lastCompleted);
+        }
+        // 执行落后于计划时，实际耗时长于压测时间，吞吐按实际耗时计算
+        Result result = new Result(Math.max(end, lastCompleted) - measureStart);
+        for (Worker worker : workers) {
+            result.add(worker);
+        }
+        return result;
+    }
+
+    /**
+     * 执行一次操作
+     *
+     * @param operation 操作
+     * @param random    随机数
+     */
+    private void execute(Operation operation, Random random) {
+        switch (operation) {
+            case SAVE:
+                List<LoadItem> items = new ArrayList<>(config.getBatchSize());
+                for (int i = 0; i < config.getBatchSize(); i++) {
+                    items.add(newItem(random));
+                }
+                dao.saveByAutoNamed("load_item", items, false, true);
+                break;
+            case PAGE:
+                dao.findObjectPageByClassInMysql(LoadItem.class, PAGE_SQL, config.getPageSize() * random.nextInt(PAGE_RANGE), config.getPageSize(), random.nextInt(config.getChannels()));
+                break;
+            case FIND:
+                dao.findById((long) (1 + random.nextInt(config.getInitialRows())));
+                break;
+            case DELETE:
+                long id = 1 + random.nextInt(config.getInitialRows());
+                transactionTemplate.execute(status -> {
+                    dao.deleteById(id);
+                    return null;
+                });
+                break;
+            default:
+                throw new IllegalArgumentException("unknown operation " + operation);
+        }
+    }
+
+    /**
+     * 生成一条数据
+     *
+     * @param random 随机数
+     * @return 数据
+     */
+    private LoadItem newItem(Random random) {
+        return new LoadItem(random.nextInt(config.getChannels()), "S" + random.nextInt(4), Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()), new Date());
+    }
+
+    /**
+     * 压测线程，按固定时间表执行操作，每个操作的耗时记录在线程自己的直方图中
+     */
+    private class Worker implements Runnable {
+
+        private final Random random;
+
+        /**
+         * 第一次操作的计划时间
+         */
+        private final long firstNanos;
+
+        /**
+         * 两次操作的计划间隔
+         */
+        private final long intervalNanos;
+
+        /**
+         * 开始记录的时间，之前为预热
+         */
+        private final long measureStart;
+
+        /**
+         * 结束时间
+         */
+        private final long end;
+
+        private final CountDownLatch done;
+
+        /**
+         * 各操作成功的耗时（纳秒）
+         */
+        private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+
+        /**
+         * 各操作失败的耗时（纳秒），快速失败不拉低成功操作的耗时分布
+         */
+        private final Map<Operation, Histogram> failures = new EnumMap<>(Operation.class);
+
+        /**
+         * 各操作的第一个异常，包括预热期间的
+         */
+        private final Map<Operation, RuntimeException> firstErrors = new EnumMap<>(Operation.class);
+
+        /**
+         * 最后一次操作的完成时间
+         */
+        private long lastCompleted;
+
+        Worker(long seed, long firstNanos, long intervalNanos, long measureStart, long end, CountDownLatch done) {
+            this.random = new Random(seed);
+            this.firstNanos = firstNanos;
+            this.intervalNanos = intervalNanos;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.done = done;
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new Histogram(3));
+                failures.put(operation, new Histogram(3));
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (long k = 0; ; k++) {
+                    long intended = firstNanos + k * intervalNanos;
+                    if (intended >= end) {
+                        return;
+                    }
+                    long wait;
+                    while ((wait = intended - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Operation operation = schedule[random.nextInt(schedule.length)];
+                    boolean failed = false;
+                    try {
+                        execute(operation, random);
+                    } catch (RuntimeException e) {
+                        failed = true;
+                        firstErrors.putIfAbsent(operation, e);
+                    }
+                    lastCompleted = System.nanoTime();
+                    long latency = lastCompleted - intended;
+                    if (intended >= measureStart) {
+                        (failed ? failures : histograms).get(operation).recordValue(latency);
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+    }
+
+    /**
+     * 压测结果，各操作的耗时分布及吞吐
+     */
+    public static class Result {
+
+        /**
+         * 实际压测时间（纳秒）
+         */
+        private final long elapsedNanos;
+
+        /**
+         * 各操作成功的耗时（纳秒）
+         */
+        private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+
+        /**
+         * 各操作失败的耗时（纳秒）
+         */
+        private final Map<Operation, Histogram> failures = new EnumMap<>(Operation.class);
+
+        /**
+         * 各操作的第一个异常
+         */
+        private final Map<Operation, RuntimeException> firstErrors = new EnumMap<>(Operation.class);
+
+        Result(long elapsedNanos) {
+            this.elapsedNanos = elapsedNanos;
+            for (Operation operation : Operation.values()) {
+                histograms.put(operation, new Histogram(3));
+                failures.put(operation, new Histogram(3));
+            }
+        }
+
+        /**
+         * 合并线程的结果
+         *
+         * @param worker 线程
+         */
+        private void add(Worker worker) {
+            for (Operation operation : Operation.values()) {
+                histograms.get(operation).add(worker.histograms.get(operation));
+                failures.get(operation).add(worker.failures.get(operation));
+                RuntimeException error = worker.firstErrors.get(operation);
+                if (error != null) {
+                    firstErrors.putIfAbsent(operation, error);
+                }
+            }
+        }
+
+        /**
+         * 操作成功的耗时分布（纳秒）
+         *
+         * @param operation 操作
+         * @return 耗时分布
+         */
+        public Histogram getHistogram(Operation operation) {
+            return histograms.get(operation);
+        }
+
+        /**
+         * 操作失败的耗时分布（纳秒）
+         *
+         * @param operation 操作
+         * @return 耗时分布
+         */
+        public Histogram getFailureHistogram(Operation operation) {
+            return failures.get(operation);
+        }
+
+        /**
+         * 操作的失败次数
+         *
+         * @param operation 操作
+         * @return 次数
+         */
+        public long getErrors(Operation operation) {
+            return failures.get(operation).getTotalCount();
+        }
+
+        /**
+         * 操作的第一个异常
+         *
+         * @param operation 操作
+         * @return 异常，没有失败返回null
+         */
+        public RuntimeException getFirstError(Operation operation) {
+            return firstErrors.get(operation);
+        }
+
+        /**
+         * 操作成功的吞吐（次/秒）
+         *
+         * @param operation 操作
+         * @return 吞吐
+         */
+        public double getThroughput(Operation operation) {
+            return histograms.get(operation).getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("%-8s %10s %8s %12s %10s %10s %10s %10s%n", "op", "count", "errors", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)"));
+            Histogram all = new Histogram(3);
+            long allErrors = 0;
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = histograms.get(operation);
+                long errors = getErrors(operation);
+                if (histogram.getTotalCount() == 0 && errors == 0) {
+                    continue;
+                }
+                all.add(histogram);
+                allErrors += errors;
+                append(builder, operation.name().toLowerCase(), histogram, errors);
+            }
+            append(builder, "all", all, allErrors);
+            builder.append(String.format("elapsed %.1fs%n", elapsedNanos / 1e9));
+            if (allErrors > 0) {
+                builder.append(String.format("failures%n"));
+                for (Operation operation : Operation.values()) {
+                    Histogram failure = failures.get(operation);
+                    if (failure.getTotalCount() > 0) {
+                        append(builder, operation.name().toLowerCase(), failure, failure.getTotalCount());
+                    }
+                }
+            }
+            for (Map.Entry<Operation, RuntimeException> entry : firstErrors.entrySet()) {
+                builder.append("first ").append(entry.getKey().name().toLowerCase()).append(" error: ").append(entry.getValue());
+                Throwable cause = entry.getValue();
+                while (cause.getCause() != null && cause.getCause() != cause) {
+                    cause = cause.getCause();
+                }
+                if (cause != entry.getValue()) {
+                    builder.append(", caused by ").append(cause);
+                }
+                builder.append(String.format("%n"));
+            }
+            return builder.toString();
+        }
+
+        /**
+         * 输出一行，次数、吞吐及耗时来自histogram
+         *
+         * @param builder   输出
+         * @param name      操作名
+         * @param histogram 耗时分布
+         * @param errors    失败次数
+         */
+        private void append(StringBuilder builder, String name, Histogram histogram, long errors) {
+            builder.append(String.format("%-8s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f%n", name, histogram.getTotalCount(), errors,
+                    histogram.getTotalCount() * 1e9 / elapsedNanos, millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue())));
+        }
+
+        /**
+         * 纳秒转毫秒
+         *
+         * @param nanos 纳秒
+         * @return 毫秒
+         */
+        private static double millis(long nanos) {
+            return nanos / 1000000.0;
+        }
+
+    }
+
+}
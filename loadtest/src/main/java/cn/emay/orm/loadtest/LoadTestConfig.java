@@ -0,0 +1,228 @@
+package cn.emay.orm.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 压测配置<br/>
+ * 参数以 key=value 的形式从命令行传入，未传入的读取系统属性 loadtest.key，都没有则使用默认值
+ *
+ * @author Frank
+ */
+public class LoadTestConfig {
+
+    /**
+     * 压测线程数
+     */
+    private int threads = 64;
+
+    /**
+     * 连接池大小
+     */
+    private int poolSize = 16;
+
+    /**
+     * 所有线程合计的目标速率（次/秒），按固定时间表发起请求
+     */
+    private int rate = 5000;
+
+    /**
+     * 预热时间（秒），不计入结果
+     */
+    private int warmupSeconds = 5;
+
+    /**
+     * 压测时间（秒）
+     */
+    private int durationSeconds = 30;
+
+    /**
+     * 操作比例，如 save=25,page=25,find=40,delete=10
+     */
+    private String mix = "save=25,page=25,find=40,delete=10";
+
+    /**
+     * 每次存储的条数
+     */
+    private int batchSize = 50;
+
+    /**
+     * 分页大小
+     */
+    private int pageSize = 20;
+
+    /**
+     * 初始数据条数
+     */
+    private int initialRows = 100000;
+
+    /**
+     * 渠道数，分页查询按渠道查询
+     */
+    private int channels = 100;
+
+    /**
+     * 随机种子，相同的种子生成相同的操作序列
+     */
+    private long seed = 42L;
+
+    /**
+     * 数据库地址
+     */
+    private String jdbcUrl = "jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+
+    /**
+     * 解析参数
+     *
+     * @param args 命令行参数，key=value
+     * @return 配置
+     */
+    public static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        config.threads = Integer.parseInt(value(args, "threads", String.valueOf(config.threads)));
+        config.poolSize = Integer.parseInt(value(args, "poolSize", String.valueOf(config.poolSize)));
+        config.rate = Integer.parseInt(value(args, "rate", String.valueOf(config.rate)));
+        config.warmupSeconds = Integer.parseInt(value(args, "warmupSeconds", String.valueOf(config.warmupSeconds)));
+        config.durationSeconds = Integer.parseInt(value(args, "durationSeconds", String.valueOf(config.durationSeconds)));
+        config.mix = value(args, "mix", config.mix);
+        config.batchSize = Integer.parseInt(value(args, "batchSize", String.valueOf(config.batchSize)));
+        config.pageSize = Integer.parseInt(value(args, "pageSize", String.valueOf(config.pageSize)));
+        config.initialRows = Integer.parseInt(value(args, "initialRows", String.valueOf(config.initialRows)));
+        config.channels = Integer.parseInt(value(args, "channels", String.valueOf(config.channels)));
+        config.seed = Long.parseLong(value(args, "seed", String.valueOf(config.seed)));
+        config.jdbcUrl = value(args, "jdbcUrl", config.jdbcUrl);
+        if (config.threads <= 0 || config.poolSize <= 0 || config.rate <= 0 || config.durationSeconds <= 0 || config.batchSize <= 0 || config.pageSize <= 0
+                || config.initialRows <= 0 || config.channels <= 0 || config.warmupSeconds < 0) {
+            throw new IllegalArgumentException("invalid config: " + config);
+        }
+        config.getWeights();
+        return config;
+    }
+
+    /**
+     * 读取参数
+     *
+     * @param args         命令行参数
+     * @param key          参数名
+     * @param defaultValue 默认值
+     * @return 参数值
+     */
+    private static String value(String[] args, String key, String defaultValue) {
+        if (args != null) {
+            for (String arg : args) {
+                if (arg.startsWith(key + "=")) {
+                    return arg.substring(key.length() + 1).trim();
+                }
+            }
+        }
+        return System.getProperty("loadtest." + key, defaultValue);
+    }
+
+    /**
+     * 解析操作比例
+     *
+     * @return 操作 -> 权重
+     */
+    public Map<Operation, Integer> getWeights() {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        int total = 0;
+        for (String item : mix.split(",")) {
+            String[] pair = item.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("invalid mix item: " + item);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("invalid mix weight: " + item);
+            }
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), weight);
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("mix has no weight: " + mix);
+        }
+        return weights;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getInitialRows() {
+        return initialRows;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + threads + " poolSize=" + poolSize + " rate=" + rate + "/s warmup=" + warmupSeconds + "s duration=" + durationSeconds + "s mix=" + mix
+                + " batchSize=" + batchSize + " pageSize=" + pageSize + " initialRows=" + initialRows + " channels=" + channels + " seed=" + seed;
+    }
+
+    /**
+     * 压测的操作
+     */
+    public enum Operation {
+
+        /**
+         * saveByAutoNamed批量存储
+         */
+        SAVE,
+
+        /**
+         * 分页查询
+         */
+        PAGE,
+
+        /**
+         * findById
+         */
+        FIND,
+
+        /**
+         * deleteById
+         */
+        DELETE
+
+    }
+
+}
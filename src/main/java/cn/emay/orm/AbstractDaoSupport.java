@@ -1,13 +1,23 @@
 package cn.emay.orm;
 
 import cn.emay.utils.db.common.Page;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.Status;
 import org.hibernate.query.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.hibernate5.HibernateCallback;
 import org.springframework.orm.hibernate5.HibernateTemplate;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * emay hibernate jdbcTemple 通用dao支持<br/>
@@ -17,6 +27,11 @@ import java.util.*;
  */
 public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
 
+    /**
+     * 流式查询时默认每多少条从session中移除一次已处理的数据
+     */
+    public static final int DEFAULT_SCROLL_CLEAR_INTERVAL = 1000;
+
     /**
      * 获取HibernateTemplate
      *
@@ -31,6 +46,34 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
      */
     protected abstract SessionFactory getSessionFactory();
 
+    /**
+     * 获取DAO级默认的hql查询选项<br/>
+     * 调用时未传入查询选项的hql查询使用此选项，默认为null（不启用查询缓存）
+     *
+     * @return 查询选项
+     */
+    protected QueryOptions getDefaultQueryOptions() {
+        return null;
+    }
+
+    /**
+     * 预编译hql<br/>
+     * 只解析hql并缓存查询计划，不执行查询；hql错误时抛出异常
+     *
+     * @param hqls hql语句
+     */
+    public void warmUpHql(String... hqls) {
+        if (hqls == null || hqls.length == 0) {
+            return;
+        }
+        this.getHibernateTemplate().execute(session -> {
+            for (String hql : hqls) {
+                session.createQuery(hql);
+            }
+            return null;
+        });
+    }
+
 
     /*-----------------------------------------[sql]--------------------------------------------*/
 
@@ -61,15 +104,16 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (sql == null) {
             return new ArrayList<>();
         }
-        return this.getHibernateTemplate().execute((HibernateCallback<List<?>>) session -> {
+        return executeIn(Bulkhead.REPORT, () -> this.getHibernateTemplate().execute((HibernateCallback<List<?>>) session -> {
             Query<?> query = session.createSQLQuery(sql);
             fillParameters(query, params);
             if (limit != 0) {
                 query.setFirstResult(start);
                 query.setMaxResults(limit);
             }
+            applyBulkheadTimeout(query);
             return query.list();
-        });
+        }));
     }
 
     /*-----------------------------------------[hql]--------------------------------------------*/
@@ -83,7 +127,7 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojo == null) {
             return;
         }
-        this.getHibernateTemplate().save(pojo);
+        executeIn(Bulkhead.OLTP, () -> this.getHibernateTemplate().save(pojo));
     }
 
     /**
@@ -95,7 +139,10 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojo == null) {
             return;
         }
-        this.getHibernateTemplate().update(pojo);
+        executeIn(Bulkhead.OLTP, () -> {
+            this.getHibernateTemplate().update(pojo);
+            return null;
+        });
     }
 
     /**
@@ -107,7 +154,10 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojo == null) {
             return;
         }
-        this.getHibernateTemplate().delete(pojo);
+        executeIn(Bulkhead.OLTP, () -> {
+            this.getHibernateTemplate().delete(pojo);
+            return null;
+        });
     }
 
     /**
@@ -122,6 +172,28 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojos == null || pojos.size() == 0) {
             return;
         }
+        executeIn(Bulkhead.BATCH, () -> {
+            this.saveByBatchInBulkhead(pojos);
+            return null;
+        });
+    }
+
+    /**
+     * 批量增，在隔离舱内执行
+     *
+     * @param pojos 数据实体
+     */
+    private void saveByBatchInBulkhead(List<?> pojos) {
+        IdGenerator idGenerator = getIdGenerator();
+        if (idGenerator != null) {
+            // 预先分配id，适用于assigned或HibernateIdGenerator的主键策略，插入可使用JDBC批量
+            JdbcTemplateUtils.assignIds(pojos, idGenerator);
+        }
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            this.executeByBatch(batchController, AdaptiveBatchController.OPERATION_SAVE, pojos, pojo -> this.getHibernateTemplate().save(pojo));
+            return;
+        }
         for (int i = 0; i < pojos.size(); i++) {
             this.getHibernateTemplate().save(pojos.get(i));
             if (i % 50 == 0) {
@@ -145,6 +217,23 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojos == null || pojos.size() == 0) {
             return;
         }
+        executeIn(Bulkhead.BATCH, () -> {
+            this.updateByBatchInBulkhead(pojos);
+            return null;
+        });
+    }
+
+    /**
+     * 批量改，在隔离舱内执行
+     *
+     * @param pojos 数据实体
+     */
+    private void updateByBatchInBulkhead(List<?> pojos) {
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            this.executeByBatch(batchController, AdaptiveBatchController.OPERATION_UPDATE, pojos, pojo -> this.getHibernateTemplate().update(pojo));
+            return;
+        }
         for (int i = 0; i < pojos.size(); i++) {
             this.getHibernateTemplate().update(pojos.get(i));
             if (i % 50 == 0) {
@@ -168,6 +257,23 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojos == null || pojos.size() == 0) {
             return;
         }
+        executeIn(Bulkhead.BATCH, () -> {
+            this.deleteByBatchInBulkhead(pojos);
+            return null;
+        });
+    }
+
+    /**
+     * 批量删，在隔离舱内执行
+     *
+     * @param pojos 数据实体
+     */
+    private void deleteByBatchInBulkhead(List<?> pojos) {
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            this.executeByBatch(batchController, AdaptiveBatchController.OPERATION_DELETE, pojos, pojo -> this.getHibernateTemplate().delete(pojo));
+            return;
+        }
         for (int i = 0; i < pojos.size(); i++) {
             this.getHibernateTemplate().delete(pojos.get(i));
             if (i % 50 == 0) {
@@ -197,6 +303,11 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (pojos == null || pojos.size() == 0) {
             return;
         }
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            this.executeByBatch(batchController, AdaptiveBatchController.OPERATION_EVICT, pojos, pojo -> this.getHibernateTemplate().evict(pojo));
+            return;
+        }
         for (int i = 0; i < pojos.size(); i++) {
             this.getHibernateTemplate().evict(pojos.get(i));
             if (i % 50 == 0) {
@@ -208,6 +319,27 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         this.getHibernateTemplate().clear();
     }
 
+    /**
+     * 按批量控制器分批执行hibernate操作，每批执行后flush并clear<br/>
+     * session在失败后不可再用，因此失败时只缩减批量大小，不重试
+     *
+     * @param batchController 批量控制器
+     * @param operation       操作
+     * @param pojos           数据实体
+     * @param action          对每个数据实体的操作
+     */
+    private void executeByBatch(AdaptiveBatchController batchController, String operation, List<?> pojos, Consumer<Object> action) {
+        String table = pojos.get(0) == null ? "" : pojos.get(0).getClass().getSimpleName();
+        batchController.execute(table, operation, pojos, false, batch -> {
+            for (Object pojo : batch) {
+                action.accept(pojo);
+            }
+            this.getHibernateTemplate().flush();
+            this.getHibernateTemplate().clear();
+            return batch.size();
+        });
+    }
+
     /**
      * 执行hql,无参数
      *
@@ -227,13 +359,14 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (hql == null) {
             return 0;
         }
-        return this.getHibernateTemplate().execute(session -> {
+        return executeIn(Bulkhead.OLTP, () -> this.getHibernateTemplate().execute(session -> {
             Query<?> query = session.createQuery(hql);
             if (params != null && params.size() > 0) {
                 fillParameters(query, params);
             }
+            applyBulkheadTimeout(query);
             return query.executeUpdate();
-        });
+        }));
     }
 
     /**
@@ -244,7 +377,7 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
      * @return 数据
      */
     public Object getById(Class<?> entityClass, Serializable id) {
-        return this.getHibernateTemplate().get(entityClass, id);
+        return executeIn(Bulkhead.OLTP, () -> this.getHibernateTemplate().get(entityClass, id));
     }
 
     /**
@@ -288,19 +421,33 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
      * @return 数据
      */
     public <T> T getUniqueResult(Class<T> clazz, final String hql, final Map<String, Object> params) {
+        return this.getUniqueResult(clazz, hql, params, null);
+    }
+
+    /**
+     * 查询单一结果,有参，转换为指定的Class，按查询选项执行
+     *
+     * @param clazz   类型
+     * @param hql     hql语句
+     * @param params  参数
+     * @param options 查询选项，为空则使用DAO默认选项
+     * @return 数据
+     */
+    public <T> T getUniqueResult(Class<T> clazz, final String hql, final Map<String, Object> params, final QueryOptions options) {
         if (hql == null) {
             return null;
         }
         if (clazz == null) {
             throw new NullPointerException("clazz is null");
         }
-        return this.getHibernateTemplate().execute(session -> {
+        return executeIn(Bulkhead.OLTP, () -> monitoredHql(hql, params, () -> this.getHibernateTemplate().execute(session -> {
             Query<T> query = session.createQuery(hql, clazz);
             if (params != null && params.size() > 0) {
                 fillParameters(query, params);
             }
+            applyQueryOptions(query, options);
             return query.setMaxResults(1).uniqueResult();
-        });
+        })));
     }
 
     /**
@@ -347,6 +494,19 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         return this.getPageListResult(clazz, hql, 0, 0, params);
     }
 
+    /**
+     * 查询，有参，转换元素为执行Class，按查询选项执行<br/>
+     *
+     * @param clazz   类型
+     * @param hql     hql语句
+     * @param params  参数
+     * @param options 查询选项，为空则使用DAO默认选项
+     * @return 数据
+     */
+    public <T> List<T> getListResult(Class<T> clazz, String hql, Map<String, Object> params, QueryOptions options) {
+        return this.getPageListResult(clazz, hql, 0, 0, params, options);
+    }
+
     /**
      * 分页查询，无参<br/>
      * limit=0不分页
@@ -400,13 +560,29 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
      * @return 数据
      */
     public <T> List<T> getPageListResult(Class<T> clazz, final String hql, final int start, final int limit, final Map<String, Object> params) {
+        return this.getPageListResult(clazz, hql, start, limit, params, null);
+    }
+
+    /**
+     * 分页查询，有参,将元素转换为指定的Class，按查询选项执行<br/>
+     * limit=0不分页
+     *
+     * @param clazz   类型
+     * @param hql     hql语句
+     * @param start   起始位置
+     * @param limit   查询数量
+     * @param params  参数
+     * @param options 查询选项，为空则使用DAO默认选项
+     * @return 数据
+     */
+    public <T> List<T> getPageListResult(Class<T> clazz, final String hql, final int start, final int limit, final Map<String, Object> params, final QueryOptions options) {
         if (hql == null) {
             return new ArrayList<>();
         }
         if (clazz == null) {
             throw new NullPointerException("clazz is null");
         }
-        return this.getHibernateTemplate().execute(session -> {
+        return executeIn(Bulkhead.OLTP, () -> monitoredHql(hql, params, () -> this.getHibernateTemplate().execute(session -> {
             Query<T> query = session.createQuery(hql, clazz);
             if (params != null && params.size() > 0) {
                 fillParameters(query, params);
@@ -415,8 +591,9 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
                 query.setFirstResult(start);
                 query.setMaxResults(limit);
             }
+            applyQueryOptions(query, options);
             return query.list();
-        });
+        })));
     }
 
     /**
@@ -446,6 +623,113 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         return page;
     }
 
+    /**
+     * 流式查询，逐条处理，不将全部结果放入内存<br/>
+     * 使用ScrollMode.FORWARD_ONLY读取，每处理clearInterval条从session中移除（evict）查询开始后加载的实体，
+     * 包括多列投影中的各个实体及随实体一起加载（eager关联、join fetch）的关联实体，使内存占用保持稳定；
+     * 查询前已在session中的实体（包括调用方未flush的修改）不受影响。<br/>
+     * 多列投影（如 select a, b）的每行为 Object[]，clazz 传 Object[].class；单列投影的每行为该列的值。<br/>
+     * 注意：移除前不会flush，consumer中对已加载实体的修改如需保存，请在consumer中自行flush；consumer中新保存尚未插入或已删除的实体不会被移除。<br/>
+     * MySQL需要在查询选项中设置fetchSize为Integer.MIN_VALUE才会真正流式读取。
+     *
+     * @param clazz         类型
+     * @param hql           hql语句
+     * @param params        参数
+     * @param clearInterval 每多少条移除一次已处理的实体，<=0 则使用默认值
+     * @param options       查询选项，为空则使用DAO默认选项
+     * @param consumer      数据处理
+     * @return 处理的条数
+     */
+    public <T> long scroll(Class<T> clazz, final String hql, final Map<String, Object> params, final int clearInterval, final QueryOptions options, final Consumer<T> consumer) {
+        if (hql == null) {
+            return 0L;
+        }
+        if (clazz == null) {
+            throw new NullPointerException("clazz is null");
+        }
+        if (consumer == null) {
+            throw new NullPointerException("consumer is null");
+        }
+        final int interval = clearInterval <= 0 ? DEFAULT_SCROLL_CLEAR_INTERVAL : clearInterval;
+        return executeIn(Bulkhead.REPORT, () -> this.getHibernateTemplate().execute(session -> {
+            Query<T> query = session.createQuery(hql, clazz);
+            if (params != null && params.size() > 0) {
+                fillParameters(query, params);
+            }
+            applyQueryOptions(query, options);
+            PersistenceContext context = session.unwrap(SessionImplementor.class).getPersistenceContext();
+            // 查询前已在session中的实体由调用方管理，不移除
+            Set<Object> existing = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<Object, EntityEntry> entry : context.reentrantSafeEntityEntries()) {
+                existing.add(entry.getKey());
+            }
+            long count = 0;
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    Object[] values = results.get();
+                    @SuppressWarnings("unchecked")
+                    T row = (T) (values.length == 1 ? values[0] : values);
+                    consumer.accept(row);
+                    count++;
+                    if (count % interval == 0) {
+                        evictLoaded(session, context, existing);
+                    }
+                }
+            } finally {
+                evictLoaded(session, context, existing);
+            }
+            return count;
+        }));
+    }
+
+    /**
+     * 从session中移除流式查询开始后从数据库加载的实体<br/>
+     * 查询前已在session中的实体、尚未插入的新实体及已删除的实体保留
+     *
+     * @param session  session
+     * @param context  session的持久化上下文
+     * @param existing 查询前已在session中的实体
+     */
+    private static void evictLoaded(Session session, PersistenceContext context, Set<Object> existing) {
+        for (Map.Entry<Object, EntityEntry> entry : context.reentrantSafeEntityEntries()) {
+            Object entity = entry.getKey();
+            EntityEntry entityEntry = entry.getValue();
+            if (existing.contains(entity) || !entityEntry.isExistsInDatabase()) {
+                continue;
+            }
+            if (entityEntry.getStatus() != Status.MANAGED && entityEntry.getStatus() != Status.READ_ONLY) {
+                continue;
+            }
+            // 级联移除时可能已经被移除
+            if (context.getEntry(entity) != null) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    /**
+     * 分页查询，总数在第一次访问时才查询<br/>
+     * 注意：如果是带有group的hql，本方法不支持<br/>
+     * 总数查询在访问时另行执行（同样在report舱内），使用新的session，期间数据有变化时总数可能与数据列表不一致<br/>
+     *
+     * @param hql    hql语句
+     * @param start  起始位置
+     * @param limit  查询数量
+     * @param params 参数
+     * @param clazz  类型
+     * @return 分页数据
+     */
+    public <T> LazyPage<T> getLazyPageResult(String hql, int start, int limit, Map<String, Object> params, Class<T> clazz) {
+        if (hql == null) {
+            throw new NullPointerException("hql is null");
+        }
+        if (clazz == null) {
+            throw new NullPointerException("clazz is null");
+        }
+        List<T> list = executeIn(Bulkhead.REPORT, () -> this.getPageListResult(clazz, hql, start, limit, params));
+        return new LazyPage<>(list, start, limit, () -> executeIn(Bulkhead.REPORT, () -> (int) this.getPageTotalCount(hql, params)));
+    }
+
     /**
      * 分页查询<br/>
      * 注意：如果是带有group的hql，本方法不支持<br/>
@@ -488,11 +772,13 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (hql == null) {
             return new HashMap<>();
         }
-        Map<String, Object> result = new HashMap<>();
-        List<T> list = this.getPageListResult(clazz, hql, start, limit, params);
-        this.fillPageInfo(result, start, limit, hql, params);
-        result.put(Page.DATA_LIST, list);
-        return result;
+        return executeIn(Bulkhead.REPORT, () -> {
+            Map<String, Object> result = new HashMap<>();
+            List<T> list = this.getPageListResult(clazz, hql, start, limit, params);
+            this.fillPageInfo(result, start, limit, hql, params);
+            result.put(Page.DATA_LIST, list);
+            return result;
+        });
     }
 
     /**
@@ -516,6 +802,56 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         }
     }
 
+    /**
+     * 执行hql查询，JdbcTemplate注册了慢查询监控时计时并上报
+     *
+     * @param hql    hql语句
+     * @param params 参数
+     * @param query  查询
+     * @return 查询结果
+     */
+    private <R> R monitoredHql(String hql, Map<String, Object> params, Supplier<R> query) {
+        JdbcTemplate jdbcTemplate = this.getJdbcTemplate();
+        SlowQueryMonitor monitor = SlowQueryMonitor.of(jdbcTemplate);
+        if (monitor == null) {
+            return query.get();
+        }
+        long begin = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            monitor.onHql(jdbcTemplate, getSessionFactory(), hql, params, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * 应用查询选项
+     *
+     * @param query   hibernate查询
+     * @param options 查询选项，为空则使用DAO默认选项
+     */
+    protected void applyQueryOptions(Query<?> query, QueryOptions options) {
+        QueryOptions effective = options != null ? options : getDefaultQueryOptions();
+        if (effective != null) {
+            effective.applyTo(query);
+        }
+        if (effective == null || effective.getTimeout() <= 0) {
+            applyBulkheadTimeout(query);
+        }
+    }
+
+    /**
+     * 在隔离舱内执行时，使用舱的默认语句超时
+     *
+     * @param query hibernate查询
+     */
+    private void applyBulkheadTimeout(Query<?> query) {
+        int timeout = Bulkhead.currentTimeoutSeconds();
+        if (timeout > 0) {
+            query.setTimeout(timeout);
+        }
+    }
+
     /**
      * 填充分页信息<br/>
      * 会有一次查询，不支持带group的语句
@@ -530,6 +866,32 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
         if (limit <= 0) {
             limit = 20;
         }
+        // 查询
+        long totalCount = this.getPageTotalCount(selectHql, params);
+        // 赋值
+        int total = (int) totalCount;
+        // 简单的分页逻辑
+        int currentPage = start / limit + 1;
+        int totalPage = total / limit;
+        if (totalCount % limit != 0) {
+            totalPage++;
+        }
+        result.put(Page.TOTAL_COUNT, totalCount);
+        result.put(Page.START, start);
+        result.put(Page.LIMIT, limit);
+        result.put(Page.CURRENT_PAGE, currentPage);
+        result.put(Page.TOTAL_PAGE, totalPage);
+    }
+
+    /**
+     * 查询分页总数<br/>
+     * 不支持带group的语句
+     *
+     * @param selectHql 查询hql
+     * @param params    参数
+     * @return 总数
+     */
+    public long getPageTotalCount(String selectHql, Map<String, Object> params) {
         // 寻找from
         int fromIndex = selectHql.toLowerCase().indexOf(" from ");
         if (fromIndex < 0) {
@@ -553,20 +915,7 @@ public abstract class AbstractDaoSupport extends AbstractSqlDaoSupport {
             countHql = countHql.substring(0, orderByIndex);
         }
         // 查询
-        long totalCount = (Long) this.getUniqueResult(countHql, params);
-        // 赋值
-        int total = (int) totalCount;
-        // 简单的分页逻辑
-        int currentPage = start / limit + 1;
-        int totalPage = total / limit;
-        if (totalCount % limit != 0) {
-            totalPage++;
-        }
-        result.put(Page.TOTAL_COUNT, totalCount);
-        result.put(Page.START, start);
-        result.put(Page.LIMIT, limit);
-        result.put(Page.CURRENT_PAGE, currentPage);
-        result.put(Page.TOTAL_PAGE, totalPage);
+        return (Long) this.getUniqueResult(countHql, params);
     }
 
 }
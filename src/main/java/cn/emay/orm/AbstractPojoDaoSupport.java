@@ -1,11 +1,32 @@
 package cn.emay.orm;
 
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.Query;
+
+import java.beans.IntrospectionException;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * emay hibernate jdbcTemple 通用dao支持<br/>
@@ -16,6 +37,11 @@ import java.util.Map.Entry;
  */
 public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> extends AbstractDaoSupport {
 
+    /**
+     * in条件中每批最多的值个数
+     */
+    private static final int IN_BATCH_SIZE = 980;
+
     /**
      * 当前POJO的Class属性
      */
@@ -26,12 +52,48 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
      */
     final public String FIND_ALL_HQL;
 
+    /**
+     * 推导查询接口 -> 实现
+     */
+    private final Map<Class<?>, Object> finders = new ConcurrentHashMap<>();
+
+    /**
+     * 已编译的推导查询
+     */
+    private final Queue<DerivedQuery> derivedQueries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 合并并发findById请求的加载器，首次使用时创建
+     */
+    private volatile BatchLoader<Serializable, E> byIdLoader;
+
     @SuppressWarnings("unchecked")
     public AbstractPojoDaoSupport() {
         this.entityClass = (Class<E>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         FIND_ALL_HQL = " from " + this.entityClass.getSimpleName() + " ";
     }
 
+    /**
+     * 预热<br/>
+     * 解析实体类的属性映射，预编译全量查询、计数及已创建的推导查询接口的hql
+     */
+    @Override
+    public void warmUp() {
+        super.warmUp();
+        try {
+            BeanSqlMapping.of(entityClass);
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e);
+        }
+        List<String> hqls = new ArrayList<>();
+        hqls.add(FIND_ALL_HQL);
+        hqls.add("select count(*) " + FIND_ALL_HQL);
+        for (DerivedQuery derivedQuery : derivedQueries) {
+            hqls.add(derivedQuery.getHql());
+        }
+        this.warmUpHql(hqls.toArray(new String[0]));
+    }
+
     /**
      * 增
      *
@@ -100,11 +162,20 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
         }
         int size = ids.length;
         String hql = "delete from " + this.entityClass.getSimpleName() + " where id in (:newIds)";
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            batchController.execute(this.entityClass.getSimpleName(), AdaptiveBatchController.OPERATION_DELETE, Arrays.asList(ids), false, batch -> {
+                Map<String, Object> batchParams = new HashMap<>();
+                batchParams.put("newIds", new ArrayList<>(batch));
+                return this.execByHql(hql, batchParams);
+            });
+            return;
+        }
         Map<String, Object> params = new HashMap<>();
         List<Object> newIds = new ArrayList<>(1000);
         for (int i = 0; i < size; i++) {
             newIds.add(ids[i]);
-            boolean isSaveOne = (i != 0 && i % 980 == 0) || i == size - 1;
+            boolean isSaveOne = (i != 0 && i % IN_BATCH_SIZE == 0) || i == size - 1;
             if (isSaveOne) {
                 params.put("newIds", newIds);
                 this.execByHql(hql, params);
@@ -190,6 +261,145 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
         this.execByHql(hql, param);
     }
 
+    /**
+     * 根据元素批量更新，只执行一条update语句<br/>
+     * 更新后会将当前session中被更新的实体移出session，避免读到旧数据；二级缓存由hibernate自动失效
+     *
+     * @param set   需要更新的字段名值对
+     * @param where 条件字段名值对，不能为空
+     * @return 更新的条数
+     */
+    public int updateByProperties(Map<String, Object> set, Map<String, Object> where) {
+        if (where == null || where.size() == 0) {
+            throw new IllegalArgumentException("where is empty");
+        }
+        StringBuffer hql = new StringBuffer();
+        StringBuffer whereHql = new StringBuffer();
+        Map<String, Object> setParam = new HashMap<>();
+        Map<String, Object> whereParam = new HashMap<>();
+        this.fillUpdateHqlAndParams(hql, setParam, set);
+        this.fillHqlAndParamsByProperties(whereHql, whereParam, where, false);
+        return this.execUpdateAndEvict(hql.toString(), whereHql.toString(), setParam, whereParam);
+    }
+
+    /**
+     * 根据字段值集合批量更新，每980个值执行一条update语句<br/>
+     * 更新后会将当前session中被更新的实体移出session，避免读到旧数据；二级缓存由hibernate自动失效
+     *
+     * @param set       需要更新的字段名值对
+     * @param fieldName 条件字段名
+     * @param values    条件字段值集合
+     * @return 更新的条数
+     */
+    public int updateByPropertyIn(Map<String, Object> set, String fieldName, Collection<?> values) {
+        if (fieldName == null || fieldName.trim().equalsIgnoreCase("")) {
+            throw new IllegalArgumentException("fieldName is empty");
+        }
+        if (values == null || values.size() == 0) {
+            return 0;
+        }
+        StringBuffer hql = new StringBuffer();
+        Map<String, Object> setParam = new HashMap<>();
+        this.fillUpdateHqlAndParams(hql, setParam, set);
+        String updateHql = hql.toString();
+        String whereHql = " where " + fieldName + " in (:inValues)";
+        List<Object> list = new ArrayList<>(values);
+        int total = 0;
+        for (int i = 0; i < list.size(); i += IN_BATCH_SIZE) {
+            Map<String, Object> whereParam = new HashMap<>();
+            whereParam.put("inValues", list.subList(i, Math.min(list.size(), i + IN_BATCH_SIZE)));
+            total += this.execUpdateAndEvict(updateHql, whereHql, setParam, whereParam);
+        }
+        return total;
+    }
+
+    /**
+     * 填充update语句的set部分
+     *
+     * @param hql   hql语句
+     * @param param 参数接收器
+     * @param set   需要更新的字段名值对
+     */
+    private void fillUpdateHqlAndParams(StringBuffer hql, Map<String, Object> param, Map<String, Object> set) {
+        if (set == null || set.size() == 0) {
+            throw new IllegalArgumentException("set is empty");
+        }
+        hql.append("update ").append(entityClass.getSimpleName()).append(" set ");
+        int i = 0;
+        for (Entry<String, Object> entry : set.entrySet()) {
+            if (i != 0) {
+                hql.append(", ");
+            }
+            String key = "set" + i;
+            hql.append(entry.getKey()).append(" = :").append(key);
+            param.put(key, entry.getValue());
+            i++;
+        }
+    }
+
+    /**
+     * 执行update语句，并将当前session中被更新的实体移出session<br/>
+     * 更新前在session中已有的本类型实体里查出符合条件的，更新后只移出这些实体；session中没有本类型的实体时不额外查询
+     *
+     * @param updateHql  update语句的set部分
+     * @param whereHql   条件部分
+     * @param setParam   set部分的参数
+     * @param whereParam 条件部分的参数
+     * @return 更新的条数
+     */
+    private int execUpdateAndEvict(String updateHql, String whereHql, Map<String, Object> setParam, Map<String, Object> whereParam) {
+        return executeIn(Bulkhead.OLTP, () -> {
+            List<Object> affected = this.getHibernateTemplate().execute(session -> findAffectedEntities(session, whereHql, whereParam));
+            Map<String, Object> param = new HashMap<>(setParam);
+            param.putAll(whereParam);
+            int count = this.execByHql(updateHql + whereHql, param);
+            if (affected != null && !affected.isEmpty()) {
+                this.getHibernateTemplate().execute(session -> {
+                    for (Object entity : affected) {
+                        if (session.contains(entity)) {
+                            session.evict(entity);
+                        }
+                    }
+                    return null;
+                });
+            }
+            return count;
+        });
+    }
+
+    /**
+     * 查询session中符合条件的本类型实体
+     *
+     * @param session  session
+     * @param whereHql 条件部分
+     * @param param    条件部分的参数
+     * @return 实体
+     */
+    private List<Object> findAffectedEntities(Session session, String whereHql, Map<String, Object> param) {
+        Map<Object, Object> managed = new HashMap<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.unwrap(SessionImplementor.class).getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entityClass.getName().equals(entry.getValue().getEntityName())) {
+                managed.put(entry.getValue().getId(), entry.getKey());
+            }
+        }
+        List<Object> affected = new ArrayList<>();
+        if (managed.isEmpty()) {
+            return affected;
+        }
+        String hql = "select id " + FIND_ALL_HQL + whereHql + " and id in (:managedIds)";
+        List<Object> ids = new ArrayList<>(managed.keySet());
+        for (int i = 0; i < ids.size(); i += IN_BATCH_SIZE) {
+            Query<?> query = session.createQuery(hql);
+            fillParameters(query, param);
+            query.setParameterList("managedIds", ids.subList(i, Math.min(ids.size(), i + IN_BATCH_SIZE)));
+            applyQueryOptions(query, null);
+            for (Object id : query.list()) {
+                affected.add(managed.get(id));
+            }
+        }
+        return affected;
+    }
+
     /**
      * 根据ID查找POJO
      *
@@ -197,7 +407,109 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
      * @return 数据对象
      */
     public E findById(Serializable id) {
-        return this.getHibernateTemplate().get(entityClass, id);
+        return executeIn(Bulkhead.OLTP, () -> this.getHibernateTemplate().get(entityClass, id));
+    }
+
+    /**
+     * 根据ID集合查询，主键名为ID，每980个ID执行一条查询<br/>
+     * 返回顺序与ID顺序无关，不存在的ID不返回
+     *
+     * @param ids ID集合
+     * @return 数据对象
+     */
+    public List<E> findListByIds(Collection<? extends Serializable> ids) {
+        List<E> result = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Serializable> list = new ArrayList<>(ids);
+        String hql = FIND_ALL_HQL + " where id in (:ids)";
+        for (int i = 0; i < list.size(); i += IN_BATCH_SIZE) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("ids", list.subList(i, Math.min(list.size(), i + IN_BATCH_SIZE)));
+            result.addAll(this.getListResult(entityClass, hql, params));
+        }
+        return result;
+    }
+
+    /**
+     * 根据ID查询，合并并发请求<br/>
+     * 同一ID的并发请求共享一次查询，短时间内的不同ID合并为一条 id in (...) 查询，适用于热点数据的高并发读取。<br/>
+     * 查询在加载器线程中执行，不参与当前事务，返回的是游离对象。
+     *
+     * @param id ID
+     * @return 数据对象
+     */
+    public E findByIdCoalesced(Serializable id) {
+        return getByIdLoader().load(normalizeId(id));
+    }
+
+    /**
+     * 获取合并并发findById请求的加载器
+     *
+     * @return 加载器
+     */
+    public BatchLoader<Serializable, E> getByIdLoader() {
+        BatchLoader<Serializable, E> loader = byIdLoader;
+        if (loader == null) {
+            synchronized (this) {
+                loader = byIdLoader;
+                if (loader == null) {
+                    loader = createByIdLoader();
+                    byIdLoader = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * 创建合并并发findById请求的加载器<br/>
+     * 默认每批最多 BatchLoader.DEFAULT_MAX_BATCH_SIZE 个ID，合并等待 BatchLoader.DEFAULT_MAX_DELAY_MICROS 微秒；子类可覆盖调整<br/>
+     * 每批查询在 Bulkhead.OLTP 舱内执行
+     *
+     * @return 加载器
+     */
+    protected BatchLoader<Serializable, E> createByIdLoader() {
+        return new BatchLoader<>(entityClass.getSimpleName(), ids -> executeIn(Bulkhead.OLTP, () -> {
+            Map<Serializable, E> result = new HashMap<>();
+            for (E entity : this.findListByIds(ids)) {
+                result.put((Serializable) getSessionFactory().getPersistenceUnitUtil().getIdentifier(entity), entity);
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * 销毁，关闭合并findById请求的加载器及其线程<br/>
+     * 请在容器关闭时调用，如配置为bean的 destroy-method
+     */
+    public void destroy() {
+        BatchLoader<Serializable, E> loader;
+        synchronized (this) {
+            loader = byIdLoader;
+            byIdLoader = null;
+        }
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    /**
+     * 将数字ID转换为实体的主键类型，保证加载结果可以按ID匹配
+     *
+     * @param id ID
+     * @return 主键值
+     */
+    private Serializable normalizeId(Serializable id) {
+        if (!(id instanceof Number)) {
+            return id;
+        }
+        Class<?> idType = getSessionFactory().getMetamodel().entity(entityClass).getIdType().getJavaType();
+        if (idType.isInstance(id) || !(Number.class.isAssignableFrom(idType) || idType.isPrimitive())) {
+            return id;
+        }
+        return (Serializable) toIdValue(((Number) id).longValue(), idType);
     }
 
     /**
@@ -205,9 +517,194 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
      *
      * @return 数据对象
      */
-    @SuppressWarnings("unchecked")
     public List<E> findAll() {
-        return (List<E>) this.getListResult(FIND_ALL_HQL);
+        return this.findAll(null);
+    }
+
+    /**
+     * 查询所有数据，按查询选项执行
+     *
+     * @param options 查询选项，为空则使用DAO默认选项
+     * @return 数据对象
+     */
+    public List<E> findAll(QueryOptions options) {
+        return this.getListResult(entityClass, FIND_ALL_HQL, null, options);
+    }
+
+    /**
+     * 流式遍历所有数据，每处理clearInterval条从session中移除已处理的实体<br/>
+     * 见 AbstractDaoSupport.scroll
+     *
+     * @param clearInterval 每多少条移除一次已处理的实体，<=0 则使用默认值
+     * @param options       查询选项，为空则使用DAO默认选项
+     * @param consumer      数据处理
+     * @return 处理的条数
+     */
+    public long forEach(int clearInterval, QueryOptions options, Consumer<E> consumer) {
+        return this.scroll(entityClass, FIND_ALL_HQL, null, clearInterval, options, consumer);
+    }
+
+    /**
+     * 根据元素流式遍历POJO，每处理clearInterval条从session中移除已处理的实体<br/>
+     * 见 AbstractDaoSupport.scroll
+     *
+     * @param properties    字段名值对
+     * @param clearInterval 每多少条移除一次已处理的实体，<=0 则使用默认值
+     * @param options       查询选项，为空则使用DAO默认选项
+     * @param consumer      数据处理
+     * @return 处理的条数
+     */
+    public long forEachByProperties(Map<String, Object> properties, int clearInterval, QueryOptions options, Consumer<E> consumer) {
+        StringBuffer hql = new StringBuffer(FIND_ALL_HQL);
+        Map<String, Object> param = new HashMap<>();
+        this.fillHqlAndParamsByProperties(hql, param, properties, false);
+        return this.scroll(entityClass, hql.toString(), param, clearInterval, options, consumer);
+    }
+
+    /**
+     * 按主键区间并行扫描全表<br/>
+     * 查询主键的最小/最大值，将主键空间切分为rangeCount个区间，由parallelism个线程各自打开只读session按主键顺序流式读取。<br/>
+     * 每个session每处理 DEFAULT_SCROLL_CLEAR_INTERVAL 条清空一次，并记录检查点；传入同一个检查点再次执行时，
+     * 按检查点中保存的上下界和区间大小切分（忽略本次的rangeCount），跳过已完成的区间。<br/>
+     * 每个线程的读取单独进入report舱，占用一个并发数。<br/>
+     * 注意：主键名必须为id且为整数类型；consumer会被多个线程同时调用，需要线程安全。
+     *
+     * @param parallelism 并行线程数
+     * @param rangeCount  区间数，<=0 则为并行线程数的4倍；从检查点继续时不生效
+     * @param checkpoint  检查点，可为空
+     * @param consumer    数据处理
+     * @return 本次处理的条数
+     */
+    public long parallelScan(int parallelism, int rangeCount, ScanCheckpoint checkpoint, Consumer<E> consumer) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must > 0");
+        }
+        if (consumer == null) {
+            throw new NullPointerException("consumer is null");
+        }
+        if (rangeCount <= 0) {
+            rangeCount = parallelism * 4;
+        }
+        long[] bounds = checkpoint == null ? null : checkpoint.loadBounds();
+        if (bounds == null) {
+            Object[] minMax = this.getUniqueResult(Object[].class, "select min(id), max(id) " + FIND_ALL_HQL, null);
+            if (minMax == null || minMax[0] == null) {
+                return 0L;
+            }
+            long min = ((Number) minMax[0]).longValue();
+            long max = ((Number) minMax[1]).longValue();
+            bounds = new long[]{min, max, Math.max(1L, (max - min) / rangeCount + 1)};
+            if (checkpoint != null) {
+                checkpoint.saveBounds(bounds[0], bounds[1], bounds[2]);
+            }
+        } else if (bounds.length != 3 || bounds[2] <= 0) {
+            // 区间起始主键由区间大小决定，不能按新的区间数重新切分
+            throw new IllegalStateException("checkpoint has no valid range size: " + Arrays.toString(bounds));
+        }
+        long min = bounds[0];
+        long max = bounds[1];
+        long rangeSize = bounds[2];
+        Class<?> idType = getSessionFactory().getMetamodel().entity(entityClass).getIdType().getJavaType();
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "emay-orm-scan-" + entityClass.getSimpleName() + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long start = min; start <= max; start += rangeSize) {
+                final long rangeStart = start;
+                final long rangeEnd = Math.min(max, start + rangeSize - 1);
+                futures.add(executor.submit(() -> executeIn(Bulkhead.REPORT, () -> scanRange(rangeStart, rangeEnd, idType, checkpoint, consumer))));
+                if (rangeEnd == max) {
+                    break;
+                }
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("parallel scan interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 扫描一个主键区间
+     *
+     * @param rangeStart 起始主键（含）
+     * @param rangeEnd   结束主键（含）
+     * @param idType     主键类型
+     * @param checkpoint 检查点，可为空
+     * @param consumer   数据处理
+     * @return 处理的条数
+     */
+    private long scanRange(long rangeStart, long rangeEnd, Class<?> idType, ScanCheckpoint checkpoint, Consumer<E> consumer) {
+        if (checkpoint != null && checkpoint.isCompleted(rangeStart)) {
+            return 0L;
+        }
+        Long progress = checkpoint == null ? null : checkpoint.loadProgress(rangeStart);
+        String hql = FIND_ALL_HQL + " where id " + (progress == null ? ">=" : ">") + " :low and id <= :high order by id";
+        long count = 0;
+        try (Session session = getSessionFactory().openSession()) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            Query<E> query = session.createQuery(hql, entityClass);
+            query.setParameter("low", toIdValue(progress == null ? rangeStart : progress, idType));
+            query.setParameter("high", toIdValue(rangeEnd, idType));
+            long lastId = 0;
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    @SuppressWarnings("unchecked")
+                    E row = (E) results.get(0);
+                    lastId = ((Number) session.getIdentifier(row)).longValue();
+                    consumer.accept(row);
+                    count++;
+                    if (count % DEFAULT_SCROLL_CLEAR_INTERVAL == 0) {
+                        session.clear();
+                        if (checkpoint != null) {
+                            checkpoint.saveProgress(rangeStart, lastId);
+                        }
+                    }
+                }
+            }
+        }
+        if (checkpoint != null) {
+            checkpoint.complete(rangeStart);
+        }
+        return count;
+    }
+
+    /**
+     * 将long转换为主键类型
+     *
+     * @param value  值
+     * @param idType 主键类型
+     * @return 主键值
+     */
+    private static Object toIdValue(long value, Class<?> idType) {
+        if (idType == Long.class || idType == long.class) {
+            return value;
+        } else if (idType == Integer.class || idType == int.class) {
+            return (int) value;
+        } else if (idType == Short.class || idType == short.class) {
+            return (short) value;
+        } else if (idType == BigInteger.class) {
+            return BigInteger.valueOf(value);
+        } else if (idType == BigDecimal.class) {
+            return BigDecimal.valueOf(value);
+        }
+        throw new IllegalArgumentException("id type " + idType.getName() + " is not an integer type");
     }
 
     /**
@@ -229,12 +726,22 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
      * @param properties 字段名值对
      * @return 数据对象
      */
-    @SuppressWarnings("unchecked")
     public E findByProperties(Map<String, Object> properties) {
+        return this.findByProperties(properties, null);
+    }
+
+    /**
+     * 根据元素查找唯一POJO，按查询选项执行
+     *
+     * @param properties 字段名值对
+     * @param options    查询选项，为空则使用DAO默认选项
+     * @return 数据对象
+     */
+    public E findByProperties(Map<String, Object> properties, QueryOptions options) {
         StringBuffer hql = new StringBuffer(FIND_ALL_HQL);
         Map<String, Object> param = new HashMap<>();
         this.fillHqlAndParamsByProperties(hql, param, properties, false);
-        return (E) this.getUniqueResult(hql.toString(), param);
+        return this.getUniqueResult(entityClass, hql.toString(), param, options);
     }
 
     /**
@@ -256,12 +763,22 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
      * @param properties 字段名值对
      * @return 数据对象
      */
-    @SuppressWarnings("unchecked")
     public List<E> findListByProperties(Map<String, Object> properties) {
+        return this.findListByProperties(properties, null);
+    }
+
+    /**
+     * 根据元素查找POJO集合，按查询选项执行
+     *
+     * @param properties 字段名值对
+     * @param options    查询选项，为空则使用DAO默认选项
+     * @return 数据对象
+     */
+    public List<E> findListByProperties(Map<String, Object> properties, QueryOptions options) {
         StringBuffer hql = new StringBuffer(FIND_ALL_HQL);
         Map<String, Object> param = new HashMap<>();
         this.fillHqlAndParamsByProperties(hql, param, properties, false);
-        return (List<E>) this.getListResult(hql.toString(), param);
+        return this.getListResult(entityClass, hql.toString(), param, options);
     }
 
     /**
@@ -281,6 +798,74 @@ public abstract class AbstractPojoDaoSupport<E extends java.io.Serializable> ext
         return (List<E>) this.getListResult(hql.toString(), param);
     }
 
+    /**
+     * 获取推导查询接口的实现<br/>
+     * 接口中的方法按方法名推导查询（如 findByStatusAndChannelIdOrderByIdDesc），格式见 DerivedQuery。<br/>
+     * 第一次获取时解析并校验接口中的全部方法，方法名错误会立即抛出异常；之后的调用只绑定参数，不再拼接hql。<br/>
+     * 接口中不能有default方法，静态方法不受影响。<br/>
+     * 建议在DAO初始化时获取，以便启动时发现错误。
+     *
+     * @param finderInterface 推导查询接口
+     * @return 实现
+     */
+    public <F> F getFinder(Class<F> finderInterface) {
+        Object finder = finders.get(finderInterface);
+        if (finder == null) {
+            finder = createFinder(finderInterface);
+            Object old = finders.putIfAbsent(finderInterface, finder);
+            if (old != null) {
+                finder = old;
+            }
+        }
+        return finderInterface.cast(finder);
+    }
+
+    /**
+     * 创建推导查询接口的实现
+     *
+     * @param finderInterface 推导查询接口
+     * @return 实现
+     */
+    private Object createFinder(Class<?> finderInterface) {
+        if (finderInterface == null || !finderInterface.isInterface()) {
+            throw new IllegalArgumentException("finder must be an interface");
+        }
+        Map<Method, DerivedQuery> queries = new HashMap<>();
+        for (Method method : finderInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                throw new IllegalArgumentException(finderInterface.getName() + "." + method.getName() + " is a default method, finder can only declare derived query methods");
+            }
+            queries.put(method, DerivedQuery.compile(method, entityClass));
+        }
+        derivedQueries.addAll(queries.values());
+        return Proxy.newProxyInstance(finderInterface.getClassLoader(), new Class<?>[]{finderInterface}, (proxy, method, args) -> {
+            DerivedQuery derivedQuery = queries.get(method);
+            if (derivedQuery == null) {
+                if (method.getDeclaringClass() == Object.class) {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return finderInterface.getName() + "(" + entityClass.getName() + ")";
+                        default:
+                            break;
+                    }
+                }
+                throw new IllegalStateException("no derived query for " + method);
+            }
+            return executeIn(Bulkhead.OLTP, () -> this.getHibernateTemplate().execute(session -> {
+                Query<?> query = derivedQuery.createQuery(session, entityClass, args);
+                applyQueryOptions(query, null);
+                return derivedQuery.execute(query, method.getReturnType());
+            }));
+        });
+    }
+
     /**
      * 填充数据
      *
@@ -5,8 +5,15 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * emay jdbcTemple 通用dao支持<br/>
@@ -16,8 +23,6 @@ import java.util.List;
  */
 public abstract class AbstractSqlDaoSupport {
 
-    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
-
     /**
      * 获取JdbcTemplate
      *
@@ -26,15 +31,87 @@ public abstract class AbstractSqlDaoSupport {
     protected abstract JdbcTemplate getJdbcTemplate();
 
     /**
-     * 获取名字映射JdbcTemplate
+     * 获取名字映射JdbcTemplate<br/>
+     * 同一个JdbcTemplate共享同一个实例及其解析SQL缓存
      *
      * @return NamedParameterJdbcTemplate
      */
     protected NamedParameterJdbcTemplate getNamedParameterJdbcTemplate() {
-        if (namedParameterJdbcTemplate == null) {
-            namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(getJdbcTemplate());
+        return NamedParameterJdbcTemplateRegistry.get(getJdbcTemplate());
+    }
+
+    /**
+     * 获取自适应批量控制器<br/>
+     * 默认不启用，返回null时批量操作使用固定的批量大小；如需启用，请在子类中返回共享的控制器实例
+     *
+     * @return 批量控制器
+     */
+    protected AdaptiveBatchController getBatchController() {
+        return null;
+    }
+
+    /**
+     * 获取客户端ID生成器<br/>
+     * 默认不启用，返回null时 autoId = true 的存储使用数据库自增ID；
+     * 启用后存储前为id为空的数据分配id并一起插入，存储后数据上即有id，Hibernate批量存储同样先分配id
+     *
+     * @return ID生成器
+     */
+    protected IdGenerator getIdGenerator() {
+        return null;
+    }
+
+    /**
+     * 获取隔离舱<br/>
+     * 默认不启用，返回null时不限制并发；启用后DAO方法按 Bulkhead.OLTP/REPORT/BATCH 归类，在对应的舱内执行，
+     * 舱满时快速失败抛出 Bulkhead.RejectedException；请在子类中返回共享的实例
+     *
+     * @return 隔离舱
+     */
+    protected Bulkhead getBulkhead() {
+        return null;
+    }
+
+    /**
+     * 在指定的舱内执行一组操作<br/>
+     * 操作中调用的DAO方法都归入此舱，不再按方法归类；未配置隔离舱时直接执行
+     *
+     * @param compartment 舱名，如 Bulkhead.REPORT
+     * @param action      操作
+     * @return 操作结果
+     */
+    public <R> R executeIn(String compartment, Supplier<R> action) {
+        if (action == null) {
+            throw new NullPointerException("action is null");
+        }
+        Bulkhead bulkhead = getBulkhead();
+        if (bulkhead == null) {
+            return action.get();
         }
-        return namedParameterJdbcTemplate;
+        return bulkhead.execute(compartment, action);
+    }
+
+    /**
+     * 在舱内执行JdbcTemplate操作，操作拿到的JdbcTemplate带有舱的默认语句超时
+     *
+     * @param compartment 舱名
+     * @param action      操作
+     * @return 操作结果
+     */
+    private <R> R admit(String compartment, Function<JdbcTemplate, R> action) {
+        Bulkhead bulkhead = getBulkhead();
+        if (bulkhead == null) {
+            return action.apply(getJdbcTemplate());
+        }
+        return bulkhead.execute(compartment, getJdbcTemplate(), action);
+    }
+
+    /**
+     * 预热<br/>
+     * 在启动时由 MetadataWarmUp 调用，提前创建共享的NamedParameterJdbcTemplate；子类可覆盖以预编译自己的SQL/HQL
+     */
+    public void warmUp() {
+        this.getNamedParameterJdbcTemplate();
     }
 
     /*-----------------------------------------[sql]--------------------------------------------*/
@@ -48,7 +125,9 @@ public abstract class AbstractSqlDaoSupport {
         if (sql == null || sql.length == 0) {
             return;
         }
-        this.getJdbcTemplate().batchUpdate(sql);
+        // 一批语句一次提交，按一条统计
+        StatementCounter.record(sql[0]);
+        admit(Bulkhead.BATCH, jdbc -> jdbc.batchUpdate(sql));
     }
 
     /**
@@ -60,7 +139,11 @@ public abstract class AbstractSqlDaoSupport {
         if (sql == null) {
             return;
         }
-        this.getJdbcTemplate().execute(sql);
+        StatementCounter.record(sql);
+        admit(Bulkhead.OLTP, jdbc -> {
+            jdbc.execute(sql);
+            return null;
+        });
     }
 
     /**
@@ -74,11 +157,13 @@ public abstract class AbstractSqlDaoSupport {
         if (sql == null) {
             return null;
         }
-        if (params == null || params.length == 0) {
-            return this.getJdbcTemplate().queryForObject(sql, Object.class);
-        } else {
-            return this.getJdbcTemplate().queryForObject(sql, params, Object.class);
-        }
+        return admit(Bulkhead.OLTP, jdbcTemplate -> {
+            if (params == null || params.length == 0) {
+                return JdbcTemplateUtils.monitored(jdbcTemplate, sql, params, () -> jdbcTemplate.queryForObject(sql, Object.class));
+            } else {
+                return JdbcTemplateUtils.monitored(jdbcTemplate, sql, params, () -> jdbcTemplate.queryForObject(sql, params, Object.class));
+            }
+        });
     }
 
     /**
@@ -92,18 +177,21 @@ public abstract class AbstractSqlDaoSupport {
         if (sql == null) {
             return new ArrayList<>();
         }
-        if (params == null || params.length == 0) {
-            return this.getJdbcTemplate().queryForList(sql, Object.class);
-        } else {
-            return this.getJdbcTemplate().queryForList(sql, params, Object.class);
-        }
+        return admit(Bulkhead.OLTP, jdbcTemplate -> {
+            if (params == null || params.length == 0) {
+                return JdbcTemplateUtils.monitored(jdbcTemplate, sql, params, () -> jdbcTemplate.queryForList(sql, Object.class));
+            } else {
+                return JdbcTemplateUtils.monitored(jdbcTemplate, sql, params, () -> jdbcTemplate.queryForList(sql, params, Object.class));
+            }
+        });
     }
 
     /*-----------------------sql by jdbcTemple---------------------------------------*/
 
     /**
      * 存储数据<br/>
-     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段<br/>
+     * 配置了批量控制器时，按控制器的批量大小分批存储
      *
      * @param tableName 数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
      * @param dataList  数据
@@ -112,7 +200,110 @@ public abstract class AbstractSqlDaoSupport {
      * @return 存储成功的条数
      */
     public <T> int[] saveByAutoNamed(String tableName, List<T> dataList, boolean isIgnore, boolean autoId) {
-        return JdbcTemplateUtils.saveByAutoNamed(getJdbcTemplate(), tableName, dataList, isIgnore, autoId);
+        IdGenerator idGenerator = getIdGenerator();
+        boolean databaseId = autoId && idGenerator == null;
+        AdaptiveBatchController batchController = getBatchController();
+        return admit(Bulkhead.BATCH, jdbc -> {
+            // 在batch舱内预先分配id，HiLoIdGenerator取号段时加入该舱
+            if (autoId && idGenerator != null) {
+                JdbcTemplateUtils.assignIds(dataList, idGenerator);
+            }
+            if (batchController != null) {
+                return JdbcTemplateUtils.saveByAutoNamed(jdbc, tableName, dataList, batchController, isIgnore, databaseId);
+            }
+            return JdbcTemplateUtils.saveByAutoNamed(jdbc, tableName, dataList, isIgnore, databaseId);
+        });
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段<br/>
+     * 数据要求及提交方式见 JdbcTemplateUtils.saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param tableName 数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param iterator  数据
+     * @param batchSize 每批条数，<=0 则使用默认值；配置了批量控制器时由控制器决定
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    public <T> long saveByAutoNamed(String tableName, Iterator<T> iterator, int batchSize, boolean isIgnore, boolean autoId) {
+        IdGenerator idGenerator = getIdGenerator();
+        Iterator<T> data = autoId && idGenerator != null ? JdbcTemplateUtils.assignIds(iterator, idGenerator) : iterator;
+        boolean databaseId = autoId && idGenerator == null;
+        AdaptiveBatchController batchController = getBatchController();
+        if (batchController != null) {
+            return admit(Bulkhead.BATCH, jdbc -> JdbcTemplateUtils.saveByAutoNamed(jdbc, tableName, data, batchController, isIgnore, databaseId));
+        }
+        return admit(Bulkhead.BATCH, jdbc -> JdbcTemplateUtils.saveByAutoNamed(jdbc, tableName, data, batchSize, isIgnore, databaseId));
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段<br/>
+     * 数据要求及提交方式见 JdbcTemplateUtils.saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param tableName 数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param stream    数据
+     * @param batchSize 每批条数，<=0 则使用默认值；配置了批量控制器时由控制器决定
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    public <T> long saveByAutoNamed(String tableName, Stream<T> stream, int batchSize, boolean isIgnore, boolean autoId) {
+        if (stream == null) {
+            throw new IllegalArgumentException("stream is null");
+        }
+        return saveByAutoNamed(tableName, stream.iterator(), batchSize, isIgnore, autoId);
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段<br/>
+     * 数据要求及提交方式见 JdbcTemplateUtils.saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param tableName 数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param supplier  数据提供者，返回null表示数据结束
+     * @param batchSize 每批条数，<=0 则使用默认值；配置了批量控制器时由控制器决定
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    public <T> long saveByAutoNamed(String tableName, Supplier<T> supplier, int batchSize, boolean isIgnore, boolean autoId) {
+        if (supplier == null) {
+            throw new IllegalArgumentException("supplier is null");
+        }
+        return saveByAutoNamed(tableName, JdbcTemplateUtils.supplierIterator(supplier), batchSize, isIgnore, autoId);
+    }
+
+    /**
+     * 将全量数据同步到表：只新增表中没有的、更新内容有变化的、删除数据中已没有的<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
+     *
+     * @param tableName  数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param clazz      数据Class
+     * @param keyColumns 主键字段，数据库字段名或对象字段名
+     * @param dataList   全量数据
+     * @param batchSize  每批条数，<=0 则使用默认值
+     * @return 同步结果
+     */
+    public <T> SyncResult syncByAutoNamed(String tableName, Class<T> clazz, String[] keyColumns, List<T> dataList, int batchSize) {
+        return admit(Bulkhead.BATCH, jdbc -> JdbcTemplateUtils.syncByAutoNamed(jdbc, tableName, clazz, keyColumns, dataList, batchSize));
+    }
+
+    /**
+     * 将全量数据同步到表，边读边比对：只新增表中没有的、更新内容有变化的、删除数据中已没有的<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
+     *
+     * @param tableName  数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param clazz      数据Class
+     * @param keyColumns 主键字段，数据库字段名或对象字段名
+     * @param iterator   全量数据
+     * @param batchSize  每批条数，<=0 则使用默认值
+     * @return 同步结果
+     */
+    public <T> SyncResult syncByAutoNamed(String tableName, Class<T> clazz, String[] keyColumns, Iterator<T> iterator, int batchSize) {
+        return admit(Bulkhead.BATCH, jdbc -> JdbcTemplateUtils.syncByAutoNamed(jdbc, tableName, clazz, keyColumns, iterator, batchSize));
     }
 
     /**
@@ -125,7 +316,7 @@ public abstract class AbstractSqlDaoSupport {
      * @return 数据
      */
     public <T> T findObjectUnique(Class<T> objectClass, String sql, Object... parameters) {
-        return JdbcTemplateUtils.findObjectUnique(getJdbcTemplate(), objectClass, sql, parameters);
+        return admit(Bulkhead.OLTP, jdbc -> JdbcTemplateUtils.findObjectUnique(jdbc, objectClass, sql, parameters));
     }
 
     /**
@@ -138,7 +329,7 @@ public abstract class AbstractSqlDaoSupport {
      * @return 数据
      */
     public <T> List<T> findObjectListByClass(Class<T> clazz, String sql, Object... parameters) {
-        return JdbcTemplateUtils.findObjectListByClass(getJdbcTemplate(), clazz, sql, parameters);
+        return admit(Bulkhead.OLTP, jdbc -> JdbcTemplateUtils.findObjectListByClass(jdbc, clazz, sql, parameters));
     }
 
     /**
@@ -150,7 +341,77 @@ public abstract class AbstractSqlDaoSupport {
      * @return 数据
      */
     public <T> List<T> findObjectListByMapper(RowMapper<T> rowMapper, String sql, Object... parameters) {
-        return JdbcTemplateUtils.findObjectListByMapper(getJdbcTemplate(), rowMapper, sql, parameters);
+        return admit(Bulkhead.OLTP, jdbc -> JdbcTemplateUtils.findObjectListByMapper(jdbc, rowMapper, sql, parameters));
+    }
+
+    /**
+     * 查询列表,并转换为对象T，低基数字符串字段做字典编码<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；指定字段（或抽样检测出的低基数字段）中相等的值共享同一个String实例
+     *
+     * @param clazz      对象Class
+     * @param dictionary 字典，为空则本次查询新建字典
+     * @param columns    低基数字段，数据库字段名或对象字段名；为空则抽样检测
+     * @param sql        SQL
+     * @param parameters 参数
+     * @return 数据
+     */
+    public <T> List<T> findObjectDictionaryListByClass(Class<T> clazz, StringDictionary dictionary, String[] columns, String sql, Object... parameters) {
+        return admit(Bulkhead.OLTP, jdbc -> JdbcTemplateUtils.findObjectDictionaryListByClass(jdbc, clazz, dictionary, columns, sql, parameters));
+    }
+
+    /**
+     * 查询列表,并转换为对象T，超过内存条数的数据写入临时文件<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；返回的列表只读，使用完毕后需要close删除临时文件
+     *
+     * @param clazz      对象Class
+     * @param memoryRows 内存中保留的条数，<0 则使用默认值
+     * @param sql        SQL
+     * @param parameters 参数
+     * @return 数据
+     */
+    public <T> SpillableList<T> findObjectSpillableListByClass(Class<T> clazz, int memoryRows, String sql, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectSpillableListByClass(jdbc, clazz, memoryRows, sql, parameters));
+    }
+
+    /**
+     * 查询列表,并以Mapper转换为对象T，超过内存条数的数据以codec编码写入临时文件<br/>
+     * 返回的列表只读，使用完毕后需要close删除临时文件
+     *
+     * @param rowMapper  查询值与对象的映射
+     * @param codec      对象的编解码
+     * @param memoryRows 内存中保留的条数，<0 则使用默认值
+     * @param sql        SQL
+     * @param parameters 参数
+     * @return 数据
+     */
+    public <T> SpillableList<T> findObjectSpillableListByMapper(RowMapper<T> rowMapper, RowCodec<T> codec, int memoryRows, String sql, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectSpillableListByMapper(jdbc, rowMapper, codec, memoryRows, sql, parameters));
+    }
+
+    /**
+     * 查询并流式导出为CSV/TSV，输出流由调用方关闭
+     *
+     * @param out        输出流
+     * @param exporter   导出器
+     * @param sql        SQL
+     * @param parameters 参数
+     * @return 导出的数据条数（不含表头）
+     */
+    public long exportBySql(OutputStream out, CsvExporter exporter, String sql, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.exportBySql(jdbc, out, exporter, sql, parameters));
+    }
+
+    /**
+     * 查询并流式导出为CSV/TSV，通道由调用方关闭
+     *
+     * @param channel    输出通道
+     * @param exporter   导出器
+     * @param sql        SQL
+     * @param parameters 参数
+     * @return 导出的数据条数（不含表头）
+     */
+    public long exportBySql(WritableByteChannel channel, CsvExporter exporter, String sql, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.exportBySql(jdbc, channel, exporter, sql, parameters));
     }
 
     /**
@@ -165,7 +426,7 @@ public abstract class AbstractSqlDaoSupport {
      * @return 分页数据
      */
     public <T> Page<T> findObjectPageByClassInMysql(Class<T> clazz, String sql, int start, int limit, Object... parameters) {
-        return JdbcTemplateUtils.findObjectPageByClassInMysql(getJdbcTemplate(), clazz, sql, start, limit, parameters);
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectPageByClassInMysql(jdbc, clazz, sql, start, limit, parameters));
     }
 
     /**
@@ -179,7 +440,165 @@ public abstract class AbstractSqlDaoSupport {
      * @return 分页数据
      */
     public <T> Page<T> findObjectPageByMapperInMysql(RowMapper<T> rowMapper, String sql, int start, int limit, Object... parameters) {
-        return JdbcTemplateUtils.findObjectPageByMapperInMysql(getJdbcTemplate(), rowMapper, sql, start, limit, parameters);
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectPageByMapperInMysql(jdbc, rowMapper, sql, start, limit, parameters));
+    }
+
+    /**
+     * 查询分页,并转换为对象T，总数在第一次访问时才查询<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；总数查询在访问时另行执行，可能与数据列表不一致
+     *
+     * @param clazz      类型
+     * @param sql        sql
+     * @param start      起始index
+     * @param limit      查询数量
+     * @param parameters 参数
+     * @return 分页数据
+     */
+    public <T> LazyPage<T> findObjectLazyPageByClassInMysql(Class<T> clazz, String sql, int start, int limit, Object... parameters) {
+        return findObjectLazyPageByMapperInMysql(JdbcTemplateUtils.getRowMapper(clazz), sql, start, limit, parameters);
+    }
+
+    /**
+     * 查询分页,并以Mapper转换为对象T，总数在第一次访问时才查询<br/>
+     * 总数查询在访问时另行执行（同样在report舱内），可能与数据列表不一致
+     *
+     * @param rowMapper  数据转换器
+     * @param sql        sql
+     * @param start      起始index
+     * @param limit      查询数量
+     * @param parameters 参数
+     * @return 分页数据
+     */
+    public <T> LazyPage<T> findObjectLazyPageByMapperInMysql(RowMapper<T> rowMapper, String sql, int start, int limit, Object... parameters) {
+        List<T> list = admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectListByMapper(jdbc, rowMapper, JdbcTemplateUtils.pageSqlInMysql(sql, start, limit), parameters));
+        return new LazyPage<>(list, start, limit, () -> admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectPageCountInMysql(jdbc, sql, parameters)));
+    }
+
+    /*-----------------------time partition---------------------------------------*/
+
+    /**
+     * 按时间分表存储数据，每条数据按日期字段路由到对应的表，每个表一批<br/>
+     * 配置了批量控制器时，按控制器的批量大小分批存储
+     *
+     * @param partition 分表规则
+     * @param dataList  数据
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return 每条数据的存储结果，与dataList顺序一致
+     */
+    public <T> int[] saveByPartition(TimePartition partition, List<T> dataList, boolean isIgnore, boolean autoId) {
+        IdGenerator idGenerator = getIdGenerator();
+        boolean databaseId = autoId && idGenerator == null;
+        return admit(Bulkhead.BATCH, jdbc -> {
+            if (autoId && idGenerator != null) {
+                JdbcTemplateUtils.assignIds(dataList, idGenerator);
+            }
+            return JdbcTemplateUtils.saveByPartition(jdbc, partition, dataList, getBatchController(), isIgnore, databaseId);
+        });
+    }
+
+    /**
+     * 按时间范围查询分表，并转换为对象T<br/>
+     * 只查询与范围有交集且存在的表，各表并行查询，结果按表的时间顺序合并
+     *
+     * @param partition  分表规则
+     * @param clazz      类型
+     * @param sql        SQL，表名写作 ${table}
+     * @param begin      开始时间（含）
+     * @param end        结束时间（含）
+     * @param desc       是否按时间倒序合并
+     * @param parameters 参数
+     * @return 数据
+     */
+    public <T> List<T> findObjectListByPartition(TimePartition partition, Class<T> clazz, String sql, Object begin, Object end, boolean desc, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectListByPartition(jdbc, partition, clazz, sql, begin, end, desc, parameters));
+    }
+
+    /**
+     * 按时间范围查询分表，并以Mapper转换为对象T<br/>
+     * 只查询与范围有交集且存在的表，各表并行查询，结果按表的时间顺序合并
+     *
+     * @param partition  分表规则
+     * @param rowMapper  数据转换器
+     * @param sql        SQL，表名写作 ${table}
+     * @param begin      开始时间（含）
+     * @param end        结束时间（含）
+     * @param desc       是否按时间倒序合并
+     * @param parameters 参数
+     * @return 数据
+     */
+    public <T> List<T> findObjectListByPartition(TimePartition partition, RowMapper<T> rowMapper, String sql, Object begin, Object end, boolean desc, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectListByPartition(jdbc, partition, rowMapper, sql, begin, end, desc, parameters));
+    }
+
+    /**
+     * 按时间范围分页查询分表,并转换为对象T<br/>
+     * SQL需按分表的日期字段排序，与desc方向一致
+     *
+     * @param partition  分表规则
+     * @param clazz      类型
+     * @param sql        SQL，表名写作 ${table}
+     * @param begin      开始时间（含）
+     * @param end        结束时间（含）
+     * @param desc       是否按时间倒序合并
+     * @param start      起始index
+     * @param limit      查询数量
+     * @param parameters 参数
+     * @return 分页数据
+     */
+    public <T> Page<T> findObjectPageByPartitionInMysql(TimePartition partition, Class<T> clazz, String sql, Object begin, Object end, boolean desc, int start, int limit, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectPageByPartitionInMysql(jdbc, partition, clazz, sql, begin, end, desc, start, limit, parameters));
+    }
+
+    /**
+     * 按时间范围分页查询分表,并以Mapper转换为对象T<br/>
+     * SQL需按分表的日期字段排序，与desc方向一致
+     *
+     * @param partition  分表规则
+     * @param rowMapper  数据转换器
+     * @param sql        SQL，表名写作 ${table}
+     * @param begin      开始时间（含）
+     * @param end        结束时间（含）
+     * @param desc       是否按时间倒序合并
+     * @param start      起始index
+     * @param limit      查询数量
+     * @param parameters 参数
+     * @return 分页数据
+     */
+    public <T> Page<T> findObjectPageByPartitionInMysql(TimePartition partition, RowMapper<T> rowMapper, String sql, Object begin, Object end, boolean desc, int start, int limit, Object... parameters) {
+        return admit(Bulkhead.REPORT, jdbc -> JdbcTemplateUtils.findObjectPageByPartitionInMysql(jdbc, partition, rowMapper, sql, begin, end, desc, start, limit, parameters));
+    }
+
+    /*-----------------------incremental---------------------------------------*/
+
+    /**
+     * 按水位增量读取新增或更新的数据，并转换为对象T<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；每批按（时间，id）排序读取，处理方处理成功后保存水位，直到读完<br/>
+     * 每批的查询在batch舱内执行，处理方处理数据时归还并发数
+     *
+     * @param query      增量读取规则
+     * @param clazz      对象Class
+     * @param consumer   每批数据的处理方，抛出异常时不保存该批的水位
+     * @param parameters 附加条件的参数
+     * @return 读取的总条数
+     */
+    public <T> long pollChanges(IncrementalQuery query, Class<T> clazz, Consumer<List<T>> consumer, Object... parameters) {
+        return pollChanges(query, JdbcTemplateUtils.getRowMapper(clazz), consumer, parameters);
+    }
+
+    /**
+     * 按水位增量读取新增或更新的数据，并以Mapper转换为对象T<br/>
+     * 每批按（时间，id）排序读取，处理方处理成功后保存水位，直到读完<br/>
+     * 每批的查询在batch舱内执行，处理方处理数据时归还并发数
+     *
+     * @param query      增量读取规则
+     * @param rowMapper  查询值与对象的映射
+     * @param consumer   每批数据的处理方，抛出异常时不保存该批的水位
+     * @param parameters 附加条件的参数
+     * @return 读取的总条数
+     */
+    public <T> long pollChanges(IncrementalQuery query, RowMapper<T> rowMapper, Consumer<List<T>> consumer, Object... parameters) {
+        return JdbcTemplateUtils.pollChanges(action -> admit(Bulkhead.BATCH, action), query, rowMapper, consumer, parameters);
     }
 
 }
@@ -0,0 +1,453 @@
+package cn.emay.orm;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 自适应批量大小控制器<br/>
+ * 按（表，操作）分别统计每批耗时与吞吐，采用AIMD方式调整批量大小：<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;整批耗时不超过目标耗时，批量大小加上固定步长；<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;超过目标耗时，批量大小乘以缩减系数；<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;遇到锁等待超时、查询超时、数据包过大，缩减批量大小并按新的大小重试失败的批次。<br/>
+ * 注意：重试会重新执行整个失败批次，失败的批次可能已经写入了部分数据，只有语句可重复执行（如带id的insert ignore、按主键删除），
+ * 或失败批次已回滚到保存点时，才能传 retry = true。<br/>
+ * 批量大小需满足 minBatchSize <= initialBatchSize <= maxBatchSize，在第一次使用时检查。
+ *
+ * @author Frank
+ */
+public class AdaptiveBatchController {
+
+    /**
+     * 存储
+     */
+    public static final String OPERATION_SAVE = "save";
+
+    /**
+     * 更新
+     */
+    public static final String OPERATION_UPDATE = "update";
+
+    /**
+     * 删除
+     */
+    public static final String OPERATION_DELETE = "delete";
+
+    /**
+     * 清除缓存
+     */
+    public static final String OPERATION_EVICT = "evict";
+
+    /**
+     * 最小批量大小
+     */
+    private int minBatchSize = 10;
+
+    /**
+     * 最大批量大小
+     */
+    private int maxBatchSize = 5000;
+
+    /**
+     * 初始批量大小
+     */
+    private int initialBatchSize = 100;
+
+    /**
+     * 每次增加的条数
+     */
+    private int increaseStep = 50;
+
+    /**
+     * 缩减系数
+     */
+    private double decreaseFactor = 0.5;
+
+    /**
+     * 每批目标耗时（毫秒）
+     */
+    private long targetLatencyMillis = 200;
+
+    /**
+     * 失败重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 表:操作 -> 状态
+     */
+    private final Map<String, BatchState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 批次执行
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface BatchAction<T> {
+
+        /**
+         * 执行一批
+         *
+         * @param batch 一批数据
+         * @return 影响条数
+         */
+        long execute(List<T> batch);
+
+    }
+
+    /**
+     * 当前批量大小
+     *
+     * @param table     表名
+     * @param operation 操作
+     * @return 批量大小
+     */
+    public int getBatchSize(String table, String operation) {
+        return getState(table, operation).getBatchSize();
+    }
+
+    /**
+     * 获取（表，操作）的统计
+     *
+     * @param table     表名
+     * @param operation 操作
+     * @return 统计
+     */
+    public BatchState getState(String table, String operation) {
+        String key = table + ":" + operation;
+        BatchState state = states.get(key);
+        if (state == null) {
+            checkBatchSizes();
+            state = states.computeIfAbsent(key, k -> new BatchState(table, operation, initialBatchSize));
+        }
+        return state;
+    }
+
+    /**
+     * 检查批量大小的上下限，各项可以按任意顺序设置，因此在使用时检查
+     */
+    private void checkBatchSizes() {
+        if (minBatchSize > initialBatchSize || initialBatchSize > maxBatchSize) {
+            throw new IllegalStateException("minBatchSize(" + minBatchSize + ") <= initialBatchSize(" + initialBatchSize + ") <= maxBatchSize(" + maxBatchSize + ") is required");
+        }
+    }
+
+    /**
+     * 所有（表，操作）的统计
+     *
+     * @return 统计
+     */
+    public List<BatchState> getStates() {
+        return new ArrayList<>(states.values());
+    }
+
+    /**
+     * 分批执行，按当前批量大小切分数据，失败时缩减批量大小并重试
+     *
+     * @param table     表名
+     * @param operation 操作
+     * @param items     数据
+     * @param retry     失败是否重试，只有语句可重复执行或失败批次已回滚时才能传true；hibernate session在失败后不可再用，应传false
+     * @param action    批次执行
+     * @return 影响总条数
+     */
+    public <T> long execute(String table, String operation, List<T> items, boolean retry, BatchAction<T> action) {
+        if (items == null || items.isEmpty()) {
+            return 0;
+        }
+        BatchState state = getState(table, operation);
+        long total = 0;
+        int offset = 0;
+        int size = items.size();
+        while (offset < size) {
+            int batchSize = state.getBatchSize();
+            int end = Math.min(size, offset + batchSize);
+            total += executeBatch(state, items.subList(offset, end), batchSize, retry ? maxRetries : 0, action);
+            offset = end;
+        }
+        return total;
+    }
+
+    /**
+     * 执行一批，失败时缩减后按新的批量大小拆分重试
+     *
+     * @param state     统计
+     * @param batch     一批数据
+     * @param batchSize 本批使用的批量大小
+     * @param retries   剩余重试次数
+     * @param action    批次执行
+     * @return 影响条数
+     */
+    private <T> long executeBatch(BatchState state, List<T> batch, int batchSize, int retries, BatchAction<T> action) {
+        long begin = System.nanoTime();
+        long rows;
+        try {
+            rows = action.execute(batch);
+        } catch (RuntimeException e) {
+            boolean shrinkable = isShrinkable(e);
+            state.onFailure(shrinkable);
+            if (!shrinkable || retries <= 0) {
+                throw e;
+            }
+            int newSize = state.getBatchSize();
+            long total = 0;
+            for (int offset = 0; offset < batch.size(); offset += newSize) {
+                total += executeBatch(state, batch.subList(offset, Math.min(batch.size(), offset + newSize)), newSize, retries - 1, action);
+            }
+            return total;
+        }
+        state.onSuccess(batch.size(), batchSize, rows, System.nanoTime() - begin);
+        return rows;
+    }
+
+    /**
+     * 是否为可以通过缩减批量大小缓解的异常：锁等待超时、查询超时、数据包过大
+     *
+     * @param e 异常
+     * @return 是否可缩减
+     */
+    protected boolean isShrinkable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CannotAcquireLockException || cause instanceof QueryTimeoutException) {
+                return true;
+            }
+            if (cause.getClass().getSimpleName().contains("PacketTooBig")) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String message = cause.getMessage();
+                if (message != null && (message.contains("max_allowed_packet") || message.contains("Lock wait timeout"))) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 限制在上下限之间
+     *
+     * @param size 批量大小
+     * @return 批量大小
+     */
+    private int clamp(int size) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public void setMinBatchSize(int minBatchSize) {
+        if (minBatchSize <= 0) {
+            throw new IllegalArgumentException("minBatchSize must > 0");
+        }
+        this.minBatchSize = minBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must > 0");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getInitialBatchSize() {
+        return initialBatchSize;
+    }
+
+    public void setInitialBatchSize(int initialBatchSize) {
+        if (initialBatchSize <= 0) {
+            throw new IllegalArgumentException("initialBatchSize must > 0");
+        }
+        this.initialBatchSize = initialBatchSize;
+    }
+
+    public int getIncreaseStep() {
+        return increaseStep;
+    }
+
+    public void setIncreaseStep(int increaseStep) {
+        if (increaseStep <= 0) {
+            throw new IllegalArgumentException("increaseStep must > 0");
+        }
+        this.increaseStep = increaseStep;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must between 0 and 1");
+        }
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public long getTargetLatencyMillis() {
+        return targetLatencyMillis;
+    }
+
+    public void setTargetLatencyMillis(long targetLatencyMillis) {
+        if (targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException("targetLatencyMillis must > 0");
+        }
+        this.targetLatencyMillis = targetLatencyMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must >= 0");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * （表，操作）的批量状态与统计
+     */
+    public class BatchState {
+
+        /**
+         * 表名
+         */
+        private final String table;
+
+        /**
+         * 操作
+         */
+        private final String operation;
+
+        /**
+         * 当前批量大小
+         */
+        private volatile int batchSize;
+
+        /**
+         * 成功批次数
+         */
+        private long batchCount;
+
+        /**
+         * 成功条数
+         */
+        private long rowCount;
+
+        /**
+         * 成功批次总耗时（纳秒）
+         */
+        private long totalNanos;
+
+        /**
+         * 失败次数
+         */
+        private long failureCount;
+
+        /**
+         * 最近一批耗时（纳秒）
+         */
+        private long lastNanos;
+
+        /**
+         * 吞吐（条/秒），指数加权平均
+         */
+        private double throughput;
+
+        BatchState(String table, String operation, int batchSize) {
+            this.table = table;
+            this.operation = operation;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * 成功
+         *
+         * @param items     本批数据条数
+         * @param batchSize 本批使用的批量大小
+         * @param rows      影响条数
+         * @param nanos     耗时
+         */
+        synchronized void onSuccess(int items, int batchSize, long rows, long nanos) {
+            batchCount++;
+            rowCount += rows;
+            totalNanos += nanos;
+            lastNanos = nanos;
+            double current = nanos > 0 ? items * 1_000_000_000D / nanos : 0;
+            throughput = throughput == 0 ? current : throughput * 0.8 + current * 0.2;
+            long millis = nanos / 1_000_000;
+            if (millis > targetLatencyMillis) {
+                this.batchSize = clamp((int) (this.batchSize * decreaseFactor));
+            } else if (items >= batchSize && batchSize >= this.batchSize) {
+                // 只有满批次才能说明当前大小还有余量
+                this.batchSize = clamp(this.batchSize + increaseStep);
+            }
+        }
+
+        /**
+         * 失败
+         *
+         * @param shrink 是否缩减
+         */
+        synchronized void onFailure(boolean shrink) {
+            failureCount++;
+            if (shrink) {
+                batchSize = clamp((int) (batchSize * decreaseFactor));
+            }
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public synchronized long getBatchCount() {
+            return batchCount;
+        }
+
+        public synchronized long getRowCount() {
+            return rowCount;
+        }
+
+        public synchronized long getFailureCount() {
+            return failureCount;
+        }
+
+        public synchronized double getAverageLatencyMillis() {
+            return batchCount == 0 ? 0 : totalNanos / 1_000_000D / batchCount;
+        }
+
+        public synchronized double getLastLatencyMillis() {
+            return lastNanos / 1_000_000D;
+        }
+
+        public synchronized double getThroughput() {
+            return throughput;
+        }
+
+    }
+
+}
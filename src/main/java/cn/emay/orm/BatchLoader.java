@@ -0,0 +1,329 @@
+package cn.emay.orm;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 合并并发请求的批量加载器<br/>
+ * 同一个key同时只有一次加载，并发请求共享结果；不同的key在maxDelayMicros时间窗口内或累积到maxBatchSize个时合并为一次批量加载。<br/>
+ * 加载在加载器自己的线程中执行，不参与调用方的事务；加载结果不做缓存，加载完成后新的请求会重新加载。
+ *
+ * @param <K> key
+ * @param <V> 值
+ * @author Frank
+ */
+public class BatchLoader<K, V> implements Closeable {
+
+    /**
+     * 默认每批最大key数
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * 默认合并等待时间（微秒）
+     */
+    public static final long DEFAULT_MAX_DELAY_MICROS = 1000L;
+
+    /**
+     * 默认加载线程数
+     */
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * 批量加载，返回 key -> 值，不存在的key可以不返回
+     */
+    private final Function<Set<K>, Map<K, V>> batchFunction;
+
+    /**
+     * 每批最大key数
+     */
+    private final int maxBatchSize;
+
+    /**
+     * 合并等待时间（微秒）
+     */
+    private final long maxDelayMicros;
+
+    /**
+     * 加载中的key
+     */
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 等待合并的key，由lock保护
+     */
+    private Set<K> pending = new LinkedHashSet<>();
+
+    /**
+     * 等待中的定时合并任务，由lock保护
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * 锁
+     */
+    private final Object lock = new Object();
+
+    /**
+     * 定时合并线程
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 加载线程
+     */
+    private final ExecutorService executor;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * 请求次数
+     */
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * 共享加载中结果的请求次数
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 批量加载次数
+     */
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * 使用默认参数
+     *
+     * @param name          名字，用于线程名
+     * @param batchFunction 批量加载
+     */
+    public BatchLoader(String name, Function<Set<K>, Map<K, V>> batchFunction) {
+        this(name, batchFunction, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MICROS, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param name           名字，用于线程名
+     * @param batchFunction  批量加载，返回 key -> 值，不存在的key可以不返回
+     * @param maxBatchSize   每批最大key数
+     * @param maxDelayMicros 合并等待时间（微秒）
+     * @param threads        加载线程数
+     */
+    public BatchLoader(String name, Function<Set<K>, Map<K, V>> batchFunction, int maxBatchSize, long maxDelayMicros, int threads) {
+        if (batchFunction == null) {
+            throw new NullPointerException("batchFunction is null");
+        }
+        if (maxBatchSize <= 0 || maxDelayMicros < 0 || threads <= 0) {
+            throw new IllegalArgumentException("maxBatchSize and threads must > 0, maxDelayMicros must >= 0");
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("emay-orm-loader-" + name + "-timer", new AtomicInteger()));
+        this.executor = Executors.newFixedThreadPool(threads, daemon("emay-orm-loader-" + name + "-", new AtomicInteger()));
+    }
+
+    /**
+     * 加载，阻塞直到结果返回
+     *
+     * @param key key
+     * @return 值，不存在返回null
+     */
+    public V load(K key) {
+        try {
+            return loadAsync(key).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步加载
+     *
+     * @param key key
+     * @return 结果，不存在为null
+     */
+    public CompletableFuture<V> loadAsync(K key) {
+        if (key == null) {
+            throw new NullPointerException("key is null");
+        }
+        if (closed) {
+            throw new IllegalStateException("loader is closed");
+        }
+        requests.increment();
+        CompletableFuture<V> future = inFlight.get(key);
+        if (future != null) {
+            coalesced.increment();
+            return future;
+        }
+        CompletableFuture<V> created = new CompletableFuture<>();
+        future = inFlight.putIfAbsent(key, created);
+        if (future != null) {
+            coalesced.increment();
+            return future;
+        }
+        Set<K> full = null;
+        synchronized (lock) {
+            pending.add(key);
+            if (pending.size() >= maxBatchSize || maxDelayMicros == 0) {
+                full = takePending();
+            } else if (scheduled == null) {
+                scheduled = scheduler.schedule(this::dispatchPending, maxDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return created;
+    }
+
+    /**
+     * 定时合并任务：加载等待中的key
+     */
+    private void dispatchPending() {
+        Set<K> keys;
+        synchronized (lock) {
+            scheduled = null;
+            keys = takePending();
+        }
+        if (!keys.isEmpty()) {
+            dispatch(keys);
+        }
+    }
+
+    /**
+     * 取出等待中的key，需持有lock
+     *
+     * @return key
+     */
+    private Set<K> takePending() {
+        Set<K> keys = pending;
+        pending = new LinkedHashSet<>();
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        return keys;
+    }
+
+    /**
+     * 提交批量加载
+     *
+     * @param keys key
+     */
+    private void dispatch(Set<K> keys) {
+        try {
+            executor.execute(() -> load(keys));
+        } catch (RejectedExecutionException e) {
+            fail(keys, e);
+        }
+    }
+
+    /**
+     * 批量加载并完成结果
+     *
+     * @param keys key
+     */
+    private void load(Set<K> keys) {
+        batches.increment();
+        Map<K, V> values;
+        try {
+            values = batchFunction.apply(keys);
+        } catch (Throwable e) {
+            fail(keys, e);
+            return;
+        }
+        for (K key : keys) {
+            CompletableFuture<V> future = inFlight.remove(key);
+            if (future != null) {
+                future.complete(values == null ? null : values.get(key));
+            }
+        }
+    }
+
+    /**
+     * 以异常完成结果
+     *
+     * @param keys key
+     * @param e    异常
+     */
+    private void fail(Set<K> keys, Throwable e) {
+        for (K key : keys) {
+            CompletableFuture<V> future = inFlight.remove(key);
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 请求次数
+     *
+     * @return 次数
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * 共享加载中结果的请求次数
+     *
+     * @return 次数
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 批量加载次数
+     *
+     * @return 次数
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * 关闭加载器，未完成的请求以异常结束
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Set<K> keys;
+        synchronized (lock) {
+            keys = takePending();
+        }
+        scheduler.shutdownNow();
+        executor.shutdown();
+        fail(keys, new IllegalStateException("loader is closed"));
+    }
+
+    /**
+     * 守护线程工厂
+     *
+     * @param prefix 线程名前缀
+     * @param index  线程序号
+     * @return 线程工厂
+     */
+    private static ThreadFactory daemon(String prefix, AtomicInteger index) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,76 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 按BeanSqlMapping直接向PreparedStatement绑定参数的批量设置器<br/>
+ * 使用预先解析的get方法和SQL类型按位置绑定，不为每行创建参数对象，也不按名字查找参数。<br/>
+ * 与 Class2SqlUtils.class2PreparedSaveSql 生成的SQL配合使用。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public class BeanBatchPreparedStatementSetter<T> implements BatchPreparedStatementSetter {
+
+    /**
+     * 映射
+     */
+    private final BeanSqlMapping mapping;
+
+    /**
+     * 数据
+     */
+    private final List<? extends T> dataList;
+
+    /**
+     * 参与存储的字段位置
+     */
+    private final int[] indexes;
+
+    /**
+     * 字段对应的SQL类型
+     */
+    private final int[] sqlTypes;
+
+    /**
+     * @param mapping  映射
+     * @param dataList 数据，非RandomAccess的List会复制一次
+     * @param autoId   是否适用数据库的自动生成ID
+     */
+    public BeanBatchPreparedStatementSetter(BeanSqlMapping mapping, List<? extends T> dataList, boolean autoId) {
+        if (mapping == null) {
+            throw new NullPointerException("mapping is null");
+        }
+        if (dataList == null) {
+            throw new NullPointerException("dataList is null");
+        }
+        this.mapping = mapping;
+        this.dataList = dataList instanceof RandomAccess ? dataList : new ArrayList<>(dataList);
+        this.indexes = mapping.getSaveIndexes(autoId);
+        this.sqlTypes = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            sqlTypes[i] = mapping.getSqlType(indexes[i]);
+        }
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+        T data = dataList.get(i);
+        for (int j = 0; j < indexes.length; j++) {
+            StatementCreatorUtils.setParameterValue(ps, j + 1, sqlTypes[j], mapping.getValue(data, indexes[j]));
+        }
+    }
+
+    @Override
+    public int getBatchSize() {
+        return dataList.size();
+    }
+
+}
@@ -0,0 +1,301 @@
+package cn.emay.orm;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按bean可读写属性编解码的RowCodec<br/>
+ * 每个属性写入一个类型标记及值：字符串、数字、布尔、日期时间、byte[]使用紧凑的二进制格式，其它类型使用java序列化（需实现Serializable）。<br/>
+ * 每个Class只解析一次。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public class BeanRowCodec<T> implements RowCodec<T> {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte BIG_DECIMAL = 9;
+    private static final byte BIG_INTEGER = 10;
+    private static final byte DATE = 11;
+    private static final byte SQL_DATE = 12;
+    private static final byte TIME = 13;
+    private static final byte TIMESTAMP = 14;
+    private static final byte BYTES = 15;
+    private static final byte SERIALIZED = 16;
+
+    /**
+     * Class -> RowCodec
+     */
+    private static final Map<Class<?>, BeanRowCodec<?>> CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * 类
+     */
+    private final Class<T> beanClass;
+
+    /**
+     * 无参构造方法
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * 属性get方法，签名统一为 (Object)Object
+     */
+    private final MethodHandle[] getters;
+
+    /**
+     * 属性set方法，签名统一为 (Object,Object)void
+     */
+    private final MethodHandle[] setters;
+
+    /**
+     * set方法的参数是否为基本类型，基本类型遇到null时保留默认值
+     */
+    private final boolean[] primitives;
+
+    /**
+     * 获取Class的RowCodec
+     *
+     * @param clazz 类
+     * @return RowCodec
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowCodec<T> of(Class<T> clazz) {
+        if (clazz == null) {
+            throw new NullPointerException("class is null");
+        }
+        BeanRowCodec<?> codec = CODECS.get(clazz);
+        if (codec == null) {
+            codec = CODECS.computeIfAbsent(clazz, BeanRowCodec::new);
+        }
+        return (BeanRowCodec<T>) codec;
+    }
+
+    private BeanRowCodec(Class<T> clazz) {
+        this.beanClass = clazz;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<MethodHandle> getters = new ArrayList<>();
+        List<MethodHandle> setters = new ArrayList<>();
+        List<Boolean> primitives = new ArrayList<>();
+        try {
+            Constructor<T> noArgConstructor = clazz.getDeclaredConstructor();
+            noArgConstructor.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(noArgConstructor).asType(MethodType.methodType(Object.class));
+            for (PropertyDescriptor property : Introspector.getBeanInfo(clazz).getPropertyDescriptors()) {
+                if (property.getReadMethod() == null || property.getWriteMethod() == null) {
+                    continue;
+                }
+                property.getReadMethod().setAccessible(true);
+                property.getWriteMethod().setAccessible(true);
+                getters.add(lookup.unreflect(property.getReadMethod()).asType(MethodType.methodType(Object.class, Object.class)));
+                setters.add(lookup.unreflect(property.getWriteMethod()).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+                primitives.add(property.getWriteMethod().getParameterTypes()[0].isPrimitive());
+            }
+        } catch (IntrospectionException | ReflectiveOperationException | SecurityException e) {
+            throw new IllegalArgumentException(clazz.getName() + " can not be encoded: " + e.getMessage(), e);
+        }
+        this.getters = getters.toArray(new MethodHandle[0]);
+        this.setters = setters.toArray(new MethodHandle[0]);
+        this.primitives = new boolean[primitives.size()];
+        for (int i = 0; i < this.primitives.length; i++) {
+            this.primitives[i] = primitives.get(i);
+        }
+    }
+
+    @Override
+    public void write(T data, DataOutput out) throws IOException {
+        for (MethodHandle getter : getters) {
+            Object value;
+            try {
+                value = getter.invokeExact((Object) data);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            writeValue(value, out);
+        }
+    }
+
+    @Override
+    public T read(DataInput in) throws IOException {
+        Object bean;
+        try {
+            bean = constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                Object value = readValue(in);
+                // 构造方法可能给属性设置了非null的默认值，null也要写回；基本类型不能为null，保留默认值
+                if (value != null || !primitives[i]) {
+                    setters[i].invokeExact(bean, value);
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        return beanClass.cast(bean);
+    }
+
+    /**
+     * 写入一个值
+     *
+     * @param value 值
+     * @param out   输出
+     * @throws IOException 异常
+     */
+    private static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            BigDecimal decimal = (BigDecimal) value;
+            out.writeInt(decimal.scale());
+            writeBytes(decimal.unscaledValue().toByteArray(), out);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(((BigInteger) value).toByteArray(), out);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Time) {
+            out.writeByte(TIME);
+            out.writeLong(((Date) value).getTime());
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes((byte[]) value, out);
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            writeBytes(bytes.toByteArray(), out);
+        } else {
+            throw new NotSerializableException(value.getClass().getName());
+        }
+    }
+
+    /**
+     * 读取一个值
+     *
+     * @param in 输入
+     * @return 值
+     * @throws IOException 异常
+     */
+    private static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return in.readInt();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case BIG_DECIMAL:
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case TIME:
+                return new Time(in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            case BYTES:
+                return readBytes(in);
+            case SERIALIZED:
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+                    return ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new InvalidClassException(e.getMessage());
+                }
+            default:
+                throw new StreamCorruptedException("unknown value type " + type);
+        }
+    }
+
+    private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+}
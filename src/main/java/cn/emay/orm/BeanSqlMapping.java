@@ -0,0 +1,319 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 类与数据库字段的映射<br/>
+ * 按照驼峰转下划线的方式，将Class的可读字段映射到数据库字段；每个Class只解析一次。<br/>
+ * 字段顺序与Introspector返回的属性顺序一致，生成SQL与绑定参数均以此顺序为准。
+ *
+ * @author Frank
+ */
+public class BeanSqlMapping {
+
+    /**
+     * Class -> 映射
+     */
+    private static final Map<Class<?>, BeanSqlMapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    /**
+     * 类
+     */
+    private final Class<?> beanClass;
+
+    /**
+     * 字段名
+     */
+    private final String[] propertyNames;
+
+    /**
+     * 数据库字段名
+     */
+    private final String[] columnNames;
+
+    /**
+     * 字段类型
+     */
+    private final Class<?>[] propertyTypes;
+
+    /**
+     * 字段对应的SQL类型
+     */
+    private final int[] sqlTypes;
+
+    /**
+     * 字段get方法，签名统一为 (Object)Object
+     */
+    private final MethodHandle[] getters;
+
+    /**
+     * id字段的位置，没有则为-1
+     */
+    private final int idIndex;
+
+    /**
+     * id字段的set方法，签名统一为 (Object,Object)void，没有则为null
+     */
+    private final MethodHandle idSetter;
+
+    /**
+     * 获取Class的映射
+     *
+     * @param clazz 类
+     * @return 映射
+     * @throws IntrospectionException 异常
+     */
+    public static BeanSqlMapping of(Class<?> clazz) throws IntrospectionException {
+        if (clazz == null) {
+            throw new NullPointerException("class is null");
+        }
+        BeanSqlMapping mapping = MAPPINGS.get(clazz);
+        if (mapping == null) {
+            mapping = new BeanSqlMapping(clazz);
+            BeanSqlMapping old = MAPPINGS.putIfAbsent(clazz, mapping);
+            if (old != null) {
+                mapping = old;
+            }
+        }
+        return mapping;
+    }
+
+    private BeanSqlMapping(Class<?> clazz) throws IntrospectionException {
+        this.beanClass = clazz;
+        List<PropertyDescriptor> properties = new ArrayList<>();
+        BeanInfo beanInfo = Introspector.getBeanInfo(clazz);
+        for (PropertyDescriptor property : beanInfo.getPropertyDescriptors()) {
+            if ("class".equalsIgnoreCase(property.getName())) {
+                continue;
+            }
+            if (property.getReadMethod() == null) {
+                continue;
+            }
+            properties.add(property);
+        }
+        int size = properties.size();
+        this.propertyNames = new String[size];
+        this.columnNames = new String[size];
+        this.propertyTypes = new Class<?>[size];
+        this.sqlTypes = new int[size];
+        this.getters = new MethodHandle[size];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType getterType = MethodType.methodType(Object.class, Object.class);
+        int idIndex = -1;
+        MethodHandle idSetter = null;
+        for (int i = 0; i < size; i++) {
+            PropertyDescriptor property = properties.get(i);
+            Method readMethod = property.getReadMethod();
+            propertyNames[i] = property.getName();
+            columnNames[i] = Class2SqlUtils.hump2Underline(property.getName());
+            propertyTypes[i] = property.getPropertyType();
+            sqlTypes[i] = StatementCreatorUtils.javaTypeToSqlParameterType(property.getPropertyType());
+            try {
+                readMethod.setAccessible(true);
+                getters[i] = lookup.unreflect(readMethod).asType(getterType);
+            } catch (IllegalAccessException | SecurityException e) {
+                throw new IntrospectionException(clazz.getName() + "." + readMethod.getName() + " is not accessible: " + e.getMessage());
+            }
+            if ("id".equalsIgnoreCase(property.getName())) {
+                idIndex = i;
+                Method writeMethod = property.getWriteMethod();
+                if (writeMethod != null) {
+                    try {
+                        writeMethod.setAccessible(true);
+                        idSetter = lookup.unreflect(writeMethod).asType(MethodType.methodType(void.class, Object.class, Object.class));
+                    } catch (IllegalAccessException | SecurityException e) {
+                        throw new IntrospectionException(clazz.getName() + "." + writeMethod.getName() + " is not accessible: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        this.idIndex = idIndex;
+        this.idSetter = idSetter;
+    }
+
+    /**
+     * 读取字段值
+     *
+     * @param bean  对象
+     * @param index 字段位置
+     * @return 值
+     */
+    public Object getValue(Object bean, int index) {
+        try {
+            return getters[index].invokeExact(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(beanClass.getName() + "." + propertyNames[index] + " read error", e);
+        }
+    }
+
+    /**
+     * id字段是否为空，基本类型的id为0视为空
+     *
+     * @param bean 对象
+     * @return 是否为空
+     */
+    public boolean isIdAbsent(Object bean) {
+        if (idIndex < 0) {
+            throw new IllegalArgumentException(beanClass.getName() + " has no id property");
+        }
+        Object current = getValue(bean, idIndex);
+        return current == null || (propertyTypes[idIndex].isPrimitive() && ((Number) current).longValue() == 0);
+    }
+
+    /**
+     * id字段为空时设置id
+     *
+     * @param bean 对象
+     * @param id   id
+     * @return 是否设置了id
+     */
+    public boolean setIdIfAbsent(Object bean, long id) {
+        if (idSetter == null) {
+            throw new IllegalArgumentException(beanClass.getName() + " has no writable id property");
+        }
+        if (!isIdAbsent(bean)) {
+            return false;
+        }
+        try {
+            idSetter.invokeExact(bean, convertId(id, propertyTypes[idIndex]));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException(beanClass.getName() + "." + propertyNames[idIndex] + " write error", e);
+        }
+        return true;
+    }
+
+    /**
+     * 将生成的id转换为id字段的类型
+     *
+     * @param id   id
+     * @param type id字段类型，支持Long、Integer、String、BigInteger、BigDecimal
+     * @return id
+     */
+    static Object convertId(long id, Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return id;
+        }
+        if (type == Integer.class || type == int.class) {
+            if (id > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("id " + id + " overflows int");
+            }
+            return (int) id;
+        }
+        if (type == String.class) {
+            return String.valueOf(id);
+        }
+        if (type == BigInteger.class) {
+            return BigInteger.valueOf(id);
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.valueOf(id);
+        }
+        throw new IllegalArgumentException("id type " + type.getName() + " is not supported");
+    }
+
+    /**
+     * 类
+     *
+     * @return 类
+     */
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 字段数量
+     *
+     * @return 数量
+     */
+    public int getPropertyCount() {
+        return propertyNames.length;
+    }
+
+    /**
+     * 字段名
+     *
+     * @param index 字段位置
+     * @return 字段名
+     */
+    public String getPropertyName(int index) {
+        return propertyNames[index];
+    }
+
+    /**
+     * 数据库字段名
+     *
+     * @param index 字段位置
+     * @return 数据库字段名
+     */
+    public String getColumnName(int index) {
+        return columnNames[index];
+    }
+
+    /**
+     * 字段类型
+     *
+     * @param index 字段位置
+     * @return 字段类型
+     */
+    public Class<?> getPropertyType(int index) {
+        return propertyTypes[index];
+    }
+
+    /**
+     * 字段对应的SQL类型（java.sql.Types）
+     *
+     * @param index 字段位置
+     * @return SQL类型
+     */
+    public int getSqlType(int index) {
+        return sqlTypes[index];
+    }
+
+    /**
+     * id字段的位置
+     *
+     * @return 位置，没有则为-1
+     */
+    public int getIdIndex() {
+        return idIndex;
+    }
+
+    /**
+     * 参与存储的字段位置
+     *
+     * @param autoId 是否适用数据库的自动生成ID
+     * @return 字段位置
+     */
+    public int[] getSaveIndexes(boolean autoId) {
+        boolean skipId = autoId && idIndex >= 0;
+        int[] indexes = new int[skipId ? propertyNames.length - 1 : propertyNames.length];
+        int j = 0;
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (skipId && i == idIndex) {
+                continue;
+            }
+            indexes[j++] = i;
+        }
+        return indexes;
+    }
+
+}
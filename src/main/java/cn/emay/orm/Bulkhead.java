@@ -0,0 +1,500 @@
+package cn.emay.orm;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 隔离舱：按操作类别限制并发的准入控制<br/>
+ * 每个舱（如 oltp、report、batch）有独立的并发上限、排队上限、最长排队时间及默认语句超时，
+ * 报表、批量等重操作只能占用自己舱内的连接数，不会把连接池占满而拖慢核心的OLTP操作。<br/>
+ * 排队已满或排队超时立即抛出 RejectedException，不再等待连接池；
+ * 同一线程内嵌套的调用加入最外层的舱，不重复占用并发数，使用外层舱的超时；
+ * 交给其他线程并行执行的子查询（如跨分表查询）每个另外占用一个并发数。<br/>
+ * 用法：在DAO中覆盖 getBulkhead 返回共享的实例，DAO方法按 OLTP/REPORT/BATCH 自动归类，
+ * 也可通过 AbstractSqlDaoSupport.executeIn 将一组调用归入指定的舱。
+ *
+ * @author Frank
+ */
+public class Bulkhead {
+
+    /**
+     * 在线交易：单条查询、列表查询、单条增删改
+     */
+    public static final String OLTP = "oltp";
+
+    /**
+     * 报表：分页、导出、跨分表查询、流式查询
+     */
+    public static final String REPORT = "report";
+
+    /**
+     * 批量：批量存储、同步、批量增删改
+     */
+    public static final String BATCH = "batch";
+
+    /**
+     * 当前线程所在的舱
+     */
+    private static final ThreadLocal<Compartment> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 舱名 -> 舱
+     */
+    private final Map<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+    /**
+     * 按连接池大小创建默认的隔离舱：<br/>
+     * &nbsp;&nbsp;&nbsp;&nbsp;report、batch 各占连接池的1/4，排队不超过各自的并发数，report排队最多1秒，batch最多5秒；<br/>
+     * &nbsp;&nbsp;&nbsp;&nbsp;oltp 可用整个连接池，排队最多1秒，语句超时5秒；report超时60秒，batch超时300秒。<br/>
+     * 报表和批量最多占用一半的连接，另一半始终留给oltp。
+     *
+     * @param poolSize 连接池大小
+     * @return 隔离舱
+     */
+    public static Bulkhead forPool(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        int heavy = Math.max(1, poolSize / 4);
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.define(OLTP, poolSize, -1, 1000L, 5);
+        bulkhead.define(REPORT, heavy, heavy, 1000L, 60);
+        bulkhead.define(BATCH, heavy, heavy, 5000L, 300);
+        return bulkhead;
+    }
+
+    /**
+     * 定义舱，已存在同名的舱时替换（正在执行的操作仍归还到原来的舱）
+     *
+     * @param name           舱名
+     * @param maxConcurrent  最大并发数
+     * @param maxQueue       最大排队数，<0 不限制
+     * @param maxWaitMillis  最长排队时间（毫秒），<=0 不排队，没有空闲并发数时立即拒绝
+     * @param timeoutSeconds 默认语句超时（秒），<=0 不设置；事务设置了超时时以事务剩余时间为准
+     * @return 舱
+     */
+    public Compartment define(String name, int maxConcurrent, int maxQueue, long maxWaitMillis, int timeoutSeconds) {
+        if (name == null) {
+            throw new NullPointerException("name is null");
+        }
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        Compartment compartment = new Compartment(name, maxConcurrent, maxQueue, maxWaitMillis, timeoutSeconds);
+        compartments.put(name, compartment);
+        return compartment;
+    }
+
+    /**
+     * 获取舱
+     *
+     * @param name 舱名
+     * @return 舱，未定义返回null
+     */
+    public Compartment getCompartment(String name) {
+        return name == null ? null : compartments.get(name);
+    }
+
+    /**
+     * 所有舱
+     *
+     * @return 舱
+     */
+    public List<Compartment> getCompartments() {
+        return new ArrayList<>(compartments.values());
+    }
+
+    /**
+     * 在舱内执行JdbcTemplate操作<br/>
+     * 操作拿到的JdbcTemplate带有舱的默认语句超时；舱未定义时不限制
+     *
+     * @param name         舱名
+     * @param jdbcTemplate jdbcTemplate
+     * @param action       操作
+     * @return 操作结果
+     */
+    public <R> R execute(String name, JdbcTemplate jdbcTemplate, Function<JdbcTemplate, R> action) {
+        Compartment current = CURRENT.get();
+        if (current != null) {
+            return action.apply(current.template(jdbcTemplate));
+        }
+        Compartment compartment = getCompartment(name);
+        if (compartment == null) {
+            return action.apply(jdbcTemplate);
+        }
+        return compartment.execute(() -> action.apply(compartment.template(jdbcTemplate)));
+    }
+
+    /**
+     * 在舱内执行操作<br/>
+     * 操作中的hql查询使用舱的默认语句超时；舱未定义时不限制
+     *
+     * @param name   舱名
+     * @param action 操作
+     * @return 操作结果
+     */
+    public <R> R execute(String name, Supplier<R> action) {
+        if (CURRENT.get() != null) {
+            return action.get();
+        }
+        Compartment compartment = getCompartment(name);
+        if (compartment == null) {
+            return action.get();
+        }
+        return compartment.execute(action);
+    }
+
+    /**
+     * 将任务交给其他线程执行前，绑定当前线程所在的舱<br/>
+     * 任务在执行线程中另外占用舱的一个并发数，并使用舱的超时；当前线程不在舱内时原样返回
+     *
+     * @param task 任务
+     * @return 绑定舱后的任务
+     */
+    static <R> Supplier<R> propagate(Supplier<R> task) {
+        Compartment current = CURRENT.get();
+        if (current == null) {
+            return task;
+        }
+        return () -> current.execute(task);
+    }
+
+    /**
+     * 当前线程所在舱的默认语句超时
+     *
+     * @return 超时（秒），不在舱内或未设置返回0
+     */
+    public static int currentTimeoutSeconds() {
+        Compartment current = CURRENT.get();
+        return current == null ? 0 : current.getTimeoutSeconds();
+    }
+
+    /**
+     * 取得带超时的JdbcTemplate所对应的原始JdbcTemplate
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @return 原始JdbcTemplate
+     */
+    static JdbcTemplate sourceOf(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate instanceof TimeoutJdbcTemplate ? ((TimeoutJdbcTemplate) jdbcTemplate).source : jdbcTemplate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Bulkhead");
+        for (Compartment compartment : compartments.values()) {
+            builder.append(' ').append(compartment);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 舱
+     */
+    public static class Compartment {
+
+        /**
+         * 舱名
+         */
+        private final String name;
+
+        /**
+         * 最大并发数
+         */
+        private final int maxConcurrent;
+
+        /**
+         * 最大排队数，<0 不限制
+         */
+        private final int maxQueue;
+
+        /**
+         * 最长排队时间（毫秒）
+         */
+        private final long maxWaitMillis;
+
+        /**
+         * 默认语句超时（秒）
+         */
+        private final int timeoutSeconds;
+
+        /**
+         * 并发许可，公平排队
+         */
+        private final Semaphore permits;
+
+        /**
+         * 排队数
+         */
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        /**
+         * 并发数峰值
+         */
+        private final AtomicInteger peakInUse = new AtomicInteger();
+
+        /**
+         * 准入次数
+         */
+        private final LongAdder admitted = new LongAdder();
+
+        /**
+         * 拒绝次数
+         */
+        private final LongAdder rejected = new LongAdder();
+
+        /**
+         * 语句超时次数
+         */
+        private final LongAdder timedOut = new LongAdder();
+
+        /**
+         * 排队总耗时（纳秒）
+         */
+        private final LongAdder waitNanos = new LongAdder();
+
+        /**
+         * 原始JdbcTemplate -> 带超时的JdbcTemplate
+         */
+        private final Map<JdbcTemplate, JdbcTemplate> templates = new ConcurrentHashMap<>();
+
+        /**
+         * 构造
+         *
+         * @param name           舱名
+         * @param maxConcurrent  最大并发数
+         * @param maxQueue       最大排队数
+         * @param maxWaitMillis  最长排队时间（毫秒）
+         * @param timeoutSeconds 默认语句超时（秒）
+         */
+        private Compartment(String name, int maxConcurrent, int maxQueue, long maxWaitMillis, int timeoutSeconds) {
+            this.name = name;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.maxWaitMillis = maxWaitMillis;
+            this.timeoutSeconds = timeoutSeconds;
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+
+        /**
+         * 占用并发数执行操作，结束后归还
+         *
+         * @param action 操作
+         * @return 操作结果
+         */
+        private <R> R execute(Supplier<R> action) {
+            acquire();
+            CURRENT.set(this);
+            try {
+                return action.get();
+            } catch (QueryTimeoutException e) {
+                timedOut.increment();
+                throw e;
+            } finally {
+                CURRENT.remove();
+                permits.release();
+            }
+        }
+
+        /**
+         * 获取并发许可，排队已满、排队超时或被中断时拒绝
+         */
+        private void acquire() {
+            if (!permits.tryAcquire()) {
+                if (maxWaitMillis <= 0) {
+                    reject("no free permit");
+                }
+                int queued = waiting.incrementAndGet();
+                try {
+                    if (maxQueue >= 0 && queued > maxQueue) {
+                        reject("queue is full");
+                    }
+                    long begin = System.nanoTime();
+                    boolean acquired;
+                    try {
+                        acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        acquired = false;
+                    } finally {
+                        waitNanos.add(System.nanoTime() - begin);
+                    }
+                    if (!acquired) {
+                        reject("waited " + maxWaitMillis + "ms");
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            admitted.increment();
+            int inUse = getInUse();
+            int peak = peakInUse.get();
+            while (inUse > peak && !peakInUse.compareAndSet(peak, inUse)) {
+                peak = peakInUse.get();
+            }
+        }
+
+        /**
+         * 拒绝
+         *
+         * @param reason 原因
+         */
+        private void reject(String reason) {
+            rejected.increment();
+            throw new RejectedException("bulkhead [" + name + "] rejected: " + reason + ", inUse=" + getInUse() + "/" + maxConcurrent + ", waiting=" + waiting.get());
+        }
+
+        /**
+         * 带舱默认语句超时的JdbcTemplate，同一个原始JdbcTemplate共享一个实例
+         *
+         * @param jdbcTemplate 原始JdbcTemplate
+         * @return JdbcTemplate
+         */
+        private JdbcTemplate template(JdbcTemplate jdbcTemplate) {
+            if (timeoutSeconds <= 0 || jdbcTemplate == null) {
+                return jdbcTemplate;
+            }
+            JdbcTemplate source = sourceOf(jdbcTemplate);
+            JdbcTemplate template = templates.get(source);
+            if (template != null) {
+                return template;
+            }
+            return templates.computeIfAbsent(source, key -> new TimeoutJdbcTemplate(key, timeoutSeconds));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public int getTimeoutSeconds() {
+            return timeoutSeconds;
+        }
+
+        /**
+         * 正在使用的并发数
+         *
+         * @return 并发数
+         */
+        public int getInUse() {
+            return maxConcurrent - permits.availablePermits();
+        }
+
+        /**
+         * 并发数峰值
+         *
+         * @return 并发数
+         */
+        public int getPeakInUse() {
+            return peakInUse.get();
+        }
+
+        /**
+         * 正在排队的数量
+         *
+         * @return 排队数
+         */
+        public int getWaiting() {
+            return waiting.get();
+        }
+
+        public long getAdmitted() {
+            return admitted.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getTimedOut() {
+            return timedOut.sum();
+        }
+
+        /**
+         * 排队总耗时（毫秒）
+         *
+         * @return 耗时
+         */
+        public long getWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+        }
+
+        @Override
+        public String toString() {
+            return name + "[inUse=" + getInUse() + "/" + maxConcurrent + ", peak=" + getPeakInUse() + ", waiting=" + getWaiting() + ", admitted=" + getAdmitted()
+                    + ", rejected=" + getRejected() + ", timedOut=" + getTimedOut() + "]";
+        }
+
+    }
+
+    /**
+     * 隔离舱拒绝执行<br/>
+     * 属于暂时性错误，稍后重试可能成功
+     */
+    public static class RejectedException extends TransientDataAccessResourceException {
+
+        private static final long serialVersionUID = 1L;
+
+        public RejectedException(String msg) {
+            super(msg);
+        }
+
+    }
+
+    /**
+     * 带默认语句超时的JdbcTemplate<br/>
+     * 复制原始JdbcTemplate的数据源及设置，只替换语句超时
+     */
+    static final class TimeoutJdbcTemplate extends JdbcTemplate {
+
+        /**
+         * 原始JdbcTemplate
+         */
+        private final JdbcTemplate source;
+
+        /**
+         * 构造
+         *
+         * @param source         原始JdbcTemplate
+         * @param timeoutSeconds 语句超时（秒），原始JdbcTemplate的超时更短时使用原始的
+         */
+        private TimeoutJdbcTemplate(JdbcTemplate source, int timeoutSeconds) {
+            this.source = source;
+            setDataSource(source.getDataSource());
+            setExceptionTranslator(source.getExceptionTranslator());
+            setIgnoreWarnings(source.isIgnoreWarnings());
+            setFetchSize(source.getFetchSize());
+            setMaxRows(source.getMaxRows());
+            setSkipResultsProcessing(source.isSkipResultsProcessing());
+            setSkipUndeclaredResults(source.isSkipUndeclaredResults());
+            setResultsMapCaseInsensitive(source.isResultsMapCaseInsensitive());
+            int sourceTimeout = source.getQueryTimeout();
+            setQueryTimeout(sourceTimeout > 0 ? Math.min(sourceTimeout, timeoutSeconds) : timeoutSeconds);
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带解析SQL缓存统计的NamedParameterJdbcTemplate<br/>
+ * 读缓存无锁，超过缓存上限时按放入顺序淘汰；统计缓存命中/未命中次数。<br/>
+ * 请通过 NamedParameterJdbcTemplateRegistry 获取共享实例，不要每次调用都新建。
+ *
+ * @author Frank
+ */
+public class CachingNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate {
+
+    /**
+     * 已解析的SQL
+     */
+    private final Map<String, ParsedSql> parsedSqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * 放入缓存的顺序，用于淘汰
+     */
+    private final Queue<String> parsedSqlOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 缓存上限，<=0 不缓存
+     */
+    private volatile int cacheLimit;
+
+    /**
+     * 命中次数
+     */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * 未命中次数
+     */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * @param jdbcTemplate jdbcTemplate
+     * @param cacheLimit   解析SQL缓存上限，<=0 不缓存
+     */
+    public CachingNamedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, int cacheLimit) {
+        super(jdbcTemplate);
+        this.cacheLimit = cacheLimit;
+    }
+
+    @Override
+    public void setCacheLimit(int cacheLimit) {
+        this.cacheLimit = cacheLimit;
+        evictOverflow();
+    }
+
+    @Override
+    public int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    @Override
+    protected ParsedSql getParsedSql(String sql) {
+        if (cacheLimit <= 0) {
+            cacheMisses.increment();
+            return NamedParameterUtils.parseSqlStatement(sql);
+        }
+        ParsedSql parsedSql = parsedSqlCache.get(sql);
+        if (parsedSql != null) {
+            cacheHits.increment();
+            return parsedSql;
+        }
+        cacheMisses.increment();
+        parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        if (parsedSqlCache.putIfAbsent(sql, parsedSql) == null) {
+            parsedSqlOrder.add(sql);
+            evictOverflow();
+        }
+        return parsedSql;
+    }
+
+    /**
+     * 淘汰超出上限的缓存
+     */
+    private void evictOverflow() {
+        while (parsedSqlCache.size() > Math.max(cacheLimit, 0)) {
+            String eldest = parsedSqlOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            parsedSqlCache.remove(eldest);
+        }
+    }
+
+    /**
+     * 清空解析SQL缓存及统计
+     */
+    public void clearCache() {
+        parsedSqlCache.clear();
+        parsedSqlOrder.clear();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    /**
+     * 当前缓存的SQL条数
+     *
+     * @return 条数
+     */
+    public int getCacheSize() {
+        return parsedSqlCache.size();
+    }
+
+    /**
+     * 缓存命中次数
+     *
+     * @return 次数
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * 缓存未命中次数
+     *
+     * @return 次数
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+}
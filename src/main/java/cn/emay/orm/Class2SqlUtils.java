@@ -2,10 +2,7 @@ package cn.emay.orm;
 
 import cn.emay.utils.string.StringUtils;
 
-import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +25,36 @@ public class Class2SqlUtils {
      * @throws IntrospectionException 异常
      */
     public static String class2SaveSql(Class<?> clazz, String tableName, boolean isIgnore, boolean autoId) throws IntrospectionException {
+        return class2SaveSql(clazz, tableName, isIgnore, autoId, true);
+    }
+
+    /**
+     * 将Class转换为使用?占位的save Sql <br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段；参数顺序与BeanSqlMapping一致
+     *
+     * @param clazz     类
+     * @param tableName 数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return sql
+     * @throws IntrospectionException 异常
+     */
+    public static String class2PreparedSaveSql(Class<?> clazz, String tableName, boolean isIgnore, boolean autoId) throws IntrospectionException {
+        return class2SaveSql(clazz, tableName, isIgnore, autoId, false);
+    }
+
+    /**
+     * 将Class转换为save Sql
+     *
+     * @param clazz     类
+     * @param tableName 数据库表名
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @param named     是否使用名字占位
+     * @return sql
+     * @throws IntrospectionException 异常
+     */
+    private static String class2SaveSql(Class<?> clazz, String tableName, boolean isIgnore, boolean autoId, boolean named) throws IntrospectionException {
         if (clazz == null) {
             throw new NullPointerException("class is null");
         }
@@ -35,21 +62,12 @@ public class Class2SqlUtils {
         if (StringUtils.isEmpty(tableName)) {
             tableName = hump2Underline(clazz.getSimpleName());
         }
+        BeanSqlMapping mapping = BeanSqlMapping.of(clazz);
         List<String> tableColumns = new ArrayList<>();
         List<String> modelColumns = new ArrayList<>();
-        BeanInfo beanInfo = Introspector.getBeanInfo(clazz);
-        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-        for (PropertyDescriptor property : propertyDescriptors) {
-            String filedName = property.getName();
-            if ("class".equalsIgnoreCase(filedName)) {
-                continue;
-            }
-            if (autoId && "id".equalsIgnoreCase(filedName)) {
-                continue;
-            }
-            modelColumns.add(":" + filedName);
-            String columnName = hump2Underline(filedName);
-            tableColumns.add(columnName);
+        for (int index : mapping.getSaveIndexes(autoId)) {
+            modelColumns.add(named ? ":" + mapping.getPropertyName(index) : "?");
+            tableColumns.add(mapping.getColumnName(index));
         }
         // 拼接
         StringBuilder buff = new StringBuilder();
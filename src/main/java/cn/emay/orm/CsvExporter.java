@@ -0,0 +1,420 @@
+package cn.emay.orm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 将ResultSet流式导出为CSV/TSV<br/>
+ * 逐行读取结果集并直接以UTF-8编码写入可复用的直接缓冲区，缓冲区满时写入通道；整数列不经过String转换，内存占用与数据量无关。<br/>
+ * CSV按RFC 4180对包含分隔符、引号、换行的值加引号；TSV将制表符、换行及反斜杠转义为 \t \n \r \\。<br/>
+ * 配置完成后可在多个线程间共享，缓冲区按线程复用。
+ *
+ * @author Frank
+ */
+public class CsvExporter {
+
+    /**
+     * 默认缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 线程复用的缓冲区
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+
+    /**
+     * 分隔符
+     */
+    private final char delimiter;
+
+    /**
+     * 是否TSV转义
+     */
+    private final boolean tsv;
+
+    /**
+     * 是否输出表头
+     */
+    private boolean header = true;
+
+    /**
+     * 数据库字段名(小写) -> 表头，未配置的使用字段名
+     */
+    private Map<String, String> headers = new HashMap<>();
+
+    /**
+     * null值输出的内容
+     */
+    private String nullValue = "";
+
+    /**
+     * 换行符
+     */
+    private String lineSeparator;
+
+    /**
+     * 缓冲区大小
+     */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * JDBC fetchSize，0 使用驱动默认值；MySQL流式读取需设置为Integer.MIN_VALUE
+     */
+    private int fetchSize;
+
+    /**
+     * @param delimiter     分隔符
+     * @param tsv           是否TSV转义
+     * @param lineSeparator 换行符
+     */
+    private CsvExporter(char delimiter, boolean tsv, String lineSeparator) {
+        this.delimiter = delimiter;
+        this.tsv = tsv;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * CSV导出，逗号分隔，\r\n换行
+     *
+     * @return 导出器
+     */
+    public static CsvExporter csv() {
+        return new CsvExporter(',', false, "\r\n");
+    }
+
+    /**
+     * TSV导出，制表符分隔，\n换行
+     *
+     * @return 导出器
+     */
+    public static CsvExporter tsv() {
+        return new CsvExporter('\t', true, "\n");
+    }
+
+    /**
+     * 按Class的字段设置表头<br/>
+     * 字段名按照驼峰转下划线的方式对应到数据库字段
+     *
+     * @param titles 字段名 -> 表头
+     * @return this
+     */
+    public CsvExporter headersByProperty(Map<String, String> titles) {
+        if (titles == null) {
+            throw new NullPointerException("titles is null");
+        }
+        for (Map.Entry<String, String> entry : titles.entrySet()) {
+            headers.put(Class2SqlUtils.hump2Underline(entry.getKey()), entry.getValue());
+        }
+        return this;
+    }
+
+    /**
+     * 导出结果集
+     *
+     * @param rs      结果集
+     * @param channel 输出通道
+     * @return 导出的数据条数（不含表头）
+     * @throws SQLException 异常
+     * @throws IOException  异常
+     */
+    public long export(ResultSet rs, WritableByteChannel channel) throws SQLException, IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            BUFFERS.set(buffer);
+        }
+        buffer.clear();
+        byte[] digits = new byte[20];
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        boolean[] integral = new boolean[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            switch (metaData.getColumnType(i)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    // 无符号BIGINT可能超出long的范围，按字符串输出
+                    integral[i] = metaData.isSigned(i);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (header) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    putChar(buffer, delimiter, channel);
+                }
+                String label = metaData.getColumnLabel(i);
+                String title = headers.get(label.toLowerCase());
+                putValue(buffer, title == null ? label : title, channel);
+            }
+            putRaw(buffer, lineSeparator, channel);
+        }
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    putChar(buffer, delimiter, channel);
+                }
+                if (integral[i]) {
+                    long value = rs.getLong(i);
+                    if (rs.wasNull()) {
+                        putRaw(buffer, nullValue, channel);
+                    } else {
+                        putLong(buffer, value, digits, channel);
+                    }
+                } else {
+                    String value = rs.getString(i);
+                    if (value == null) {
+                        putRaw(buffer, nullValue, channel);
+                    } else {
+                        putValue(buffer, value, channel);
+                    }
+                }
+            }
+            putRaw(buffer, lineSeparator, channel);
+            rows++;
+        }
+        flush(buffer, channel);
+        return rows;
+    }
+
+    /**
+     * 写入需要转义的值
+     *
+     * @param buffer  缓冲区
+     * @param value   值
+     * @param channel 输出通道
+     * @throws IOException 异常
+     */
+    private void putValue(ByteBuffer buffer, String value, WritableByteChannel channel) throws IOException {
+        if (tsv) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\t':
+                        putRaw(buffer, "\\t", channel);
+                        break;
+                    case '\n':
+                        putRaw(buffer, "\\n", channel);
+                        break;
+                    case '\r':
+                        putRaw(buffer, "\\r", channel);
+                        break;
+                    case '\\':
+                        putRaw(buffer, "\\\\", channel);
+                        break;
+                    default:
+                        i += putChar(buffer, value, i, channel) - 1;
+                        break;
+                }
+            }
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            putRaw(buffer, value, channel);
+            return;
+        }
+        putChar(buffer, '"', channel);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                putChar(buffer, '"', channel);
+            }
+            i += putChar(buffer, value, i, channel) - 1;
+        }
+        putChar(buffer, '"', channel);
+    }
+
+    /**
+     * 不转义写入字符串
+     *
+     * @param buffer  缓冲区
+     * @param value   值
+     * @param channel 输出通道
+     * @throws IOException 异常
+     */
+    private void putRaw(ByteBuffer buffer, String value, WritableByteChannel channel) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            i += putChar(buffer, value, i, channel) - 1;
+        }
+    }
+
+    /**
+     * 写入ASCII字符
+     *
+     * @param buffer  缓冲区
+     * @param c       字符
+     * @param channel 输出通道
+     * @throws IOException 异常
+     */
+    private void putChar(ByteBuffer buffer, char c, WritableByteChannel channel) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush(buffer, channel);
+        }
+        buffer.put((byte) c);
+    }
+
+    /**
+     * 以UTF-8写入字符串中index位置的字符，代理对按一个码点写入
+     *
+     * @param buffer  缓冲区
+     * @param value   字符串
+     * @param index   位置
+     * @param channel 输出通道
+     * @throws IOException 异常
+     * @return 写入的char个数
+     */
+    private int putChar(ByteBuffer buffer, String value, int index, WritableByteChannel channel) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush(buffer, channel);
+        }
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            buffer.put((byte) (0xF0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            return 2;
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+        return 1;
+    }
+
+    /**
+     * 不经过String写入整数
+     *
+     * @param buffer  缓冲区
+     * @param value   值
+     * @param digits  数字缓冲
+     * @param channel 输出通道
+     * @throws IOException 异常
+     */
+    private void putLong(ByteBuffer buffer, long value, byte[] digits, WritableByteChannel channel) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putRaw(buffer, Long.toString(value), channel);
+            return;
+        }
+        if (buffer.remaining() < 20) {
+            flush(buffer, channel);
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    /**
+     * 将缓冲区写入通道并清空
+     *
+     * @param buffer  缓冲区
+     * @param channel 输出通道
+     * @throws IOException 异常
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 设置表头
+     *
+     * @param headers 数据库字段名 -> 表头
+     */
+    public void setHeaders(Map<String, String> headers) {
+        this.headers = new HashMap<>();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            this.headers.put(entry.getKey().toLowerCase(), entry.getValue());
+        }
+    }
+
+    public String getNullValue() {
+        return nullValue;
+    }
+
+    public void setNullValue(String nullValue) {
+        this.nullValue = nullValue == null ? "" : nullValue;
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("bufferSize must be >= 64");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+}
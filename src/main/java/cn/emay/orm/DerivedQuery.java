@@ -0,0 +1,375 @@
+package cn.emay.orm;
+
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import java.beans.IntrospectionException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 由方法名推导的查询<br/>
+ * 方法名在创建时解析一次并编译为hql，调用时只绑定参数。支持的格式：<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;findBy / countBy / existsBy + 条件 + [OrderBy + 排序]<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;条件：字段名 + [操作]，多个条件以 And / Or 连接<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;操作：(无)/Is/Equals、Not、Like、In、NotIn、GreaterThan、GreaterThanEqual、LessThan、LessThanEqual、Between、IsNull、IsNotNull<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;排序：字段名 + Asc/Desc，可以多个，如 OrderByStatusAscIdDesc<br/>
+ * findBy 的返回类型为List时返回列表，为实体类时返回第一条。
+ *
+ * @author Frank
+ */
+public class DerivedQuery {
+
+    /**
+     * 查询类型
+     */
+    enum Kind {
+        /**
+         * 查询
+         */
+        FIND,
+        /**
+         * 计数
+         */
+        COUNT,
+        /**
+         * 是否存在
+         */
+        EXISTS
+    }
+
+    /**
+     * 操作，按后缀长度从长到短排列，保证最长匹配
+     */
+    enum Operator {
+        IS_NOT_NULL("IsNotNull", " is not null", 0),
+        GREATER_THAN_EQUAL("GreaterThanEqual", " >= ", 1),
+        LESS_THAN_EQUAL("LessThanEqual", " <= ", 1),
+        GREATER_THAN("GreaterThan", " > ", 1),
+        LESS_THAN("LessThan", " < ", 1),
+        IS_NULL("IsNull", " is null", 0),
+        BETWEEN("Between", " between ", 2),
+        EQUALS("Equals", " = ", 1),
+        NOT_IN("NotIn", " not in ", 1),
+        LIKE("Like", " like ", 1),
+        NOT("Not", " <> ", 1),
+        IN("In", " in ", 1),
+        IS("Is", " = ", 1);
+
+        /**
+         * 方法名中的后缀
+         */
+        private final String suffix;
+
+        /**
+         * hql中的操作
+         */
+        private final String hql;
+
+        /**
+         * 参数个数
+         */
+        private final int parameterCount;
+
+        Operator(String suffix, String hql, int parameterCount) {
+            this.suffix = suffix;
+            this.hql = hql;
+            this.parameterCount = parameterCount;
+        }
+    }
+
+    /**
+     * 方法名
+     */
+    private final String methodName;
+
+    /**
+     * 查询类型
+     */
+    private final Kind kind;
+
+    /**
+     * 编译后的hql
+     */
+    private final String hql;
+
+    /**
+     * 参数个数
+     */
+    private final int parameterCount;
+
+    /**
+     * 是否返回列表
+     */
+    private final boolean returnList;
+
+    /**
+     * 解析并编译方法
+     *
+     * @param method      方法
+     * @param entityClass 实体类
+     * @return 查询
+     */
+    public static DerivedQuery compile(Method method, Class<?> entityClass) {
+        return new DerivedQuery(method, entityClass);
+    }
+
+    private DerivedQuery(Method method, Class<?> entityClass) {
+        this.methodName = method.getName();
+        String name = methodName;
+        String criteria;
+        if (name.startsWith("findBy")) {
+            kind = Kind.FIND;
+            criteria = name.substring("findBy".length());
+        } else if (name.startsWith("countBy")) {
+            kind = Kind.COUNT;
+            criteria = name.substring("countBy".length());
+        } else if (name.startsWith("existsBy")) {
+            kind = Kind.EXISTS;
+            criteria = name.substring("existsBy".length());
+        } else {
+            throw error("must start with findBy, countBy or existsBy");
+        }
+        Set<String> properties = propertiesOf(entityClass);
+        String orderBy = null;
+        int orderIndex = criteria.lastIndexOf("OrderBy");
+        if (orderIndex >= 0) {
+            orderBy = criteria.substring(orderIndex + "OrderBy".length());
+            criteria = criteria.substring(0, orderIndex);
+        }
+        if (criteria.isEmpty()) {
+            throw error("has no condition");
+        }
+        StringBuilder buff = new StringBuilder();
+        switch (kind) {
+            case COUNT:
+                buff.append("select count(*) ");
+                break;
+            case EXISTS:
+                // 只取一条的id，不统计所有符合条件的数据
+                buff.append("select id ");
+                break;
+            default:
+                break;
+        }
+        buff.append("from ").append(entityClass.getSimpleName()).append(" where ");
+        int parameterIndex = 0;
+        String[] parts = criteria.split("(?<=[a-z0-9])(?=(And|Or)[A-Z])");
+        for (int i = 0; i < parts.length; i++) {
+            String condition = parts[i];
+            // 只有第一个条件之后的部分以连接词开头，第一个条件本身可能以And/Or开头，如 OrderNo、AndroidVersion
+            if (i > 0 && condition.startsWith("And")) {
+                buff.append(" and ");
+                condition = condition.substring(3);
+            } else if (i > 0 && condition.startsWith("Or")) {
+                buff.append(" or ");
+                condition = condition.substring(2);
+            }
+            Operator operator = Operator.EQUALS;
+            for (Operator op : Operator.values()) {
+                if (condition.endsWith(op.suffix) && condition.length() > op.suffix.length()) {
+                    String property = decapitalize(condition.substring(0, condition.length() - op.suffix.length()));
+                    if (properties.contains(property)) {
+                        operator = op;
+                        condition = condition.substring(0, condition.length() - op.suffix.length());
+                        break;
+                    }
+                }
+            }
+            String property = decapitalize(condition);
+            if (!properties.contains(property)) {
+                throw error("property " + property + " not found in " + entityClass.getName());
+            }
+            buff.append(property).append(operator.hql);
+            if (operator == Operator.BETWEEN) {
+                buff.append(":p").append(parameterIndex++).append(" and :p").append(parameterIndex++);
+            } else if (operator == Operator.IN || operator == Operator.NOT_IN) {
+                buff.append("(:p").append(parameterIndex++).append(")");
+            } else if (operator.parameterCount == 1) {
+                buff.append(":p").append(parameterIndex++);
+            }
+        }
+        if (orderBy != null) {
+            buff.append(" order by ");
+            String[] orders = orderBy.split("(?<=Asc|Desc)(?=[A-Z])");
+            for (int i = 0; i < orders.length; i++) {
+                String order = orders[i];
+                String direction = "asc";
+                if (order.endsWith("Desc")) {
+                    direction = "desc";
+                    order = order.substring(0, order.length() - 4);
+                } else if (order.endsWith("Asc")) {
+                    order = order.substring(0, order.length() - 3);
+                }
+                String property = decapitalize(order);
+                if (!properties.contains(property)) {
+                    throw error("order property " + property + " not found in " + entityClass.getName());
+                }
+                if (i != 0) {
+                    buff.append(", ");
+                }
+                buff.append(property).append(" ").append(direction);
+            }
+        }
+        this.hql = buff.toString();
+        this.parameterCount = parameterIndex;
+        if (method.getParameterCount() != parameterCount) {
+            throw error("needs " + parameterCount + " parameters but declares " + method.getParameterCount());
+        }
+        Class<?> returnType = method.getReturnType();
+        this.returnList = Collection.class.isAssignableFrom(returnType);
+        switch (kind) {
+            case COUNT:
+                if (returnType != long.class && returnType != Long.class && returnType != int.class && returnType != Integer.class) {
+                    throw error("countBy must return long or int");
+                }
+                break;
+            case EXISTS:
+                if (returnType != boolean.class && returnType != Boolean.class) {
+                    throw error("existsBy must return boolean");
+                }
+                break;
+            default:
+                if (!returnList && !returnType.isAssignableFrom(entityClass)) {
+                    throw error("findBy must return List or " + entityClass.getName());
+                }
+                break;
+        }
+    }
+
+    /**
+     * 创建查询并绑定参数
+     *
+     * @param session     session
+     * @param entityClass 实体类
+     * @param args        参数
+     * @return 查询
+     */
+    Query<?> createQuery(Session session, Class<?> entityClass, Object[] args) {
+        Query<?> query;
+        switch (kind) {
+            case FIND:
+                query = session.createQuery(hql, entityClass);
+                break;
+            case COUNT:
+                query = session.createQuery(hql, Long.class);
+                break;
+            default:
+                query = session.createQuery(hql);
+                break;
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            Object value = args[i];
+            if (value instanceof Collection) {
+                query.setParameterList("p" + i, (Collection<?>) value);
+            } else if (value instanceof Object[]) {
+                query.setParameterList("p" + i, (Object[]) value);
+            } else {
+                query.setParameter("p" + i, value);
+            }
+        }
+        return query;
+    }
+
+    /**
+     * 执行查询并转换为方法的返回类型
+     *
+     * @param query      已绑定参数的查询
+     * @param returnType 方法返回类型
+     * @return 结果
+     */
+    Object execute(Query<?> query, Class<?> returnType) {
+        switch (kind) {
+            case COUNT:
+                Long count = (Long) query.uniqueResult();
+                long value = count == null ? 0L : count;
+                return returnType == int.class || returnType == Integer.class ? (Object) (int) value : (Object) value;
+            case EXISTS:
+                return query.setMaxResults(1).uniqueResult() != null;
+            default:
+                if (returnList) {
+                    return query.list();
+                }
+                return query.setMaxResults(1).uniqueResult();
+        }
+    }
+
+    /**
+     * 编译后的hql
+     *
+     * @return hql
+     */
+    public String getHql() {
+        return hql;
+    }
+
+    /**
+     * 参数个数
+     *
+     * @return 参数个数
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * 方法名错误
+     *
+     * @param message 错误信息
+     * @return 异常
+     */
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("derived query method " + methodName + " " + message);
+    }
+
+    /**
+     * 实体类的字段名：bean属性及声明的字段，静态字段和transient字段不是持久化属性，不包括
+     *
+     * @param entityClass 实体类
+     * @return 字段名
+     */
+    private static Set<String> propertiesOf(Class<?> entityClass) {
+        Set<String> properties = new HashSet<>();
+        try {
+            BeanSqlMapping mapping = BeanSqlMapping.of(entityClass);
+            for (int i = 0; i < mapping.getPropertyCount(); i++) {
+                properties.add(mapping.getPropertyName(i));
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> clazz = entityClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                    fields.add(field);
+                }
+            }
+        }
+        for (Field field : fields) {
+            properties.add(field.getName());
+        }
+        return properties;
+    }
+
+    /**
+     * 首字母小写
+     *
+     * @param name 名字
+     * @return 首字母小写的名字
+     */
+    private static String decapitalize(String name) {
+        if (name.isEmpty()) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+}
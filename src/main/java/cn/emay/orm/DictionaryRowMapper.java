@@ -0,0 +1,237 @@
+package cn.emay.orm;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+
+import java.beans.PropertyDescriptor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * 对低基数字符串字段做字典编码的RowMapper<br/>
+ * 按照驼峰转下划线的方式映射，指定字段（或抽样检测出的低基数字段）的值经过 StringDictionary，相等的值共享同一个String实例。<br/>
+ * 未指定字段时抽样检测：前 sampleRows 条数据中，不同值的个数不超过抽样条数乘以 maxDistinctRatio 的字符串字段视为低基数字段；
+ * 抽样期间的值只在本查询内去重，不写入字典。<br/>
+ * 抽样状态属于单次查询，请每次查询新建实例（JdbcTemplateUtils.getDictionaryRowMapper）；同一查询的并行分表查询可以共用。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public class DictionaryRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+    /**
+     * 默认抽样条数
+     */
+    public static final int DEFAULT_SAMPLE_ROWS = 1000;
+
+    /**
+     * 默认不同值占抽样条数的最大比例
+     */
+    public static final double DEFAULT_MAX_DISTINCT_RATIO = 0.1;
+
+    /**
+     * 字典
+     */
+    private final StringDictionary dictionary;
+
+    /**
+     * 指定的低基数字段（属性名），抽样检测时为null
+     */
+    private final Set<String> marked;
+
+    /**
+     * 抽样条数
+     */
+    private final int sampleRows;
+
+    /**
+     * 抽样中每个字段最多保留的不同值个数，超过即为高基数字段
+     */
+    private final int maxDistinct;
+
+    /**
+     * 属性名 -> 抽样到的不同值，超过上限的字段值为null
+     */
+    private final Map<String, Map<String, String>> samples = new HashMap<>();
+
+    /**
+     * 已抽样的条数
+     */
+    private int sampled;
+
+    /**
+     * 检测出的低基数字段（属性名），抽样期间为null
+     */
+    private volatile Set<String> detected;
+
+    /**
+     * 指定低基数字段
+     *
+     * @param mappedClass 对象Class
+     * @param dictionary  字典，为空则新建本次查询使用的字典
+     * @param columns     低基数字段，数据库字段名或对象字段名，必须是String类型
+     */
+    public DictionaryRowMapper(Class<T> mappedClass, StringDictionary dictionary, String... columns) {
+        super(mappedClass);
+        if (columns == null || columns.length == 0) {
+            throw new IllegalArgumentException("columns is empty");
+        }
+        this.dictionary = dictionary == null ? new StringDictionary() : dictionary;
+        this.marked = Collections.unmodifiableSet(resolveProperties(mappedClass, columns));
+        this.sampleRows = 0;
+        this.maxDistinct = 0;
+    }
+
+    /**
+     * 抽样检测低基数字段
+     *
+     * @param mappedClass      对象Class
+     * @param dictionary       字典，为空则新建本次查询使用的字典
+     * @param sampleRows       抽样条数，<=0 则使用默认值
+     * @param maxDistinctRatio 不同值占抽样条数的最大比例，<=0 则使用默认值
+     */
+    public DictionaryRowMapper(Class<T> mappedClass, StringDictionary dictionary, int sampleRows, double maxDistinctRatio) {
+        super(mappedClass);
+        this.dictionary = dictionary == null ? new StringDictionary() : dictionary;
+        this.marked = null;
+        this.sampleRows = sampleRows <= 0 ? DEFAULT_SAMPLE_ROWS : sampleRows;
+        double ratio = maxDistinctRatio <= 0 ? DEFAULT_MAX_DISTINCT_RATIO : maxDistinctRatio;
+        this.maxDistinct = Math.max(1, (int) (this.sampleRows * ratio));
+    }
+
+    /**
+     * 将字段名解析为String类型的属性名
+     *
+     * @param mappedClass 对象Class
+     * @param columns     数据库字段名或对象字段名
+     * @return 属性名
+     */
+    private static Set<String> resolveProperties(Class<?> mappedClass, String[] columns) {
+        Set<String> properties = new HashSet<>();
+        PropertyDescriptor[] descriptors = BeanUtils.getPropertyDescriptors(mappedClass);
+        for (String column : columns) {
+            PropertyDescriptor found = null;
+            for (PropertyDescriptor descriptor : descriptors) {
+                if (descriptor.getWriteMethod() == null) {
+                    continue;
+                }
+                String name = descriptor.getName();
+                if (name.equalsIgnoreCase(column) || Class2SqlUtils.hump2Underline(name).equalsIgnoreCase(column)) {
+                    found = descriptor;
+                    break;
+                }
+            }
+            if (found == null) {
+                throw new IllegalArgumentException(mappedClass.getName() + " has no writable property for column " + column);
+            }
+            if (found.getPropertyType() != String.class) {
+                throw new IllegalArgumentException(mappedClass.getName() + "." + found.getName() + " is not a String");
+            }
+            properties.add(found.getName());
+        }
+        return properties;
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+        T bean = super.mapRow(rs, rowNumber);
+        if (marked == null && detected == null) {
+            onRowSampled();
+        }
+        return bean;
+    }
+
+    @Override
+    protected Object getColumnValue(ResultSet rs, int index, PropertyDescriptor pd) throws SQLException {
+        Object value = super.getColumnValue(rs, index, pd);
+        if (!(value instanceof String)) {
+            return value;
+        }
+        Set<String> lowCardinality = marked != null ? marked : detected;
+        if (lowCardinality != null) {
+            return lowCardinality.contains(pd.getName()) ? dictionary.intern((String) value) : value;
+        }
+        return sample(pd.getName(), (String) value);
+    }
+
+    /**
+     * 抽样一个值，返回本查询内相等的实例
+     *
+     * @param property 属性名
+     * @param value    值
+     * @return 抽样中相等的实例
+     */
+    private String sample(String property, String value) {
+        synchronized (samples) {
+            if (detected != null) {
+                return detected.contains(property) ? dictionary.intern(value) : value;
+            }
+            Map<String, String> values = samples.get(property);
+            if (values == null) {
+                if (samples.containsKey(property)) {
+                    return value;
+                }
+                values = new HashMap<>();
+                samples.put(property, values);
+            }
+            String canonical = values.get(value);
+            if (canonical != null) {
+                return canonical;
+            }
+            if (values.size() >= maxDistinct) {
+                // 高基数字段，不再抽样
+                samples.put(property, null);
+                return value;
+            }
+            values.put(value, value);
+            return value;
+        }
+    }
+
+    /**
+     * 一条数据抽样完成，达到抽样条数时确定低基数字段，并将抽样到的值写入字典
+     */
+    private void onRowSampled() {
+        synchronized (samples) {
+            if (detected != null || ++sampled < sampleRows) {
+                return;
+            }
+            Set<String> lowCardinality = new HashSet<>();
+            for (Map.Entry<String, Map<String, String>> entry : samples.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                lowCardinality.add(entry.getKey());
+                for (String value : entry.getValue().keySet()) {
+                    dictionary.intern(value);
+                }
+            }
+            samples.clear();
+            detected = Collections.unmodifiableSet(lowCardinality);
+        }
+    }
+
+    /**
+     * 字典
+     *
+     * @return 字典
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 做字典编码的字段（属性名）
+     *
+     * @return 指定的字段或检测出的字段，抽样未完成时返回空
+     */
+    public Set<String> getLowCardinalityProperties() {
+        if (marked != null) {
+            return marked;
+        }
+        Set<String> lowCardinality = detected;
+        return lowCardinality == null ? Collections.emptySet() : lowCardinality;
+    }
+
+}
@@ -0,0 +1,111 @@
+package cn.emay.orm;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 文件中的水位存储<br/>
+ * 所有水位保存在一个properties文件中，每行 名称=毫秒数,纳秒,id；每次保存先写临时文件再替换，进程中断不会留下不完整的文件。<br/>
+ * 同一个文件只应由一个实例读写。
+ *
+ * @author Frank
+ */
+public class FileWatermarkStore implements WatermarkStore {
+
+    /**
+     * 文件
+     */
+    private final Path file;
+
+    /**
+     * 名称 -> 水位
+     */
+    private final Map<String, Watermark> watermarks = new TreeMap<>();
+
+    /**
+     * @param file 文件，不存在则在第一次保存时创建
+     */
+    public FileWatermarkStore(Path file) {
+        if (file == null) {
+            throw new NullPointerException("file is null");
+        }
+        this.file = file.toAbsolutePath();
+        if (Files.exists(this.file)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("read " + this.file + " failed", e);
+            }
+            for (String name : properties.stringPropertyNames()) {
+                watermarks.put(name, Watermark.parse(properties.getProperty(name)));
+            }
+        }
+    }
+
+    @Override
+    public synchronized Watermark load(String name) {
+        return watermarks.get(name);
+    }
+
+    @Override
+    public synchronized void save(String name, Watermark watermark) {
+        if (watermark == null) {
+            throw new NullPointerException("watermark is null");
+        }
+        watermarks.put(name, watermark);
+        write();
+    }
+
+    @Override
+    public synchronized void remove(String name) {
+        if (watermarks.remove(name) != null) {
+            write();
+        }
+    }
+
+    /**
+     * 写入文件：先写临时文件，再替换原文件
+     */
+    private void write() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Watermark> entry : watermarks.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().format());
+        }
+        Path dir = file.getParent();
+        try {
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    properties.store(writer, null);
+                }
+                try {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("write " + file + " failed", e);
+        }
+    }
+
+    /**
+     * 文件
+     *
+     * @return 文件
+     */
+    public Path getFile() {
+        return file;
+    }
+
+}
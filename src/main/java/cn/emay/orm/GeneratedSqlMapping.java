@@ -0,0 +1,152 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 编译期生成的SQL映射<br/>
+ * 由 SqlEntityProcessor 为标记了 SqlEntity 的类生成，字段顺序、字段名与 BeanSqlMapping 的规则一致。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public interface GeneratedSqlMapping<T> {
+
+    /**
+     * 生成类的类名后缀
+     */
+    String CLASS_SUFFIX = "_SqlMapping";
+
+    /**
+     * 映射的类
+     *
+     * @return 类
+     */
+    Class<T> getBeanClass();
+
+    /**
+     * 默认表名
+     *
+     * @return 表名
+     */
+    String getTableName();
+
+    /**
+     * 全部数据库字段
+     *
+     * @return 字段名
+     */
+    String[] getColumns();
+
+    /**
+     * 使用?占位的存储SQL，参数顺序与 newBatchSetter 一致
+     *
+     * @param tableName 数据库表名，为空则使用默认表名
+     * @param isIgnore  是否忽略已经重复的数据
+     * @param autoId    是否适用数据库的自动生成ID
+     * @return sql
+     */
+    String getSaveSql(String tableName, boolean isIgnore, boolean autoId);
+
+    /**
+     * 创建RowMapper<br/>
+     * RowMapper按ResultSet解析一次字段位置，解析结果与ResultSet一起替换，可以在多个线程间共享
+     *
+     * @return RowMapper
+     */
+    RowMapper<T> getRowMapper();
+
+    /**
+     * 创建批量参数设置器
+     *
+     * @param dataList 数据
+     * @param autoId   是否适用数据库的自动生成ID
+     * @return 批量参数设置器
+     */
+    BatchPreparedStatementSetter newBatchSetter(List<? extends T> dataList, boolean autoId);
+
+    /**
+     * 查找字段在结果集中的位置<br/>
+     * 与 BeanPropertyRowMapper 相同，结果集字段名去掉空格后按忽略大小写匹配字段名或下划线字段名
+     *
+     * @param rs            结果集
+     * @param propertyNames 字段名
+     * @param columnNames   下划线字段名
+     * @return 每个字段在结果集中的位置，不存在为0
+     * @throws SQLException 异常
+     */
+    static int[] columnPositions(ResultSet rs, String[] propertyNames, String[] columnNames) throws SQLException {
+        int[] positions = new int[propertyNames.length];
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int index = 1; index <= metaData.getColumnCount(); index++) {
+            String label = metaData.getColumnLabel(index);
+            if (label == null || label.isEmpty()) {
+                label = metaData.getColumnName(index);
+            }
+            label = label.replace(" ", "");
+            for (int i = 0; i < propertyNames.length; i++) {
+                if (positions[i] == 0 && (label.equalsIgnoreCase(propertyNames[i]) || label.equalsIgnoreCase(columnNames[i]))) {
+                    positions[i] = index;
+                    break;
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * 一个结果集中各字段的位置，创建后不再修改，生成的RowMapper整体替换，多线程共享时不会读到其他结果集的位置
+     */
+    final class ColumnPositions {
+
+        /**
+         * 结果集
+         */
+        private final ResultSet resultSet;
+
+        /**
+         * 每个字段在结果集中的位置，不存在为0
+         */
+        private final int[] positions;
+
+        /**
+         * 查找字段在结果集中的位置
+         *
+         * @param rs            结果集
+         * @param propertyNames 字段名
+         * @param columnNames   下划线字段名
+         * @throws SQLException 异常
+         */
+        public ColumnPositions(ResultSet rs, String[] propertyNames, String[] columnNames) throws SQLException {
+            this.resultSet = rs;
+            this.positions = columnPositions(rs, propertyNames, columnNames);
+        }
+
+        /**
+         * 是否为该结果集的字段位置
+         *
+         * @param rs 结果集
+         * @return 是否
+         */
+        public boolean isFor(ResultSet rs) {
+            return resultSet == rs;
+        }
+
+        /**
+         * 字段在结果集中的位置
+         *
+         * @param index 字段序号
+         * @return 位置，不存在为0
+         */
+        public int get(int index) {
+            return positions[index];
+        }
+
+    }
+
+}
@@ -0,0 +1,222 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 基于序列表的号段ID生成器<br/>
+ * 每次从序列表中取一个号段（blockSize个ID）在内存中分配，用完再取，多个进程共享同一序列时ID不重复。<br/>
+ * 取号段使用单独的连接并立即提交，不参与调用方的事务，调用方回滚时已分配的ID不会被重复使用。<br/>
+ * 设置了隔离舱时，取号段在oltp舱内执行；调用方已在舱内（如DAO的批量存储）时加入调用方的舱。<br/>
+ * 序列表：create table id_sequence (name varchar(64) primary key, next_val bigint not null)，
+ * 没有该序列时从1开始；表中已有数据时需预先插入大于已有最大ID的next_val。
+ *
+ * @author Frank
+ */
+public class HiLoIdGenerator implements IdGenerator {
+
+    /**
+     * 默认序列表名
+     */
+    public static final String DEFAULT_TABLE = "id_sequence";
+
+    /**
+     * 默认号段大小
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    /**
+     * 取号段的最大尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DataSource dataSource;
+
+    /**
+     * 序列名
+     */
+    private final String name;
+
+    /**
+     * 号段大小
+     */
+    private final int blockSize;
+
+    private final String updateSql;
+
+    private final String selectSql;
+
+    private final String insertSql;
+
+    /**
+     * 下一个ID，由this保护
+     */
+    private long next;
+
+    /**
+     * 当前号段的结束ID（不含），由this保护
+     */
+    private long max;
+
+    /**
+     * 隔离舱，null 不限制
+     */
+    private volatile Bulkhead bulkhead;
+
+    /**
+     * @param jdbcTemplate jdbcTemplate
+     * @param name         序列名
+     */
+    public HiLoIdGenerator(JdbcTemplate jdbcTemplate, String name) {
+        this(jdbcTemplate, DEFAULT_TABLE, name, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param jdbcTemplate jdbcTemplate
+     * @param table        序列表名
+     * @param name         序列名
+     * @param blockSize    号段大小
+     */
+    public HiLoIdGenerator(JdbcTemplate jdbcTemplate, String table, String name, int blockSize) {
+        if (jdbcTemplate == null || jdbcTemplate.getDataSource() == null) {
+            throw new IllegalArgumentException("jdbcTemplate or dataSource is null");
+        }
+        if (table == null || table.isEmpty() || name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("table or name is empty");
+        }
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must > 0");
+        }
+        this.dataSource = jdbcTemplate.getDataSource();
+        this.name = name;
+        this.blockSize = blockSize;
+        this.updateSql = "update " + table + " set next_val = next_val + ? where name = ?";
+        this.selectSql = "select next_val from " + table + " where name = ?";
+        this.insertSql = "insert into " + table + " (name, next_val) values (?, ?)";
+    }
+
+    @Override
+    public synchronized long nextId() {
+        if (next >= max) {
+            allocate();
+        }
+        return next++;
+    }
+
+    @Override
+    public synchronized long[] nextIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (next >= max) {
+                allocate();
+            }
+            ids[i] = next++;
+        }
+        return ids;
+    }
+
+    /**
+     * 从序列表取一个号段，设置了隔离舱时在舱内执行
+     */
+    private void allocate() {
+        Bulkhead bulkhead = this.bulkhead;
+        if (bulkhead == null) {
+            allocateBlock();
+            return;
+        }
+        bulkhead.execute(Bulkhead.OLTP, () -> {
+            allocateBlock();
+            return null;
+        });
+    }
+
+    /**
+     * 使用单独的连接从序列表取一个号段
+     */
+    private void allocateBlock() {
+        SQLException last = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try (Connection connection = dataSource.getConnection()) {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    long end = allocate(connection);
+                    connection.commit();
+                    this.next = end - blockSize;
+                    this.max = end;
+                    return;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                // 并发创建序列时插入会冲突，重试时走更新
+                last = e;
+            }
+        }
+        throw new IllegalStateException("allocate id block of " + name + " failed", last);
+    }
+
+    /**
+     * 在事务中取号段
+     *
+     * @param connection 连接
+     * @return 号段的结束ID（不含）
+     * @throws SQLException 异常
+     */
+    private long allocate(Connection connection) throws SQLException {
+        int updated;
+        try (PreparedStatement ps = connection.prepareStatement(updateSql)) {
+            ps.setLong(1, blockSize);
+            ps.setString(2, name);
+            updated = ps.executeUpdate();
+        }
+        if (updated == 0) {
+            long end = 1L + blockSize;
+            try (PreparedStatement ps = connection.prepareStatement(insertSql)) {
+                ps.setString(1, name);
+                ps.setLong(2, end);
+                ps.executeUpdate();
+            }
+            return end;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(selectSql)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("sequence " + name + " not found");
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * 设置隔离舱，通常与使用该生成器的DAO共用同一个实例
+     *
+     * @param bulkhead 隔离舱，null 不限制
+     */
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+}
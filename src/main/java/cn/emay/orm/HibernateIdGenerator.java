@@ -0,0 +1,115 @@
+package cn.emay.orm;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 使用客户端ID生成器的Hibernate主键生成策略<br/>
+ * 与数据库自增(IDENTITY)不同，插入前即可得到ID，Hibernate可以对插入使用JDBC批量；已设置ID的实体保留原ID。<br/>
+ * 用法：<br/>
+ * HibernateIdGenerator.register("order", new SnowflakeIdGenerator(1));<br/>
+ * &#64;Id &#64;GeneratedValue(generator = "orderId")<br/>
+ * &#64;GenericGenerator(name = "orderId", strategy = "cn.emay.orm.HibernateIdGenerator", parameters = &#64;Parameter(name = "generator", value = "order"))
+ *
+ * @author Frank
+ */
+public class HibernateIdGenerator implements IdentifierGenerator, Configurable {
+
+    /**
+     * 指定生成器名字的参数，未指定时使用 default
+     */
+    public static final String GENERATOR_PARAMETER = "generator";
+
+    /**
+     * 默认生成器名字
+     */
+    public static final String DEFAULT_GENERATOR = "default";
+
+    /**
+     * 名字 -> 生成器
+     */
+    private static final Map<String, IdGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+    /**
+     * 生成器名字
+     */
+    private String generatorName = DEFAULT_GENERATOR;
+
+    /**
+     * id类型，基本类型的id在映射中为包装类型
+     */
+    private Class<?> idType = Long.class;
+
+    /**
+     * 实体中声明的id是否为基本类型，首次生成时解析
+     */
+    private volatile Boolean primitiveId;
+
+    /**
+     * 注册生成器，需在SessionFactory插入数据前注册
+     *
+     * @param name      名字
+     * @param generator 生成器
+     */
+    public static void register(String name, IdGenerator generator) {
+        GENERATORS.put(name, generator);
+    }
+
+    /**
+     * 注销生成器
+     *
+     * @param name 名字
+     */
+    public static void unregister(String name) {
+        GENERATORS.remove(name);
+    }
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        this.generatorName = params.getProperty(GENERATOR_PARAMETER, DEFAULT_GENERATOR);
+        this.idType = type.getReturnedClass();
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        EntityPersister persister = session.getEntityPersister(null, object);
+        Serializable assigned = persister.getIdentifier(object, session);
+        if (assigned != null && !(isPrimitiveId(session, persister) && ((Number) assigned).longValue() == 0)) {
+            return assigned;
+        }
+        IdGenerator generator = GENERATORS.get(generatorName);
+        if (generator == null) {
+            throw new HibernateException("id generator " + generatorName + " is not registered");
+        }
+        return (Serializable) BeanSqlMapping.convertId(generator.nextId(), idType);
+    }
+
+    /**
+     * 实体中声明的id是否为基本类型，基本类型的id为0视为未设置<br/>
+     * configure收到的Type返回包装类型，需按实体的元模型判断
+     *
+     * @param session   session
+     * @param persister 实体的persister
+     * @return 是否为基本类型
+     */
+    private boolean isPrimitiveId(SharedSessionContractImplementor session, EntityPersister persister) {
+        Boolean primitive = primitiveId;
+        if (primitive == null) {
+            primitive = session.getFactory().getMetamodel().entity(persister.getEntityName()).getIdType().getJavaType().isPrimitive();
+            primitiveId = primitive;
+        }
+        return primitive;
+    }
+
+}
@@ -0,0 +1,33 @@
+package cn.emay.orm;
+
+/**
+ * 客户端ID生成器<br/>
+ * 在插入前为数据分配ID，批量插入不依赖数据库自增，插入后无需再查询即可得到ID。<br/>
+ * 实现需线程安全。
+ *
+ * @author Frank
+ */
+public interface IdGenerator {
+
+    /**
+     * 生成一个ID
+     *
+     * @return ID
+     */
+    long nextId();
+
+    /**
+     * 生成多个ID
+     *
+     * @param count 数量
+     * @return ID
+     */
+    default long[] nextIds(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = nextId();
+        }
+        return ids;
+    }
+
+}
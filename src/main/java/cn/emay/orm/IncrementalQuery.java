@@ -0,0 +1,213 @@
+package cn.emay.orm;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按（时间，id）水位增量读取表中新增或更新的数据<br/>
+ * 每批按 时间, id 排序读取，条件为 时间 > 水位时间 or (时间 = 水位时间 and id > 水位id)，时间相同的数据不会遗漏也不会重复读取；
+ * 每批交给处理方处理成功后保存水位，处理失败则下次从上一批的水位重新读取（至少一次）。<br/>
+ * 时间为null的数据不会被读取；请为（时间，id）建立联合索引。同一名称同一时间只应有一个轮询。<br/>
+ * 长事务可能在水位之后才提交时间更早的数据，可设置延迟 lagMillis，只读取早于当前时间减去延迟的数据。<br/>
+ * 用法：new IncrementalQuery("order-sync", "t_order", "update_time", "id")
+ *
+ * @author Frank
+ */
+public class IncrementalQuery {
+
+    /**
+     * 默认每批条数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * 名称，水位按名称保存
+     */
+    private final String name;
+
+    /**
+     * 表名
+     */
+    private final String tableName;
+
+    /**
+     * 时间字段
+     */
+    private final String timeColumn;
+
+    /**
+     * id字段，数值类型
+     */
+    private final String idColumn;
+
+    /**
+     * 附加的查询条件，可包含?参数
+     */
+    private String condition;
+
+    /**
+     * 每批条数
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * 延迟（毫秒），只读取早于当前时间减去延迟的数据
+     */
+    private long lagMillis;
+
+    /**
+     * 水位存储
+     */
+    private WatermarkStore store = new MemoryWatermarkStore();
+
+    /**
+     * @param name       名称，水位按名称保存
+     * @param tableName  表名
+     * @param timeColumn 时间字段，数据新增或更新时写入的时间
+     * @param idColumn   id字段，数值类型，同一时间内按id排序
+     */
+    public IncrementalQuery(String name, String tableName, String timeColumn, String idColumn) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name is empty");
+        }
+        if (tableName == null || tableName.isEmpty()) {
+            throw new IllegalArgumentException("tableName is empty");
+        }
+        if (timeColumn == null || timeColumn.isEmpty()) {
+            throw new IllegalArgumentException("timeColumn is empty");
+        }
+        if (idColumn == null || idColumn.isEmpty()) {
+            throw new IllegalArgumentException("idColumn is empty");
+        }
+        this.name = name;
+        this.tableName = tableName;
+        this.timeColumn = timeColumn;
+        this.idColumn = idColumn;
+    }
+
+    /**
+     * 一批的查询SQL
+     *
+     * @param hasWatermark  是否有水位
+     * @param hasUpperBound 是否有时间上限
+     * @return SQL
+     */
+    String batchSql(boolean hasWatermark, boolean hasUpperBound) {
+        List<String> conditions = new ArrayList<>();
+        if (condition != null && !condition.trim().isEmpty()) {
+            conditions.add("(" + condition + ")");
+        }
+        if (hasUpperBound) {
+            conditions.add(timeColumn + " <= ?");
+        }
+        if (hasWatermark) {
+            conditions.add("(" + timeColumn + " > ? or (" + timeColumn + " = ? and " + idColumn + " > ?))");
+        } else {
+            conditions.add(timeColumn + " is not null");
+        }
+        return "select * from " + tableName + " where " + String.join(" and ", conditions) + " order by " + timeColumn + ", " + idColumn + " limit " + batchSize;
+    }
+
+    /**
+     * 一批的查询参数，与 batchSql 中的?顺序一致
+     *
+     * @param parameters 附加条件的参数
+     * @param upperBound 时间上限，可为空
+     * @param watermark  水位，可为空
+     * @return 参数
+     */
+    Object[] batchParameters(Object[] parameters, Timestamp upperBound, Watermark watermark) {
+        List<Object> all = new ArrayList<>();
+        if (parameters != null) {
+            all.addAll(Arrays.asList(parameters));
+        }
+        if (upperBound != null) {
+            all.add(upperBound);
+        }
+        if (watermark != null) {
+            Timestamp time = watermark.getTime();
+            all.add(time);
+            all.add(time);
+            all.add(watermark.getId());
+        }
+        return all.toArray();
+    }
+
+    /**
+     * 当前水位
+     *
+     * @return 水位，没有则返回null
+     */
+    public Watermark getWatermark() {
+        return store.load(name);
+    }
+
+    /**
+     * 清除水位，下次从头读取
+     */
+    public void reset() {
+        store.remove(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getTimeColumn() {
+        return timeColumn;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    /**
+     * 设置附加的查询条件
+     *
+     * @param condition 查询条件，如 status = ?，参数在读取时传入
+     */
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public void setLagMillis(long lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    public WatermarkStore getStore() {
+        return store;
+    }
+
+    public void setStore(WatermarkStore store) {
+        if (store == null) {
+            throw new NullPointerException("store is null");
+        }
+        this.store = store;
+    }
+
+}
@@ -1,17 +1,48 @@
 package cn.emay.orm;
 
 import cn.emay.utils.db.common.Page;
+import cn.emay.utils.string.StringUtils;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.core.namedparam.SqlParameterSourceUtils;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.sql.DataSource;
 import java.beans.IntrospectionException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * JdbcTemplate工具类
@@ -20,6 +51,26 @@ import java.util.List;
  */
 public class JdbcTemplateUtils {
 
+    /**
+     * 默认每批存储条数
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * 对象Class -> 按驼峰转下划线映射的RowMapper
+     */
+    private static final Map<Class<?>, RowMapper<?>> ROW_MAPPERS = new ConcurrentHashMap<>();
+
+    /**
+     * 对象Class -> 编译期生成的映射，没有生成类的为NO_GENERATED_MAPPING
+     */
+    private static final Map<Class<?>, Object> GENERATED_MAPPINGS = new ConcurrentHashMap<>();
+
+    /**
+     * 没有生成类的标记
+     */
+    private static final Object NO_GENERATED_MAPPING = new Object();
+
     /**
      * 存储数据<br/>
      * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
@@ -39,15 +90,861 @@ public class JdbcTemplateUtils {
         if (null == data) {
             throw new IllegalArgumentException("first data is null");
         }
-        String sql;
+        SaveStatement statement = SaveStatement.of(data.getClass(), tableName, isIgnore, autoId);
+        return batchSave(jdbcTemplate, statement, dataList);
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段，以第一条数据的Class为准<br/>
+     * 数据要求及提交方式见 saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param tableName    数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param stream       数据
+     * @param batchSize    每批条数，<=0 则使用默认值
+     * @param isIgnore     是否忽略已经重复的数据
+     * @param autoId       是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    public static <T> long saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Stream<T> stream, int batchSize, boolean isIgnore, boolean autoId) {
+        if (stream == null) {
+            throw new IllegalArgumentException("stream is null");
+        }
+        return saveByAutoNamed(jdbcTemplate, tableName, stream.iterator(), batchSize, isIgnore, autoId);
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段，以第一条数据的Class为准<br/>
+     * 数据要求及提交方式见 saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param tableName    数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param supplier     数据提供者，返回null表示数据结束
+     * @param batchSize    每批条数，<=0 则使用默认值
+     * @param isIgnore     是否忽略已经重复的数据
+     * @param autoId       是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    public static <T> long saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Supplier<T> supplier, int batchSize, boolean isIgnore, boolean autoId) {
+        if (supplier == null) {
+            throw new IllegalArgumentException("supplier is null");
+        }
+        return saveByAutoNamed(jdbcTemplate, tableName, supplierIterator(supplier), batchSize, isIgnore, autoId);
+    }
+
+    /**
+     * 将数据提供者转换为Iterator
+     *
+     * @param supplier 数据提供者，返回null表示数据结束
+     * @return Iterator
+     */
+    static <T> Iterator<T> supplierIterator(Supplier<T> supplier) {
+        return new Iterator<T>() {
+
+            private T next = supplier.get();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T current = next;
+                next = supplier.get();
+                return current;
+            }
+        };
+    }
+
+    /**
+     * 为id为空的数据分配id，分配后的数据可按 autoId = false 存储<br/>
+     * id字段为名字为id的字段，支持Long、Integer、String、BigInteger、BigDecimal类型
+     *
+     * @param dataList    数据
+     * @param idGenerator ID生成器
+     * @return 分配了id的条数
+     */
+    public static int assignIds(List<?> dataList, IdGenerator idGenerator) {
+        if (dataList == null || dataList.isEmpty()) {
+            return 0;
+        }
+        if (idGenerator == null) {
+            throw new IllegalArgumentException("idGenerator is null");
+        }
+        List<Object> absent = new ArrayList<>();
+        for (Object data : dataList) {
+            if (data != null && idMapping(data).isIdAbsent(data)) {
+                absent.add(data);
+            }
+        }
+        long[] ids = idGenerator.nextIds(absent.size());
+        for (int i = 0; i < ids.length; i++) {
+            Object data = absent.get(i);
+            idMapping(data).setIdIfAbsent(data, ids[i]);
+        }
+        return ids.length;
+    }
+
+    /**
+     * 边读边为id为空的数据分配id
+     *
+     * @param iterator    数据
+     * @param idGenerator ID生成器
+     * @return 分配id的Iterator
+     */
+    static <T> Iterator<T> assignIds(Iterator<T> iterator, IdGenerator idGenerator) {
+        if (iterator == null) {
+            throw new IllegalArgumentException("iterator is null");
+        }
+        return new Iterator<T>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T data = iterator.next();
+                if (data != null) {
+                    BeanSqlMapping mapping = idMapping(data);
+                    // 已有id时不消耗生成器的id
+                    if (mapping.isIdAbsent(data)) {
+                        mapping.setIdIfAbsent(data, idGenerator.nextId());
+                    }
+                }
+                return data;
+            }
+        };
+    }
+
+    /**
+     * 有id字段的映射
+     *
+     * @param data 数据
+     * @return 映射
+     */
+    private static BeanSqlMapping idMapping(Object data) {
+        BeanSqlMapping mapping;
         try {
-            sql = Class2SqlUtils.class2SaveSql(data.getClass(), tableName, isIgnore, autoId);
+            mapping = BeanSqlMapping.of(data.getClass());
         } catch (IntrospectionException e) {
             throw new IllegalArgumentException(e);
         }
-        NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
-        SqlParameterSource[] params = SqlParameterSourceUtils.createBatch(dataList.toArray());
-        return namedParameterJdbcTemplate.batchUpdate(sql, params);
+        if (mapping.getIdIndex() < 0) {
+            throw new IllegalArgumentException(data.getClass().getName() + " has no id property");
+        }
+        return mapping;
+    }
+
+    /**
+     * 分批存储数据，边读边存，内存中最多保留一批数据<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段，以第一条数据的Class为准<br/>
+     * 数据中不能有null；存储不在单独的事务中执行，事务外每批单独提交，中途失败时之前的批次已经存储，需要原子性时由调用方开启事务
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param tableName    数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param iterator     数据
+     * @param batchSize    每批条数，<=0 则使用默认值
+     * @param isIgnore     是否忽略已经重复的数据
+     * @param autoId       是否适用数据库的自动生成ID
+     * @return 存储成功的总条数，驱动返回SUCCESS_NO_INFO的按1条计
+     */
+    public static <T> long saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Iterator<T> iterator, int batchSize, boolean isIgnore, boolean autoId) {
+        if (batchSize <= 0) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+        return saveByAutoNamed(jdbcTemplate, tableName, iterator, batchSize, null, isIgnore, autoId);
+    }
+
+    /**
+     * 分批存储数据，由批量控制器根据耗时动态决定每批条数<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段，以第一条数据的Class为准<br/>
+     * 数据要求及提交方式见 saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param jdbcTemplate    jdbcTemplate
+     * @param tableName       数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param dataList        数据
+     * @param batchController 批量控制器
+     * @param isIgnore        是否忽略已经重复的数据
+     * @param autoId          是否适用数据库的自动生成ID
+     * @return 每条数据的存储结果
+     */
+    public static <T> int[] saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, List<T> dataList, AdaptiveBatchController batchController, boolean isIgnore, boolean autoId) {
+        if (dataList == null || dataList.size() == 0) {
+            throw new IllegalArgumentException("dataList is empty");
+        }
+        if (batchController == null) {
+            throw new IllegalArgumentException("batchController is null");
+        }
+        T data = dataList.get(0);
+        if (null == data) {
+            throw new IllegalArgumentException("first data is null");
+        }
+        SaveStatement statement = SaveStatement.of(data.getClass(), tableName, isIgnore, autoId);
+        String table = StringUtils.isEmpty(tableName) ? Class2SqlUtils.hump2Underline(data.getClass().getSimpleName()) : tableName;
+        boolean savepoint = inTransaction(jdbcTemplate);
+        // 批次按顺序执行，失败的批次不会写入结果
+        int[] result = new int[dataList.size()];
+        int[] position = new int[1];
+        batchController.execute(table, AdaptiveBatchController.OPERATION_SAVE, dataList, savepoint || statement.isIdempotent(), batch -> {
+            int[] counts = batchSave(jdbcTemplate, statement, batch, savepoint);
+            System.arraycopy(counts, 0, result, position[0], counts.length);
+            position[0] += counts.length;
+            return sumUpdateCounts(counts);
+        });
+        return result;
+    }
+
+    /**
+     * 分批存储数据，边读边存，由批量控制器根据耗时动态决定每批条数<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段，以第一条数据的Class为准<br/>
+     * 数据要求及提交方式见 saveByAutoNamed(JdbcTemplate, String, Iterator, int, boolean, boolean)
+     *
+     * @param jdbcTemplate    jdbcTemplate
+     * @param tableName       数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param iterator        数据
+     * @param batchController 批量控制器
+     * @param isIgnore        是否忽略已经重复的数据
+     * @param autoId          是否适用数据库的自动生成ID
+     * @return 存储成功的总条数，驱动返回SUCCESS_NO_INFO的按1条计
+     */
+    public static <T> long saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Iterator<T> iterator, AdaptiveBatchController batchController, boolean isIgnore, boolean autoId) {
+        if (batchController == null) {
+            throw new IllegalArgumentException("batchController is null");
+        }
+        return saveByAutoNamed(jdbcTemplate, tableName, iterator, 0, batchController, isIgnore, autoId);
+    }
+
+    /**
+     * 分批存储数据，边读边存
+     *
+     * @param jdbcTemplate    jdbcTemplate
+     * @param tableName       数据库表名
+     * @param iterator        数据
+     * @param batchSize       每批条数，batchController不为空时不生效
+     * @param batchController 批量控制器，可为空
+     * @param isIgnore        是否忽略已经重复的数据
+     * @param autoId          是否适用数据库的自动生成ID
+     * @return 存储成功的总条数
+     */
+    private static <T> long saveByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Iterator<T> iterator, int batchSize, AdaptiveBatchController batchController, boolean isIgnore, boolean autoId) {
+        if (iterator == null) {
+            throw new IllegalArgumentException("iterator is null");
+        }
+        List<T> chunk = new ArrayList<>(batchController == null ? batchSize : batchController.getInitialBatchSize());
+        SaveStatement statement = null;
+        String table = null;
+        long total = 0;
+        while (iterator.hasNext()) {
+            T data = iterator.next();
+            if (data == null) {
+                throw new IllegalArgumentException("data is null");
+            }
+            if (statement == null) {
+                statement = SaveStatement.of(data.getClass(), tableName, isIgnore, autoId);
+                table = StringUtils.isEmpty(tableName) ? Class2SqlUtils.hump2Underline(data.getClass().getSimpleName()) : tableName;
+            }
+            chunk.add(data);
+            int chunkSize = batchController == null ? batchSize : batchController.getBatchSize(table, AdaptiveBatchController.OPERATION_SAVE);
+            if (chunk.size() >= chunkSize) {
+                total += saveChunk(jdbcTemplate, statement, table, chunk, batchController);
+                chunk.clear();
+            }
+        }
+        if (chunk.size() > 0) {
+            total += saveChunk(jdbcTemplate, statement, table, chunk, batchController);
+        }
+        return total;
+    }
+
+    /**
+     * 存储一批数据
+     *
+     * @param jdbcTemplate    jdbcTemplate
+     * @param statement       存储语句
+     * @param table           表名
+     * @param chunk           数据
+     * @param batchController 批量控制器，可为空
+     * @return 存储成功的条数
+     */
+    private static <T> long saveChunk(JdbcTemplate jdbcTemplate, SaveStatement statement, String table, List<T> chunk, AdaptiveBatchController batchController) {
+        if (batchController == null) {
+            return sumUpdateCounts(batchSave(jdbcTemplate, statement, chunk));
+        }
+        boolean savepoint = inTransaction(jdbcTemplate);
+        return batchController.execute(table, AdaptiveBatchController.OPERATION_SAVE, chunk, savepoint || statement.isIdempotent(),
+                batch -> sumUpdateCounts(batchSave(jdbcTemplate, statement, batch, savepoint)));
+    }
+
+    /**
+     * 是否在事务中，事务中的批次可以回滚到保存点后重试
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @return 是否在事务中
+     */
+    private static boolean inTransaction(JdbcTemplate jdbcTemplate) {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        return dataSource != null && TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.getResource(dataSource) != null;
+    }
+
+    /**
+     * 在保存点内批量执行存储语句，失败时回滚到保存点，撤销本批已经写入的数据，以便重试
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param statement    存储语句
+     * @param dataList     数据
+     * @param savepoint    是否使用保存点，只能在事务中使用
+     * @return 每条的影响条数
+     */
+    private static <T> int[] batchSave(JdbcTemplate jdbcTemplate, SaveStatement statement, List<T> dataList, boolean savepoint) {
+        if (!savepoint) {
+            return batchSave(jdbcTemplate, statement, dataList);
+        }
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            Savepoint point;
+            try {
+                point = connection.setSavepoint();
+            } catch (SQLException e) {
+                throw new CannotCreateTransactionException("could not create savepoint", e);
+            }
+            int[] counts;
+            try {
+                counts = batchSave(jdbcTemplate, statement, dataList);
+            } catch (RuntimeException e) {
+                try {
+                    connection.rollback(point);
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            }
+            try {
+                connection.releaseSavepoint(point);
+            } catch (SQLException e) {
+                // 部分驱动不支持释放保存点，事务结束时自动释放
+            }
+            return counts;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * 批量执行存储语句
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param statement    存储语句
+     * @param dataList     数据
+     * @return 每条的影响条数
+     */
+    static <T> int[] batchSave(JdbcTemplate jdbcTemplate, SaveStatement statement, List<T> dataList) {
+        StatementCounter.record(statement.sql);
+        return jdbcTemplate.batchUpdate(statement.sql, statement.newSetter(dataList));
+    }
+
+    /**
+     * 汇总批量执行的影响条数
+     *
+     * @param updateCounts 每条语句的影响条数
+     * @return 总条数，SUCCESS_NO_INFO按1条计
+     */
+    private static long sumUpdateCounts(int[] updateCounts) {
+        long total = 0;
+        for (int count : updateCounts) {
+            if (count > 0) {
+                total += count;
+            } else if (count == Statement.SUCCESS_NO_INFO) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 将全量数据同步到表：只新增表中没有的、更新内容有变化的、删除数据中已没有的<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段；表中数据按主键分段读取，内存中保留全部主键及内容哈希。<br/>
+     * 同步不在单独的事务中执行，需要原子性时由调用方开启事务
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param tableName    数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param clazz        数据Class
+     * @param keyColumns   主键字段，数据库字段名或对象字段名
+     * @param dataList     全量数据
+     * @param batchSize    每批条数，<=0 则使用默认值
+     * @return 同步结果
+     */
+    public static <T> SyncResult syncByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Class<T> clazz, String[] keyColumns, List<T> dataList, int batchSize) {
+        if (dataList == null) {
+            throw new IllegalArgumentException("dataList is null");
+        }
+        return syncByAutoNamed(jdbcTemplate, tableName, clazz, keyColumns, dataList.iterator(), batchSize);
+    }
+
+    /**
+     * 将全量数据同步到表，边读边比对：只新增表中没有的、更新内容有变化的、删除数据中已没有的<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段；表中数据按主键分段读取，内存中保留全部主键及内容哈希。<br/>
+     * 同步不在单独的事务中执行，需要原子性时由调用方开启事务
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param tableName    数据库表名，非必填，如果未填，则将类名按照驼峰转下划线的规则转换
+     * @param clazz        数据Class
+     * @param keyColumns   主键字段，数据库字段名或对象字段名
+     * @param iterator     全量数据
+     * @param batchSize    每批条数，<=0 则使用默认值
+     * @return 同步结果
+     */
+    public static <T> SyncResult syncByAutoNamed(JdbcTemplate jdbcTemplate, String tableName, Class<T> clazz, String[] keyColumns, Iterator<T> iterator, int batchSize) {
+        return new TableSync<>(jdbcTemplate, clazz, tableName, keyColumns, batchSize).sync(iterator);
+    }
+
+    /**
+     * 按时间分表存储数据，每条数据按日期字段路由到对应的表，每个表一批<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param dataList     数据
+     * @param isIgnore     是否忽略已经重复的数据
+     * @param autoId       是否适用数据库的自动生成ID
+     * @return 每条数据的存储结果，与dataList顺序一致
+     */
+    public static <T> int[] saveByPartition(JdbcTemplate jdbcTemplate, TimePartition partition, List<T> dataList, boolean isIgnore, boolean autoId) {
+        return saveByPartition(jdbcTemplate, partition, dataList, null, isIgnore, autoId);
+    }
+
+    /**
+     * 按时间分表存储数据，每条数据按日期字段路由到对应的表，每个表按批量控制器的批量大小分批<br/>
+     * 按照驼峰转下划线的方式，自动将数据Class的字段映射到数据库字段
+     *
+     * @param jdbcTemplate    jdbcTemplate
+     * @param partition       分表规则
+     * @param dataList        数据
+     * @param batchController 批量控制器，可为空
+     * @param isIgnore        是否忽略已经重复的数据
+     * @param autoId          是否适用数据库的自动生成ID
+     * @return 每条数据的存储结果，与dataList顺序一致
+     */
+    public static <T> int[] saveByPartition(JdbcTemplate jdbcTemplate, TimePartition partition, List<T> dataList, AdaptiveBatchController batchController, boolean isIgnore, boolean autoId) {
+        if (partition == null) {
+            throw new IllegalArgumentException("partition is null");
+        }
+        if (dataList == null || dataList.size() == 0) {
+            throw new IllegalArgumentException("dataList is empty");
+        }
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        Map<String, List<Integer>> positions = new HashMap<>();
+        int index = 0;
+        for (T data : dataList) {
+            if (data == null) {
+                throw new IllegalArgumentException("data " + index + " is null");
+            }
+            String table = partition.tableOfData(data);
+            groups.computeIfAbsent(table, key -> new ArrayList<>()).add(data);
+            positions.computeIfAbsent(table, key -> new ArrayList<>()).add(index++);
+        }
+        int[] result = new int[dataList.size()];
+        for (Map.Entry<String, List<T>> group : groups.entrySet()) {
+            int[] counts = batchController == null ? saveByAutoNamed(jdbcTemplate, group.getKey(), group.getValue(), isIgnore, autoId)
+                    : saveByAutoNamed(jdbcTemplate, group.getKey(), group.getValue(), batchController, isIgnore, autoId);
+            List<Integer> groupPositions = positions.get(group.getKey());
+            for (int i = 0; i < counts.length; i++) {
+                result[groupPositions.get(i)] = counts[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按时间范围查询分表，并转换为对象T<br/>
+     * 只查询与范围有交集且存在的表，各表并行查询，结果按表的时间顺序合并<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param clazz        类型
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 数据
+     */
+    public static <T> List<T> findObjectListByPartition(JdbcTemplate jdbcTemplate, TimePartition partition, Class<T> clazz, String sql, Object begin, Object end, boolean desc, Object... parameters) {
+        return findObjectListByPartition(jdbcTemplate, partition, () -> getRowMapper(clazz), sql, begin, end, desc, parameters);
+    }
+
+    /**
+     * 按时间范围查询分表，并以Mapper转换为对象T<br/>
+     * 只查询与范围有交集且存在的表，各表并行查询，结果按表的时间顺序合并；各表的查询共用rowMapper，rowMapper需要线程安全
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param rowMapper    数据转换器
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 数据
+     */
+    public static <T> List<T> findObjectListByPartition(JdbcTemplate jdbcTemplate, TimePartition partition, RowMapper<T> rowMapper, String sql, Object begin, Object end, boolean desc, Object... parameters) {
+        return findObjectListByPartition(jdbcTemplate, partition, () -> rowMapper, sql, begin, end, desc, parameters);
+    }
+
+    /**
+     * 按时间范围查询分表，每个表的查询从rowMappers取得自己的数据转换器
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param rowMappers   数据转换器的提供者
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 数据
+     */
+    private static <T> List<T> findObjectListByPartition(JdbcTemplate jdbcTemplate, TimePartition partition, Supplier<RowMapper<T>> rowMappers, String sql, Object begin, Object end, boolean desc, Object... parameters) {
+        List<String> tables = partitionTables(jdbcTemplate, partition, sql, begin, end, desc);
+        List<Supplier<List<T>>> queries = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            queries.add(() -> findObjectListByMapper(jdbcTemplate, rowMappers.get(), sql.replace(TimePartition.TABLE_PLACEHOLDER, table), parameters));
+        }
+        List<T> list = new ArrayList<>();
+        for (List<T> part : invokeAll(partition, queries)) {
+            list.addAll(part);
+        }
+        return list;
+    }
+
+    /**
+     * 按时间范围分页查询分表,并转换为对象T<br/>
+     * 先并行查询各表的总数，再只查询分页范围覆盖的表；SQL需按分表的日期字段排序，与desc方向一致<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param clazz        类型
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param start        起始数据index
+     * @param limit        查询条数
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 分页数据
+     */
+    public static <T> Page<T> findObjectPageByPartitionInMysql(JdbcTemplate jdbcTemplate, TimePartition partition, Class<T> clazz, String sql, Object begin, Object end, boolean desc, int start, int limit, Object... parameters) {
+        return findObjectPageByPartitionInMysql(jdbcTemplate, partition, () -> getRowMapper(clazz), sql, begin, end, desc, start, limit, parameters);
+    }
+
+    /**
+     * 按时间范围分页查询分表,并以Mapper转换为对象T<br/>
+     * 先并行查询各表的总数，再只查询分页范围覆盖的表；SQL需按分表的日期字段排序，与desc方向一致<br/>
+     * 各表的查询共用rowMapper，rowMapper需要线程安全
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param rowMapper    数据转换器
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param start        起始数据index
+     * @param limit        查询条数
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 分页数据
+     */
+    public static <T> Page<T> findObjectPageByPartitionInMysql(JdbcTemplate jdbcTemplate, TimePartition partition, RowMapper<T> rowMapper, String sql, Object begin, Object end, boolean desc, int start, int limit, Object... parameters) {
+        return findObjectPageByPartitionInMysql(jdbcTemplate, partition, () -> rowMapper, sql, begin, end, desc, start, limit, parameters);
+    }
+
+    /**
+     * 按时间范围分页查询分表，每个表的查询从rowMappers取得自己的数据转换器
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param rowMappers   数据转换器的提供者
+     * @param sql          SQL，表名写作 ${table}，范围条件由SQL自己指定
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否按时间倒序合并
+     * @param start        起始数据index
+     * @param limit        查询条数
+     * @param parameters   参数，每个表使用相同的参数
+     * @return 分页数据
+     */
+    private static <T> Page<T> findObjectPageByPartitionInMysql(JdbcTemplate jdbcTemplate, TimePartition partition, Supplier<RowMapper<T>> rowMappers, String sql, Object begin, Object end, boolean desc, int start, int limit, Object... parameters) {
+        List<String> tables = partitionTables(jdbcTemplate, partition, sql, begin, end, desc);
+        List<Supplier<Integer>> countQueries = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            countQueries.add(() -> findObjectPageCountInMysql(jdbcTemplate, sql.replace(TimePartition.TABLE_PLACEHOLDER, table), parameters));
+        }
+        List<Integer> counts = invokeAll(partition, countQueries);
+        int totalCount = 0;
+        for (Integer count : counts) {
+            totalCount += count;
+        }
+        // 按表的顺序定位分页覆盖的表及各表内的偏移
+        List<Supplier<List<T>>> queries = new ArrayList<>();
+        int offset = start;
+        int remaining = limit;
+        for (int i = 0; i < tables.size() && remaining > 0; i++) {
+            int count = counts.get(i);
+            if (offset >= count) {
+                offset -= count;
+                continue;
+            }
+            int take = Math.min(count - offset, remaining);
+            String sqlNew = sql.replace(TimePartition.TABLE_PLACEHOLDER, tables.get(i)) + " LIMIT " + offset + "," + take + " ";
+            queries.add(() -> findObjectListByMapper(jdbcTemplate, rowMappers.get(), sqlNew, parameters));
+            offset = 0;
+            remaining -= take;
+        }
+        List<T> list = new ArrayList<>(limit - remaining);
+        for (List<T> part : invokeAll(partition, queries)) {
+            list.addAll(part);
+        }
+        Page<T> page = new Page<>();
+        page.setList(list);
+        page.setNumByStartAndLimit(start, limit, totalCount);
+        return page;
+    }
+
+    /**
+     * 范围内需要查询的分表
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param partition    分表规则
+     * @param sql          SQL
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @param desc         是否倒序
+     * @return 表名
+     */
+    private static List<String> partitionTables(JdbcTemplate jdbcTemplate, TimePartition partition, String sql, Object begin, Object end, boolean desc) {
+        if (partition == null) {
+            throw new IllegalArgumentException("partition is null");
+        }
+        if (sql == null || !sql.contains(TimePartition.TABLE_PLACEHOLDER)) {
+            throw new IllegalArgumentException("sql has no " + TimePartition.TABLE_PLACEHOLDER);
+        }
+        List<String> tables = partition.existingTablesBetween(jdbcTemplate, begin, end);
+        if (desc) {
+            Collections.reverse(tables);
+        }
+        return tables;
+    }
+
+    /**
+     * 并行执行：第一个查询在当前线程执行，其余的在分表查询线程中执行<br/>
+     * 当前线程在隔离舱内时，分表查询线程中的每个查询另外占用舱的一个并发数，舱满时排队或被拒绝
+     *
+     * @param partition 分表规则
+     * @param queries   查询
+     * @return 结果，与查询顺序一致
+     */
+    private static <R> List<R> invokeAll(TimePartition partition, List<Supplier<R>> queries) {
+        List<R> results = new ArrayList<>(queries.size());
+        if (queries.isEmpty()) {
+            return results;
+        }
+        try {
+            List<Future<R>> futures = new ArrayList<>(queries.size() - 1);
+            try {
+                for (int i = 1; i < queries.size(); i++) {
+                    Supplier<R> query = Bulkhead.propagate(queries.get(i));
+                    futures.add(partition.executor().submit(query::get));
+                }
+                results.add(queries.get(0).get());
+                for (Future<R> future : futures) {
+                    results.add(future.get());
+                }
+            } finally {
+                for (Future<R> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("partition query interrupted", e);
+        }
+    }
+
+    /**
+     * 按水位增量读取新增或更新的数据，并转换为对象T<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；每批按（时间，id）排序读取，处理方处理成功后保存水位，直到读完
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param query        增量读取规则
+     * @param clazz        对象Class
+     * @param consumer     每批数据的处理方，抛出异常时不保存该批的水位
+     * @param parameters   附加条件的参数
+     * @return 读取的总条数
+     */
+    public static <T> long pollChanges(JdbcTemplate jdbcTemplate, IncrementalQuery query, Class<T> clazz, Consumer<List<T>> consumer, Object... parameters) {
+        return pollChanges(jdbcTemplate, query, getRowMapper(clazz), consumer, parameters);
+    }
+
+    /**
+     * 按水位增量读取新增或更新的数据，并以Mapper转换为对象T<br/>
+     * 每批按（时间，id）排序读取，处理方处理成功后保存水位，直到读完
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param query        增量读取规则
+     * @param rowMapper    查询值与对象的映射
+     * @param consumer     每批数据的处理方，抛出异常时不保存该批的水位
+     * @param parameters   附加条件的参数
+     * @return 读取的总条数
+     */
+    public static <T> long pollChanges(JdbcTemplate jdbcTemplate, IncrementalQuery query, RowMapper<T> rowMapper, Consumer<List<T>> consumer, Object... parameters) {
+        return pollChanges(action -> action.apply(jdbcTemplate), query, rowMapper, consumer, parameters);
+    }
+
+    /**
+     * 按水位增量读取新增或更新的数据，每批的查询交给reader执行，处理方在reader之外执行<br/>
+     * reader可以只在查询期间占用隔离舱的并发数，处理方处理数据时不占用
+     *
+     * @param reader     执行每批查询的操作，参数为使用JdbcTemplate的查询
+     * @param query      增量读取规则
+     * @param rowMapper  查询值与对象的映射
+     * @param consumer   每批数据的处理方，抛出异常时不保存该批的水位
+     * @param parameters 附加条件的参数
+     * @return 读取的总条数
+     */
+    static <T> long pollChanges(Function<Function<JdbcTemplate, List<T>>, List<T>> reader, IncrementalQuery query, RowMapper<T> rowMapper, Consumer<List<T>> consumer, Object... parameters) {
+        if (query == null) {
+            throw new NullPointerException("query is null");
+        }
+        if (rowMapper == null) {
+            throw new NullPointerException("rowMapper is null");
+        }
+        if (consumer == null) {
+            throw new NullPointerException("consumer is null");
+        }
+        WatermarkStore store = query.getStore();
+        Watermark watermark = store.load(query.getName());
+        // 上限在本次轮询内固定，读到上限即结束
+        Timestamp upperBound = query.getLagMillis() > 0 ? new Timestamp(System.currentTimeMillis() - query.getLagMillis()) : null;
+        String timeColumn = query.getTimeColumn();
+        String idColumn = query.getIdColumn();
+        long total = 0;
+        while (true) {
+            String sql = query.batchSql(watermark != null, upperBound != null);
+            Object[] batchParameters = query.batchParameters(parameters, upperBound, watermark);
+            Timestamp[] lastTime = new Timestamp[1];
+            long[] lastId = new long[1];
+            List<T> batch = reader.apply(jdbc -> monitored(jdbc, sql, batchParameters, () -> jdbc.query(sql, batchParameters, (rs, rowNum) -> {
+                T row = rowMapper.mapRow(rs, rowNum);
+                lastTime[0] = rs.getTimestamp(timeColumn);
+                lastId[0] = rs.getLong(idColumn);
+                return row;
+            })));
+            if (batch.isEmpty()) {
+                return total;
+            }
+            consumer.accept(batch);
+            watermark = new Watermark(lastTime[0], lastId[0]);
+            store.save(query.getName(), watermark);
+            total += batch.size();
+            if (batch.size() < query.getBatchSize()) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 获取按照驼峰转下划线的方式将数据库字段映射到Class字段的RowMapper<br/>
+     * 每个Class只解析一次，解析结果在各线程间共享；存在编译期生成的映射时使用生成的RowMapper
+     *
+     * @param clazz 对象Class
+     * @return RowMapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> getRowMapper(Class<T> clazz) {
+        GeneratedSqlMapping<T> generated = getGeneratedMapping(clazz);
+        if (generated != null) {
+            return generated.getRowMapper();
+        }
+        RowMapper<?> rowMapper = ROW_MAPPERS.get(clazz);
+        if (rowMapper == null) {
+            rowMapper = ROW_MAPPERS.computeIfAbsent(clazz, BeanPropertyRowMapper::new);
+        }
+        return (RowMapper<T>) rowMapper;
+    }
+
+    /**
+     * 获取对低基数字符串字段做字典编码的RowMapper<br/>
+     * 指定字段的值经过字典，相等的值共享同一个实例；未指定字段时抽样检测低基数字段。抽样状态属于单次查询，请每次查询获取新的实例
+     *
+     * @param clazz      对象Class
+     * @param dictionary 字典，为空则每次查询新建字典；可传入 StringDictionary.shared() 在查询之间共享
+     * @param columns    低基数字段，数据库字段名或对象字段名；为空则抽样检测
+     * @return RowMapper
+     */
+    public static <T> DictionaryRowMapper<T> getDictionaryRowMapper(Class<T> clazz, StringDictionary dictionary, String... columns) {
+        if (columns == null || columns.length == 0) {
+            return new DictionaryRowMapper<>(clazz, dictionary, DictionaryRowMapper.DEFAULT_SAMPLE_ROWS, DictionaryRowMapper.DEFAULT_MAX_DISTINCT_RATIO);
+        }
+        return new DictionaryRowMapper<>(clazz, dictionary, columns);
+    }
+
+    /**
+     * 获取 SqlEntityProcessor 为Class生成的映射<br/>
+     * 每个Class只查找一次
+     *
+     * @param clazz 对象Class
+     * @return 生成的映射，没有则返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> GeneratedSqlMapping<T> getGeneratedMapping(Class<T> clazz) {
+        Object generated = GENERATED_MAPPINGS.get(clazz);
+        if (generated == null) {
+            generated = GENERATED_MAPPINGS.computeIfAbsent(clazz, JdbcTemplateUtils::loadGeneratedMapping);
+        }
+        return generated == NO_GENERATED_MAPPING ? null : (GeneratedSqlMapping<T>) generated;
+    }
+
+    /**
+     * 加载生成的映射
+     *
+     * @param clazz 对象Class
+     * @return 生成的映射，没有则返回NO_GENERATED_MAPPING
+     */
+    private static Object loadGeneratedMapping(Class<?> clazz) {
+        String packageName = clazz.getPackage() == null ? "" : clazz.getPackage().getName();
+        String localName = packageName.isEmpty() ? clazz.getName() : clazz.getName().substring(packageName.length() + 1);
+        String className = (packageName.isEmpty() ? "" : packageName + ".") + localName.replace('$', '_') + GeneratedSqlMapping.CLASS_SUFFIX;
+        try {
+            Class<?> generatedClass = Class.forName(className, true, clazz.getClassLoader());
+            if (!GeneratedSqlMapping.class.isAssignableFrom(generatedClass)) {
+                return NO_GENERATED_MAPPING;
+            }
+            return generatedClass.getConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return NO_GENERATED_MAPPING;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("load " + className + " failed", e);
+        }
     }
 
     /**
@@ -62,7 +959,7 @@ public class JdbcTemplateUtils {
      */
     public static <T> T findObjectUnique(JdbcTemplate jdbcTemplate, Class<T> objectClass, String sql, Object... parameters) {
         try {
-            return jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(objectClass), parameters);
+            return monitored(jdbcTemplate, sql, parameters, () -> jdbcTemplate.queryForObject(sql, getRowMapper(objectClass), parameters));
         } catch (EmptyResultDataAccessException e) {
             return null;
         } catch (IncorrectResultSizeDataAccessException e) {
@@ -82,7 +979,24 @@ public class JdbcTemplateUtils {
      * @return 数据
      */
     public static <T> List<T> findObjectListByClass(JdbcTemplate jdbcTemplate, Class<T> clazz, String sql, Object... parameters) {
-        return findObjectListByMapper(jdbcTemplate, new BeanPropertyRowMapper<>(clazz), sql, parameters);
+        return findObjectListByMapper(jdbcTemplate, getRowMapper(clazz), sql, parameters);
+    }
+
+    /**
+     * 查询列表,并转换为对象T，低基数字符串字段做字典编码<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；指定字段（或抽样检测出的低基数字段）中相等的值共享同一个String实例，
+     * 减少大结果集中重复字符串占用的内存
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param clazz        对象Class
+     * @param dictionary   字典，为空则本次查询新建字典
+     * @param columns      低基数字段，数据库字段名或对象字段名；为空则抽样检测
+     * @param sql          SQL
+     * @param parameters   参数
+     * @return 数据
+     */
+    public static <T> List<T> findObjectDictionaryListByClass(JdbcTemplate jdbcTemplate, Class<T> clazz, StringDictionary dictionary, String[] columns, String sql, Object... parameters) {
+        return findObjectListByMapper(jdbcTemplate, getDictionaryRowMapper(clazz, dictionary, columns), sql, parameters);
     }
 
     /**
@@ -95,7 +1009,113 @@ public class JdbcTemplateUtils {
      * @return 数据
      */
     public static <T> List<T> findObjectListByMapper(JdbcTemplate jdbcTemplate, RowMapper<T> rowMapper, String sql, Object... parameters) {
-        return jdbcTemplate.query(sql, parameters, rowMapper);
+        return monitored(jdbcTemplate, sql, parameters, () -> jdbcTemplate.query(sql, parameters, rowMapper));
+    }
+
+    /**
+     * 查询列表,并转换为对象T，超过内存条数的数据写入临时文件<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段；文件中的数据按Class的可读写属性编码。<br/>
+     * 返回的列表只读，使用完毕后需要close删除临时文件
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param clazz        对象Class
+     * @param memoryRows   内存中保留的条数，<0 则使用默认值
+     * @param sql          SQL
+     * @param parameters   参数
+     * @return 数据
+     */
+    public static <T> SpillableList<T> findObjectSpillableListByClass(JdbcTemplate jdbcTemplate, Class<T> clazz, int memoryRows, String sql, Object... parameters) {
+        return findObjectSpillableListByMapper(jdbcTemplate, getRowMapper(clazz), RowCodec.bean(clazz), memoryRows, sql, parameters);
+    }
+
+    /**
+     * 查询列表,并以Mapper转换为对象T，超过内存条数的数据以codec编码写入临时文件<br/>
+     * 返回的列表只读，使用完毕后需要close删除临时文件
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param rowMapper    查询值与对象的映射
+     * @param codec        对象的编解码
+     * @param memoryRows   内存中保留的条数，<0 则使用默认值
+     * @param sql          SQL
+     * @param parameters   参数
+     * @return 数据
+     */
+    public static <T> SpillableList<T> findObjectSpillableListByMapper(JdbcTemplate jdbcTemplate, RowMapper<T> rowMapper, RowCodec<T> codec, int memoryRows, String sql, Object... parameters) {
+        SpillableList<T> list = new SpillableList<>(codec, memoryRows);
+        try {
+            int[] rowNum = new int[1];
+            monitored(jdbcTemplate, sql, parameters, () -> {
+                jdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> {
+                    try {
+                        list.append(rowMapper.mapRow(rs, rowNum[0]++));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return null;
+            });
+            list.complete();
+            return list;
+        } catch (IOException | RuntimeException e) {
+            try {
+                list.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * 查询并流式导出为CSV/TSV<br/>
+     * 结果集逐行写入输出流，不创建中间对象；输出流由调用方关闭
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param out          输出流
+     * @param exporter     导出器
+     * @param sql          SQL
+     * @param parameters   参数
+     * @return 导出的数据条数（不含表头）
+     */
+    public static long exportBySql(JdbcTemplate jdbcTemplate, OutputStream out, CsvExporter exporter, String sql, Object... parameters) {
+        return exportBySql(jdbcTemplate, Channels.newChannel(out), exporter, sql, parameters);
+    }
+
+    /**
+     * 查询并流式导出为CSV/TSV<br/>
+     * 结果集逐行写入通道，不创建中间对象；通道由调用方关闭
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param channel      输出通道
+     * @param exporter     导出器
+     * @param sql          SQL
+     * @param parameters   参数
+     * @return 导出的数据条数（不含表头）
+     */
+    public static long exportBySql(JdbcTemplate jdbcTemplate, WritableByteChannel channel, CsvExporter exporter, String sql, Object... parameters) {
+        if (channel == null) {
+            throw new NullPointerException("channel is null");
+        }
+        if (exporter == null) {
+            throw new NullPointerException("exporter is null");
+        }
+        Long rows = monitored(jdbcTemplate, sql, parameters, () -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (exporter.getFetchSize() != 0) {
+                ps.setFetchSize(exporter.getFetchSize());
+            }
+            return ps;
+        }, new ArgumentPreparedStatementSetter(parameters), rs -> {
+            try {
+                return exporter.export(rs, channel);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+        return rows == null ? 0L : rows;
     }
 
     /**
@@ -111,7 +1131,7 @@ public class JdbcTemplateUtils {
      * @return 分页数据
      */
     public static <T> Page<T> findObjectPageByClassInMysql(JdbcTemplate jdbcTemplate, Class<T> clazz, String sql, int start, int limit, Object... parameters) {
-        return findObjectPageByMapperInMysql(jdbcTemplate, new BeanPropertyRowMapper<>(clazz), sql, start, limit, parameters);
+        return findObjectPageByMapperInMysql(jdbcTemplate, getRowMapper(clazz), sql, start, limit, parameters);
     }
 
     /**
@@ -127,14 +1147,57 @@ public class JdbcTemplateUtils {
      */
     public static <T> Page<T> findObjectPageByMapperInMysql(JdbcTemplate jdbcTemplate, RowMapper<T> rowMapper, String sql, int start, int limit, Object... parameters) {
         Integer totalCount = findObjectPageCountInMysql(jdbcTemplate, sql, parameters);
-        String sqlNew = sql + " LIMIT " + start + "," + limit + " ";
-        List<T> list = findObjectListByMapper(jdbcTemplate, rowMapper, sqlNew, parameters);
+        List<T> list = findObjectListByMapper(jdbcTemplate, rowMapper, pageSqlInMysql(sql, start, limit), parameters);
         Page<T> page = new Page<>();
         page.setList(list);
         page.setNumByStartAndLimit(start, limit, totalCount);
         return page;
     }
 
+    /**
+     * 查询分页,并转换为对象T，总数在第一次访问时才查询<br/>
+     * 按照驼峰转下划线的方式，自动将数据库字段映射到Class的字段
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param clazz        类型
+     * @param sql          sql
+     * @param start        起始数据index
+     * @param limit        查询条数
+     * @param parameters   参数
+     * @return 分页数据
+     */
+    public static <T> LazyPage<T> findObjectLazyPageByClassInMysql(JdbcTemplate jdbcTemplate, Class<T> clazz, String sql, int start, int limit, Object... parameters) {
+        return findObjectLazyPageByMapperInMysql(jdbcTemplate, getRowMapper(clazz), sql, start, limit, parameters);
+    }
+
+    /**
+     * 查询分页,并以Mapper转换为对象T，总数在第一次访问时才查询<br/>
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param rowMapper    数据转换器
+     * @param sql          sql
+     * @param start        起始数据index
+     * @param limit        查询条数
+     * @param parameters   参数
+     * @return 分页数据
+     */
+    public static <T> LazyPage<T> findObjectLazyPageByMapperInMysql(JdbcTemplate jdbcTemplate, RowMapper<T> rowMapper, String sql, int start, int limit, Object... parameters) {
+        List<T> list = findObjectListByMapper(jdbcTemplate, rowMapper, pageSqlInMysql(sql, start, limit), parameters);
+        return new LazyPage<>(list, start, limit, () -> findObjectPageCountInMysql(jdbcTemplate, sql, parameters));
+    }
+
+    /**
+     * 分页sql
+     *
+     * @param sql   原始sql
+     * @param start 起始数据index
+     * @param limit 查询条数
+     * @return 分页sql
+     */
+    static String pageSqlInMysql(String sql, int start, int limit) {
+        return sql + " LIMIT " + start + "," + limit + " ";
+    }
+
     /**
      * 查询总数
      *
@@ -143,7 +1206,7 @@ public class JdbcTemplateUtils {
      * @param parameters   参数
      * @return 总数
      */
-    private static Integer findObjectPageCountInMysql(JdbcTemplate jdbcTemplate, String sql, Object... parameters) {
+    static Integer findObjectPageCountInMysql(JdbcTemplate jdbcTemplate, String sql, Object... parameters) {
         int fromIndex = sql.toLowerCase().indexOf(" from ");
         if (fromIndex < 0) {
             throw new RuntimeException("sql" + " has no from");
@@ -158,8 +1221,116 @@ public class JdbcTemplateUtils {
             orderByIndex = countSql.toLowerCase().indexOf(" order ");
             countSql = countSql.substring(0, orderByIndex);
         }
-        countSql = "select count(*) " + countSql.substring(fromIndex);
-        return jdbcTemplate.queryForObject(countSql, parameters, Integer.class);
+        String pageCountSql = "select count(*) " + countSql.substring(fromIndex);
+        return monitored(jdbcTemplate, pageCountSql, parameters, () -> jdbcTemplate.queryForObject(pageCountSql, parameters, Integer.class));
+    }
+
+    /**
+     * 执行查询并统计语句数，JdbcTemplate注册了慢查询监控时计时并上报
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param sql          SQL
+     * @param parameters   参数
+     * @param query        查询
+     * @return 查询结果
+     */
+    static <R> R monitored(JdbcTemplate jdbcTemplate, String sql, Object[] parameters, Supplier<R> query) {
+        StatementCounter.record(sql);
+        SlowQueryMonitor monitor = SlowQueryMonitor.of(jdbcTemplate);
+        if (monitor == null) {
+            return query.get();
+        }
+        long begin = System.nanoTime();
+        try {
+            return query.get();
+        } finally {
+            monitor.onSql(jdbcTemplate, sql, parameters, System.nanoTime() - begin);
+        }
+    }
+
+    /**
+     * 存储语句：SQL及对应的批量参数设置器<br/>
+     * 存在编译期生成的映射时使用生成的SQL和设置器，否则使用BeanSqlMapping
+     */
+    static final class SaveStatement {
+
+        /**
+         * 使用?占位的存储SQL
+         */
+        private final String sql;
+
+        /**
+         * 生成的映射，可为空
+         */
+        private final GeneratedSqlMapping<Object> generated;
+
+        /**
+         * 反射解析的映射，generated为空时使用
+         */
+        private final BeanSqlMapping mapping;
+
+        /**
+         * 是否忽略已经重复的数据
+         */
+        private final boolean isIgnore;
+
+        /**
+         * 是否适用数据库的自动生成ID
+         */
+        private final boolean autoId;
+
+        private SaveStatement(String sql, GeneratedSqlMapping<Object> generated, BeanSqlMapping mapping, boolean isIgnore, boolean autoId) {
+            this.sql = sql;
+            this.generated = generated;
+            this.mapping = mapping;
+            this.isIgnore = isIgnore;
+            this.autoId = autoId;
+        }
+
+        /**
+         * 创建存储语句
+         *
+         * @param clazz     数据Class
+         * @param tableName 数据库表名
+         * @param isIgnore  是否忽略已经重复的数据
+         * @param autoId    是否适用数据库的自动生成ID
+         * @return 存储语句
+         */
+        @SuppressWarnings("unchecked")
+        static SaveStatement of(Class<?> clazz, String tableName, boolean isIgnore, boolean autoId) {
+            GeneratedSqlMapping<Object> generated = (GeneratedSqlMapping<Object>) getGeneratedMapping(clazz);
+            if (generated != null) {
+                return new SaveStatement(generated.getSaveSql(tableName, isIgnore, autoId), generated, null, isIgnore, autoId);
+            }
+            try {
+                return new SaveStatement(Class2SqlUtils.class2PreparedSaveSql(clazz, tableName, isIgnore, autoId), null, BeanSqlMapping.of(clazz), isIgnore, autoId);
+            } catch (IntrospectionException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        /**
+         * 创建批量参数设置器
+         *
+         * @param dataList 数据
+         * @return 批量参数设置器
+         */
+        BatchPreparedStatementSetter newSetter(List<?> dataList) {
+            if (generated != null) {
+                return generated.newBatchSetter(dataList, autoId);
+            }
+            return new BeanBatchPreparedStatementSetter<>(mapping, dataList, autoId);
+        }
+
+        /**
+         * 是否可重复执行：insert ignore 且带id存储，重复执行时已存储的数据被忽略
+         *
+         * @return 是否可重复执行
+         */
+        boolean isIdempotent() {
+            return isIgnore && !autoId;
+        }
+
     }
 
 }
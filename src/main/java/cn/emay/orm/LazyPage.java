@@ -0,0 +1,150 @@
+package cn.emay.orm;
+
+import cn.emay.utils.db.common.Page;
+
+import java.io.ObjectStreamException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 延迟计算总数的分页<br/>
+ * 数据列表在创建时即已查询，总数（totalCount/totalPage）在第一次访问时才执行count查询，并缓存结果。<br/>
+ * 适用于只需要数据列表、很少读取总数的场景（如滚动加载、接口分页）。<br/>
+ * 注意：总数查询在访问时另行执行，不在查询数据列表的事务或session中，期间数据有变化时总数可能与数据列表不一致；
+ * 序列化前会先查询总数，反序列化后的分页不会再查询。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public class LazyPage<T> extends Page<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * limit<=0 时使用的每页条数，与 AbstractDaoSupport.fillPageInfo 一致
+     */
+    public static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * 总数查询
+     */
+    private transient Supplier<Integer> totalCountLoader;
+
+    /**
+     * 总数是否已经计算
+     */
+    private volatile boolean totalLoaded;
+
+    /**
+     * @param list             数据列表
+     * @param start            起始数据index，<0 则为0
+     * @param limit            查询条数，<=0 则为默认值
+     * @param totalCountLoader 总数查询，第一次访问总数时执行
+     */
+    public LazyPage(List<T> list, int start, int limit, Supplier<Integer> totalCountLoader) {
+        if (totalCountLoader == null) {
+            throw new NullPointerException("totalCountLoader is null");
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        if (limit <= 0) {
+            limit = DEFAULT_LIMIT;
+        }
+        this.totalCountLoader = totalCountLoader;
+        super.setList(list);
+        super.setStart(start);
+        super.setLimit(limit);
+        super.setCurrentPageNum(start / limit + 1);
+    }
+
+    /**
+     * 总数是否已经计算
+     *
+     * @return 是否已计算
+     */
+    public boolean isTotalLoaded() {
+        return totalLoaded;
+    }
+
+    @Override
+    public int getTotalCount() {
+        loadTotal();
+        return super.getTotalCount();
+    }
+
+    @Override
+    public void setTotalCount(int totalCount) {
+        synchronized (this) {
+            super.setTotalCount(totalCount);
+            super.setTotalPage(computeTotalPage(totalCount, getLimit()));
+            totalCountLoader = null;
+            totalLoaded = true;
+        }
+    }
+
+    @Override
+    public int getTotalPage() {
+        loadTotal();
+        return super.getTotalPage();
+    }
+
+    @Override
+    public void setTotalPage(int totalPage) {
+        synchronized (this) {
+            super.setTotalPage(totalPage);
+            totalCountLoader = null;
+            totalLoaded = true;
+        }
+    }
+
+    /**
+     * 执行总数查询，只执行一次
+     */
+    private void loadTotal() {
+        if (totalLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (totalLoaded) {
+                return;
+            }
+            if (totalCountLoader == null) {
+                throw new IllegalStateException("total count is not loaded and the count query is not available");
+            }
+            Integer totalCount = totalCountLoader.get();
+            setTotalCount(totalCount == null ? 0 : totalCount);
+        }
+    }
+
+    /**
+     * 序列化前先查询总数，总数查询不能序列化<br/>
+     * 父类字段先于本类写出，所以在 writeReplace 中查询，而不是 writeObject
+     *
+     * @return 本对象
+     * @throws ObjectStreamException 异常
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        loadTotal();
+        return this;
+    }
+
+    /**
+     * 计算总页数
+     *
+     * @param totalCount 总数
+     * @param limit      每页条数
+     * @return 总页数
+     */
+    private static int computeTotalPage(int totalCount, int limit) {
+        if (limit <= 0) {
+            return totalCount > 0 ? 1 : 0;
+        }
+        int totalPage = totalCount / limit;
+        if (totalCount % limit != 0) {
+            totalPage++;
+        }
+        return totalPage;
+    }
+
+}
@@ -0,0 +1,118 @@
+package cn.emay.orm;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内的hibernate二级缓存/查询缓存实现<br/>
+ * 数据保存在ConcurrentHashMap中，不做容量限制与过期，适用于测试及单机的少量字典数据。<br/>
+ * 配置：hibernate.cache.region.factory_class=cn.emay.orm.LocalRegionFactory
+ *
+ * @author Frank
+ */
+public class LocalRegionFactory extends RegionFactoryTemplate {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 区域名 -> 存储
+     */
+    private final Map<String, MapStorageAccess> regions = new ConcurrentHashMap<>();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, @SuppressWarnings("rawtypes") Map configValues) {
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig, DomainDataRegionBuildingContext buildingContext) {
+        return getStorage(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return getStorage(regionName);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return getStorage(regionName);
+    }
+
+    /**
+     * 获取区域存储
+     *
+     * @param regionName 区域名
+     * @return 存储
+     */
+    private MapStorageAccess getStorage(String regionName) {
+        return regions.computeIfAbsent(regionName, name -> new MapStorageAccess());
+    }
+
+    /**
+     * 区域当前缓存的条数，区域不存在返回0
+     *
+     * @param regionName 区域名
+     * @return 条数
+     */
+    public int getRegionSize(String regionName) {
+        MapStorageAccess storage = regions.get(regionName);
+        return storage == null ? 0 : storage.data.size();
+    }
+
+    /**
+     * 基于ConcurrentHashMap的存储
+     */
+    private static class MapStorageAccess implements DomainDataStorageAccess {
+
+        private final Map<Object, Object> data = new ConcurrentHashMap<>();
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return data.get(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            if (key == null || value == null) {
+                return;
+            }
+            data.put(key, value);
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return data.containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            data.clear();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            data.remove(key);
+        }
+
+        @Override
+        public void release() {
+            data.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package cn.emay.orm;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的扫描检查点<br/>
+ * 同一进程内重复执行扫描时使用，进程重启后进度丢失。
+ *
+ * @author Frank
+ */
+public class MemoryScanCheckpoint implements ScanCheckpoint {
+
+    /**
+     * 主键上下界及区间大小
+     */
+    private volatile long[] bounds;
+
+    /**
+     * 区间起始主键 -> 最后处理的主键
+     */
+    private final Map<Long, Long> progress = new ConcurrentHashMap<>();
+
+    /**
+     * 已完成区间的起始主键
+     */
+    private final Set<Long> completed = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public long[] loadBounds() {
+        return bounds;
+    }
+
+    @Override
+    public void saveBounds(long min, long max, long rangeSize) {
+        bounds = new long[]{min, max, rangeSize};
+    }
+
+    @Override
+    public boolean isCompleted(long rangeStart) {
+        return completed.contains(rangeStart);
+    }
+
+    @Override
+    public Long loadProgress(long rangeStart) {
+        return progress.get(rangeStart);
+    }
+
+    @Override
+    public void saveProgress(long rangeStart, long lastId) {
+        progress.put(rangeStart, lastId);
+    }
+
+    @Override
+    public void complete(long rangeStart) {
+        completed.add(rangeStart);
+        progress.remove(rangeStart);
+    }
+
+    /**
+     * 已完成的区间数
+     *
+     * @return 区间数
+     */
+    public int getCompletedCount() {
+        return completed.size();
+    }
+
+    /**
+     * 清空检查点，下次扫描从头开始
+     */
+    public void reset() {
+        bounds = null;
+        progress.clear();
+        completed.clear();
+    }
+
+}
@@ -0,0 +1,34 @@
+package cn.emay.orm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的水位存储<br/>
+ * 同一进程内重复轮询时使用，进程重启后从头读取。
+ *
+ * @author Frank
+ */
+public class MemoryWatermarkStore implements WatermarkStore {
+
+    /**
+     * 名称 -> 水位
+     */
+    private final Map<String, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    @Override
+    public Watermark load(String name) {
+        return watermarks.get(name);
+    }
+
+    @Override
+    public void save(String name, Watermark watermark) {
+        watermarks.put(name, watermark);
+    }
+
+    @Override
+    public void remove(String name) {
+        watermarks.remove(name);
+    }
+
+}
@@ -0,0 +1,315 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.beans.IntrospectionException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 启动预热及表结构校验<br/>
+ * 在启动时并行完成DAO及实体/DTO类的属性解析、保存SQL生成、RowMapper创建及hql查询计划编译，避免发布后首批请求承担这些开销；
+ * 同时按 DatabaseMetaData 校验类的字段在表中是否存在。<br/>
+ * 用法：new MetadataWarmUp(jdbcTemplate).addDaos(daos).addClass(User.class, "t_user").run()
+ *
+ * @author Frank
+ */
+public class MetadataWarmUp {
+
+    /**
+     * 用于校验表结构的JdbcTemplate，为空则不校验
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 需要预热的DAO
+     */
+    private final List<AbstractSqlDaoSupport> daos = new ArrayList<>();
+
+    /**
+     * 需要预热的类 -> 表名（为空则不校验表结构）
+     */
+    private final Map<Class<?>, String> classes = new LinkedHashMap<>();
+
+    /**
+     * 并行度
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 存在问题时是否抛出异常
+     */
+    private boolean failOnError = true;
+
+    /**
+     * @param jdbcTemplate 用于校验表结构的JdbcTemplate，为空则不校验
+     */
+    public MetadataWarmUp(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 添加DAO
+     *
+     * @param dao DAO
+     * @return this
+     */
+    public MetadataWarmUp addDao(AbstractSqlDaoSupport dao) {
+        daos.add(dao);
+        return this;
+    }
+
+    /**
+     * 添加DAO
+     *
+     * @param daos DAO
+     * @return this
+     */
+    public MetadataWarmUp addDaos(Collection<? extends AbstractSqlDaoSupport> daos) {
+        this.daos.addAll(daos);
+        return this;
+    }
+
+    /**
+     * 添加查询结果映射的类，只预热不校验表结构
+     *
+     * @param clazz 类
+     * @return this
+     */
+    public MetadataWarmUp addClass(Class<?> clazz) {
+        classes.put(clazz, null);
+        return this;
+    }
+
+    /**
+     * 添加保存到表的类，预热保存SQL并校验字段
+     *
+     * @param clazz     类
+     * @param tableName 表名
+     * @return this
+     */
+    public MetadataWarmUp addClass(Class<?> clazz, String tableName) {
+        classes.put(clazz, tableName);
+        return this;
+    }
+
+    /**
+     * 执行预热及校验
+     *
+     * @return 预热结果
+     * @throws IllegalStateException failOnError为true且存在问题时抛出
+     */
+    public Report run() {
+        long begin = System.currentTimeMillis();
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Set<String>> tableColumns = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, daos.size() + classes.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (AbstractSqlDaoSupport dao : daos) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        dao.warmUp();
+                    } catch (RuntimeException e) {
+                        problems.add(dao.getClass().getName() + ": " + e.getMessage());
+                    }
+                }));
+            }
+            for (Map.Entry<Class<?>, String> entry : classes.entrySet()) {
+                futures.add(executor.submit(() -> warmUpClass(entry.getKey(), entry.getValue(), tableColumns, problems)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("warm up interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        Report report = new Report(daos.size(), classes.size(), new ArrayList<>(problems), System.currentTimeMillis() - begin);
+        if (failOnError && !report.isValid()) {
+            throw new IllegalStateException("warm up failed: " + report.getProblems());
+        }
+        return report;
+    }
+
+    /**
+     * 预热类，并校验类的字段在表中存在
+     *
+     * @param clazz        类
+     * @param tableName    表名
+     * @param tableColumns 已读取的表字段
+     * @param problems     问题接收器
+     */
+    private void warmUpClass(Class<?> clazz, String tableName, Map<String, Set<String>> tableColumns, List<String> problems) {
+        BeanSqlMapping mapping;
+        try {
+            mapping = BeanSqlMapping.of(clazz);
+            JdbcTemplateUtils.getRowMapper(clazz);
+            if (tableName == null) {
+                return;
+            }
+            Class2SqlUtils.class2PreparedSaveSql(clazz, tableName, false, false);
+        } catch (IntrospectionException | RuntimeException e) {
+            problems.add(clazz.getName() + ": " + e.getMessage());
+            return;
+        }
+        if (jdbcTemplate == null) {
+            return;
+        }
+        Set<String> columns;
+        try {
+            columns = tableColumns.computeIfAbsent(tableName.toLowerCase(), name -> readColumns(tableName));
+        } catch (RuntimeException e) {
+            problems.add(clazz.getName() + ": read columns of " + tableName + " failed, " + e.getMessage());
+            return;
+        }
+        if (columns.isEmpty()) {
+            problems.add(clazz.getName() + ": table " + tableName + " not found");
+            return;
+        }
+        for (int i = 0; i < mapping.getPropertyCount(); i++) {
+            String column = mapping.getColumnName(i);
+            if (!columns.contains(column.toLowerCase())) {
+                problems.add(clazz.getName() + ": column " + tableName + "." + column + " not found for property " + mapping.getPropertyName(i));
+            }
+        }
+    }
+
+    /**
+     * 读取表的字段名（小写），表不存在返回空集合<br/>
+     * 依次按原样、大写、小写查找表名，兼容不同数据库的标识符大小写
+     *
+     * @param tableName 表名
+     * @return 字段名
+     */
+    private Set<String> readColumns(String tableName) {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            for (String name : new String[]{tableName, tableName.toUpperCase(), tableName.toLowerCase()}) {
+                Set<String> columns = readColumns(connection, name);
+                if (!columns.isEmpty()) {
+                    return columns;
+                }
+            }
+            return Collections.emptySet();
+        });
+    }
+
+    /**
+     * 读取连接当前schema中表的字段名（小写），其他schema中的同名表不合并
+     *
+     * @param connection 连接
+     * @param tableName  表名
+     * @return 字段名
+     * @throws SQLException 异常
+     */
+    private static Set<String> readColumns(Connection connection, String tableName) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), schemaOf(connection), tableName, null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME").toLowerCase());
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 连接的当前schema
+     *
+     * @param connection 连接
+     * @return schema，驱动不支持或没有schema（如MySQL）时返回null，不按schema过滤
+     */
+    private static String schemaOf(Connection connection) {
+        try {
+            return connection.getSchema();
+        } catch (SQLException | AbstractMethodError e) {
+            // JDBC 4.1 之前的驱动没有实现 getSchema
+            return null;
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isFailOnError() {
+        return failOnError;
+    }
+
+    public void setFailOnError(boolean failOnError) {
+        this.failOnError = failOnError;
+    }
+
+    /**
+     * 预热结果
+     */
+    public static class Report {
+
+        /**
+         * 预热的DAO数
+         */
+        private final int daoCount;
+
+        /**
+         * 预热的类数
+         */
+        private final int classCount;
+
+        /**
+         * 发现的问题
+         */
+        private final List<String> problems;
+
+        /**
+         * 耗时（毫秒）
+         */
+        private final long elapsedMillis;
+
+        Report(int daoCount, int classCount, List<String> problems, long elapsedMillis) {
+            this.daoCount = daoCount;
+            this.classCount = classCount;
+            this.problems = Collections.unmodifiableList(problems);
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * 是否没有发现问题
+         *
+         * @return 是否没有问题
+         */
+        public boolean isValid() {
+            return problems.isEmpty();
+        }
+
+        public int getDaoCount() {
+            return daoCount;
+        }
+
+        public int getClassCount() {
+            return classCount;
+        }
+
+        public List<String> getProblems() {
+            return problems;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+    }
+
+}
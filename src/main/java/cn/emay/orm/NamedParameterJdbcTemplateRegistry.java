@@ -0,0 +1,111 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 共享NamedParameterJdbcTemplate注册表<br/>
+ * 每个JdbcTemplate对应唯一一个CachingNamedParameterJdbcTemplate，使解析过的SQL在调用之间复用。<br/>
+ * 注册表是静态的强引用：用过的JdbcTemplate（及其数据源）会一直保留，直到调用 remove；
+ * 模板本身引用着JdbcTemplate，无法按弱引用释放，动态创建数据源时需在销毁时调用 remove。
+ *
+ * @author Frank
+ */
+public class NamedParameterJdbcTemplateRegistry {
+
+    /**
+     * 默认解析SQL缓存上限
+     */
+    public static final int DEFAULT_CACHE_LIMIT = NamedParameterJdbcTemplate.DEFAULT_CACHE_LIMIT;
+
+    /**
+     * JdbcTemplate -> NamedParameterJdbcTemplate
+     */
+    private static final Map<JdbcTemplate, CachingNamedParameterJdbcTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    /**
+     * 新建模板时使用的解析SQL缓存上限
+     */
+    private static volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+    /**
+     * 获取JdbcTemplate对应的共享NamedParameterJdbcTemplate
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @return NamedParameterJdbcTemplate
+     */
+    public static CachingNamedParameterJdbcTemplate get(JdbcTemplate jdbcTemplate) {
+        if (jdbcTemplate == null) {
+            throw new NullPointerException("jdbcTemplate is null");
+        }
+        CachingNamedParameterJdbcTemplate template = TEMPLATES.get(jdbcTemplate);
+        if (template != null) {
+            return template;
+        }
+        return TEMPLATES.computeIfAbsent(jdbcTemplate, key -> new CachingNamedParameterJdbcTemplate(key, cacheLimit));
+    }
+
+    /**
+     * 移除JdbcTemplate对应的共享NamedParameterJdbcTemplate<br/>
+     * 动态创建/销毁数据源时使用
+     *
+     * @param jdbcTemplate jdbcTemplate
+     */
+    public static void remove(JdbcTemplate jdbcTemplate) {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        TEMPLATES.remove(jdbcTemplate);
+    }
+
+    /**
+     * 设置解析SQL缓存上限，对已创建的模板同时生效
+     *
+     * @param limit 缓存上限，<=0 不缓存
+     */
+    public static void setCacheLimit(int limit) {
+        cacheLimit = limit;
+        for (CachingNamedParameterJdbcTemplate template : TEMPLATES.values()) {
+            template.setCacheLimit(limit);
+        }
+    }
+
+    /**
+     * 解析SQL缓存上限
+     *
+     * @return 缓存上限
+     */
+    public static int getCacheLimit() {
+        return cacheLimit;
+    }
+
+    /**
+     * 所有模板的缓存命中次数
+     *
+     * @return 次数
+     */
+    public static long getCacheHits() {
+        long hits = 0;
+        for (CachingNamedParameterJdbcTemplate template : TEMPLATES.values()) {
+            hits += template.getCacheHits();
+        }
+        return hits;
+    }
+
+    /**
+     * 所有模板的缓存未命中次数
+     *
+     * @return 次数
+     */
+    public static long getCacheMisses() {
+        long misses = 0;
+        for (CachingNamedParameterJdbcTemplate template : TEMPLATES.values()) {
+            misses += template.getCacheMisses();
+        }
+        return misses;
+    }
+
+}
@@ -0,0 +1,148 @@
+package cn.emay.orm;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.query.Query;
+
+/**
+ * hql查询选项<br/>
+ * 包括查询缓存、只读、fetchSize及超时；可按调用传入，也可通过 AbstractDaoSupport.getDefaultQueryOptions 设置DAO级默认值。<br/>
+ * 启用查询缓存需要hibernate配置 hibernate.cache.use_query_cache=true 及二级缓存实现（如 LocalRegionFactory）。
+ *
+ * @author Frank
+ */
+public class QueryOptions {
+
+    /**
+     * 是否使用查询缓存
+     */
+    private boolean cacheable;
+
+    /**
+     * 查询缓存区域，为空则使用默认区域
+     */
+    private String cacheRegion;
+
+    /**
+     * 缓存模式，为空则使用session的缓存模式
+     */
+    private CacheMode cacheMode;
+
+    /**
+     * 是否只读：查询结果不保留脏检查快照，查询前不自动flush
+     */
+    private boolean readOnly;
+
+    /**
+     * JDBC fetchSize，0 使用驱动默认值；MySQL流式读取需设置为Integer.MIN_VALUE
+     */
+    private int fetchSize;
+
+    /**
+     * 查询超时（秒），<=0 不设置
+     */
+    private int timeout;
+
+    /**
+     * 使用查询缓存的选项
+     *
+     * @param cacheRegion 查询缓存区域，可为空
+     * @return 查询选项
+     */
+    public static QueryOptions cacheable(String cacheRegion) {
+        QueryOptions options = new QueryOptions();
+        options.setCacheable(true);
+        options.setCacheRegion(cacheRegion);
+        return options;
+    }
+
+    /**
+     * 只读查询的选项<br/>
+     * 用于只展示、不修改的大量数据查询，查询结果实体不会被脏检查
+     *
+     * @param fetchSize JDBC fetchSize，0 使用驱动默认值
+     * @return 查询选项
+     */
+    public static QueryOptions readOnly(int fetchSize) {
+        QueryOptions options = new QueryOptions();
+        options.setReadOnly(true);
+        options.setFetchSize(fetchSize);
+        return options;
+    }
+
+    /**
+     * 将选项应用到查询
+     *
+     * @param query hibernate查询
+     */
+    public void applyTo(Query<?> query) {
+        if (cacheable) {
+            query.setCacheable(true);
+            if (cacheRegion != null) {
+                query.setCacheRegion(cacheRegion);
+            }
+        }
+        if (cacheMode != null) {
+            query.setCacheMode(cacheMode);
+        }
+        if (readOnly) {
+            query.setReadOnly(true);
+            query.setHibernateFlushMode(FlushMode.MANUAL);
+        }
+        if (fetchSize != 0) {
+            query.setFetchSize(fetchSize);
+        }
+        if (timeout > 0) {
+            query.setTimeout(timeout);
+        }
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    public String getCacheRegion() {
+        return cacheRegion;
+    }
+
+    public void setCacheRegion(String cacheRegion) {
+        this.cacheRegion = cacheRegion;
+    }
+
+    public CacheMode getCacheMode() {
+        return cacheMode;
+    }
+
+    public void setCacheMode(CacheMode cacheMode) {
+        this.cacheMode = cacheMode;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+}
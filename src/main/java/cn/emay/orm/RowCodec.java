@@ -0,0 +1,44 @@
+package cn.emay.orm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 行数据的二进制编解码<br/>
+ * 用于 SpillableList 将超出内存阈值的数据写入临时文件及读回；实现需要线程安全。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public interface RowCodec<T> {
+
+    /**
+     * 编码
+     *
+     * @param data 数据
+     * @param out  输出
+     * @throws IOException 异常
+     */
+    void write(T data, DataOutput out) throws IOException;
+
+    /**
+     * 解码
+     *
+     * @param in 输入
+     * @return 数据
+     * @throws IOException 异常
+     */
+    T read(DataInput in) throws IOException;
+
+    /**
+     * 按bean可读写属性编解码的RowCodec
+     *
+     * @param clazz 类
+     * @return RowCodec
+     */
+    static <T> RowCodec<T> bean(Class<T> clazz) {
+        return BeanRowCodec.of(clazz);
+    }
+
+}
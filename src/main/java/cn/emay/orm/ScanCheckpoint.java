@@ -0,0 +1,59 @@
+package cn.emay.orm;
+
+/**
+ * 主键区间并行扫描的检查点<br/>
+ * 记录扫描的主键上下界、区间大小及每个区间的进度，扫描中断后再次执行时按原来的区间切分，跳过已完成的区间，并从未完成区间的最后处理位置继续。<br/>
+ * 实现需要线程安全。
+ *
+ * @author Frank
+ */
+public interface ScanCheckpoint {
+
+    /**
+     * 读取上次扫描的主键上下界及区间大小
+     *
+     * @return [最小值, 最大值, 区间大小]，没有则返回null
+     */
+    long[] loadBounds();
+
+    /**
+     * 保存本次扫描的主键上下界及区间大小
+     *
+     * @param min       最小值
+     * @param max       最大值
+     * @param rangeSize 每个区间的主键个数
+     */
+    void saveBounds(long min, long max, long rangeSize);
+
+    /**
+     * 区间是否已经完成
+     *
+     * @param rangeStart 区间起始主键
+     * @return 是否完成
+     */
+    boolean isCompleted(long rangeStart);
+
+    /**
+     * 读取区间最后处理的主键
+     *
+     * @param rangeStart 区间起始主键
+     * @return 最后处理的主键，没有则返回null
+     */
+    Long loadProgress(long rangeStart);
+
+    /**
+     * 保存区间最后处理的主键
+     *
+     * @param rangeStart 区间起始主键
+     * @param lastId     最后处理的主键
+     */
+    void saveProgress(long rangeStart, long lastId);
+
+    /**
+     * 标记区间已完成
+     *
+     * @param rangeStart 区间起始主键
+     */
+    void complete(long rangeStart);
+
+}
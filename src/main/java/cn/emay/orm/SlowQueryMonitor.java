@@ -0,0 +1,493 @@
+package cn.emay.orm;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.NamedParameterInformation;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.hql.spi.QueryTranslatorFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.io.Closeable;
+import java.sql.ResultSetMetaData;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 慢查询执行计划采集<br/>
+ * 注册到JdbcTemplate后，JdbcTemplateUtils及DAO的SQL/HQL查询耗时超过阈值时，异步对同样的SQL及参数执行EXPLAIN，
+ * 并将执行计划、调用的DAO方法、SQL指纹及耗时保存在固定大小的环形缓冲区中供诊断。<br/>
+ * EXPLAIN按每秒最大次数限流，排队已满时丢弃；未注册时查询不计时。<br/>
+ * 用法：SlowQueryMonitor.register(jdbcTemplate, new SlowQueryMonitor(500))
+ *
+ * @author Frank
+ */
+public class SlowQueryMonitor implements Closeable {
+
+    /**
+     * 默认环形缓冲区大小
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+
+    /**
+     * 默认每秒最多EXPLAIN次数
+     */
+    public static final int DEFAULT_MAX_EXPLAINS_PER_SECOND = 5;
+
+    /**
+     * JdbcTemplate -> 监控
+     */
+    private static final Map<JdbcTemplate, SlowQueryMonitor> MONITORS = new ConcurrentHashMap<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * 慢查询阈值（毫秒）
+     */
+    private final long thresholdMillis;
+
+    /**
+     * 两次EXPLAIN之间的最小间隔（纳秒）
+     */
+    private final long explainIntervalNanos;
+
+    /**
+     * 上一次EXPLAIN的时间
+     */
+    private final AtomicLong lastExplainNanos = new AtomicLong(System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+    /**
+     * 环形缓冲区
+     */
+    private final SlowQueryRecord[] records;
+
+    /**
+     * 写入位置
+     */
+    private final AtomicLong writeIndex = new AtomicLong();
+
+    /**
+     * EXPLAIN线程
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * EXPLAIN语句前缀
+     */
+    private volatile String explainPrefix = "EXPLAIN ";
+
+    /**
+     * 慢查询次数
+     */
+    private final LongAdder slowCount = new LongAdder();
+
+    /**
+     * 因限流或排队已满未采集的次数
+     */
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * @param thresholdMillis 慢查询阈值（毫秒）
+     */
+    public SlowQueryMonitor(long thresholdMillis) {
+        this(thresholdMillis, DEFAULT_MAX_EXPLAINS_PER_SECOND, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param thresholdMillis       慢查询阈值（毫秒）
+     * @param maxExplainsPerSecond  每秒最多EXPLAIN次数
+     * @param capacity              环形缓冲区大小
+     */
+    public SlowQueryMonitor(long thresholdMillis, int maxExplainsPerSecond, int capacity) {
+        if (maxExplainsPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("maxExplainsPerSecond and capacity must > 0");
+        }
+        this.thresholdMillis = thresholdMillis;
+        this.explainIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxExplainsPerSecond;
+        this.records = new SlowQueryRecord[capacity];
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), runnable -> {
+            Thread thread = new Thread(runnable, "emay-orm-slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, pool) -> droppedCount.increment());
+    }
+
+    /**
+     * 为JdbcTemplate注册监控，替换已有的监控
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param monitor      监控
+     */
+    public static void register(JdbcTemplate jdbcTemplate, SlowQueryMonitor monitor) {
+        MONITORS.put(jdbcTemplate, monitor);
+    }
+
+    /**
+     * 移除JdbcTemplate的监控
+     *
+     * @param jdbcTemplate jdbcTemplate
+     */
+    public static void unregister(JdbcTemplate jdbcTemplate) {
+        MONITORS.remove(jdbcTemplate);
+    }
+
+    /**
+     * 获取JdbcTemplate的监控
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @return 监控，未注册返回null
+     */
+    public static SlowQueryMonitor of(JdbcTemplate jdbcTemplate) {
+        if (jdbcTemplate == null || MONITORS.isEmpty()) {
+            return null;
+        }
+        return MONITORS.get(Bulkhead.sourceOf(jdbcTemplate));
+    }
+
+    /**
+     * SQL查询完成
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param sql          SQL
+     * @param parameters   参数
+     * @param elapsedNanos 耗时（纳秒）
+     */
+    public void onSql(JdbcTemplate jdbcTemplate, String sql, Object[] parameters, long elapsedNanos) {
+        if (!isSlow(elapsedNanos)) {
+            return;
+        }
+        String caller = caller();
+        executor.execute(() -> {
+            SlowQueryRecord record = new SlowQueryRecord(caller, fingerprint(sql), sql, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            explain(jdbcTemplate, sql, parameters, record);
+            add(record);
+        });
+    }
+
+    /**
+     * HQL查询完成，执行计划按hibernate翻译后的SQL采集
+     *
+     * @param jdbcTemplate   用于执行EXPLAIN的jdbcTemplate
+     * @param sessionFactory sessionFactory
+     * @param hql            hql
+     * @param parameters     命名参数
+     * @param elapsedNanos   耗时（纳秒）
+     */
+    public void onHql(JdbcTemplate jdbcTemplate, SessionFactory sessionFactory, String hql, Map<String, Object> parameters, long elapsedNanos) {
+        if (!isSlow(elapsedNanos)) {
+            return;
+        }
+        String caller = caller();
+        Map<String, Object> params = parameters == null ? Collections.emptyMap() : new HashMap<>(parameters);
+        executor.execute(() -> {
+            String sql = hql;
+            Object[] args = null;
+            String error = null;
+            try {
+                SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+                // 慢查询已限流，每次单独翻译，不占用hibernate的查询计划缓存
+                QueryTranslator translator = factory.getServiceRegistry().getService(QueryTranslatorFactory.class)
+                        .createQueryTranslator(hql, hql, Collections.emptyMap(), factory, null);
+                translator.compile(Collections.emptyMap(), false);
+                sql = translator.getSQLString();
+                args = bindHqlParameters(translator.getParameterTranslations(), params);
+            } catch (RuntimeException e) {
+                error = e.toString();
+            }
+            SlowQueryRecord record = new SlowQueryRecord(caller, fingerprint(sql), sql, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            if (error != null) {
+                record.setError(error);
+            } else {
+                explain(jdbcTemplate, sql, args, record);
+            }
+            add(record);
+        });
+    }
+
+    /**
+     * 是否慢查询且未被限流
+     *
+     * @param elapsedNanos 耗时（纳秒）
+     * @return 是否需要采集
+     */
+    private boolean isSlow(long elapsedNanos) {
+        if (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) < thresholdMillis) {
+            return false;
+        }
+        slowCount.increment();
+        long now = System.nanoTime();
+        long last = lastExplainNanos.get();
+        if (now - last < explainIntervalNanos || !lastExplainNanos.compareAndSet(last, now)) {
+            droppedCount.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 执行EXPLAIN并写入记录
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param sql          SQL
+     * @param parameters   参数
+     * @param record       记录
+     */
+    private void explain(JdbcTemplate jdbcTemplate, String sql, Object[] parameters, SlowQueryRecord record) {
+        ResultSetExtractor<String> extractor = rs -> {
+            StringBuilder plan = new StringBuilder();
+            ResultSetMetaData metaData = rs.getMetaData();
+            while (rs.next()) {
+                if (plan.length() > 0) {
+                    plan.append('\n');
+                }
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    if (i > 1) {
+                        plan.append(" | ");
+                    }
+                    plan.append(rs.getString(i));
+                }
+            }
+            return plan.toString();
+        };
+        try {
+            String explainSql = explainPrefix + sql;
+            record.setPlan(parameters == null || parameters.length == 0 ? jdbcTemplate.query(explainSql, extractor) : jdbcTemplate.query(explainSql, parameters, extractor));
+        } catch (RuntimeException e) {
+            record.setError(e.toString());
+        }
+    }
+
+    /**
+     * 按hibernate的参数位置将命名参数转换为位置参数
+     *
+     * @param translations 参数位置
+     * @param parameters   命名参数
+     * @return 位置参数
+     */
+    private static Object[] bindHqlParameters(ParameterTranslations translations, Map<String, Object> parameters) {
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Collection || value instanceof Object[]) {
+                throw new IllegalArgumentException("collection parameter " + entry.getKey() + " is not supported by explain");
+            }
+            NamedParameterInformation information = translations.getNamedParameterInformation(entry.getKey());
+            if (information == null) {
+                continue;
+            }
+            for (int location : information.getSourceLocations()) {
+                while (args.size() <= location) {
+                    args.add(null);
+                }
+                args.set(location, value);
+            }
+        }
+        return args.toArray();
+    }
+
+    /**
+     * 写入环形缓冲区
+     *
+     * @param record 记录
+     */
+    private void add(SlowQueryRecord record) {
+        long index = writeIndex.getAndIncrement();
+        synchronized (records) {
+            records[(int) (index % records.length)] = record;
+        }
+    }
+
+    /**
+     * 最近的慢查询记录，按时间从新到旧
+     *
+     * @return 记录
+     */
+    public List<SlowQueryRecord> getRecords() {
+        List<SlowQueryRecord> result = new ArrayList<>(records.length);
+        synchronized (records) {
+            long end = writeIndex.get();
+            for (long i = end - 1; i >= 0 && i >= end - records.length; i--) {
+                SlowQueryRecord record = records[(int) (i % records.length)];
+                if (record != null) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 调用查询的业务方法：调用栈中第一个不属于本工具、spring、hibernate及jdk的方法
+     *
+     * @return 类名.方法名(文件:行号)
+     */
+    static String caller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith("cn.emay.orm.") || className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("sun.")
+                    || className.startsWith("jdk.") || className.startsWith("com.sun.") || className.startsWith("org.springframework.") || className.startsWith("org.hibernate.")) {
+                continue;
+            }
+            return element.toString();
+        }
+        return "unknown";
+    }
+
+    /**
+     * SQL指纹：字符串及数字常量替换为?，in列表合并为 in (?)，空白合并为一个空格并转为小写
+     *
+     * @param sql SQL
+     * @return 指纹
+     */
+    public static String fingerprint(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = IN_LIST.matcher(result).replaceAll("in (?)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim().toLowerCase();
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public String getExplainPrefix() {
+        return explainPrefix;
+    }
+
+    /**
+     * 设置EXPLAIN语句前缀，默认 "EXPLAIN "，如MySQL可设置为 "EXPLAIN FORMAT=JSON "
+     *
+     * @param explainPrefix 前缀
+     */
+    public void setExplainPrefix(String explainPrefix) {
+        this.explainPrefix = explainPrefix;
+    }
+
+    /**
+     * 慢查询次数
+     *
+     * @return 次数
+     */
+    public long getSlowCount() {
+        return slowCount.sum();
+    }
+
+    /**
+     * 因限流或排队已满未采集的次数
+     *
+     * @return 次数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 停止EXPLAIN线程，并从所有JdbcTemplate移除本监控
+     */
+    @Override
+    public void close() {
+        MONITORS.values().removeIf(monitor -> monitor == this);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 慢查询记录
+     */
+    public static class SlowQueryRecord {
+
+        /**
+         * 记录时间
+         */
+        private final long time = System.currentTimeMillis();
+
+        /**
+         * 调用的业务方法
+         */
+        private final String caller;
+
+        /**
+         * SQL指纹
+         */
+        private final String fingerprint;
+
+        /**
+         * SQL
+         */
+        private final String sql;
+
+        /**
+         * 耗时（毫秒）
+         */
+        private final long elapsedMillis;
+
+        /**
+         * 执行计划
+         */
+        private volatile String plan;
+
+        /**
+         * 采集执行计划的错误
+         */
+        private volatile String error;
+
+        SlowQueryRecord(String caller, String fingerprint, String sql, long elapsedMillis) {
+            this.caller = caller;
+            this.fingerprint = fingerprint;
+            this.sql = sql;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getPlan() {
+            return plan;
+        }
+
+        void setPlan(String plan) {
+            this.plan = plan;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        void setError(String error) {
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return elapsedMillis + "ms " + caller + " " + fingerprint + (plan != null ? "\n" + plan : "") + (error != null ? "\n" + error : "");
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package cn.emay.orm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake风格的ID生成器<br/>
+ * 64位ID = 41位毫秒时间戳（自epoch起） + 10位机器号 + 12位序号，同一机器号每毫秒最多生成4096个，趋势递增。<br/>
+ * 各进程的机器号需不同；时钟回拨不超过maxBackwardMillis时沿用上一个时间戳继续分配序号，超过时抛出异常。
+ *
+ * @author Frank
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    /**
+     * 默认epoch：2020-01-01 00:00:00 UTC
+     */
+    public static final long DEFAULT_EPOCH = 1577836800000L;
+
+    /**
+     * 最大机器号
+     */
+    public static final long MAX_WORKER_ID = (1L << 10) - 1;
+
+    /**
+     * 默认最大容忍的时钟回拨（毫秒）
+     */
+    public static final long DEFAULT_MAX_BACKWARD_MILLIS = 5L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * epoch（毫秒）
+     */
+    private final long epoch;
+
+    /**
+     * 机器号
+     */
+    private final long workerId;
+
+    /**
+     * 最大容忍的时钟回拨（毫秒）
+     */
+    private final long maxBackwardMillis;
+
+    /**
+     * 上一个ID的时间戳与序号：时间戳 << 12 | 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * @param workerId 机器号，0-1023
+     */
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, DEFAULT_EPOCH, DEFAULT_MAX_BACKWARD_MILLIS);
+    }
+
+    /**
+     * @param workerId          机器号，0-1023
+     * @param epoch             epoch（毫秒），不能晚于当前时间
+     * @param maxBackwardMillis 最大容忍的时钟回拨（毫秒）
+     */
+    public SnowflakeIdGenerator(long workerId, long epoch, long maxBackwardMillis) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must between 0 and " + MAX_WORKER_ID);
+        }
+        if (epoch < 0 || epoch > System.currentTimeMillis()) {
+            throw new IllegalArgumentException("epoch must between 0 and now");
+        }
+        this.workerId = workerId;
+        this.epoch = epoch;
+        this.maxBackwardMillis = maxBackwardMillis;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - epoch;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                if (lastMillis - now > maxBackwardMillis) {
+                    throw new IllegalStateException("clock moved backwards " + (lastMillis - now) + "ms");
+                }
+                long sequence = (last & SEQUENCE_MASK) + 1;
+                if (sequence > SEQUENCE_MASK) {
+                    // 当前毫秒的序号已用完，等待下一毫秒
+                    Thread.yield();
+                    continue;
+                }
+                next = (lastMillis << SEQUENCE_BITS) | sequence;
+            }
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * ID的生成时间
+     *
+     * @param id ID
+     * @return 毫秒时间戳
+     */
+    public long getTimeMillis(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + epoch;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+}
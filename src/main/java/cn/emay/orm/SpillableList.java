@@ -0,0 +1,335 @@
+package cn.emay.orm;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 超出内存阈值后写入临时文件的只读列表<br/>
+ * 前 memoryRows 条数据保存在内存中，之后的数据以 RowCodec 编码追加到临时文件，读取时通过内存映射的 FileChannel 按位置解码。<br/>
+ * 写入完成（complete）后可被多个线程并发读取；文件中的数据每次get都会解码为新对象。使用完毕后需要close删除临时文件。
+ *
+ * @param <T>
+ * @author Frank
+ */
+public class SpillableList<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+    /**
+     * 默认内存中保留的条数
+     */
+    public static final int DEFAULT_MEMORY_ROWS = 10000;
+
+    /**
+     * 单个映射区域的最大字节数
+     */
+    private static final long SEGMENT_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 编解码
+     */
+    private final RowCodec<T> codec;
+
+    /**
+     * 内存中保留的条数
+     */
+    private final int memoryRows;
+
+    /**
+     * 临时文件目录，为空则使用系统临时目录
+     */
+    private final File directory;
+
+    /**
+     * 内存中的数据
+     */
+    private final List<T> memory = new ArrayList<>();
+
+    /**
+     * 临时文件
+     */
+    private Path file;
+
+    /**
+     * 临时文件写入流
+     */
+    private OutputStream output;
+
+    /**
+     * 行编码缓冲
+     */
+    private ExposedByteArrayOutputStream rowBuffer;
+
+    /**
+     * 行编码输出
+     */
+    private DataOutputStream rowOutput;
+
+    /**
+     * 文件中每条数据的起始位置
+     */
+    private long[] offsets = new long[0];
+
+    /**
+     * 文件中的条数
+     */
+    private int spilledRows;
+
+    /**
+     * 已写入文件的字节数
+     */
+    private long fileSize;
+
+    /**
+     * 映射区域的起始位置
+     */
+    private long[] segmentStarts = new long[0];
+
+    /**
+     * 映射区域
+     */
+    private volatile MappedByteBuffer[] segments;
+
+    /**
+     * 是否写入完成
+     */
+    private volatile boolean completed;
+
+    /**
+     * 是否已关闭
+     */
+    private volatile boolean closed;
+
+    /**
+     * @param codec      编解码
+     * @param memoryRows 内存中保留的条数，<0 则使用默认值
+     */
+    public SpillableList(RowCodec<T> codec, int memoryRows) {
+        this(codec, memoryRows, null);
+    }
+
+    /**
+     * @param codec      编解码
+     * @param memoryRows 内存中保留的条数，<0 则使用默认值
+     * @param directory  临时文件目录，为空则使用系统临时目录
+     */
+    public SpillableList(RowCodec<T> codec, int memoryRows, File directory) {
+        if (codec == null) {
+            throw new NullPointerException("codec is null");
+        }
+        this.codec = codec;
+        this.memoryRows = memoryRows < 0 ? DEFAULT_MEMORY_ROWS : memoryRows;
+        this.directory = directory;
+    }
+
+    /**
+     * 追加数据，只能在complete之前调用
+     *
+     * @param data 数据
+     * @throws IOException 写入临时文件异常
+     */
+    public void append(T data) throws IOException {
+        if (completed || closed) {
+            throw new IllegalStateException("list is completed");
+        }
+        if (memory.size() < memoryRows) {
+            memory.add(data);
+            return;
+        }
+        if (output == null) {
+            file = directory == null ? Files.createTempFile("emay-orm-", ".spill") : Files.createTempFile(directory.toPath(), "emay-orm-", ".spill");
+            output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+            rowBuffer = new ExposedByteArrayOutputStream();
+            rowOutput = new DataOutputStream(rowBuffer);
+        }
+        rowBuffer.reset();
+        if (data == null) {
+            rowOutput.writeBoolean(false);
+        } else {
+            rowOutput.writeBoolean(true);
+            codec.write(data, rowOutput);
+        }
+        rowOutput.flush();
+        int length = rowBuffer.size();
+        if (length > SEGMENT_SIZE) {
+            throw new IOException("row is too large: " + length + " bytes");
+        }
+        if (segmentStarts.length == 0 || fileSize + length - segmentStarts[segmentStarts.length - 1] > SEGMENT_SIZE) {
+            segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length + 1);
+            segmentStarts[segmentStarts.length - 1] = fileSize;
+        }
+        if (spilledRows == offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(16, offsets.length * 2));
+        }
+        offsets[spilledRows++] = fileSize;
+        output.write(rowBuffer.buffer(), 0, length);
+        fileSize += length;
+    }
+
+    /**
+     * 写入完成，映射临时文件供读取
+     *
+     * @throws IOException 异常
+     */
+    public void complete() throws IOException {
+        if (completed) {
+            return;
+        }
+        if (output != null) {
+            output.close();
+            output = null;
+            rowBuffer = null;
+            rowOutput = null;
+            MappedByteBuffer[] mapped = new MappedByteBuffer[segmentStarts.length];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < segmentStarts.length; i++) {
+                    long end = i + 1 < segmentStarts.length ? segmentStarts[i + 1] : fileSize;
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStarts[i], end - segmentStarts[i]);
+                }
+            }
+            segments = mapped;
+        }
+        completed = true;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        if (index < memory.size()) {
+            return memory.get(index);
+        }
+        MappedByteBuffer[] mapped = segments;
+        if (closed) {
+            throw new IllegalStateException("list is closed");
+        }
+        if (!completed) {
+            throw new IllegalStateException("list is not completed");
+        }
+        long offset = offsets[index - memory.size()];
+        int segment = Arrays.binarySearch(segmentStarts, offset);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        ByteBuffer buffer = mapped[segment].duplicate();
+        buffer.position((int) (offset - segmentStarts[segment]));
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        try {
+            return in.readBoolean() ? codec.read(in) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return memory.size() + spilledRows;
+    }
+
+    /**
+     * 是否有数据写入了临时文件
+     *
+     * @return 是否写入了临时文件
+     */
+    public boolean isSpilled() {
+        return spilledRows > 0;
+    }
+
+    /**
+     * 写入临时文件的条数
+     *
+     * @return 条数
+     */
+    public int getSpilledRows() {
+        return spilledRows;
+    }
+
+    /**
+     * 临时文件的字节数
+     *
+     * @return 字节数
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * 释放映射并删除临时文件；关闭后不能再读取文件中的数据
+     *
+     * @throws IOException 异常
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments = null;
+        memory.clear();
+        spilledRows = 0;
+        offsets = new long[0];
+        try {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+        } finally {
+            if (file != null && !Files.deleteIfExists(file)) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * 可直接访问缓冲区的ByteArrayOutputStream
+     */
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ExposedByteArrayOutputStream() {
+            super(256);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+    }
+
+    /**
+     * 读取ByteBuffer的InputStream
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package cn.emay.orm;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记需要在编译期生成SQL映射的实体/DTO类<br/>
+ * 启用 SqlEntityProcessor 后，为标记的类生成 [类名]_SqlMapping，包含存储SQL常量、字段列表、RowMapper及批量参数设置器；
+ * JdbcTemplateUtils 存在生成类时自动使用，不再反射解析。
+ *
+ * @author Frank
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SqlEntity {
+
+    /**
+     * 数据库表名，为空则将类名按照驼峰转下划线的规则转换
+     *
+     * @return 表名
+     */
+    String table() default "";
+
+}
@@ -0,0 +1,333 @@
+package cn.emay.orm;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * SqlEntity 注解处理器<br/>
+ * 为标记的类生成 [类名]_SqlMapping（嵌套类的$替换为_），实现 GeneratedSqlMapping：<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;TABLE、COLUMNS、INSERT_SQL、INSERT_SQL_AUTO_ID、UPSERT_SQL 常量<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;直接调用get/set方法的RowMapper及BatchPreparedStatementSetter<br/>
+ * 字段规则与 BeanSqlMapping 一致：可读属性（排除class）按名字排序，驼峰转下划线为数据库字段，名为id的属性为主键。<br/>
+ * 处理器为可选项，未注册为服务，需在编译配置中显式启用，如maven：<br/>
+ * &nbsp;&nbsp;&nbsp;&nbsp;maven-compiler-plugin &lt;annotationProcessors&gt;&lt;annotationProcessor&gt;cn.emay.orm.SqlEntityProcessor&lt;/annotationProcessor&gt;&lt;/annotationProcessors&gt;<br/>
+ * 或 javac -processor cn.emay.orm.SqlEntityProcessor
+ *
+ * @author Frank
+ */
+@SupportedAnnotationTypes("cn.emay.orm.SqlEntity")
+public class SqlEntityProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(SqlEntity.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@SqlEntity can only be used on classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            try {
+                generate(type);
+            } catch (IllegalArgumentException e) {
+                error(type, e.getMessage());
+            } catch (IOException e) {
+                error(type, "generate sql mapping failed: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成映射类
+     *
+     * @param type 实体类
+     * @throws IOException 异常
+     */
+    private void generate(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new IllegalArgumentException("@SqlEntity class must not be abstract");
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            throw new IllegalArgumentException("@SqlEntity nested class must be static");
+        }
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                hasConstructor = true;
+            }
+        }
+        if (!hasConstructor) {
+            throw new IllegalArgumentException("@SqlEntity class must have an accessible no-arg constructor");
+        }
+        List<Property> properties = properties(type);
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String localName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        String className = localName.replace('$', '_') + GeneratedSqlMapping.CLASS_SUFFIX;
+        String entity = type.getQualifiedName().toString();
+        String table = type.getAnnotation(SqlEntity.class).table();
+        if (table.isEmpty()) {
+            table = Class2SqlUtils.hump2Underline(type.getSimpleName().toString());
+        }
+        int idIndex = -1;
+        List<String> columns = new ArrayList<>();
+        List<String> autoIdColumns = new ArrayList<>();
+        List<String> updates = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            columns.add(property.column);
+            if ("id".equalsIgnoreCase(property.name)) {
+                idIndex = i;
+            } else {
+                autoIdColumns.add(property.column);
+                updates.add(property.column + "=values(" + property.column + ")");
+            }
+        }
+        String values = "(" + String.join(",", columns) + ") values (" + placeholders(columns.size()) + ")";
+        String autoIdValues = idIndex < 0 ? values : "(" + String.join(",", autoIdColumns) + ") values (" + placeholders(autoIdColumns.size()) + ")";
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("/**\n * ").append(entity).append(" 的SQL映射，由 cn.emay.orm.SqlEntityProcessor 生成，请勿修改\n */\n");
+        src.append("public final class ").append(className).append(" implements cn.emay.orm.GeneratedSqlMapping<").append(entity).append("> {\n\n");
+        src.append("    public static final String TABLE = ").append(literal(table)).append(";\n\n");
+        src.append("    public static final String COLUMNS = ").append(literal(String.join(",", columns))).append(";\n\n");
+        src.append("    public static final String INSERT_SQL = ").append(literal("insert into " + table + " " + values)).append(";\n\n");
+        src.append("    public static final String INSERT_SQL_AUTO_ID = ").append(literal("insert into " + table + " " + autoIdValues)).append(";\n\n");
+        src.append("    public static final String UPSERT_SQL = ").append(literal("insert into " + table + " " + values
+                + (updates.isEmpty() ? "" : " on duplicate key update " + String.join(",", updates)))).append(";\n\n");
+        src.append("    private static final String VALUES = ").append(literal(values)).append(";\n\n");
+        src.append("    private static final String AUTO_ID_VALUES = ").append(literal(autoIdValues)).append(";\n\n");
+        src.append("    private static final String[] PROPERTY_NAMES = {").append(joinLiterals(properties, true)).append("};\n\n");
+        src.append("    private static final String[] COLUMN_NAMES = {").append(joinLiterals(properties, false)).append("};\n\n");
+        src.append("    private static final int[] SQL_TYPES = {");
+        for (int i = 0; i < properties.size(); i++) {
+            src.append(i == 0 ? "" : ", ").append("org.springframework.jdbc.core.StatementCreatorUtils.javaTypeToSqlParameterType(")
+                    .append(properties.get(i).rawType).append(".class)");
+        }
+        src.append("};\n\n");
+
+        src.append("    @Override\n    public Class<").append(entity).append("> getBeanClass() {\n        return ").append(entity).append(".class;\n    }\n\n");
+        src.append("    @Override\n    public String getTableName() {\n        return TABLE;\n    }\n\n");
+        src.append("    @Override\n    public String[] getColumns() {\n        return COLUMN_NAMES.clone();\n    }\n\n");
+        src.append("    @Override\n    public String getSaveSql(String tableName, boolean isIgnore, boolean autoId) {\n");
+        src.append("        if (!isIgnore && (tableName == null || tableName.isEmpty() || TABLE.equals(tableName))) {\n");
+        src.append("            return autoId ? INSERT_SQL_AUTO_ID : INSERT_SQL;\n        }\n");
+        src.append("        String table = tableName == null || tableName.isEmpty() ? TABLE : tableName;\n");
+        src.append("        return (isIgnore ? \"insert ignore into \" : \"insert into \") + table + \" \" + (autoId ? AUTO_ID_VALUES : VALUES);\n    }\n\n");
+
+        src.append("    @Override\n    public org.springframework.jdbc.core.RowMapper<").append(entity).append("> getRowMapper() {\n");
+        src.append("        return new Mapper();\n    }\n\n");
+
+        src.append("    @Override\n    public org.springframework.jdbc.core.BatchPreparedStatementSetter newBatchSetter(java.util.List<? extends ")
+                .append(entity).append("> dataList, boolean autoId) {\n");
+        src.append("        java.util.List<? extends ").append(entity).append("> list = dataList instanceof java.util.RandomAccess ? dataList : new java.util.ArrayList<>(dataList);\n");
+        src.append("        return new org.springframework.jdbc.core.BatchPreparedStatementSetter() {\n\n");
+        src.append("            @Override\n            public void setValues(java.sql.PreparedStatement ps, int i) throws java.sql.SQLException {\n");
+        src.append("                ").append(entity).append(" bean = list.get(i);\n");
+        src.append("                int index = 1;\n");
+        for (int i = 0; i < properties.size(); i++) {
+            String set = "org.springframework.jdbc.core.StatementCreatorUtils.setParameterValue(ps, index++, SQL_TYPES[" + i + "], bean." + properties.get(i).getter + "());\n";
+            if (i == idIndex) {
+                src.append("                if (!autoId) {\n                    ").append(set).append("                }\n");
+            } else {
+                src.append("                ").append(set);
+            }
+        }
+        src.append("            }\n\n");
+        src.append("            @Override\n            public int getBatchSize() {\n                return list.size();\n            }\n        };\n    }\n\n");
+
+        src.append("    /**\n     * 按字段位置直接调用set方法的RowMapper，可以在多个线程间共享\n     */\n");
+        src.append("    private static final class Mapper implements org.springframework.jdbc.core.RowMapper<").append(entity).append("> {\n\n");
+        src.append("        private volatile cn.emay.orm.GeneratedSqlMapping.ColumnPositions columns;\n\n");
+        src.append("        @Override\n        public ").append(entity).append(" mapRow(java.sql.ResultSet rs, int rowNum) throws java.sql.SQLException {\n");
+        src.append("            cn.emay.orm.GeneratedSqlMapping.ColumnPositions positions = columns;\n");
+        src.append("            if (positions == null || !positions.isFor(rs)) {\n");
+        src.append("                positions = new cn.emay.orm.GeneratedSqlMapping.ColumnPositions(rs, PROPERTY_NAMES, COLUMN_NAMES);\n");
+        src.append("                columns = positions;\n            }\n");
+        src.append("            ").append(entity).append(" bean = new ").append(entity).append("();\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (property.setter == null) {
+                continue;
+            }
+            src.append("            if (positions.get(").append(i).append(") > 0) {\n");
+            src.append("                Object value = org.springframework.jdbc.support.JdbcUtils.getResultSetValue(rs, positions.get(").append(i).append("), ")
+                    .append(property.boxedType).append(".class);\n");
+            if (property.primitive) {
+                src.append("                if (value != null) {\n                    bean.").append(property.setter).append("((").append(property.boxedType)
+                        .append(") value);\n                }\n");
+            } else {
+                src.append("                bean.").append(property.setter).append("((").append(property.rawType).append(") value);\n");
+            }
+            src.append("            }\n");
+        }
+        src.append("            return bean;\n        }\n\n    }\n\n");
+        src.append("}\n");
+
+        String sourceName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(sourceName, type).openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /**
+     * 解析可读属性，规则与 Introspector 一致：getXxx / isXxx(boolean)，排除getClass，按名字排序
+     *
+     * @param type 实体类
+     * @return 属性
+     */
+    private List<Property> properties(TypeElement type) {
+        Map<String, ExecutableElement> getters = new TreeMap<>();
+        Map<String, List<ExecutableElement>> setters = new HashMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || !modifiers.contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            String name = method.getSimpleName().toString();
+            if (method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID) {
+                String property = null;
+                if (name.startsWith("get") && name.length() > 3) {
+                    property = Introspector.decapitalize(name.substring(3));
+                } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN) {
+                    property = Introspector.decapitalize(name.substring(2));
+                }
+                if (property != null && !"class".equals(property) && (!getters.containsKey(property) || name.startsWith("is"))) {
+                    getters.put(property, method);
+                }
+            } else if (method.getParameters().size() == 1 && name.startsWith("set") && name.length() > 3) {
+                setters.computeIfAbsent(Introspector.decapitalize(name.substring(3)), key -> new ArrayList<>()).add(method);
+            }
+        }
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            ExecutableElement getter = entry.getValue();
+            TypeMirror propertyType = getter.getReturnType();
+            String setter = null;
+            for (ExecutableElement candidate : setters.getOrDefault(entry.getKey(), Collections.emptyList())) {
+                if (processingEnv.getTypeUtils().isSameType(candidate.getParameters().get(0).asType(), propertyType)) {
+                    setter = candidate.getSimpleName().toString();
+                }
+            }
+            properties.add(new Property(entry.getKey(), getter.getSimpleName().toString(), setter, propertyType));
+        }
+        return properties;
+    }
+
+    /**
+     * ?占位符
+     *
+     * @param count 个数
+     * @return 占位符
+     */
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 字符串常量
+     *
+     * @param value 值
+     * @return java字符串字面量
+     */
+    private static String literal(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * 字段名/数据库字段名常量列表
+     *
+     * @param properties 属性
+     * @param name       true为字段名，false为数据库字段名
+     * @return 常量列表
+     */
+    private static String joinLiterals(List<Property> properties, boolean name) {
+        StringBuilder buff = new StringBuilder();
+        for (int i = 0; i < properties.size(); i++) {
+            buff.append(i == 0 ? "" : ", ").append(literal(name ? properties.get(i).name : properties.get(i).column));
+        }
+        return buff.toString();
+    }
+
+    /**
+     * 输出错误
+     *
+     * @param element 元素
+     * @param message 信息
+     */
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * 属性
+     */
+    private class Property {
+
+        /**
+         * 字段名
+         */
+        private final String name;
+
+        /**
+         * 数据库字段名
+         */
+        private final String column;
+
+        /**
+         * get方法名
+         */
+        private final String getter;
+
+        /**
+         * set方法名，没有则为null
+         */
+        private final String setter;
+
+        /**
+         * 是否基本类型
+         */
+        private final boolean primitive;
+
+        /**
+         * 擦除泛型后的类型
+         */
+        private final String rawType;
+
+        /**
+         * 基本类型对应的包装类型
+         */
+        private final String boxedType;
+
+        Property(String name, String getter, String setter, TypeMirror type) {
+            this.name = name;
+            this.column = Class2SqlUtils.hump2Underline(name);
+            this.getter = getter;
+            this.setter = setter;
+            this.primitive = type.getKind().isPrimitive();
+            this.rawType = processingEnv.getTypeUtils().erasure(type).toString();
+            this.boxedType = primitive ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString() : rawType;
+        }
+    }
+
+}
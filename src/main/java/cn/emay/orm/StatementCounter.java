@@ -0,0 +1,380 @@
+package cn.emay.orm;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 按工作单元统计SQL语句数，发现N+1查询<br/>
+ * 工作单元为一个Spring事务（开启后自动绑定），或begin/close之间的代码；嵌套的工作单元合并到最外层。
+ * 同一工作单元中相同指纹的语句执行次数达到阈值时记录第一次达到阈值的调用位置，工作单元结束时交给reporter。<br/>
+ * JdbcTemplateUtils及SQL DAO的语句直接统计；Hibernate的语句需要在SessionFactory配置中指定
+ * hibernate.session_factory.statement_inspector=cn.emay.orm.StatementCounter$Inspector<br/>
+ * 用法：StatementCounter.enable(20, unit -> log.warn(unit.toString()))
+ *
+ * @author Frank
+ */
+public class StatementCounter {
+
+    /**
+     * 默认重复次数阈值
+     */
+    public static final int DEFAULT_THRESHOLD = 10;
+
+    /**
+     * 指纹缓存最大数量
+     */
+    private static final int MAX_FINGERPRINTS = 10000;
+
+    /**
+     * 是否自动绑定Spring事务
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * 重复次数阈值
+     */
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    /**
+     * 发现重复语句时的回调
+     */
+    private static volatile Consumer<UnitOfWork> reporter;
+
+    /**
+     * 当前线程的工作单元
+     */
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    /**
+     * SQL -> 指纹
+     */
+    private static final Map<String, String> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    /**
+     * 发现重复语句的工作单元数
+     */
+    private static final LongAdder DETECTED = new LongAdder();
+
+    /**
+     * 开启统计，事务中执行的语句自动按事务统计
+     *
+     * @param threshold 相同指纹语句的重复次数阈值
+     * @param reporter  发现重复语句时的回调，在工作单元结束的线程中调用
+     */
+    public static void enable(int threshold, Consumer<UnitOfWork> reporter) {
+        if (threshold <= 1) {
+            throw new IllegalArgumentException("threshold must > 1");
+        }
+        StatementCounter.threshold = threshold;
+        StatementCounter.reporter = reporter;
+        StatementCounter.enabled = true;
+    }
+
+    /**
+     * 关闭事务自动统计，显式begin的工作单元仍然统计
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始工作单元，当前线程已有工作单元时加入已有的工作单元<br/>
+     * 用法：try (StatementCounter.UnitOfWork unit = StatementCounter.begin("orderService.list")) {...}
+     *
+     * @param name 名字
+     * @return 工作单元
+     */
+    public static UnitOfWork begin(String name) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            unit = new UnitOfWork(name, threshold);
+            CURRENT.set(unit);
+        }
+        unit.depth++;
+        return unit;
+    }
+
+    /**
+     * 当前线程的工作单元
+     *
+     * @return 工作单元，没有返回null
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 统计一条语句
+     *
+     * @param sql SQL
+     */
+    public static void record(String sql) {
+        if (sql == null) {
+            return;
+        }
+        UnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            unit = begin(TransactionSynchronizationManager.getCurrentTransactionName());
+            UnitOfWork transactionUnit = unit;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    transactionUnit.close();
+                }
+            });
+        }
+        unit.record(sql);
+    }
+
+    /**
+     * 发现重复语句的工作单元数
+     *
+     * @return 数量
+     */
+    public static long getDetectedCount() {
+        return DETECTED.sum();
+    }
+
+    /**
+     * SQL指纹，缓存已计算的结果
+     *
+     * @param sql SQL
+     * @return 指纹
+     */
+    private static String fingerprint(String sql) {
+        String fingerprint = FINGERPRINTS.get(sql);
+        if (fingerprint == null) {
+            fingerprint = SlowQueryMonitor.fingerprint(sql);
+            if (FINGERPRINTS.size() >= MAX_FINGERPRINTS) {
+                FINGERPRINTS.clear();
+            }
+            FINGERPRINTS.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Hibernate语句统计
+     */
+    public static class Inspector implements StatementInspector {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String inspect(String sql) {
+            record(sql);
+            return sql;
+        }
+
+    }
+
+    /**
+     * 工作单元，只在创建它的线程中使用
+     */
+    public static class UnitOfWork implements Closeable {
+
+        /**
+         * 名字
+         */
+        private final String name;
+
+        /**
+         * 重复次数阈值
+         */
+        private final int threshold;
+
+        /**
+         * 开始时间
+         */
+        private final long beginNanos = System.nanoTime();
+
+        /**
+         * 指纹 -> 统计
+         */
+        private final Map<String, Repeat> statements = new HashMap<>();
+
+        /**
+         * 达到阈值的语句
+         */
+        private final List<Repeat> repeats = new ArrayList<>();
+
+        /**
+         * 语句总数
+         */
+        private int statementCount;
+
+        /**
+         * 嵌套层数
+         */
+        private int depth;
+
+        /**
+         * 耗时（纳秒），结束后有效
+         */
+        private long elapsedNanos = -1L;
+
+        UnitOfWork(String name, int threshold) {
+            this.name = name;
+            this.threshold = threshold;
+        }
+
+        /**
+         * 统计一条语句
+         *
+         * @param sql SQL
+         */
+        private void record(String sql) {
+            statementCount++;
+            String fingerprint = fingerprint(sql);
+            Repeat repeat = statements.get(fingerprint);
+            if (repeat == null) {
+                statements.put(fingerprint, new Repeat(fingerprint, sql));
+                return;
+            }
+            repeat.count++;
+            if (repeat.count == threshold) {
+                repeat.caller = SlowQueryMonitor.caller();
+                repeats.add(repeat);
+            }
+        }
+
+        /**
+         * 结束工作单元，最外层结束时发现重复语句则交给reporter
+         */
+        @Override
+        public void close() {
+            if (depth <= 0 || --depth > 0) {
+                return;
+            }
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+            elapsedNanos = System.nanoTime() - beginNanos;
+            if (repeats.isEmpty()) {
+                return;
+            }
+            DETECTED.increment();
+            Consumer<UnitOfWork> consumer = reporter;
+            if (consumer != null) {
+                consumer.accept(this);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getStatementCount() {
+            return statementCount;
+        }
+
+        /**
+         * 不同指纹的语句数
+         *
+         * @return 数量
+         */
+        public int getDistinctStatementCount() {
+            return statements.size();
+        }
+
+        /**
+         * 耗时（毫秒），未结束时为到当前的耗时
+         *
+         * @return 耗时
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - beginNanos);
+        }
+
+        /**
+         * 重复次数达到阈值的语句，按次数倒序
+         *
+         * @return 语句
+         */
+        public List<Repeat> getRepeats() {
+            List<Repeat> list = new ArrayList<>(repeats);
+            list.sort((a, b) -> Integer.compare(b.count, a.count));
+            return list;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(name == null ? "unit of work" : name).append(": ").append(statementCount).append(" statements in ").append(getElapsedMillis()).append("ms");
+            for (Repeat repeat : getRepeats()) {
+                builder.append("\n  ").append(repeat);
+            }
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * 重复执行的语句
+     */
+    public static class Repeat {
+
+        /**
+         * SQL指纹
+         */
+        private final String fingerprint;
+
+        /**
+         * 第一次执行的SQL
+         */
+        private final String sql;
+
+        /**
+         * 执行次数
+         */
+        private int count = 1;
+
+        /**
+         * 达到阈值时的调用位置
+         */
+        private String caller;
+
+        Repeat(String fingerprint, String sql) {
+            this.fingerprint = fingerprint;
+            this.sql = sql;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public String getCaller() {
+            return caller;
+        }
+
+        @Override
+        public String toString() {
+            return count + "x " + caller + " " + fingerprint;
+        }
+
+    }
+
+}
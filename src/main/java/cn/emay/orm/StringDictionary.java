@@ -0,0 +1,169 @@
+package cn.emay.orm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有上限的字符串字典<br/>
+ * 相同的字符串只保留一个实例，用于状态码、渠道名、省份等重复值很多的字段，减少大结果集中重复字符串占用的内存。<br/>
+ * 字典满后不再加入新值，新值原样返回；线程安全，可以每次查询新建，也可以在多次查询之间共享。
+ *
+ * @author Frank
+ */
+public class StringDictionary {
+
+    /**
+     * 每次查询新建时默认的字典上限
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * 共享字典默认的上限
+     */
+    public static final int DEFAULT_SHARED_MAX_SIZE = 100000;
+
+    /**
+     * 默认只收录不超过此长度的字符串
+     */
+    public static final int DEFAULT_MAX_LENGTH = 256;
+
+    /**
+     * 共享字典
+     */
+    private static final StringDictionary SHARED = new StringDictionary(DEFAULT_SHARED_MAX_SIZE, DEFAULT_MAX_LENGTH);
+
+    /**
+     * 字典上限
+     */
+    private final int maxSize;
+
+    /**
+     * 收录的字符串最大长度
+     */
+    private final int maxLength;
+
+    /**
+     * 字符串 -> 唯一实例
+     */
+    private final Map<String, String> values;
+
+    /**
+     * 命中次数
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 字典已满未能收录的次数
+     */
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * 默认上限的字典
+     */
+    public StringDictionary() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * 构造
+     *
+     * @param maxSize   字典上限
+     * @param maxLength 收录的字符串最大长度，更长的字符串原样返回
+     */
+    public StringDictionary(int maxSize, int maxLength) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive");
+        }
+        this.maxSize = maxSize;
+        this.maxLength = maxLength;
+        this.values = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * 进程内共享的字典
+     *
+     * @return 字典
+     */
+    public static StringDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * 取得字符串在字典中的唯一实例
+     *
+     * @param value 字符串
+     * @return 字典中相等的实例；字典已满或字符串过长时返回value本身
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+        String canonical = values.get(value);
+        if (canonical != null) {
+            hits.increment();
+            return canonical;
+        }
+        if (values.size() >= maxSize) {
+            overflows.increment();
+            return value;
+        }
+        canonical = values.putIfAbsent(value, value);
+        if (canonical != null) {
+            hits.increment();
+            return canonical;
+        }
+        return value;
+    }
+
+    /**
+     * 清空字典
+     */
+    public void clear() {
+        values.clear();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 字典中的字符串数
+     *
+     * @return 数量
+     */
+    public int getSize() {
+        return values.size();
+    }
+
+    /**
+     * 命中次数，即复用已有实例的次数
+     *
+     * @return 次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 字典已满未能收录的次数
+     *
+     * @return 次数
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary[size=" + getSize() + "/" + maxSize + ", hits=" + getHits() + ", overflows=" + getOverflows() + "]";
+    }
+
+}
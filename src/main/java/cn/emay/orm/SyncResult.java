@@ -0,0 +1,93 @@
+package cn.emay.orm;
+
+/**
+ * 表同步结果
+ *
+ * @author Frank
+ */
+public class SyncResult {
+
+    /**
+     * 数据库中已有的条数
+     */
+    private long existing;
+
+    /**
+     * 新增条数
+     */
+    private long inserted;
+
+    /**
+     * 更新条数
+     */
+    private long updated;
+
+    /**
+     * 删除条数
+     */
+    private long deleted;
+
+    /**
+     * 未变化条数
+     */
+    private long unchanged;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    public long getExisting() {
+        return existing;
+    }
+
+    public void setExisting(long existing) {
+        this.existing = existing;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "existing=" + existing + ", inserted=" + inserted + ", updated=" + updated + ", deleted=" + deleted + ", unchanged=" + unchanged + ", elapsed=" + elapsedMillis + "ms";
+    }
+
+}
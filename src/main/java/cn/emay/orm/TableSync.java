@@ -0,0 +1,475 @@
+package cn.emay.orm;
+
+import cn.emay.utils.string.StringUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.beans.IntrospectionException;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * 按主键及内容哈希同步全量数据到表<br/>
+ * 先按主键顺序分段读取表中已有数据，只保留主键及内容哈希；再逐条比对传入的数据，
+ * 只对新增、内容变化、已不存在的数据分批执行insert、update、delete，写入量与变化量成正比。<br/>
+ * 内容哈希基于映射到对象后的字段值计算，数据库存储会截断的值（如时间精度）每次都会被判定为变化。
+ *
+ * @param <T> 数据类型
+ * @author Frank
+ */
+final class TableSync<T> {
+
+    /**
+     * 每段读取的条数
+     */
+    private static final int READ_CHUNK_SIZE = 10000;
+
+    /**
+     * 已比对的标记
+     */
+    private static final Object SEEN = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 映射
+     */
+    private final BeanSqlMapping mapping;
+
+    /**
+     * 数据库表名
+     */
+    private final String table;
+
+    /**
+     * 主键字段位置
+     */
+    private final int[] keyIndexes;
+
+    /**
+     * 非主键字段位置
+     */
+    private final int[] valueIndexes;
+
+    /**
+     * 每批条数
+     */
+    private final int batchSize;
+
+    /**
+     * 存储语句
+     */
+    private final JdbcTemplateUtils.SaveStatement saveStatement;
+
+    /**
+     * 行映射
+     */
+    private final RowMapper<T> rowMapper;
+
+    /**
+     * 查询语句，不含条件
+     */
+    private final String selectSql;
+
+    /**
+     * 排序及分段
+     */
+    private final String orderSql;
+
+    /**
+     * 分段条件
+     */
+    private final String keysetSql;
+
+    /**
+     * 更新语句
+     */
+    private final String updateSql;
+
+    /**
+     * 删除语句
+     */
+    private final String deleteSql;
+
+    /**
+     * @param jdbcTemplate jdbcTemplate
+     * @param clazz        数据Class
+     * @param tableName    数据库表名，为空则将类名按照驼峰转下划线的规则转换
+     * @param keyColumns   主键字段，数据库字段名或对象字段名
+     * @param batchSize    每批条数，<=0 则使用默认值
+     */
+    TableSync(JdbcTemplate jdbcTemplate, Class<T> clazz, String tableName, String[] keyColumns, int batchSize) {
+        if (clazz == null) {
+            throw new IllegalArgumentException("class is null");
+        }
+        if (keyColumns == null || keyColumns.length == 0) {
+            throw new IllegalArgumentException("keyColumns is empty");
+        }
+        try {
+            this.mapping = BeanSqlMapping.of(clazz);
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = StringUtils.isEmpty(tableName) ? Class2SqlUtils.hump2Underline(clazz.getSimpleName()) : tableName;
+        this.batchSize = batchSize <= 0 ? JdbcTemplateUtils.DEFAULT_BATCH_SIZE : batchSize;
+        this.keyIndexes = new int[keyColumns.length];
+        boolean[] isKey = new boolean[mapping.getPropertyCount()];
+        for (int i = 0; i < keyColumns.length; i++) {
+            int index = indexOf(keyColumns[i]);
+            if (index < 0) {
+                throw new IllegalArgumentException("key column " + keyColumns[i] + " is not a property of " + clazz.getName());
+            }
+            keyIndexes[i] = index;
+            isKey[index] = true;
+        }
+        this.valueIndexes = new int[mapping.getPropertyCount() - keyIndexes.length];
+        int j = 0;
+        for (int i = 0; i < isKey.length; i++) {
+            if (!isKey[i]) {
+                valueIndexes[j++] = i;
+            }
+        }
+        this.saveStatement = JdbcTemplateUtils.SaveStatement.of(clazz, table, false, false);
+        this.rowMapper = JdbcTemplateUtils.getRowMapper(clazz);
+
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < mapping.getPropertyCount(); i++) {
+            columns.add(mapping.getColumnName(i));
+        }
+        List<String> keys = new ArrayList<>();
+        List<String> keyConditions = new ArrayList<>();
+        List<String> keyset = new ArrayList<>();
+        for (int i = 0; i < keyIndexes.length; i++) {
+            String column = mapping.getColumnName(keyIndexes[i]);
+            StringBuilder condition = new StringBuilder("(");
+            for (int k = 0; k < i; k++) {
+                condition.append(keys.get(k)).append(" = ? and ");
+            }
+            keyset.add(condition.append(column).append(" > ?)").toString());
+            keys.add(column);
+            keyConditions.add(column + " = ?");
+        }
+        List<String> values = new ArrayList<>();
+        for (int index : valueIndexes) {
+            values.add(mapping.getColumnName(index) + " = ?");
+        }
+        this.selectSql = "select " + StringUtils.join(columns, ",") + " from " + table;
+        this.orderSql = " order by " + StringUtils.join(keys, ",") + " limit " + READ_CHUNK_SIZE;
+        this.keysetSql = " where " + StringUtils.join(keyset, " or ");
+        this.updateSql = values.isEmpty() ? null : "update " + table + " set " + StringUtils.join(values, ",") + " where " + StringUtils.join(keyConditions, " and ");
+        this.deleteSql = "delete from " + table + " where " + StringUtils.join(keyConditions, " and ");
+    }
+
+    /**
+     * 同步
+     *
+     * @param iterator 全量数据
+     * @return 同步结果
+     */
+    SyncResult sync(Iterator<T> iterator) {
+        if (iterator == null) {
+            throw new IllegalArgumentException("iterator is null");
+        }
+        long begin = System.currentTimeMillis();
+        SyncResult result = new SyncResult();
+        Map<Object, Object> existing = readExisting();
+        result.setExisting(existing.size());
+
+        List<T> inserts = new ArrayList<>(batchSize);
+        List<T> updates = new ArrayList<>(batchSize);
+        while (iterator.hasNext()) {
+            T data = iterator.next();
+            if (data == null) {
+                continue;
+            }
+            Object key = key(data);
+            Object state = existing.put(key, SEEN);
+            if (state == SEEN) {
+                throw new IllegalArgumentException("duplicate key " + key + " in data");
+            }
+            if (state == null) {
+                inserts.add(data);
+                if (inserts.size() >= batchSize) {
+                    result.setInserted(result.getInserted() + insert(inserts));
+                }
+            } else if (updateSql != null && (Long) state != hash(data)) {
+                updates.add(data);
+                if (updates.size() >= batchSize) {
+                    result.setUpdated(result.getUpdated() + update(updates));
+                }
+            } else {
+                result.setUnchanged(result.getUnchanged() + 1);
+            }
+        }
+        result.setInserted(result.getInserted() + insert(inserts));
+        result.setUpdated(result.getUpdated() + update(updates));
+
+        List<Object> deletes = new ArrayList<>(batchSize);
+        for (Map.Entry<Object, Object> entry : existing.entrySet()) {
+            if (entry.getValue() == SEEN) {
+                continue;
+            }
+            deletes.add(entry.getKey());
+            if (deletes.size() >= batchSize) {
+                result.setDeleted(result.getDeleted() + delete(deletes));
+            }
+        }
+        result.setDeleted(result.getDeleted() + delete(deletes));
+        result.setElapsedMillis(System.currentTimeMillis() - begin);
+        return result;
+    }
+
+    /**
+     * 按主键顺序分段读取已有数据
+     *
+     * @return 主键 -> 内容哈希
+     */
+    private Map<Object, Object> readExisting() {
+        Map<Object, Object> existing = new HashMap<>();
+        Object[] parameters = null;
+        while (true) {
+            String sql = parameters == null ? selectSql + orderSql : selectSql + keysetSql + orderSql;
+            List<T> rows = JdbcTemplateUtils.findObjectListByMapper(jdbcTemplate, rowMapper, sql, parameters == null ? new Object[0] : parameters);
+            for (T row : rows) {
+                existing.put(key(row), hash(row));
+            }
+            if (rows.size() < READ_CHUNK_SIZE) {
+                return existing;
+            }
+            parameters = keysetParameters(rows.get(rows.size() - 1));
+        }
+    }
+
+    /**
+     * 分段条件的参数，与keysetSql中的?顺序一致
+     *
+     * @param last 上一段的最后一条
+     * @return 参数
+     */
+    private Object[] keysetParameters(T last) {
+        List<Object> parameters = new ArrayList<>();
+        for (int i = 0; i < keyIndexes.length; i++) {
+            for (int k = 0; k <= i; k++) {
+                parameters.add(mapping.getValue(last, keyIndexes[k]));
+            }
+        }
+        return parameters.toArray();
+    }
+
+    /**
+     * 新增一批数据
+     *
+     * @param dataList 数据，执行后清空
+     * @return 条数
+     */
+    private int insert(List<T> dataList) {
+        if (dataList.isEmpty()) {
+            return 0;
+        }
+        int size = dataList.size();
+        JdbcTemplateUtils.batchSave(jdbcTemplate, saveStatement, dataList);
+        dataList.clear();
+        return size;
+    }
+
+    /**
+     * 更新一批数据
+     *
+     * @param dataList 数据，执行后清空
+     * @return 条数
+     */
+    private int update(List<T> dataList) {
+        if (dataList.isEmpty()) {
+            return 0;
+        }
+        int size = dataList.size();
+        StatementCounter.record(updateSql);
+        jdbcTemplate.batchUpdate(updateSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                T data = dataList.get(i);
+                int position = 1;
+                for (int index : valueIndexes) {
+                    StatementCreatorUtils.setParameterValue(ps, position++, mapping.getSqlType(index), mapping.getValue(data, index));
+                }
+                for (int index : keyIndexes) {
+                    StatementCreatorUtils.setParameterValue(ps, position++, mapping.getSqlType(index), mapping.getValue(data, index));
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return dataList.size();
+            }
+        });
+        dataList.clear();
+        return size;
+    }
+
+    /**
+     * 删除一批数据
+     *
+     * @param keys 主键，执行后清空
+     * @return 条数
+     */
+    private int delete(List<Object> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        int size = keys.size();
+        StatementCounter.record(deleteSql);
+        jdbcTemplate.batchUpdate(deleteSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Object key = keys.get(i);
+                if (keyIndexes.length == 1) {
+                    StatementCreatorUtils.setParameterValue(ps, 1, mapping.getSqlType(keyIndexes[0]), key);
+                    return;
+                }
+                List<?> values = (List<?>) key;
+                for (int k = 0; k < keyIndexes.length; k++) {
+                    StatementCreatorUtils.setParameterValue(ps, k + 1, mapping.getSqlType(keyIndexes[k]), values.get(k));
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+        keys.clear();
+        return size;
+    }
+
+    /**
+     * 主键：单字段为字段值，多字段为字段值的List
+     *
+     * @param data 数据
+     * @return 主键
+     */
+    private Object key(T data) {
+        if (keyIndexes.length == 1) {
+            return keyValue(data, keyIndexes[0]);
+        }
+        Object[] values = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            values[i] = keyValue(data, keyIndexes[i]);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 主键字段值，时间及小数统一表示，使数据库读出的值与传入的值相等
+     *
+     * @param data  数据
+     * @param index 字段位置
+     * @return 字段值
+     */
+    private Object keyValue(T data, int index) {
+        Object value = mapping.getValue(data, index);
+        if (value == null) {
+            throw new IllegalArgumentException("key " + mapping.getPropertyName(index) + " is null");
+        }
+        if (value instanceof Date) {
+            return new Timestamp(((Date) value).getTime());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros();
+        }
+        return value;
+    }
+
+    /**
+     * 非主键字段的内容哈希
+     *
+     * @param data 数据
+     * @return 哈希
+     */
+    private long hash(T data) {
+        long hash = 0x9E3779B97F4A7C15L;
+        for (int index : valueIndexes) {
+            hash = mix(hash * 31 + valueHash(mapping.getValue(data, index)));
+        }
+        return hash;
+    }
+
+    /**
+     * 字段值的64位哈希
+     *
+     * @param value 字段值
+     * @return 哈希
+     */
+    private static long valueHash(Object value) {
+        if (value == null) {
+            return 0x5851F42D4C957F2DL;
+        }
+        if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < chars.length(); i++) {
+                hash = (hash ^ chars.charAt(i)) * 0x100000001B3L;
+            }
+            return hash;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof BigDecimal) {
+            return valueHash(((BigDecimal) value).stripTrailingZeros().toPlainString());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return Double.doubleToLongBits(((Number) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 2L;
+        }
+        if (value instanceof byte[]) {
+            long hash = 0xCBF29CE484222325L;
+            for (byte b : (byte[]) value) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+            }
+            return hash;
+        }
+        if (value instanceof Enum) {
+            return valueHash(((Enum<?>) value).name());
+        }
+        return valueHash(value.toString());
+    }
+
+    /**
+     * 64位混合
+     *
+     * @param hash 哈希
+     * @return 混合后的哈希
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * 按数据库字段名或对象字段名查找字段位置
+     *
+     * @param column 字段名
+     * @return 位置，没有则为-1
+     */
+    private int indexOf(String column) {
+        for (int i = 0; i < mapping.getPropertyCount(); i++) {
+            if (mapping.getColumnName(i).equalsIgnoreCase(column) || mapping.getPropertyName(i).equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,376 @@
+package cn.emay.orm;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.beans.IntrospectionException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按时间分表的规则<br/>
+ * 表名为 基础表名 + 分隔符 + 时间后缀，如 t_report_20261017；数据按日期字段路由到对应的表，
+ * 按时间范围查询时只查询与范围有交集且存在的表。<br/>
+ * 用法：TimePartition.daily("t_report", "createTime")
+ *
+ * @author Frank
+ */
+public class TimePartition {
+
+    /**
+     * SQL中表名的占位符，查询时替换为各分表的表名
+     */
+    public static final String TABLE_PLACEHOLDER = "${table}";
+
+    /**
+     * 默认已存在表名的缓存时间（毫秒）
+     */
+    public static final long DEFAULT_TABLE_CACHE_MILLIS = 60000L;
+
+    /**
+     * 一次范围查询最多涉及的分表数
+     */
+    private static final int MAX_RANGE_TABLES = 10000;
+
+    /**
+     * 默认分表查询线程
+     */
+    private static volatile ExecutorService defaultExecutor;
+
+    /**
+     * 基础表名
+     */
+    private final String baseTable;
+
+    /**
+     * 日期字段名
+     */
+    private final String dateProperty;
+
+    /**
+     * 时间后缀格式
+     */
+    private final DateTimeFormatter suffixFormatter;
+
+    /**
+     * 分表时间单位
+     */
+    private final ChronoUnit unit;
+
+    /**
+     * 基础表名与后缀的分隔符
+     */
+    private String separator = "_";
+
+    /**
+     * 时区
+     */
+    private ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * 已存在表名的缓存时间（毫秒）
+     */
+    private long tableCacheMillis = DEFAULT_TABLE_CACHE_MILLIS;
+
+    /**
+     * 分表查询线程，为空使用默认线程
+     */
+    private ExecutorService executor;
+
+    /**
+     * 已存在的表名（小写）
+     */
+    private volatile Set<String> existingTables;
+
+    /**
+     * 已存在表名的读取时间
+     */
+    private volatile long existingTablesTime;
+
+    /**
+     * @param baseTable    基础表名
+     * @param dateProperty 用于路由的日期字段名，支持Date、LocalDate、LocalDateTime、Instant、毫秒数
+     * @param suffixFormat 时间后缀格式，如 yyyyMMdd
+     * @param unit         分表时间单位，支持HOURS、DAYS、MONTHS、YEARS
+     */
+    public TimePartition(String baseTable, String dateProperty, String suffixFormat, ChronoUnit unit) {
+        if (baseTable == null || baseTable.isEmpty()) {
+            throw new IllegalArgumentException("baseTable is empty");
+        }
+        if (dateProperty == null || dateProperty.isEmpty()) {
+            throw new IllegalArgumentException("dateProperty is empty");
+        }
+        if (unit != ChronoUnit.HOURS && unit != ChronoUnit.DAYS && unit != ChronoUnit.MONTHS && unit != ChronoUnit.YEARS) {
+            throw new IllegalArgumentException("unit " + unit + " is not supported");
+        }
+        this.baseTable = baseTable;
+        this.dateProperty = dateProperty;
+        this.suffixFormatter = DateTimeFormatter.ofPattern(suffixFormat);
+        this.unit = unit;
+    }
+
+    /**
+     * 按天分表，后缀为 yyyyMMdd
+     *
+     * @param baseTable    基础表名
+     * @param dateProperty 用于路由的日期字段名
+     * @return 分表规则
+     */
+    public static TimePartition daily(String baseTable, String dateProperty) {
+        return new TimePartition(baseTable, dateProperty, "yyyyMMdd", ChronoUnit.DAYS);
+    }
+
+    /**
+     * 按月分表，后缀为 yyyyMM
+     *
+     * @param baseTable    基础表名
+     * @param dateProperty 用于路由的日期字段名
+     * @return 分表规则
+     */
+    public static TimePartition monthly(String baseTable, String dateProperty) {
+        return new TimePartition(baseTable, dateProperty, "yyyyMM", ChronoUnit.MONTHS);
+    }
+
+    /**
+     * 时间所在的表名
+     *
+     * @param time 时间，支持Date、LocalDate、LocalDateTime、Instant、毫秒数
+     * @return 表名
+     */
+    public String tableOf(Object time) {
+        return baseTable + separator + suffixFormatter.format(toLocalDateTime(time));
+    }
+
+    /**
+     * 数据所在的表名，以日期字段的值路由
+     *
+     * @param data 数据
+     * @return 表名
+     */
+    public String tableOfData(Object data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data is null");
+        }
+        BeanSqlMapping mapping;
+        try {
+            mapping = BeanSqlMapping.of(data.getClass());
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e);
+        }
+        for (int i = 0; i < mapping.getPropertyCount(); i++) {
+            if (mapping.getPropertyName(i).equals(dateProperty)) {
+                Object time = mapping.getValue(data, i);
+                if (time == null) {
+                    throw new IllegalArgumentException(data.getClass().getName() + "." + dateProperty + " is null");
+                }
+                return tableOf(time);
+            }
+        }
+        throw new IllegalArgumentException(dateProperty + " is not a property of " + data.getClass().getName());
+    }
+
+    /**
+     * 与时间范围有交集的表名，按时间正序
+     *
+     * @param begin 开始时间（含）
+     * @param end   结束时间（含）
+     * @return 表名
+     */
+    public List<String> tablesBetween(Object begin, Object end) {
+        LocalDateTime from = truncate(toLocalDateTime(begin));
+        LocalDateTime to = truncate(toLocalDateTime(end));
+        List<String> tables = new ArrayList<>();
+        for (LocalDateTime time = from; !time.isAfter(to); time = time.plus(1, unit)) {
+            if (tables.size() >= MAX_RANGE_TABLES) {
+                throw new IllegalArgumentException("range " + begin + " - " + end + " covers more than " + MAX_RANGE_TABLES + " tables");
+            }
+            tables.add(baseTable + separator + suffixFormatter.format(time));
+        }
+        return tables;
+    }
+
+    /**
+     * 与时间范围有交集且已存在的表名，按时间正序
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @param begin        开始时间（含）
+     * @param end          结束时间（含）
+     * @return 表名
+     */
+    public List<String> existingTablesBetween(JdbcTemplate jdbcTemplate, Object begin, Object end) {
+        Set<String> existing = getExistingTables(jdbcTemplate);
+        List<String> tables = tablesBetween(begin, end);
+        tables.removeIf(table -> !existing.contains(table.toLowerCase()));
+        return tables;
+    }
+
+    /**
+     * 已存在的分表（小写），按tableCacheMillis缓存
+     *
+     * @param jdbcTemplate jdbcTemplate
+     * @return 表名
+     */
+    private Set<String> getExistingTables(JdbcTemplate jdbcTemplate) {
+        Set<String> tables = existingTables;
+        if (tables != null && System.currentTimeMillis() - existingTablesTime < tableCacheMillis) {
+            return tables;
+        }
+        String prefix = (baseTable + separator).toLowerCase();
+        tables = jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            Set<String> names = new HashSet<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, "%", new String[]{"TABLE"})) {
+                while (rs.next()) {
+                    String name = rs.getString("TABLE_NAME").toLowerCase();
+                    if (name.startsWith(prefix)) {
+                        names.add(name);
+                    }
+                }
+            }
+            return names;
+        });
+        existingTables = Collections.unmodifiableSet(tables);
+        existingTablesTime = System.currentTimeMillis();
+        return tables;
+    }
+
+    /**
+     * 清除已存在表名的缓存，新建分表后调用
+     */
+    public void refreshTables() {
+        existingTables = null;
+    }
+
+    /**
+     * 截断到分表时间单位的起点
+     *
+     * @param time 时间
+     * @return 起点
+     */
+    private LocalDateTime truncate(LocalDateTime time) {
+        switch (unit) {
+            case HOURS:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAYS:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case MONTHS:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            default:
+                return time.truncatedTo(ChronoUnit.DAYS).withDayOfYear(1);
+        }
+    }
+
+    /**
+     * 转换为本地时间
+     *
+     * @param time 时间
+     * @return 本地时间
+     */
+    private LocalDateTime toLocalDateTime(Object time) {
+        if (time instanceof Date) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(((Date) time).getTime()), zone);
+        }
+        if (time instanceof LocalDateTime) {
+            return (LocalDateTime) time;
+        }
+        if (time instanceof LocalDate) {
+            return ((LocalDate) time).atStartOfDay();
+        }
+        if (time instanceof Instant) {
+            return LocalDateTime.ofInstant((Instant) time, zone);
+        }
+        if (time instanceof ZonedDateTime) {
+            return ((ZonedDateTime) time).withZoneSameInstant(zone).toLocalDateTime();
+        }
+        if (time instanceof OffsetDateTime) {
+            return ((OffsetDateTime) time).atZoneSameInstant(zone).toLocalDateTime();
+        }
+        if (time instanceof Long) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli((Long) time), zone);
+        }
+        throw new IllegalArgumentException("time " + time + " is not supported");
+    }
+
+    /**
+     * 分表查询线程
+     *
+     * @return 线程
+     */
+    ExecutorService executor() {
+        if (executor != null) {
+            return executor;
+        }
+        if (defaultExecutor == null) {
+            synchronized (TimePartition.class) {
+                if (defaultExecutor == null) {
+                    AtomicInteger index = new AtomicInteger();
+                    defaultExecutor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()), runnable -> {
+                        Thread thread = new Thread(runnable, "emay-orm-partition-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    public String getBaseTable() {
+        return baseTable;
+    }
+
+    public String getDateProperty() {
+        return dateProperty;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public String getSeparator() {
+        return separator;
+    }
+
+    public void setSeparator(String separator) {
+        this.separator = separator == null ? "" : separator;
+        refreshTables();
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public void setZone(ZoneId zone) {
+        this.zone = zone == null ? ZoneId.systemDefault() : zone;
+    }
+
+    public long getTableCacheMillis() {
+        return tableCacheMillis;
+    }
+
+    /**
+     * 设置已存在表名的缓存时间
+     *
+     * @param tableCacheMillis 缓存时间（毫秒），<=0 则每次查询都读取
+     */
+    public void setTableCacheMillis(long tableCacheMillis) {
+        this.tableCacheMillis = tableCacheMillis;
+    }
+
+    /**
+     * 设置分表查询线程，查询在这些线程中执行，不参与调用方的事务
+     *
+     * @param executor 线程，为空使用默认线程
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+}
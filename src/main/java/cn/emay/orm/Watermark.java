@@ -0,0 +1,102 @@
+package cn.emay.orm;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+/**
+ * 增量读取的水位：（时间，id）组合<br/>
+ * 表示已读取到的最后一条数据，下次从时间更大、或时间相同而id更大的数据继续读取，时间相同的数据不会遗漏也不会重复。
+ *
+ * @author Frank
+ */
+public final class Watermark implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 时间
+     */
+    private final Timestamp time;
+
+    /**
+     * id
+     */
+    private final long id;
+
+    /**
+     * @param time 时间
+     * @param id   id
+     */
+    public Watermark(Timestamp time, long id) {
+        if (time == null) {
+            throw new NullPointerException("time is null");
+        }
+        this.time = new Timestamp(time.getTime());
+        this.time.setNanos(time.getNanos());
+        this.id = id;
+    }
+
+    /**
+     * 时间
+     *
+     * @return 时间的副本
+     */
+    public Timestamp getTime() {
+        Timestamp copy = new Timestamp(time.getTime());
+        copy.setNanos(time.getNanos());
+        return copy;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 格式化为文本，毫秒数,纳秒,id
+     *
+     * @return 文本
+     */
+    String format() {
+        return time.getTime() + "," + time.getNanos() + "," + id;
+    }
+
+    /**
+     * 解析 format 生成的文本
+     *
+     * @param text 文本
+     * @return 水位
+     */
+    static Watermark parse(String text) {
+        String[] parts = text.trim().split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("invalid watermark: " + text);
+        }
+        Timestamp time = new Timestamp(Long.parseLong(parts[0]));
+        time.setNanos(Integer.parseInt(parts[1]));
+        return new Watermark(time, Long.parseLong(parts[2]));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Watermark)) {
+            return false;
+        }
+        Watermark other = (Watermark) o;
+        return id == other.id && time.equals(other.time);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(time, id);
+    }
+
+    @Override
+    public String toString() {
+        return "Watermark[" + time + ", " + id + "]";
+    }
+
+}
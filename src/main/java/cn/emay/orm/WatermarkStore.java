@@ -0,0 +1,35 @@
+package cn.emay.orm;
+
+/**
+ * 增量读取水位的存储<br/>
+ * 按名称保存每个增量读取的水位，读取中断或进程重启后从保存的水位继续。<br/>
+ * 实现需要线程安全。
+ *
+ * @author Frank
+ */
+public interface WatermarkStore {
+
+    /**
+     * 读取水位
+     *
+     * @param name 增量读取的名称
+     * @return 水位，没有则返回null，从头读取
+     */
+    Watermark load(String name);
+
+    /**
+     * 保存水位
+     *
+     * @param name      增量读取的名称
+     * @param watermark 水位
+     */
+    void save(String name, Watermark watermark);
+
+    /**
+     * 删除水位，下次从头读取
+     *
+     * @param name 增量读取的名称
+     */
+    void remove(String name);
+
+}
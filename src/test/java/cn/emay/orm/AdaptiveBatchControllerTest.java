@@ -0,0 +1,173 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * AdaptiveBatchController测试
+ *
+ * @author Frank
+ */
+public class AdaptiveBatchControllerTest {
+
+    private static H2Database database;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("adaptive_batch");
+        jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        jdbcTemplate.execute("create table retry_user (id bigint auto_increment primary key, user_name varchar(50), age int check (age >= 0), score decimal(10,2), enabled boolean, create_time timestamp)");
+    }
+
+    @Test
+    public void growOnFastBatches() {
+        AdaptiveBatchController controller = new AdaptiveBatchController();
+        List<TestUser> users = IntStream.range(0, 3000).mapToObj(i -> new TestUser(null, "u" + i, i)).collect(Collectors.toList());
+        int[] result = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users, controller, false, true);
+        Assert.assertEquals(3000, result.length);
+        Assert.assertTrue(controller.getBatchSize("test_user", AdaptiveBatchController.OPERATION_SAVE) > controller.getInitialBatchSize());
+        Assert.assertEquals(3000, controller.getState("test_user", AdaptiveBatchController.OPERATION_SAVE).getRowCount());
+    }
+
+    @Test
+    public void shrinkAndRetryInOrder() {
+        AdaptiveBatchController controller = new AdaptiveBatchController();
+        controller.setInitialBatchSize(400);
+        List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        List<Integer> seen = new ArrayList<>();
+        long rows = controller.execute("t", AdaptiveBatchController.OPERATION_SAVE, items, true, batch -> {
+            if (batch.size() > 100) {
+                throw new CannotAcquireLockException("lock wait timeout");
+            }
+            seen.addAll(batch);
+            return batch.size();
+        });
+        Assert.assertEquals(1000, rows);
+        Assert.assertEquals(items, seen);
+        Assert.assertTrue(controller.getBatchSize("t", AdaptiveBatchController.OPERATION_SAVE) <= 150);
+    }
+
+    @Test
+    public void noRetryShrinksAndThrows() {
+        AdaptiveBatchController controller = new AdaptiveBatchController();
+        int[] calls = new int[1];
+        try {
+            controller.execute("t", AdaptiveBatchController.OPERATION_UPDATE, IntStream.range(0, 50).boxed().collect(Collectors.toList()), false, batch -> {
+                calls[0]++;
+                throw new CannotAcquireLockException("lock wait timeout");
+            });
+            Assert.fail();
+        } catch (CannotAcquireLockException e) {
+            Assert.assertEquals(1, calls[0]);
+        }
+        Assert.assertEquals(50, controller.getBatchSize("t", AdaptiveBatchController.OPERATION_UPDATE));
+    }
+
+    @Test
+    public void validation() {
+        AdaptiveBatchController controller = new AdaptiveBatchController();
+        for (Runnable setter : new Runnable[]{() -> controller.setInitialBatchSize(0), () -> controller.setIncreaseStep(0),
+                () -> controller.setMaxRetries(-1), () -> controller.setTargetLatencyMillis(0), () -> controller.setDecreaseFactor(1)}) {
+            try {
+                setter.run();
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                // 预期
+            }
+        }
+        controller.setMinBatchSize(500);
+        try {
+            controller.getBatchSize("t", AdaptiveBatchController.OPERATION_SAVE);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // initialBatchSize < minBatchSize
+        }
+        controller.setInitialBatchSize(600);
+        Assert.assertEquals(600, controller.getBatchSize("t", AdaptiveBatchController.OPERATION_SAVE));
+    }
+
+    @Test
+    public void plainInsertNotRetriedOutsideTransaction() {
+        jdbcTemplate.update("delete from retry_user");
+        try {
+            JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, "retry_user", usersWithInvalidRow(), shrinkOnAnyFailure(), false, true);
+            Assert.fail();
+        } catch (DataAccessException e) {
+            // 不重试，写入的数据不会重复
+        }
+        Assert.assertEquals(0, duplicates());
+    }
+
+    @Test
+    public void retryRollsBackToSavepointInTransaction() {
+        jdbcTemplate.update("delete from retry_user");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database.getDataSource()));
+        int saved = transactionTemplate.execute(status -> {
+            try {
+                JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, "retry_user", usersWithInvalidRow(), shrinkOnAnyFailure(), false, true);
+                Assert.fail();
+            } catch (DataAccessException e) {
+                // 重试至单条仍失败
+            }
+            Assert.assertEquals(0, duplicates());
+            return jdbcTemplate.queryForObject("select count(*) from retry_user", Integer.class);
+        });
+        // 8条一批失败，缩减为4条：[0,4)成功后批量大小回升，[4,8)重试至次数用尽，失败的尝试都已回滚
+        Assert.assertEquals(4, saved);
+        Assert.assertEquals(0, duplicates());
+    }
+
+    /**
+     * 第6条数据不满足检查约束
+     *
+     * @return 数据
+     */
+    private static List<TestUser> usersWithInvalidRow() {
+        List<TestUser> users = IntStream.range(0, 10).mapToObj(i -> new TestUser(null, "r" + i, i)).collect(Collectors.toList());
+        users.get(5).setAge(-1);
+        return users;
+    }
+
+    /**
+     * 任何异常都缩减重试的控制器，初始8条一批
+     *
+     * @return 控制器
+     */
+    private static AdaptiveBatchController shrinkOnAnyFailure() {
+        AdaptiveBatchController controller = new AdaptiveBatchController() {
+
+            @Override
+            protected boolean isShrinkable(Throwable e) {
+                return true;
+            }
+
+        };
+        controller.setMinBatchSize(1);
+        controller.setInitialBatchSize(8);
+        return controller;
+    }
+
+    /**
+     * 重复写入的条数
+     *
+     * @return 条数
+     */
+    private static int duplicates() {
+        return jdbcTemplate.queryForObject("select count(*) - count(distinct user_name) from retry_user", Integer.class);
+    }
+
+}
@@ -0,0 +1,180 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 合并并发请求的批量加载器测试
+ *
+ * @author Frank
+ */
+public class BatchLoaderTest {
+
+    @Test
+    public void sameKeySharesOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>("same", keys -> {
+            batches.add(keys);
+            await(release);
+            return values(keys);
+        }, 10, 0, 1)) {
+            CompletableFuture<String> first = loader.loadAsync(1);
+            CompletableFuture<String> second = loader.loadAsync(1);
+            Assert.assertSame(first, second);
+            release.countDown();
+            Assert.assertEquals("v1", first.get());
+            Assert.assertEquals(1, batches.size());
+            Assert.assertEquals(2, loader.getRequests());
+            Assert.assertEquals(1, loader.getCoalesced());
+        }
+    }
+
+    @Test
+    public void keysWithinDelayMergedIntoOneBatch() throws Exception {
+        List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+        // 等待时间足够长，只有批满才会加载
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>("merge", keys -> {
+            batches.add(keys);
+            return values(keys);
+        }, 3, 60_000_000L, 1)) {
+            CompletableFuture<String> a = loader.loadAsync(1);
+            CompletableFuture<String> b = loader.loadAsync(2);
+            CompletableFuture<String> c = loader.loadAsync(3);
+            Assert.assertEquals("v1", a.get());
+            Assert.assertEquals("v2", b.get());
+            Assert.assertEquals("v3", c.get());
+            Assert.assertEquals(1, batches.size());
+            Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), batches.get(0));
+            Assert.assertEquals(1, loader.getBatches());
+        }
+    }
+
+    @Test
+    public void missingKeyLoadsNull() {
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>("missing", keys -> new HashMap<>(), 10, 0, 1)) {
+            Assert.assertNull(loader.load(1));
+        }
+    }
+
+    @Test
+    public void batchFailureFailsAllKeys() {
+        try (BatchLoader<Integer, String> loader = new BatchLoader<>("failure", keys -> {
+            throw new IllegalStateException("boom");
+        }, 10, 0, 1)) {
+            try {
+                loader.load(1);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("boom", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void closeFailsPendingKeys() {
+        BatchLoader<Integer, String> loader = new BatchLoader<>("close", BatchLoaderTest::values, 10, 60_000_000L, 1);
+        CompletableFuture<String> pending = loader.loadAsync(1);
+        loader.close();
+        try {
+            pending.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void daoCoalescesFindById() throws Exception {
+        H2Database database = new H2Database("batch_loader", TestItem.class);
+        TestItemDao dao = new TestItemDao(database);
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.define(Bulkhead.OLTP, 4, -1, 1000, 0);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 20; i++) {
+                dao.save(new TestItem("s", i, "n" + i));
+            }
+            return null;
+        });
+        dao.setBulkhead(bulkhead);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<TestItem>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long id = i % 20 + 1;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return dao.findByIdCoalesced(id);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < futures.size(); i++) {
+                Assert.assertEquals(Long.valueOf(i % 20 + 1), futures.get(i).get().getId());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        BatchLoader<Serializable, TestItem> loader = dao.getByIdLoader();
+        Assert.assertEquals(200, loader.getRequests());
+        Assert.assertTrue(loader.getBatches() < loader.getRequests());
+        // 每批查询在OLTP舱内执行一次
+        Assert.assertEquals(loader.getBatches(), bulkhead.getCompartment(Bulkhead.OLTP).getAdmitted());
+        Assert.assertNull(dao.findByIdCoalesced(9999L));
+
+        dao.destroy();
+        try {
+            loader.load(1L);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // 已关闭
+        }
+        Assert.assertNotSame(loader, dao.getByIdLoader());
+        dao.destroy();
+    }
+
+    /**
+     * 每个key的值为 v + key
+     *
+     * @param keys key
+     * @return 值
+     */
+    private static Map<Integer, String> values(Set<Integer> keys) {
+        Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys) {
+            values.put(key, "v" + key);
+        }
+        return values;
+    }
+
+    /**
+     * 等待放行
+     *
+     * @param latch 放行信号
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
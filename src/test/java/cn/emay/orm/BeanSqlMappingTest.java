@@ -0,0 +1,100 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * BeanSqlMapping及按位置绑定的批量存储测试
+ *
+ * @author Frank
+ */
+public class BeanSqlMappingTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        jdbcTemplate = new H2Database("bean_sql_mapping").getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+    }
+
+    @Test
+    public void mapping() throws Exception {
+        BeanSqlMapping mapping = BeanSqlMapping.of(TestUser.class);
+        Assert.assertSame(mapping, BeanSqlMapping.of(TestUser.class));
+        int id = mapping.getIdIndex();
+        Assert.assertEquals("id", mapping.getPropertyName(id));
+        int userName = indexOf(mapping, "userName");
+        Assert.assertEquals("user_name", mapping.getColumnName(userName));
+        Assert.assertEquals(Types.VARCHAR, mapping.getSqlType(userName));
+        Assert.assertEquals(mapping.getPropertyCount(), mapping.getSaveIndexes(false).length);
+        Assert.assertEquals(mapping.getPropertyCount() - 1, mapping.getSaveIndexes(true).length);
+        TestUser user = new TestUser(null, "a", 3);
+        Assert.assertTrue(mapping.isIdAbsent(user));
+        Assert.assertEquals("a", mapping.getValue(user, userName));
+        Assert.assertEquals(3, mapping.getValue(user, indexOf(mapping, "age")));
+    }
+
+    @Test
+    public void preparedSqlMatchesNamedSql() throws Exception {
+        String named = Class2SqlUtils.class2SaveSql(TestUser.class, null, false, true);
+        String prepared = Class2SqlUtils.class2PreparedSaveSql(TestUser.class, null, false, true);
+        Assert.assertEquals(named.substring(0, named.indexOf(" values ")), prepared.substring(0, prepared.indexOf(" values ")));
+        Assert.assertFalse(prepared.contains(":"));
+        Assert.assertTrue(prepared.startsWith("insert into test_user ("));
+        Assert.assertFalse(prepared.contains("(id,") || prepared.contains(",id,") || prepared.contains(",id)"));
+    }
+
+    @Test
+    public void saveBindsByPosition() {
+        jdbcTemplate.update("delete from test_user");
+        Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+        List<TestUser> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TestUser user = new TestUser(null, "u" + i, i);
+            user.setScore(new BigDecimal(i + ".50"));
+            user.setEnabled(i % 2 == 0);
+            user.setCreateTime(now);
+            users.add(user);
+        }
+        users.get(4).setUserName(null);
+        int[] result = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users, false, true);
+        Assert.assertEquals(5, result.length);
+        List<TestUser> saved = JdbcTemplateUtils.findObjectListByClass(jdbcTemplate, TestUser.class, "select * from test_user order by id");
+        Assert.assertEquals(5, saved.size());
+        for (int i = 0; i < 4; i++) {
+            TestUser user = saved.get(i);
+            Assert.assertEquals("u" + i, user.getUserName());
+            Assert.assertEquals(i, user.getAge());
+            Assert.assertEquals(0, new BigDecimal(i + ".50").compareTo(user.getScore()));
+            Assert.assertEquals(i % 2 == 0, user.getEnabled());
+            Assert.assertEquals(now.getTime(), user.getCreateTime().getTime());
+        }
+        Assert.assertNull(saved.get(4).getUserName());
+    }
+
+    /**
+     * 字段位置
+     *
+     * @param mapping  映射
+     * @param property 字段名
+     * @return 位置
+     */
+    private static int indexOf(BeanSqlMapping mapping, String property) {
+        for (int i = 0; i < mapping.getPropertyCount(); i++) {
+            if (mapping.getPropertyName(i).equals(property)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(property);
+    }
+
+}
@@ -0,0 +1,211 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 隔离舱准入及DAO各类操作的归类测试
+ *
+ * @author Frank
+ */
+public class BulkheadTest {
+
+    private static final String PARTITION_SQL = "select * from ${table} where create_time >= ? and create_time <= ? order by create_time";
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private H2Database database;
+
+    private TestItemDao dao;
+
+    private Bulkhead bulkhead;
+
+    @Before
+    public void init() {
+        database = new H2Database("bulkhead_" + testName.getMethodName(), TestItem.class);
+        dao = new TestItemDao(database);
+        bulkhead = new Bulkhead();
+        bulkhead.define(Bulkhead.OLTP, 4, -1, 1000, 0);
+        bulkhead.define(Bulkhead.REPORT, 4, -1, 1000, 0);
+        bulkhead.define(Bulkhead.BATCH, 2, -1, 1000, 0);
+    }
+
+    @Test
+    public void rejectsWhenFull() throws Exception {
+        bulkhead.define(Bulkhead.REPORT, 1, -1, 0, 0);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> holder = pool.submit(() -> bulkhead.execute(Bulkhead.REPORT, () -> {
+                held.countDown();
+                await(release);
+                return null;
+            }));
+            held.await();
+            try {
+                bulkhead.execute(Bulkhead.REPORT, () -> null);
+                Assert.fail();
+            } catch (Bulkhead.RejectedException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("no free permit"));
+            }
+            release.countDown();
+            holder.get();
+        } finally {
+            pool.shutdown();
+        }
+        Bulkhead.Compartment report = bulkhead.getCompartment(Bulkhead.REPORT);
+        Assert.assertEquals(1, report.getAdmitted());
+        Assert.assertEquals(1, report.getRejected());
+        Assert.assertEquals(0, report.getInUse());
+    }
+
+    @Test
+    public void nestedCallJoinsOuterCompartment() {
+        bulkhead.execute(Bulkhead.BATCH, () -> bulkhead.execute(Bulkhead.OLTP, () -> {
+            Assert.assertEquals(1, bulkhead.getCompartment(Bulkhead.BATCH).getInUse());
+            Assert.assertEquals(0, bulkhead.getCompartment(Bulkhead.OLTP).getInUse());
+            return null;
+        }));
+        Assert.assertEquals(1, bulkhead.getCompartment(Bulkhead.BATCH).getAdmitted());
+        Assert.assertEquals(0, bulkhead.getCompartment(Bulkhead.OLTP).getAdmitted());
+    }
+
+    @Test
+    public void partitionSubQueryTakesOwnPermit() {
+        TimePartition partition = createPartition();
+        dao.setBulkhead(bulkhead);
+        Timestamp begin = Timestamp.valueOf(LocalDateTime.of(2026, 10, 15, 0, 0));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2026, 10, 17, 23, 0));
+        List<TestUser> list = dao.findObjectListByPartition(partition, TestUser.class, PARTITION_SQL, begin, end, false, begin, end);
+        Assert.assertEquals(15, list.size());
+        // 调用方一个，另外两个分表的查询各一个
+        Bulkhead.Compartment report = bulkhead.getCompartment(Bulkhead.REPORT);
+        Assert.assertEquals(3, report.getAdmitted());
+        Assert.assertEquals(0, report.getInUse());
+
+        // 舱内只有一个并发数时，其他分表的查询被拒绝
+        bulkhead.define(Bulkhead.REPORT, 1, -1, 0, 0);
+        try {
+            dao.findObjectListByPartition(partition, TestUser.class, PARTITION_SQL, begin, end, false, begin, end);
+            Assert.fail();
+        } catch (Bulkhead.RejectedException e) {
+            Assert.assertEquals(0, bulkhead.getCompartment(Bulkhead.REPORT).getInUse());
+        }
+    }
+
+    @Test
+    public void pollChangesReleasesPermitBetweenBatches() {
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        for (int i = 1; i <= 25; i++) {
+            jdbcTemplate.update("insert into test_user (user_name, age, create_time) values (?, ?, ?)", "u" + i, i, Timestamp.valueOf(LocalDateTime.of(2026, 10, 1, 0, 0, i)));
+        }
+        dao.setBulkhead(bulkhead);
+        IncrementalQuery query = new IncrementalQuery("users", "test_user", "create_time", "id");
+        query.setBatchSize(10);
+        Bulkhead.Compartment batch = bulkhead.getCompartment(Bulkhead.BATCH);
+        List<Integer> sizes = new ArrayList<>();
+        long total = dao.pollChanges(query, TestUser.class, users -> {
+            // 处理方执行时不占用并发数
+            Assert.assertEquals(0, batch.getInUse());
+            sizes.add(users.size());
+        });
+        Assert.assertEquals(25, total);
+        Assert.assertEquals(3, sizes.size());
+        // 每批的查询各准入一次
+        Assert.assertEquals(3, batch.getAdmitted());
+    }
+
+    @Test
+    public void finderRunsInOltp() {
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 5; i++) {
+                dao.save(new TestItem(i % 2 == 0 ? "ok" : "no", i, "n" + i));
+            }
+            return null;
+        });
+        dao.setBulkhead(bulkhead);
+        ItemQueries finder = dao.getFinder(ItemQueries.class);
+        Assert.assertEquals(3, finder.findByStatus("ok").size());
+        Assert.assertEquals(2, finder.countByStatus("no"));
+        Assert.assertEquals(2, bulkhead.getCompartment(Bulkhead.OLTP).getAdmitted());
+        Assert.assertEquals(0, bulkhead.getCompartment(Bulkhead.REPORT).getAdmitted());
+    }
+
+    @Test
+    public void hiLoAllocationRunsInOltp() {
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute("create table id_sequence (name varchar(64) primary key, next_val bigint not null)");
+        HiLoIdGenerator generator = new HiLoIdGenerator(jdbcTemplate, "id_sequence", "item", 10);
+        generator.setBulkhead(bulkhead);
+        long[] ids = generator.nextIds(25);
+        Assert.assertEquals(25, ids[24]);
+        // 取了三个号段
+        Assert.assertEquals(3, bulkhead.getCompartment(Bulkhead.OLTP).getAdmitted());
+
+        // 在batch舱内取号段时加入batch舱
+        bulkhead.execute(Bulkhead.BATCH, () -> generator.nextIds(10));
+        Assert.assertEquals(3, bulkhead.getCompartment(Bulkhead.OLTP).getAdmitted());
+        Assert.assertEquals(1, bulkhead.getCompartment(Bulkhead.BATCH).getAdmitted());
+    }
+
+    /**
+     * 创建三天的分表，每个表5条数据
+     *
+     * @return 分表规则
+     */
+    private TimePartition createPartition() {
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        TimePartition partition = TimePartition.daily("t_report", "createTime");
+        List<TestUser> users = new ArrayList<>();
+        long id = 1;
+        for (int day = 15; day <= 17; day++) {
+            jdbcTemplate.execute(TestUser.CREATE_TABLE.replace("test_user", partition.tableOf(Timestamp.valueOf(LocalDateTime.of(2026, 10, day, 0, 0)))));
+            for (int i = 0; i < 5; i++) {
+                TestUser user = new TestUser(id++, "u", i);
+                user.setCreateTime(Timestamp.valueOf(LocalDateTime.of(2026, 10, day, 1, i)));
+                users.add(user);
+            }
+        }
+        JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, users, false, false);
+        return partition;
+    }
+
+    /**
+     * 等待放行
+     *
+     * @param latch 放行信号
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public interface ItemQueries {
+
+        List<TestItem> findByStatus(String status);
+
+        long countByStatus(String status);
+
+    }
+
+}
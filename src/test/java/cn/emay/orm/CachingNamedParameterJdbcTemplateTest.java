@@ -0,0 +1,80 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.util.Collections;
+
+/**
+ * 带解析SQL缓存统计的NamedParameterJdbcTemplate及注册表测试
+ *
+ * @author Frank
+ */
+public class CachingNamedParameterJdbcTemplateTest {
+
+    @Test
+    public void countsHitsAndMisses() {
+        JdbcTemplate jdbcTemplate = new H2Database("named_cache_hits").getJdbcTemplate();
+        CachingNamedParameterJdbcTemplate template = new CachingNamedParameterJdbcTemplate(jdbcTemplate, 10);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(Integer.valueOf(i), template.queryForObject("select :v", Collections.singletonMap("v", i), Integer.class));
+        }
+        Assert.assertEquals(1, template.getCacheMisses());
+        Assert.assertEquals(2, template.getCacheHits());
+        Assert.assertEquals(1, template.getCacheSize());
+        template.clearCache();
+        Assert.assertEquals(0, template.getCacheSize());
+        Assert.assertEquals(0, template.getCacheHits() + template.getCacheMisses());
+    }
+
+    @Test
+    public void evictsInInsertionOrder() {
+        CachingNamedParameterJdbcTemplate template = new CachingNamedParameterJdbcTemplate(new JdbcTemplate(), 2);
+        ParsedSql first = template.getParsedSql("select :a");
+        template.getParsedSql("select :b");
+        // 命中不改变淘汰顺序
+        Assert.assertSame(first, template.getParsedSql("select :a"));
+        template.getParsedSql("select :c");
+        Assert.assertEquals(2, template.getCacheSize());
+        Assert.assertNotSame(first, template.getParsedSql("select :a"));
+        Assert.assertEquals(4, template.getCacheMisses());
+        Assert.assertEquals(1, template.getCacheHits());
+    }
+
+    @Test
+    public void zeroLimitDisablesCache() {
+        CachingNamedParameterJdbcTemplate template = new CachingNamedParameterJdbcTemplate(new JdbcTemplate(), 0);
+        template.getParsedSql("select :a");
+        template.getParsedSql("select :a");
+        Assert.assertEquals(0, template.getCacheSize());
+        Assert.assertEquals(2, template.getCacheMisses());
+    }
+
+    @Test
+    public void registrySharesTemplateAndAppliesLimit() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate();
+        int limit = NamedParameterJdbcTemplateRegistry.getCacheLimit();
+        CachingNamedParameterJdbcTemplate template = NamedParameterJdbcTemplateRegistry.get(jdbcTemplate);
+        try {
+            Assert.assertSame(template, NamedParameterJdbcTemplateRegistry.get(jdbcTemplate));
+            for (int i = 0; i < 5; i++) {
+                template.getParsedSql("select :p" + i);
+            }
+            Assert.assertEquals(5, template.getCacheSize());
+            // 对已创建的模板同时生效
+            NamedParameterJdbcTemplateRegistry.setCacheLimit(2);
+            Assert.assertEquals(2, template.getCacheLimit());
+            Assert.assertEquals(2, template.getCacheSize());
+            Assert.assertTrue(NamedParameterJdbcTemplateRegistry.getCacheMisses() >= 5);
+        } finally {
+            NamedParameterJdbcTemplateRegistry.setCacheLimit(limit);
+            NamedParameterJdbcTemplateRegistry.remove(jdbcTemplate);
+        }
+        // 移除后重新创建
+        Assert.assertNotSame(template, NamedParameterJdbcTemplateRegistry.get(jdbcTemplate));
+        NamedParameterJdbcTemplateRegistry.remove(jdbcTemplate);
+    }
+
+}
@@ -0,0 +1,113 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Iterator、Stream、Supplier分批存储测试
+ *
+ * @author Frank
+ */
+public class ChunkedSaveTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        jdbcTemplate = new H2Database("chunked_save").getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+    }
+
+    @Before
+    public void clean() {
+        jdbcTemplate.update("delete from test_user");
+    }
+
+    @Test
+    public void iterator() {
+        long saved = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users(1, 25).iterator(), 10, false, true);
+        Assert.assertEquals(25, saved);
+        Assert.assertEquals(25, count());
+    }
+
+    @Test
+    public void stream() {
+        long saved = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, IntStream.range(0, 12).mapToObj(i -> new TestUser(null, "s" + i, i)), 5, false, true);
+        Assert.assertEquals(12, saved);
+        Assert.assertEquals(12, count());
+    }
+
+    @Test
+    public void supplierEndsAtNull() {
+        AtomicInteger next = new AtomicInteger();
+        long saved = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, () -> {
+            int i = next.getAndIncrement();
+            return i < 7 ? new TestUser(null, "p" + i, i) : null;
+        }, 3, false, true);
+        Assert.assertEquals(7, saved);
+        Assert.assertEquals(7, count());
+        Assert.assertEquals(8, next.get());
+    }
+
+    @Test
+    public void nullDataRejected() {
+        List<TestUser> users = new ArrayList<>(users(1, 3));
+        users.add(1, null);
+        try {
+            JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users.iterator(), 10, false, true);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("data is null", e.getMessage());
+        }
+        Assert.assertEquals(0, count());
+    }
+
+    @Test
+    public void failedBatchKeepsEarlierBatches() {
+        List<TestUser> users = users(1, 6);
+        // 第二批中的重复主键
+        users.get(4).setId(1L);
+        try {
+            JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users.iterator(), 3, false, false);
+            Assert.fail();
+        } catch (DataAccessException e) {
+            // 事务外每批单独提交
+        }
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), jdbcTemplate.queryForList("select id from test_user order by id", Long.class).subList(0, 3));
+    }
+
+    /**
+     * 生成数据
+     *
+     * @param firstId 第一条的id
+     * @param size    条数
+     * @return 数据
+     */
+    private static List<TestUser> users(long firstId, int size) {
+        List<TestUser> users = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            users.add(new TestUser(firstId + i, "u" + i, i));
+        }
+        return users;
+    }
+
+    /**
+     * 表中条数
+     *
+     * @return 条数
+     */
+    private static int count() {
+        return jdbcTemplate.queryForObject("select count(*) from test_user", Integer.class);
+    }
+
+}
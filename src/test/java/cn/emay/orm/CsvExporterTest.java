@@ -0,0 +1,206 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CSV/TSV流式导出测试
+ *
+ * @author Frank
+ */
+public class CsvExporterTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        jdbcTemplate = new H2Database("csv_exporter").getJdbcTemplate();
+        jdbcTemplate.execute("create table csv_row (id bigint primary key, amount int, user_name varchar(2000))");
+    }
+
+    @Test
+    public void csvQuotesDelimitersQuotesAndLineBreaks() {
+        String sql = "select id, user_name from (values "
+                + "(1, 'plain'), (2, 'a,b'), (3, 'say \"hi\"'), (4, 'line1' || char(10) || 'line2'), (5, 'cr' || char(13) || 'x'), (6, 'tab' || char(9) || 'x')"
+                + ") t(id, user_name) order by id";
+        CsvExporter exporter = CsvExporter.csv();
+        exporter.setHeader(false);
+        Assert.assertEquals("1,plain\r\n"
+                + "2,\"a,b\"\r\n"
+                + "3,\"say \"\"hi\"\"\"\r\n"
+                + "4,\"line1\nline2\"\r\n"
+                + "5,\"cr\rx\"\r\n"
+                + "6,tab\tx\r\n", export(exporter, sql));
+    }
+
+    @Test
+    public void tsvEscapesTabsLineBreaksAndBackslashes() {
+        String sql = "select id, user_name from (values "
+                + "(1, 'a' || char(9) || 'b'), (2, 'l1' || char(10) || 'l2' || char(13)), (3, 'c:\\dir'), (4, 'a,\"b\"')"
+                + ") t(id, user_name) order by id";
+        CsvExporter exporter = CsvExporter.tsv();
+        exporter.setHeader(false);
+        Assert.assertEquals("1\ta\\tb\n"
+                + "2\tl1\\nl2\\r\n"
+                + "3\tc:\\\\dir\n"
+                // TSV不加引号
+                + "4\ta,\"b\"\n", export(exporter, sql));
+    }
+
+    @Test
+    public void encodesSurrogatePairsAndReplacesLoneSurrogates() {
+        jdbcTemplate.update("delete from csv_row");
+        String pair = new String(Character.toChars(0x1F600));
+        jdbcTemplate.update("insert into csv_row (id, user_name) values (?, ?)", 1, "é中" + pair);
+        jdbcTemplate.update("insert into csv_row (id, user_name) values (?, ?)", 2, "a\uD800b");
+        jdbcTemplate.update("insert into csv_row (id, user_name) values (?, ?)", 3, "end\uD83D");
+        jdbcTemplate.update("insert into csv_row (id, user_name) values (?, ?)", 4, "\uDE00x");
+        CsvExporter exporter = CsvExporter.csv();
+        exporter.setHeader(false);
+        byte[] bytes = exportBytes(exporter, "select id, user_name from csv_row order by id");
+        Assert.assertEquals("1,é中" + pair + "\r\n2,a?b\r\n3,end?\r\n4,?x\r\n", new String(bytes, StandardCharsets.UTF_8));
+        // 代理对写成一个4字节码点，而不是两个3字节的代理
+        byte[] expected = ("1,é中" + pair).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], bytes[i]);
+        }
+        Assert.assertEquals(2 + 2 + 3 + 4, expected.length);
+    }
+
+    @Test
+    public void writesIntegersAndNulls() {
+        jdbcTemplate.update("delete from csv_row");
+        long[] ids = {-1, 0, 7, -1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE};
+        for (int i = 0; i < ids.length; i++) {
+            jdbcTemplate.update("insert into csv_row (id, amount, user_name) values (?, ?, ?)", ids[i], i % 2 == 0 ? null : -i * 1000, i % 3 == 0 ? null : "n" + i);
+        }
+        CsvExporter exporter = CsvExporter.csv();
+        exporter.setHeader(false);
+        exporter.setNullValue("\\N");
+        Assert.assertEquals("-9223372036854775808,\\N,n4\r\n"
+                + "-1234567890123,-3000,\\N\r\n"
+                + "-1,\\N,\\N\r\n"
+                + "0,-1000,n1\r\n"
+                + "7,\\N,n2\r\n"
+                + "9223372036854775807,-5000,n5\r\n", export(exporter, "select id, amount, user_name from csv_row order by id"));
+        exporter.setNullValue(null);
+        Assert.assertEquals("-1,,\r\n", export(exporter, "select id, amount, user_name from csv_row where id = -1"));
+    }
+
+    @Test
+    public void headersByPropertyUseUnderlineColumns() {
+        jdbcTemplate.update("delete from csv_row");
+        jdbcTemplate.update("insert into csv_row (id, amount, user_name) values (1, 5, 'u')");
+        Map<String, String> titles = new HashMap<>();
+        titles.put("userName", "用户名");
+        titles.put("amount", "金额,元");
+        CsvExporter exporter = CsvExporter.csv().headersByProperty(titles);
+        Assert.assertEquals("用户名", exporter.getHeaders().get("user_name"));
+        // 未配置的字段使用查询的字段名，表头同样按CSV规则加引号
+        Assert.assertEquals("ID,用户名,\"金额,元\"\r\n1,u,5\r\n", export(exporter, "select id, user_name, amount from csv_row"));
+
+        // setHeaders按数据库字段名配置，不区分大小写
+        exporter.setHeaders(Collections.singletonMap("ID", "编号"));
+        Assert.assertEquals("编号,USER_NAME\r\n1,u\r\n", export(exporter, "select id, user_name from csv_row"));
+        try {
+            exporter.headersByProperty(null);
+            Assert.fail();
+        } catch (NullPointerException e) {
+            Assert.assertEquals("titles is null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void flushesWhenRowExceedsBuffer() {
+        jdbcTemplate.update("delete from csv_row");
+        StringBuilder expected = new StringBuilder("ID\tAMOUNT\tUSER_NAME\n");
+        for (int i = 1; i <= 3; i++) {
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 100; j++) {
+                name.append(j % 3 == 0 ? "中" : j % 3 == 1 ? new String(Character.toChars(0x1F600)) : "\t");
+            }
+            long id = Long.MIN_VALUE + i;
+            jdbcTemplate.update("insert into csv_row (id, amount, user_name) values (?, ?, ?)", id, -i, name.toString());
+            expected.append(id).append('\t').append(-i).append('\t').append(name.toString().replace("\t", "\\t")).append('\n');
+        }
+        CsvExporter exporter = CsvExporter.tsv();
+        exporter.setBufferSize(64);
+        CountingChannel channel = new CountingChannel();
+        long rows = JdbcTemplateUtils.exportBySql(jdbcTemplate, channel, exporter, "select id, amount, user_name from csv_row where id < ? order by id", 0L);
+        Assert.assertEquals(3, rows);
+        byte[] bytes = channel.out.toByteArray();
+        Assert.assertEquals(expected.toString(), new String(bytes, StandardCharsets.UTF_8));
+        // 每行三百多字节，缓冲区64字节，一行内多次写入通道
+        Assert.assertTrue(String.valueOf(channel.writes), channel.writes >= bytes.length / 64);
+        try {
+            exporter.setBufferSize(63);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("bufferSize must be >= 64", e.getMessage());
+        }
+    }
+
+    /**
+     * 导出为字符串
+     *
+     * @param exporter 导出器
+     * @param sql      SQL
+     * @return 导出内容
+     */
+    private static String export(CsvExporter exporter, String sql) {
+        return new String(exportBytes(exporter, sql), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 导出为字节
+     *
+     * @param exporter 导出器
+     * @param sql      SQL
+     * @return 导出内容
+     */
+    private static byte[] exportBytes(CsvExporter exporter, String sql) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JdbcTemplateUtils.exportBySql(jdbcTemplate, out, exporter, sql);
+        return out.toByteArray();
+    }
+
+    /**
+     * 记录写入次数的通道
+     */
+    private static class CountingChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private final WritableByteChannel channel = Channels.newChannel(out);
+
+        private int writes;
+
+        @Override
+        public int write(ByteBuffer src) throws java.io.IOException {
+            writes++;
+            return channel.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 推导查询解析及推导查询接口测试
+ *
+ * @author Frank
+ */
+public class DerivedQueryTest {
+
+    private static TestItemDao dao;
+
+    @BeforeClass
+    public static void init() {
+        H2Database database = new H2Database("derived_query", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 10; i++) {
+                dao.save(new TestItem(i % 2 == 0 ? "ok" : "no", i % 3, "n" + i));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 解析用的实体，字段名以And/Or开头
+     */
+    public static class Order {
+
+        private static final String TYPE = "order";
+
+        private transient String display;
+
+        private String orderNo;
+
+        private Long originId;
+
+        private String androidVersion;
+
+        private String status;
+
+        private Integer amount;
+
+        public String getOrderNo() {
+            return orderNo;
+        }
+
+        public Long getOriginId() {
+            return originId;
+        }
+
+        public String getAndroidVersion() {
+            return androidVersion;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+    }
+
+    public interface OrderQueries {
+
+        List<Order> findByOrderNo(String orderNo);
+
+        List<Order> findByOriginId(Long originId);
+
+        List<Order> findByAndroidVersion(String androidVersion);
+
+        List<Order> findByStatusAndOrderNo(String status, String orderNo);
+
+        List<Order> findByOrderNoOrOriginIdOrderByOrderNoDesc(String orderNo, Long originId);
+
+        long countByAmountBetweenAndStatusIsNotNull(Integer low, Integer high);
+
+        boolean existsByStatusInAndAndroidVersionLike(Collection<String> status, String androidVersion);
+
+        List<Order> findByStatusOrderByAmountAscOrderNoDesc(String status);
+
+        List<Order> findByNope(String nope);
+
+        List<Order> findByStatus();
+
+        List<Order> findByType(String type);
+
+        List<Order> findByDisplay(String display);
+
+    }
+
+    public interface ItemFinder {
+
+        List<TestItem> findByStatusAndChannelIdOrderByIdDesc(String status, Integer channelId);
+
+        List<TestItem> findByChannelIdBetweenOrderByChannelIdAscIdDesc(Integer low, Integer high);
+
+        TestItem findByName(String name);
+
+        long countByStatus(String status);
+
+        boolean existsByNameLike(String name);
+
+        List<TestItem> findByChannelIdInOrStatusIsNull(Collection<Integer> channelIds);
+
+    }
+
+    public interface DefaultMethodFinder {
+
+        long countByStatus(String status);
+
+        default long countOk() {
+            return countByStatus("ok");
+        }
+
+    }
+
+    @Test
+    public void propertiesStartingWithConnector() {
+        Assert.assertEquals("from Order where orderNo = :p0", hql("findByOrderNo"));
+        Assert.assertEquals("from Order where originId = :p0", hql("findByOriginId"));
+        Assert.assertEquals("from Order where androidVersion = :p0", hql("findByAndroidVersion"));
+        Assert.assertEquals("from Order where status = :p0 and orderNo = :p1", hql("findByStatusAndOrderNo"));
+        Assert.assertEquals("from Order where orderNo = :p0 or originId = :p1 order by orderNo desc", hql("findByOrderNoOrOriginIdOrderByOrderNoDesc"));
+    }
+
+    @Test
+    public void operatorsAndOrder() {
+        Assert.assertEquals("select count(*) from Order where amount between :p0 and :p1 and status is not null", hql("countByAmountBetweenAndStatusIsNotNull"));
+        Assert.assertEquals("select id from Order where status in (:p0) and androidVersion like :p1", hql("existsByStatusInAndAndroidVersionLike"));
+        Assert.assertEquals("from Order where status = :p0 order by amount asc, orderNo desc", hql("findByStatusOrderByAmountAscOrderNoDesc"));
+    }
+
+    @Test
+    public void invalidMethods() {
+        // 静态字段和transient字段不是持久化属性
+        for (String name : new String[]{"findByNope", "findByStatus", "findByType", "findByDisplay"}) {
+            try {
+                hql(name);
+                Assert.fail(name);
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage().contains(name));
+            }
+        }
+    }
+
+    @Test
+    public void finder() {
+        ItemFinder finder = dao.getFinder(ItemFinder.class);
+        Assert.assertSame(finder, dao.getFinder(ItemFinder.class));
+        List<TestItem> items = finder.findByStatusAndChannelIdOrderByIdDesc("ok", 0);
+        Assert.assertEquals(2, items.size());
+        Assert.assertTrue(items.get(0).getId() > items.get(1).getId());
+        Assert.assertEquals(7, finder.findByChannelIdBetweenOrderByChannelIdAscIdDesc(0, 1).size());
+        Assert.assertEquals("n3", finder.findByName("n3").getName());
+        Assert.assertEquals(5, finder.countByStatus("ok"));
+        Assert.assertTrue(finder.existsByNameLike("n%"));
+        Assert.assertFalse(finder.existsByNameLike("x%"));
+        Assert.assertEquals(3, finder.findByChannelIdInOrStatusIsNull(Arrays.asList(2)).size());
+    }
+
+    @Test
+    public void defaultMethodRejected() {
+        try {
+            dao.getFinder(DefaultMethodFinder.class);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("countOk"));
+        }
+    }
+
+    /**
+     * 编译OrderQueries中的方法
+     *
+     * @param methodName 方法名
+     * @return hql
+     */
+    private static String hql(String methodName) {
+        for (Method method : OrderQueries.class.getMethods()) {
+            if (method.getName().equals(methodName)) {
+                return DerivedQuery.compile(method, Order.class).getHql().trim();
+            }
+        }
+        throw new IllegalArgumentException(methodName);
+    }
+
+}
@@ -0,0 +1,240 @@
+package cn.emay.orm;
+
+import org.h2.tools.SimpleResultSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * 低基数字符串字段字典编码测试<br/>
+ * 驱动可能缓存字符串实例，相等的值是否为同一实例用每个值都新建String的结果集验证
+ *
+ * @author Frank
+ */
+public class DictionaryRowMapperTest {
+
+    @Test
+    public void namedColumnsShareInstances() throws SQLException {
+        DictionaryRowMapper<DictRow> mapper = JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, null, "status", "channelName");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("status", "channelName")), mapper.getLowCardinalityProperties());
+        List<DictRow> rows = map(mapper, 100, i -> new String[]{i % 2 == 0 ? "ok" : "fail", "c" + i % 3, "r" + i % 5});
+        Assert.assertEquals(100, rows.size());
+        for (int i = 2; i < rows.size(); i++) {
+            DictRow row = rows.get(i);
+            DictRow previous = rows.get(i - 2);
+            Assert.assertSame(previous.getStatus(), row.getStatus());
+            // 未指定的字段不经过字典
+            if (i >= 5) {
+                Assert.assertEquals(rows.get(i - 5).getRemark(), row.getRemark());
+                Assert.assertNotSame(rows.get(i - 5).getRemark(), row.getRemark());
+            }
+        }
+        Assert.assertSame(rows.get(0).getChannelName(), rows.get(99).getChannelName());
+        Assert.assertEquals(2 + 3, mapper.getDictionary().getSize());
+        Assert.assertEquals(200 - 5, mapper.getDictionary().getHits());
+
+        try {
+            JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, null, "no_such");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(DictRow.class.getName() + " has no writable property for column no_such", e.getMessage());
+        }
+        try {
+            JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, null, "id");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(DictRow.class.getName() + ".id is not a String", e.getMessage());
+        }
+    }
+
+    @Test
+    public void samplingSortsColumnsByCardinality() throws SQLException {
+        DictionaryRowMapper<DictRow> mapper = JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, null);
+        int rowCount = DictionaryRowMapper.DEFAULT_SAMPLE_ROWS * 2;
+        int maxDistinct = (int) (DictionaryRowMapper.DEFAULT_SAMPLE_ROWS * DictionaryRowMapper.DEFAULT_MAX_DISTINCT_RATIO);
+        // status 3个值，channelName 恰好达到上限，remark 每条不同
+        List<DictRow> rows = map(mapper, rowCount, i -> new String[]{"s" + i % 3, "c" + i % maxDistinct, "r" + i});
+        Assert.assertEquals(new HashSet<>(Arrays.asList("status", "channelName")), mapper.getLowCardinalityProperties());
+        // 抽样期间及抽样之后相等的值是同一实例
+        for (int i = 3; i < rowCount; i++) {
+            Assert.assertSame(rows.get(i % 3).getStatus(), rows.get(i).getStatus());
+        }
+        Assert.assertSame(rows.get(1).getChannelName(), rows.get(1 + maxDistinct * 15).getChannelName());
+        // 高基数字段不进入字典
+        Assert.assertEquals(3 + maxDistinct, mapper.getDictionary().getSize());
+
+        // 多一个不同值即为高基数字段
+        mapper = JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, null);
+        rows = map(mapper, rowCount, i -> new String[]{"s" + i % 3, "c" + i % (maxDistinct + 1), "r" + i % 2});
+        Assert.assertEquals(new HashSet<>(Arrays.asList("status", "remark")), mapper.getLowCardinalityProperties());
+        Assert.assertNotSame(rows.get(0).getChannelName(), rows.get(maxDistinct + 1).getChannelName());
+
+        // 抽样未完成时不确定低基数字段，也不写入字典
+        mapper = new DictionaryRowMapper<>(DictRow.class, null, 10, 0.3);
+        rows = map(mapper, 9, i -> new String[]{"s" + i % 3, "c" + i, "r"});
+        Assert.assertTrue(mapper.getLowCardinalityProperties().isEmpty());
+        Assert.assertEquals(0, mapper.getDictionary().getSize());
+        Assert.assertSame(rows.get(0).getStatus(), rows.get(6).getStatus());
+    }
+
+    @Test
+    public void highCardinalityNeverReachesSharedDictionary() {
+        JdbcTemplate jdbcTemplate = new H2Database("dictionary_shared").getJdbcTemplate();
+        jdbcTemplate.execute("create table dict_row (id bigint primary key, status varchar(20), channel_name varchar(20), remark varchar(50))");
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            args.add(new Object[]{i, "shared_s" + i % 4, "shared_c" + i % 2, "shared_r" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into dict_row (id, status, channel_name, remark) values (?, ?, ?, ?)", args);
+        StringDictionary shared = StringDictionary.shared();
+        int before = shared.getSize();
+        DictionaryRowMapper<DictRow> mapper = new DictionaryRowMapper<>(DictRow.class, shared, 100, 0.1);
+        List<DictRow> rows = JdbcTemplateUtils.findObjectListByMapper(jdbcTemplate, mapper, "select * from dict_row order by id");
+        Assert.assertEquals(300, rows.size());
+        Assert.assertSame(shared, mapper.getDictionary());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("status", "channelName")), mapper.getLowCardinalityProperties());
+        Assert.assertEquals(before + 4 + 2, shared.getSize());
+        Assert.assertSame(shared.intern(new String("shared_s1")), rows.get(297).getStatus());
+        // 另一次查询复用共享字典中的实例
+        DictRow other = JdbcTemplateUtils.findObjectListByMapper(jdbcTemplate, JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, shared, "status"), "select * from dict_row where id = 1").get(0);
+        Assert.assertSame(rows.get(1).getStatus(), other.getStatus());
+    }
+
+    @Test
+    public void overflowAndMaxLengthLimits() throws SQLException {
+        StringDictionary dictionary = new StringDictionary(2, 5);
+        String a = new String("a");
+        Assert.assertSame(a, dictionary.intern(a));
+        Assert.assertSame(a, dictionary.intern(new String("a")));
+        dictionary.intern("b");
+        // 字典已满，新值原样返回
+        String c = new String("c");
+        Assert.assertSame(c, dictionary.intern(c));
+        Assert.assertNotSame(c, dictionary.intern(new String("c")));
+        Assert.assertEquals(2, dictionary.getOverflows());
+        // 超过最大长度的值不收录，也不计入溢出
+        String longValue = new String("abcdef");
+        Assert.assertSame(longValue, dictionary.intern(longValue));
+        Assert.assertNotSame(longValue, dictionary.intern(new String("abcdef")));
+        Assert.assertNull(dictionary.intern(null));
+        Assert.assertEquals(2, dictionary.getSize());
+        Assert.assertEquals(1, dictionary.getHits());
+        Assert.assertEquals(2, dictionary.getOverflows());
+        Assert.assertEquals("StringDictionary[size=2/2, hits=1, overflows=2]", dictionary.toString());
+
+        // RowMapper使用满了的字典：已收录的值共享，其余原样返回
+        DictionaryRowMapper<DictRow> mapper = JdbcTemplateUtils.getDictionaryRowMapper(DictRow.class, dictionary, "status", "remark");
+        List<DictRow> rows = map(mapper, 4, i -> new String[]{i % 2 == 0 ? "a" : "x", "c", "abcdef"});
+        Assert.assertSame(a, rows.get(0).getStatus());
+        Assert.assertSame(a, rows.get(2).getStatus());
+        Assert.assertNotSame(rows.get(1).getStatus(), rows.get(3).getStatus());
+        Assert.assertNotSame(rows.get(0).getRemark(), rows.get(1).getRemark());
+
+        try {
+            new StringDictionary(0, 5);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("maxSize must be positive", e.getMessage());
+        }
+        try {
+            new StringDictionary(5, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("maxLength must be positive", e.getMessage());
+        }
+    }
+
+    /**
+     * 以每个值都新建String的结果集执行RowMapper
+     *
+     * @param rowMapper RowMapper
+     * @param rowCount  条数
+     * @param values    第i条的 status、channel_name、remark
+     * @return 数据
+     * @throws SQLException 异常
+     */
+    private static List<DictRow> map(RowMapper<DictRow> rowMapper, int rowCount, RowValues values) throws SQLException {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("id", Types.BIGINT, 19, 0);
+        rs.addColumn("status", Types.VARCHAR, 20, 0);
+        rs.addColumn("channel_name", Types.VARCHAR, 20, 0);
+        rs.addColumn("remark", Types.VARCHAR, 50, 0);
+        for (int i = 0; i < rowCount; i++) {
+            String[] row = values.of(i);
+            rs.addRow((long) i, new String(row[0]), new String(row[1]), new String(row[2]));
+        }
+        return new RowMapperResultSetExtractor<>(rowMapper).extractData(rs);
+    }
+
+    /**
+     * 生成一条数据的字符串字段
+     */
+    private interface RowValues {
+
+        /**
+         * 第i条数据
+         *
+         * @param i 序号
+         * @return status、channel_name、remark
+         */
+        String[] of(int i);
+
+    }
+
+    /**
+     * 字典编码的数据
+     */
+    public static class DictRow {
+
+        private Long id;
+
+        private String status;
+
+        private String channelName;
+
+        private String remark;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getChannelName() {
+            return channelName;
+        }
+
+        public void setChannelName(String channelName) {
+            this.channelName = channelName;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package cn.emay.orm;
+
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.hibernate5.HibernateTemplate;
+import org.springframework.orm.hibernate5.HibernateTransactionManager;
+import org.springframework.orm.hibernate5.LocalSessionFactoryBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Properties;
+
+/**
+ * 测试用H2内存数据库（MySQL模式）<br/>
+ * 每个名称对应一个独立的库，传入实体类时同时创建Hibernate SessionFactory并建表
+ *
+ * @author Frank
+ */
+public class H2Database {
+
+    private final DriverManagerDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SessionFactory sessionFactory;
+
+    private final HibernateTemplate hibernateTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @param name     库名
+     * @param entities 实体类
+     */
+    public H2Database(String name, Class<?>... entities) {
+        this.dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        if (entities.length == 0) {
+            this.sessionFactory = null;
+            this.hibernateTemplate = null;
+            this.transactionTemplate = null;
+            return;
+        }
+        LocalSessionFactoryBuilder builder = new LocalSessionFactoryBuilder(dataSource);
+        builder.addAnnotatedClasses(entities);
+        Properties properties = new Properties();
+        properties.put("hibernate.hbm2ddl.auto", "create");
+        properties.put("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.put("hibernate.cache.use_second_level_cache", "true");
+        properties.put("hibernate.cache.use_query_cache", "true");
+        properties.put("hibernate.cache.region.factory_class", LocalRegionFactory.class.getName());
+        properties.put("hibernate.generate_statistics", "true");
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.session_factory.statement_inspector", StatementCounter.Inspector.class.getName());
+        builder.addProperties(properties);
+        this.sessionFactory = builder.buildSessionFactory();
+        this.hibernateTemplate = new HibernateTemplate(sessionFactory);
+        this.transactionTemplate = new TransactionTemplate(new HibernateTransactionManager(sessionFactory));
+    }
+
+    public DriverManagerDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    public HibernateTemplate getHibernateTemplate() {
+        return hibernateTemplate;
+    }
+
+    public TransactionTemplate getTransactionTemplate() {
+        return transactionTemplate;
+    }
+
+}
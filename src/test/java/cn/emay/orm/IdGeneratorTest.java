@@ -0,0 +1,227 @@
+package cn.emay.orm;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端ID生成器测试
+ *
+ * @author Frank
+ */
+public class IdGeneratorTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void snowflakeUniqueUnderContention() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(thread -> {
+            long last = 0;
+            for (int i = 0; i < 20000; i++) {
+                long id = generator.nextId();
+                // 同一线程内递增
+                Assert.assertTrue(id > last);
+                last = id;
+                ids.add(id);
+            }
+        });
+        Assert.assertEquals(THREADS * 20000, ids.size());
+        Assert.assertEquals(7, generator.getWorkerId());
+        Assert.assertTrue(Math.abs(generator.getTimeMillis(generator.nextId()) - System.currentTimeMillis()) < 1000);
+    }
+
+    @Test
+    public void hiLoUniqueUnderContention() throws Exception {
+        JdbcTemplate jdbcTemplate = new H2Database("hilo_contention").getJdbcTemplate();
+        jdbcTemplate.execute("create table id_sequence (name varchar(64) primary key, next_val bigint not null)");
+        // 多个生成器共用序列，号段很小，并发取号段
+        HiLoIdGenerator[] generators = new HiLoIdGenerator[4];
+        for (int i = 0; i < generators.length; i++) {
+            generators[i] = new HiLoIdGenerator(jdbcTemplate, "id_sequence", "user", 10);
+        }
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        runConcurrently(thread -> {
+            HiLoIdGenerator generator = generators[thread % generators.length];
+            for (int i = 0; i < 500; i++) {
+                long[] block = i % 5 == 0 ? generator.nextIds(7) : new long[]{generator.nextId()};
+                for (long id : block) {
+                    if (!ids.add(id)) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+            }
+        });
+        Assert.assertEquals(0, duplicates.get());
+        Assert.assertEquals(THREADS * (400 + 100 * 7), ids.size());
+        Assert.assertTrue(ids.contains(1L));
+    }
+
+    @Test
+    public void assignIdsKeepsExistingIds() {
+        CountingIdGenerator generator = new CountingIdGenerator();
+        List<TestUser> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(new TestUser(i == 2 ? 999L : null, "u" + i, i));
+        }
+        Assert.assertEquals(4, JdbcTemplateUtils.assignIds(users, generator));
+        Assert.assertEquals(Long.valueOf(999L), users.get(2).getId());
+        Assert.assertEquals(4, generator.count.get());
+    }
+
+    @Test
+    public void iteratorAssignsOnlyAbsentIds() {
+        CountingIdGenerator generator = new CountingIdGenerator();
+        List<TestUser> users = Arrays.asList(new TestUser(null, "a", 1), new TestUser(5L, "b", 2), new TestUser(null, "c", 3));
+        Iterator<TestUser> iterator = JdbcTemplateUtils.assignIds(users.iterator(), generator);
+        while (iterator.hasNext()) {
+            Assert.assertNotNull(iterator.next().getId());
+        }
+        Assert.assertEquals(Long.valueOf(5L), users.get(1).getId());
+        // 已有id的数据不消耗生成器的id
+        Assert.assertEquals(2, generator.count.get());
+        Assert.assertEquals(Long.valueOf(1L), users.get(0).getId());
+        Assert.assertEquals(Long.valueOf(2L), users.get(2).getId());
+    }
+
+    @Test
+    public void hibernatePrimitiveIdGenerated() {
+        HibernateIdGenerator.register("primitive", new CountingIdGenerator());
+        try {
+            H2Database database = new H2Database("hibernate_primitive_id", PrimitiveIdItem.class);
+            PrimitiveIdItem generated = new PrimitiveIdItem("generated");
+            PrimitiveIdItem assigned = new PrimitiveIdItem("assigned");
+            assigned.setId(100L);
+            database.getTransactionTemplate().execute(status -> {
+                database.getHibernateTemplate().save(generated);
+                database.getHibernateTemplate().save(assigned);
+                return null;
+            });
+            Assert.assertEquals(1L, generated.getId());
+            Assert.assertEquals(100L, assigned.getId());
+            Assert.assertEquals("generated", database.getJdbcTemplate().queryForObject("select name from primitive_id_item where id = 1", String.class));
+        } finally {
+            HibernateIdGenerator.unregister("primitive");
+        }
+    }
+
+    /**
+     * 在多个线程中同时执行
+     *
+     * @param task 任务，参数为线程序号
+     * @throws Exception 异常
+     */
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 线程任务
+     */
+    private interface ThreadTask {
+
+        /**
+         * 执行
+         *
+         * @param thread 线程序号
+         */
+        void run(int thread);
+
+    }
+
+    /**
+     * 从1开始递增并统计生成次数的生成器
+     */
+    private static class CountingIdGenerator implements IdGenerator {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public long nextId() {
+            return count.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 基本类型id的实体
+     */
+    @Entity
+    @Table(name = "primitive_id_item")
+    public static class PrimitiveIdItem implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Id
+        @GeneratedValue(generator = "primitiveId")
+        @GenericGenerator(name = "primitiveId", strategy = "cn.emay.orm.HibernateIdGenerator", parameters = @Parameter(name = HibernateIdGenerator.GENERATOR_PARAMETER, value = "primitive"))
+        private long id;
+
+        private String name;
+
+        public PrimitiveIdItem() {
+
+        }
+
+        public PrimitiveIdItem(String name) {
+            this.name = name;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+    }
+
+}
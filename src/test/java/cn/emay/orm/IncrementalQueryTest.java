@@ -0,0 +1,237 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestName;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 按水位增量读取测试
+ *
+ * @author Frank
+ */
+public class IncrementalQueryTest {
+
+    private static final Timestamp T1 = Timestamp.valueOf("2026-01-01 00:00:00");
+
+    private static final Timestamp T2 = Timestamp.valueOf("2026-01-01 00:00:01");
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void init() {
+        jdbcTemplate = new H2Database("incremental_" + testName.getMethodName()).getJdbcTemplate();
+        jdbcTemplate.execute("create table ev (id bigint primary key, update_time timestamp(9), v varchar(10))");
+    }
+
+    @Test
+    public void splitsSameTimeAcrossBatches() {
+        for (int i = 1; i <= 50; i++) {
+            insert(i, i <= 30 ? T1 : T2, i % 2 == 0 ? "a" : "b");
+        }
+        // 没有时间的数据不读取
+        insert(999, null, "a");
+        IncrementalQuery query = new IncrementalQuery("ev", "ev", "update_time", "id");
+        query.setBatchSize(7);
+        List<Long> seen = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        long total = JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> {
+            sizes.add(batch.size());
+            seen.addAll(ids(batch));
+        });
+        Assert.assertEquals(50, total);
+        Assert.assertEquals(Arrays.asList(7, 7, 7, 7, 7, 7, 7, 1), sizes);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(i + 1L, (long) seen.get(i));
+        }
+        Assert.assertEquals(new Watermark(T2, 50), query.getWatermark());
+        Assert.assertEquals(0, JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> Assert.fail()));
+
+        // 同一时间更大的id，以及更新了时间的旧数据
+        insert(60, T2, "a");
+        jdbcTemplate.update("update ev set update_time = ?, v = 'c' where id = 3", Timestamp.valueOf("2026-01-01 00:00:02"));
+        seen.clear();
+        JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> seen.addAll(ids(batch)));
+        Assert.assertEquals(Arrays.asList(60L, 3L), seen);
+
+        query.reset();
+        Assert.assertNull(query.getWatermark());
+        Assert.assertEquals(51, JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> {
+        }));
+    }
+
+    @Test
+    public void resumesWithFailedBatchOnly() {
+        for (int i = 1; i <= 35; i++) {
+            insert(i, T1, "a");
+        }
+        IncrementalQuery query = new IncrementalQuery("ev", "ev", "update_time", "id");
+        query.setBatchSize(10);
+        List<List<Long>> delivered = new ArrayList<>();
+        try {
+            JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> {
+                delivered.add(ids(batch));
+                if (delivered.size() == 3) {
+                    throw new IllegalStateException("consumer failed");
+                }
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("consumer failed", e.getMessage());
+        }
+        // 失败的一批不保存水位
+        Assert.assertEquals(new Watermark(T1, 20), query.getWatermark());
+        long total = JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> delivered.add(ids(batch)));
+        Assert.assertEquals(15, total);
+        Assert.assertEquals(5, delivered.size());
+        Assert.assertEquals(Arrays.asList(1L, 10L), Arrays.asList(delivered.get(0).get(0), delivered.get(0).get(9)));
+        Assert.assertEquals(Arrays.asList(11L, 20L), Arrays.asList(delivered.get(1).get(0), delivered.get(1).get(9)));
+        // 只有失败的一批重新交给处理方
+        Assert.assertEquals(delivered.get(2), delivered.get(3));
+        Assert.assertEquals(Arrays.asList(31L, 32L, 33L, 34L, 35L), delivered.get(4));
+        Assert.assertEquals(new Watermark(T1, 35), query.getWatermark());
+    }
+
+    @Test
+    public void lagBoundsRecentRows() {
+        long now = System.currentTimeMillis();
+        insert(1, new Timestamp(now - 600000L), "a");
+        insert(2, new Timestamp(now - 600000L), "b");
+        insert(3, new Timestamp(now - 10000L), "a");
+        insert(4, new Timestamp(now + 3600000L), "a");
+        IncrementalQuery query = new IncrementalQuery("lag", "ev", "update_time", "id");
+        query.setCondition("v = ?");
+        query.setLagMillis(60000L);
+        List<Long> seen = new ArrayList<>();
+        JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> seen.addAll(ids(batch)), "a");
+        // 一分钟内的数据可能还有未提交的事务，留到下次读取
+        Assert.assertEquals(Arrays.asList(1L), seen);
+        query.setLagMillis(0);
+        JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> seen.addAll(ids(batch)), "a");
+        Assert.assertEquals(Arrays.asList(1L, 3L, 4L), seen);
+    }
+
+    @Test
+    public void fileStoreKeepsNanos() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sub/watermark.properties");
+        Timestamp time = Timestamp.valueOf("2026-01-01 00:00:00.123456789");
+        FileWatermarkStore store = new FileWatermarkStore(file);
+        Assert.assertNull(store.load("ev"));
+        store.save("ev", new Watermark(time, 7));
+        store.save("other", new Watermark(T1, 1));
+        Watermark loaded = new FileWatermarkStore(file).load("ev");
+        Assert.assertEquals(new Watermark(time, 7), loaded);
+        Assert.assertEquals(123456789, loaded.getTime().getNanos());
+        store.remove("other");
+        Assert.assertNull(new FileWatermarkStore(file).load("other"));
+        // 临时文件已替换为正式文件
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            Assert.assertEquals(1, files.count());
+        }
+
+        // 同一秒内只有纳秒不同的数据，每次从文件恢复水位都不重复也不遗漏
+        insert(3, Timestamp.valueOf("2026-01-01 00:00:00.100000001"), "a");
+        insert(2, Timestamp.valueOf("2026-01-01 00:00:00.100000002"), "a");
+        insert(1, Timestamp.valueOf("2026-01-01 00:00:00.100000003"), "a");
+        List<Long> seen = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            IncrementalQuery query = new IncrementalQuery("nanos", "ev", "update_time", "id");
+            query.setBatchSize(1);
+            query.setStore(new FileWatermarkStore(file));
+            List<Long> run = new ArrayList<>();
+            try {
+                JdbcTemplateUtils.pollChanges(jdbcTemplate, query, Ev.class, batch -> {
+                    if (!run.isEmpty()) {
+                        throw new IllegalStateException("stop");
+                    }
+                    run.addAll(ids(batch));
+                });
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("stop", e.getMessage());
+            }
+            seen.addAll(run);
+        }
+        Assert.assertEquals(Arrays.asList(3L, 2L, 1L), seen);
+        Assert.assertEquals(100000003, new FileWatermarkStore(file).load("nanos").getTime().getNanos());
+    }
+
+    /**
+     * 插入一条数据
+     *
+     * @param id   id
+     * @param time 更新时间
+     * @param v    值
+     */
+    private void insert(long id, Timestamp time, String v) {
+        jdbcTemplate.update("insert into ev (id, update_time, v) values (?, ?, ?)", id, time, v);
+    }
+
+    /**
+     * 数据的id
+     *
+     * @param batch 数据
+     * @return id
+     */
+    private static List<Long> ids(List<Ev> batch) {
+        List<Long> ids = new ArrayList<>();
+        for (Ev ev : batch) {
+            ids.add(ev.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * 增量读取的数据
+     */
+    public static class Ev {
+
+        private Long id;
+
+        private Timestamp updateTime;
+
+        private String v;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public Timestamp getUpdateTime() {
+            return updateTime;
+        }
+
+        public void setUpdateTime(Timestamp updateTime) {
+            this.updateTime = updateTime;
+        }
+
+        public String getV() {
+            return v;
+        }
+
+        public void setV(String v) {
+            this.v = v;
+        }
+
+    }
+
+}
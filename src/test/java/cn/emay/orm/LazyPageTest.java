@@ -0,0 +1,128 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LazyPage测试
+ *
+ * @author Frank
+ */
+public class LazyPageTest {
+
+    private static H2Database database;
+
+    private static TestItemDao dao;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("lazy_page", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 25; i++) {
+                dao.save(new TestItem("s", i, "n" + i));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void countOnFirstAccess() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyPage<String> page = new LazyPage<>(Collections.singletonList("a"), 20, 10, () -> {
+            loads.incrementAndGet();
+            return 25;
+        });
+        Assert.assertFalse(page.isTotalLoaded());
+        Assert.assertEquals(3, page.getCurrentPageNum());
+        Assert.assertEquals(0, loads.get());
+        Assert.assertEquals(25, page.getTotalCount());
+        Assert.assertEquals(3, page.getTotalPage());
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void setTotalPageSkipsCount() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyPage<String> page = new LazyPage<>(Collections.singletonList("a"), 0, 10, () -> {
+            loads.incrementAndGet();
+            return 25;
+        });
+        page.setTotalPage(9);
+        Assert.assertTrue(page.isTotalLoaded());
+        Assert.assertEquals(9, page.getTotalPage());
+        Assert.assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void normalizeStartAndLimit() {
+        LazyPage<String> page = new LazyPage<>(Collections.emptyList(), -5, 0, () -> 41);
+        Assert.assertEquals(0, page.getStart());
+        Assert.assertEquals(LazyPage.DEFAULT_LIMIT, page.getLimit());
+        Assert.assertEquals(1, page.getCurrentPageNum());
+        Assert.assertEquals(3, page.getTotalPage());
+    }
+
+    @Test
+    public void serializeLoadsTotal() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        LazyPage<String> page = new LazyPage<>(Collections.singletonList("a"), 0, 10, () -> {
+            loads.incrementAndGet();
+            return 7;
+        });
+        LazyPage<String> copy = copy(page);
+        Assert.assertEquals(1, loads.get());
+        Assert.assertTrue(copy.isTotalLoaded());
+        Assert.assertEquals(7, copy.getTotalCount());
+        Assert.assertEquals(1, copy.getTotalPage());
+    }
+
+    @Test
+    public void hqlAndSqlPages() {
+        LazyPage<TestItem> hqlPage = dao.getLazyPageResult("from TestItem order by id", 10, 10, null, TestItem.class);
+        Assert.assertEquals(10, hqlPage.getList().size());
+        Assert.assertFalse(hqlPage.isTotalLoaded());
+        Assert.assertEquals(25, hqlPage.getTotalCount());
+        LazyPage<TestItem> sqlPage = dao.findObjectLazyPageByClassInMysql(TestItem.class, "select * from test_item where status = ? order by id", 20, 10, "s");
+        Assert.assertEquals(5, sqlPage.getList().size());
+        Assert.assertEquals(3, sqlPage.getTotalPage());
+    }
+
+    @Test
+    public void deferredCountUsesReportCompartment() {
+        Bulkhead bulkhead = new Bulkhead();
+        bulkhead.define(Bulkhead.REPORT, 1, 0, 0L, 0);
+        dao.setBulkhead(bulkhead);
+        try {
+            LazyPage<TestItem> page = dao.findObjectLazyPageByClassInMysql(TestItem.class, "select * from test_item order by id", 0, 10);
+            Assert.assertEquals(1, bulkhead.getCompartment(Bulkhead.REPORT).getAdmitted());
+            Assert.assertEquals(25, page.getTotalCount());
+            Assert.assertEquals(2, bulkhead.getCompartment(Bulkhead.REPORT).getAdmitted());
+        } finally {
+            dao.setBulkhead(null);
+        }
+    }
+
+    /**
+     * 序列化后反序列化
+     *
+     * @param page 分页
+     * @return 副本
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> LazyPage<T> copy(LazyPage<T> page) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(page);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (LazyPage<T>) in.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package cn.emay.orm;
+
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LocalRegionFactory及查询缓存测试
+ *
+ * @author Frank
+ */
+public class LocalRegionFactoryTest {
+
+    private static H2Database database;
+
+    private static TestItemDao dao;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("local_region", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 5; i++) {
+                dao.save(new TestItem("ok", i, "n" + i));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void cacheableQueryHitsRegion() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("status", "ok");
+        Statistics statistics = database.getSessionFactory().getStatistics();
+        statistics.clear();
+        Assert.assertEquals(5, dao.findListByProperties(properties, QueryOptions.cacheable("ref")).size());
+        Assert.assertEquals(1, statistics.getQueryExecutionCount());
+        Assert.assertEquals(0, statistics.getQueryCacheHitCount());
+        Assert.assertEquals(1, statistics.getQueryCachePutCount());
+        LocalRegionFactory regionFactory = (LocalRegionFactory) database.getSessionFactory().getSessionFactoryOptions().getServiceRegistry()
+                .getService(RegionFactory.class);
+        Assert.assertEquals(1, regionFactory.getRegionSize("ref"));
+        Assert.assertEquals(5, dao.findListByProperties(properties, QueryOptions.cacheable("ref")).size());
+        Assert.assertEquals(1, statistics.getQueryExecutionCount());
+        Assert.assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void uncachedQueryDoesNotUseRegion() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("status", "ok");
+        Statistics statistics = database.getSessionFactory().getStatistics();
+        statistics.clear();
+        dao.findListByProperties(properties);
+        dao.findListByProperties(properties);
+        Assert.assertEquals(2, statistics.getQueryExecutionCount());
+        Assert.assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+}
@@ -0,0 +1,151 @@
+package cn.emay.orm;
+
+import org.hibernate.SessionFactory;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTemplate;
+
+import java.util.List;
+
+/**
+ * 启动预热及表结构校验测试
+ *
+ * @author Frank
+ */
+public class MetadataWarmUpTest {
+
+    private static H2Database database;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("warm_up", TestItem.class);
+        jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        // 缺少score字段
+        jdbcTemplate.execute("create table warm_user (id bigint primary key, user_name varchar(50), age int, enabled boolean, create_time timestamp)");
+        // 其他schema中的同名表有extra字段，当前schema中没有
+        jdbcTemplate.execute("create table schema_user (id bigint primary key)");
+        jdbcTemplate.execute("create schema other");
+        jdbcTemplate.execute("create table other.schema_user (id bigint primary key, extra varchar(10))");
+    }
+
+    @Test
+    public void validClassesAndDaos() {
+        MetadataWarmUp.Report report = new MetadataWarmUp(jdbcTemplate)
+                .addDao(new TestItemDao(database))
+                .addClass(TestUser.class, "test_user")
+                .addClass(TestUser.class)
+                .run();
+        Assert.assertTrue(report.getProblems().toString(), report.isValid());
+        Assert.assertEquals(1, report.getDaoCount());
+        Assert.assertEquals(1, report.getClassCount());
+    }
+
+    @Test
+    public void missingColumnFails() {
+        try {
+            new MetadataWarmUp(jdbcTemplate).addClass(TestUser.class, "warm_user").run();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("column warm_user.score not found for property score"));
+        }
+    }
+
+    @Test
+    public void problemsReportedWithoutFailing() {
+        MetadataWarmUp warmUp = new MetadataWarmUp(jdbcTemplate).addClass(TestUser.class, "no_such_table").addClass(TestUser.class, "warm_user");
+        warmUp.setFailOnError(false);
+        MetadataWarmUp.Report report = warmUp.run();
+        Assert.assertFalse(report.isValid());
+        List<String> problems = report.getProblems();
+        Assert.assertEquals(problems.toString(), 1, problems.size());
+        // 同一个类只保留最后添加的表
+        Assert.assertTrue(problems.get(0), problems.get(0).contains("warm_user.score"));
+
+        warmUp = new MetadataWarmUp(jdbcTemplate).addClass(TestUser.class, "no_such_table");
+        warmUp.setFailOnError(false);
+        problems = warmUp.run().getProblems();
+        Assert.assertEquals(1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).endsWith("table no_such_table not found"));
+    }
+
+    @Test
+    public void otherSchemaNotMerged() {
+        MetadataWarmUp warmUp = new MetadataWarmUp(jdbcTemplate).addClass(SchemaUser.class, "schema_user");
+        warmUp.setFailOnError(false);
+        List<String> problems = warmUp.run().getProblems();
+        Assert.assertEquals(problems.toString(), 1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).contains("schema_user.extra not found"));
+    }
+
+    @Test
+    public void daoWithBadHqlFails() {
+        BadHqlDao dao = new BadHqlDao();
+        MetadataWarmUp warmUp = new MetadataWarmUp(jdbcTemplate).addDao(dao);
+        warmUp.setFailOnError(false);
+        List<String> problems = warmUp.run().getProblems();
+        Assert.assertEquals(1, problems.size());
+        Assert.assertTrue(problems.get(0), problems.get(0).startsWith(BadHqlDao.class.getName() + ": "));
+        Assert.assertTrue(problems.get(0), problems.get(0).contains("NoSuchEntity"));
+    }
+
+    /**
+     * 预热时编译错误hql的DAO
+     */
+    public static class BadHqlDao extends AbstractDaoSupport {
+
+        @Override
+        protected JdbcTemplate getJdbcTemplate() {
+            return database.getJdbcTemplate();
+        }
+
+        @Override
+        protected HibernateTemplate getHibernateTemplate() {
+            return database.getHibernateTemplate();
+        }
+
+        @Override
+        protected SessionFactory getSessionFactory() {
+            return database.getSessionFactory();
+        }
+
+        @Override
+        public void warmUp() {
+            super.warmUp();
+            warmUpHql("from TestItem", "from NoSuchEntity");
+        }
+
+    }
+
+    /**
+     * 字段只存在于其他schema同名表中的类
+     */
+    public static class SchemaUser {
+
+        private Long id;
+
+        private String extra;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getExtra() {
+            return extra;
+        }
+
+        public void setExtra(String extra) {
+            this.extra = extra;
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 主键区间并行扫描测试
+ *
+ * @author Frank
+ */
+public class ParallelScanTest {
+
+    private static final int ROWS = 2537;
+
+    private static TestItemDao dao;
+
+    private static List<Long> ids;
+
+    @BeforeClass
+    public static void init() {
+        H2Database database = new H2Database("parallel_scan", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                dao.save(new TestItem("ok", i, "n" + i));
+            }
+            return null;
+        });
+        ids = database.getJdbcTemplate().queryForList("select id from test_item order by id", Long.class);
+    }
+
+    @Test
+    public void scanAll() {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        MemoryScanCheckpoint checkpoint = new MemoryScanCheckpoint();
+        Assert.assertEquals(ROWS, dao.parallelScan(4, 0, checkpoint, item -> seen.add(item.getId())));
+        Assert.assertEquals(ROWS, seen.size());
+        Assert.assertEquals(16, checkpoint.getCompletedCount());
+        Assert.assertEquals(0, dao.parallelScan(4, 0, checkpoint, item -> seen.add(item.getId())));
+    }
+
+    @Test
+    public void resumeWithDifferentRangeCount() {
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        MemoryScanCheckpoint checkpoint = new MemoryScanCheckpoint();
+        long failAt = ids.get(ROWS * 3 / 4 + 100);
+        try {
+            dao.parallelScan(2, 4, checkpoint, item -> {
+                if (item.getId() == failAt) {
+                    throw new IllegalStateException("interrupted");
+                }
+                seen.add(item.getId());
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("interrupted", e.getMessage());
+        }
+        Assert.assertTrue(seen.size() < ROWS);
+        // 按检查点中的区间大小继续，不按新的区间数重新切分
+        dao.parallelScan(3, 7, checkpoint, item -> seen.add(item.getId()));
+        Assert.assertEquals(ROWS, seen.size());
+        Assert.assertEquals(4, checkpoint.getCompletedCount());
+    }
+
+    @Test
+    public void invalidCheckpointRejected() {
+        ScanCheckpoint checkpoint = new MemoryScanCheckpoint() {
+
+            @Override
+            public long[] loadBounds() {
+                return new long[]{1, 100};
+            }
+
+        };
+        try {
+            dao.parallelScan(2, 4, checkpoint, item -> {
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // 缺少区间大小
+        }
+    }
+
+    @Test
+    public void workersAdmittedToReport() {
+        Bulkhead bulkhead = new Bulkhead();
+        Bulkhead.Compartment report = bulkhead.define(Bulkhead.REPORT, 2, 8, 10000L, 0);
+        dao.setBulkhead(bulkhead);
+        try {
+            Set<Long> seen = ConcurrentHashMap.newKeySet();
+            Assert.assertEquals(ROWS, dao.parallelScan(4, 8, null, item -> seen.add(item.getId())));
+            Assert.assertEquals(ROWS, seen.size());
+            Assert.assertTrue(report.getAdmitted() >= 8);
+            Assert.assertTrue(report.getPeakInUse() <= 2);
+        } finally {
+            dao.setBulkhead(null);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package cn.emay.orm;
+
+import org.hibernate.FlushMode;
+import org.hibernate.query.Query;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * hql查询选项测试
+ *
+ * @author Frank
+ */
+public class QueryOptionsTest {
+
+    private H2Database database;
+
+    private TestItemDao dao;
+
+    @Before
+    public void init() {
+        database = new H2Database("query_options", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 3; i++) {
+                dao.save(new TestItem("s", i, "n" + i));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void readOnlyEntityNotUpdated() {
+        database.getTransactionTemplate().execute(status -> {
+            List<TestItem> items = dao.getListResult(TestItem.class, "from TestItem order by id", null, QueryOptions.readOnly(0));
+            Assert.assertEquals(3, items.size());
+            for (TestItem item : items) {
+                item.setName("changed");
+            }
+            try (StatementCounter.UnitOfWork unit = StatementCounter.begin("flush")) {
+                database.getHibernateTemplate().flush();
+                // 只读实体没有脏检查快照，flush不产生update
+                Assert.assertEquals(0, unit.getStatementCount());
+            }
+            return null;
+        });
+        Assert.assertEquals(0, (int) database.getJdbcTemplate().queryForObject("select count(*) from test_item where name = 'changed'", Integer.class));
+    }
+
+    @Test
+    public void readOnlyQuerySkipsAutoFlush() {
+        database.getTransactionTemplate().execute(status -> {
+            TestItem item = dao.getUniqueResult(TestItem.class, "from TestItem where channelId = 0", null, null);
+            item.setName("dirty");
+            try (StatementCounter.UnitOfWork unit = StatementCounter.begin("readOnly")) {
+                dao.getListResult(TestItem.class, "from TestItem", null, QueryOptions.readOnly(0));
+                // 只有查询本身，查询前没有自动flush
+                Assert.assertEquals(1, unit.getStatementCount());
+            }
+            try (StatementCounter.UnitOfWork unit = StatementCounter.begin("default")) {
+                dao.getListResult(TestItem.class, "from TestItem", null, null);
+                // 默认选项查询前先flush脏数据
+                Assert.assertEquals(2, unit.getStatementCount());
+            }
+            status.setRollbackOnly();
+            return null;
+        });
+    }
+
+    @Test
+    public void fetchSizeAndTimeoutApplied() {
+        QueryOptions options = QueryOptions.readOnly(50);
+        options.setTimeout(7);
+        database.getTransactionTemplate().execute(status -> database.getHibernateTemplate().execute(session -> {
+            Query<TestItem> query = session.createQuery("from TestItem", TestItem.class);
+            dao.applyQueryOptions(query, options);
+            Assert.assertEquals(Integer.valueOf(50), query.getFetchSize());
+            Assert.assertEquals(Integer.valueOf(7), query.getTimeout());
+            Assert.assertTrue(query.isReadOnly());
+            Assert.assertEquals(FlushMode.MANUAL, query.getHibernateFlushMode());
+            Assert.assertEquals(3, query.list().size());
+            return null;
+        }));
+    }
+
+}
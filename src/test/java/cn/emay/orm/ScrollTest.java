@@ -0,0 +1,105 @@
+package cn.emay.orm;
+
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式查询测试
+ *
+ * @author Frank
+ */
+public class ScrollTest {
+
+    private static H2Database database;
+
+    private static TestItemDao dao;
+
+    private static Long firstId;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("scroll", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 25; i++) {
+                TestItem item = new TestItem(i % 2 == 0 ? "ok" : "no", i, "n" + i);
+                dao.save(item);
+                if (firstId == null) {
+                    firstId = item.getId();
+                }
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void forEach() {
+        List<String> names = new ArrayList<>();
+        Assert.assertEquals(25, dao.forEach(10, null, item -> names.add(item.getName())));
+        Assert.assertEquals(25, names.size());
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("status", "ok");
+        Assert.assertEquals(13, dao.forEachByProperties(properties, 3, QueryOptions.readOnly(0), item -> {
+        }));
+    }
+
+    @Test
+    public void projections() {
+        List<Object[]> rows = new ArrayList<>();
+        Assert.assertEquals(25, dao.scroll(Object[].class, "select status, name from TestItem order by id", null, 10, null, rows::add));
+        Assert.assertEquals("ok", rows.get(0)[0]);
+        Assert.assertEquals("n0", rows.get(0)[1]);
+        Assert.assertEquals("n24", rows.get(24)[1]);
+        List<String> names = new ArrayList<>();
+        Assert.assertEquals(25, dao.scroll(String.class, "select name from TestItem order by id", null, 10, null, names::add));
+        Assert.assertEquals("n1", names.get(1));
+    }
+
+    @Test
+    public void evictsEveryEntityOfRow() {
+        database.getTransactionTemplate().execute(status -> {
+            Session session = database.getSessionFactory().getCurrentSession();
+            List<Object[]> rows = new ArrayList<>();
+            Assert.assertEquals(25, dao.scroll(Object[].class, "select a, b from TestItem a, TestItem b where b.id = a.id + 1 or (a.id = b.id and a.channelId = 24) order by a.id", null, 4, null, rows::add));
+            for (Object[] row : rows) {
+                Assert.assertFalse(session.contains(row[0]));
+                Assert.assertFalse(session.contains(row[1]));
+            }
+            Assert.assertEquals(0, session.getStatistics().getEntityCount());
+            return null;
+        });
+    }
+
+    @Test
+    public void evictsOnlyScrolledRows() {
+        database.getTransactionTemplate().execute(status -> {
+            Session session = database.getSessionFactory().getCurrentSession();
+            // 调用方在查询前加载并修改、尚未flush的实体
+            TestItem loaded = dao.findById(firstId);
+            loaded.setName("changed");
+            TestItem added = new TestItem("new", 99, "added");
+            dao.save(added);
+            List<TestItem> scrolled = new ArrayList<>();
+            dao.forEach(4, null, scrolled::add);
+            Assert.assertTrue(session.contains(loaded));
+            Assert.assertTrue(session.contains(added));
+            for (TestItem item : scrolled) {
+                if (item != loaded && item != added) {
+                    Assert.assertFalse(session.contains(item));
+                }
+            }
+            return null;
+        });
+        Assert.assertEquals("changed", database.getJdbcTemplate().queryForObject("select name from test_item where id = ?", String.class, firstId));
+        database.getJdbcTemplate().update("delete from test_item where status = 'new'");
+        database.getJdbcTemplate().update("update test_item set name = 'n0' where id = ?", firstId);
+    }
+
+}
@@ -0,0 +1,102 @@
+package cn.emay.orm;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 慢查询执行计划采集测试
+ *
+ * @author Frank
+ */
+public class SlowQueryMonitorTest {
+
+    private H2Database database;
+
+    private TestItemDao dao;
+
+    private SlowQueryMonitor monitor;
+
+    @Before
+    public void init() {
+        database = new H2Database("slow_query", TestItem.class);
+        dao = new TestItemDao(database);
+        database.getTransactionTemplate().execute(status -> {
+            for (int i = 0; i < 5; i++) {
+                dao.save(new TestItem("s", i, "n" + i));
+            }
+            return null;
+        });
+        // 阈值为0，所有查询都是慢查询
+        monitor = new SlowQueryMonitor(0, 1000, 10);
+        SlowQueryMonitor.register(database.getJdbcTemplate(), monitor);
+    }
+
+    @After
+    public void destroy() {
+        SlowQueryMonitor.unregister(database.getJdbcTemplate());
+        monitor.close();
+    }
+
+    @Test
+    public void hqlRecordsPlanFingerprintAndCaller() throws InterruptedException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", "s");
+        List<?> list = database.getTransactionTemplate().execute(status -> dao.getListResult("from TestItem where status = :status and channelId > 1", params));
+        Assert.assertEquals(3, list.size());
+        SlowQueryMonitor.SlowQueryRecord record = awaitRecord();
+        Assert.assertNull(record.getError(), record.getError());
+        Assert.assertNotNull(record.getPlan());
+        Assert.assertTrue(record.getSql(), record.getSql().contains("test_item"));
+        Assert.assertEquals(SlowQueryMonitor.fingerprint(record.getSql()), record.getFingerprint());
+        Assert.assertTrue(record.getFingerprint(), record.getFingerprint().contains("channel_id>?"));
+        assertCaller(record);
+    }
+
+    @Test
+    public void sqlRecordsPlanFingerprintAndCaller() throws InterruptedException {
+        List<TestItem> list = JdbcTemplateUtils.findObjectListByClass(database.getJdbcTemplate(), TestItem.class, "select * from test_item where status = 's' and channel_id > ?", 1);
+        Assert.assertEquals(3, list.size());
+        SlowQueryMonitor.SlowQueryRecord record = awaitRecord();
+        Assert.assertNull(record.getError(), record.getError());
+        Assert.assertNotNull(record.getPlan());
+        Assert.assertEquals("select * from test_item where status = ? and channel_id > ?", record.getFingerprint());
+        assertCaller(record);
+    }
+
+    @Test
+    public void fingerprint() {
+        Assert.assertEquals("select * from t where a = ? and b in (?) and c = ?",
+                SlowQueryMonitor.fingerprint("SELECT *  FROM t\n WHERE a = 'x''y' AND b IN (?, ?, ?) and c = -1.5"));
+    }
+
+    /**
+     * 调用方按查询线程的调用栈取得，而不是采集线程；测试类与工具同在cn.emay.orm包内被跳过，调用方是执行测试方法的junit
+     *
+     * @param record 记录
+     */
+    private static void assertCaller(SlowQueryMonitor.SlowQueryRecord record) {
+        Assert.assertTrue(record.getCaller(), record.getCaller().startsWith("org.junit."));
+    }
+
+    /**
+     * 等待异步采集的记录
+     *
+     * @return 第一条记录
+     * @throws InterruptedException 中断
+     */
+    private SlowQueryMonitor.SlowQueryRecord awaitRecord() throws InterruptedException {
+        for (int i = 0; i < 100 && monitor.getRecords().isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        List<SlowQueryMonitor.SlowQueryRecord> records = monitor.getRecords();
+        Assert.assertEquals(1, records.size());
+        return records.get(0);
+    }
+
+}
@@ -0,0 +1,104 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 超出内存行数后溢出到临时文件的结果列表测试
+ *
+ * @author Frank
+ */
+public class SpillableListTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        jdbcTemplate = new H2Database("spillable_list").getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        List<TestUser> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new TestUser(null, i % 7 == 0 ? null : "名字" + i, i));
+        }
+        JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users, false, true);
+    }
+
+    @Test
+    public void spillsBeyondMemoryRows() throws IOException {
+        try (SpillableList<TestUser> list = JdbcTemplateUtils.findObjectSpillableListByClass(jdbcTemplate, TestUser.class, 10, "select * from test_user order by id")) {
+            Assert.assertEquals(100, list.size());
+            Assert.assertTrue(list.isSpilled());
+            Assert.assertEquals(90, list.getSpilledRows());
+            Assert.assertTrue(list.getFileSize() > 0);
+            TestUser user = list.get(50);
+            Assert.assertEquals(Long.valueOf(51), user.getId());
+            Assert.assertEquals("名字50", user.getUserName());
+            Assert.assertEquals(50, user.getAge());
+            Assert.assertNull(list.get(70).getUserName());
+            int count = 0;
+            for (TestUser ignored : list) {
+                count++;
+            }
+            Assert.assertEquals(100, count);
+        }
+    }
+
+    @Test
+    public void staysInMemoryWithinMemoryRows() throws IOException {
+        try (SpillableList<TestUser> list = JdbcTemplateUtils.findObjectSpillableListByClass(jdbcTemplate, TestUser.class, 1000, "select * from test_user")) {
+            Assert.assertEquals(100, list.size());
+            Assert.assertFalse(list.isSpilled());
+            Assert.assertEquals(0, list.getFileSize());
+        }
+    }
+
+    @Test
+    public void closedListRejectsAccess() throws IOException {
+        SpillableList<TestUser> list = JdbcTemplateUtils.findObjectSpillableListByClass(jdbcTemplate, TestUser.class, 10, "select * from test_user");
+        list.close();
+        try {
+            list.get(0);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            // 关闭后不能再读取
+        }
+    }
+
+    @Test
+    public void nullOverwritesConstructorDefault() throws IOException {
+        try (SpillableList<DefaultedUser> list = JdbcTemplateUtils.findObjectSpillableListByClass(jdbcTemplate, DefaultedUser.class, 1, "select * from test_user order by id")) {
+            Assert.assertTrue(list.isSpilled());
+            DefaultedUser user = list.get(7);
+            Assert.assertNull(user.getUserName());
+            Assert.assertNull(user.getEnabled());
+        }
+    }
+
+    @Test
+    public void queryIsCounted() throws IOException {
+        try (StatementCounter.UnitOfWork unit = StatementCounter.begin("spill");
+             SpillableList<TestUser> list = JdbcTemplateUtils.findObjectSpillableListByClass(jdbcTemplate, TestUser.class, 10, "select * from test_user")) {
+            Assert.assertEquals(100, list.size());
+            Assert.assertEquals(1, unit.getStatementCount());
+        }
+    }
+
+    /**
+     * 构造方法给属性设置了非null默认值的bean
+     */
+    public static class DefaultedUser extends TestUser {
+
+        public DefaultedUser() {
+            setUserName("default");
+            setEnabled(Boolean.TRUE);
+        }
+
+    }
+
+}
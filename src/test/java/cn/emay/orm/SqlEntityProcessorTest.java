@@ -0,0 +1,254 @@
+package cn.emay.orm;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.NestedRuntimeException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * SqlEntity 注解处理器测试：编译带注解的类，校验生成的SQL、RowMapper及批量参数设置器
+ *
+ * @author Frank
+ */
+public class SqlEntityProcessorTest {
+
+    private static final String FIXTURE = "package fixture;\n"
+            + "@cn.emay.orm.SqlEntity(table = \"gen_user\")\n"
+            + "public class GenUser {\n"
+            + "    private Long id;\n"
+            + "    private String userName;\n"
+            + "    private int age;\n"
+            + "    private java.util.Date createTime;\n"
+            + "    public Long getId() { return id; }\n"
+            + "    public void setId(Long id) { this.id = id; }\n"
+            + "    public String getUserName() { return userName; }\n"
+            + "    public void setUserName(String userName) { this.userName = userName; }\n"
+            + "    public int getAge() { return age; }\n"
+            + "    public void setAge(int age) { this.age = age; }\n"
+            + "    public java.util.Date getCreateTime() { return createTime; }\n"
+            + "    public void setCreateTime(java.util.Date createTime) { this.createTime = createTime; }\n"
+            + "}\n";
+
+    private static Path directory;
+
+    private static URLClassLoader classLoader;
+
+    private static Class<?> entityClass;
+
+    private static Class<?> mappingClass;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        directory = Files.createTempDirectory("sql_entity");
+        Path source = directory.resolve("fixture/GenUser.java");
+        Files.createDirectories(source.getParent());
+        Files.write(source, FIXTURE.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-classpath", classPath(), "-d", directory.toString(), "-s", directory.toString(), "-proc:only");
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(source.toFile()));
+            task.setProcessors(Collections.singletonList(new SqlEntityProcessor()));
+            Assert.assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+            // 生成的源码与实体一起编译，不再运行处理器
+            Path generated = directory.resolve("fixture/GenUser_SqlMapping.java");
+            Assert.assertTrue(Files.exists(generated));
+            options = Arrays.asList("-classpath", classPath(), "-d", directory.toString(), "-proc:none");
+            task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(source.toFile(), generated.toFile()));
+            Assert.assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                Assert.assertNotEquals(diagnostic.toString(), Diagnostic.Kind.ERROR, diagnostic.getKind());
+            }
+        }
+        classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, SqlEntityProcessorTest.class.getClassLoader());
+        entityClass = classLoader.loadClass("fixture.GenUser");
+        mappingClass = classLoader.loadClass("fixture.GenUser_SqlMapping");
+        jdbcTemplate = new H2Database("sql_entity").getJdbcTemplate();
+        jdbcTemplate.execute("create table gen_user (id bigint auto_increment primary key, user_name varchar(50), age int, create_time timestamp)");
+    }
+
+    @AfterClass
+    public static void cleanUp() throws IOException {
+        classLoader.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void generatedSql() throws Exception {
+        Assert.assertEquals("gen_user", constant("TABLE"));
+        Assert.assertEquals("age,create_time,id,user_name", constant("COLUMNS"));
+        Assert.assertEquals("insert into gen_user (age,create_time,id,user_name) values (?,?,?,?)", constant("INSERT_SQL"));
+        Assert.assertEquals("insert into gen_user (age,create_time,user_name) values (?,?,?)", constant("INSERT_SQL_AUTO_ID"));
+        Assert.assertEquals("insert into gen_user (age,create_time,id,user_name) values (?,?,?,?) on duplicate key update age=values(age),create_time=values(create_time),user_name=values(user_name)",
+                constant("UPSERT_SQL"));
+        GeneratedSqlMapping<?> mapping = JdbcTemplateUtils.getGeneratedMapping(entityClass);
+        Assert.assertNotNull(mapping);
+        Assert.assertSame(entityClass, mapping.getBeanClass());
+        Assert.assertEquals("insert ignore into t_other (age,create_time,user_name) values (?,?,?)", mapping.getSaveSql("t_other", true, true));
+        // 与反射映射的字段规则一致
+        BeanSqlMapping reflected = BeanSqlMapping.of(entityClass);
+        String[] columns = mapping.getColumns();
+        Assert.assertEquals(reflected.getPropertyCount(), columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            Assert.assertEquals(reflected.getColumnName(i), columns[i]);
+        }
+    }
+
+    @Test
+    public void saveAndReadThroughGeneratedMapping() throws Exception {
+        jdbcTemplate.update("delete from gen_user");
+        List<Object> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(user(null, "u" + i, i));
+        }
+        // 批量参数设置器：自增id
+        int[] counts = JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users, false, true);
+        Assert.assertEquals(5, counts.length);
+        // 批量参数设置器：指定id
+        JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, Collections.singletonList(user(100L, "fixed", 9)), false, false);
+        Assert.assertEquals("fixed", jdbcTemplate.queryForObject("select user_name from gen_user where id = 100", String.class));
+
+        List<?> list = JdbcTemplateUtils.findObjectListByClass(jdbcTemplate, entityClass, "select * from gen_user order by id");
+        Assert.assertEquals(6, list.size());
+        Assert.assertEquals("u3", get(list.get(3), "getUserName"));
+        Assert.assertEquals(3, get(list.get(3), "getAge"));
+        Assert.assertEquals(100L, get(list.get(5), "getId"));
+        // 别名按字段名匹配，null不覆盖基本类型
+        Object renamed = JdbcTemplateUtils.findObjectUnique(jdbcTemplate, entityClass, "select user_name as userName, null as age from gen_user where id = 100");
+        Assert.assertEquals("fixed", get(renamed, "getUserName"));
+        Assert.assertEquals(0, get(renamed, "getAge"));
+        Assert.assertNull(get(renamed, "getId"));
+
+        // upsert
+        jdbcTemplate.update(constant("UPSERT_SQL"), 20, null, 100L, "upserted");
+        Assert.assertEquals("upserted", jdbcTemplate.queryForObject("select user_name from gen_user where id = 100", String.class));
+    }
+
+    @Test
+    public void rowMapperSharedAcrossThreads() throws Exception {
+        jdbcTemplate.update("delete from gen_user");
+        List<Object> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(user((long) i + 1, "u" + (i + 1), i + 1));
+        }
+        JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, users, false, false);
+        RowMapper<?> rowMapper = JdbcTemplateUtils.getRowMapper(entityClass);
+        String[] sqls = {"select id, user_name, age from gen_user", "select age, id, user_name from gen_user", "select user_name, age, id from gen_user"};
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                String sql = sqls[t % sqls.length];
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        for (Object user : jdbcTemplate.query(sql, rowMapper)) {
+                            long id = (Long) get(user, "getId");
+                            Assert.assertEquals("u" + id, get(user, "getUserName"));
+                            Assert.assertEquals((int) id, get(user, "getAge"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 编译需要的类路径：本项目的类及生成代码引用的spring-jdbc
+     *
+     * @return 类路径
+     * @throws Exception 异常
+     */
+    private static String classPath() throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (Class<?> clazz : new Class<?>[]{SqlEntity.class, JdbcTemplate.class, DataAccessException.class, NestedRuntimeException.class}) {
+            String path = new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            if (!paths.contains(path)) {
+                paths.add(path);
+            }
+        }
+        return String.join(File.pathSeparator, paths);
+    }
+
+    /**
+     * 生成类的常量
+     *
+     * @param name 常量名
+     * @return 值
+     * @throws Exception 异常
+     */
+    private static String constant(String name) throws Exception {
+        return (String) mappingClass.getField(name).get(null);
+    }
+
+    /**
+     * 创建实体
+     *
+     * @param id       id
+     * @param userName 用户名
+     * @param age      年龄
+     * @return 实体
+     * @throws Exception 异常
+     */
+    private static Object user(Long id, String userName, int age) throws Exception {
+        Object user = entityClass.getConstructor().newInstance();
+        entityClass.getMethod("setId", Long.class).invoke(user, id);
+        entityClass.getMethod("setUserName", String.class).invoke(user, userName);
+        entityClass.getMethod("setAge", int.class).invoke(user, age);
+        return user;
+    }
+
+    /**
+     * 调用get方法
+     *
+     * @param bean   实体
+     * @param getter get方法名
+     * @return 值
+     */
+    private static Object get(Object bean, String getter) {
+        try {
+            Method method = bean.getClass().getMethod(getter);
+            return method.invoke(bean);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
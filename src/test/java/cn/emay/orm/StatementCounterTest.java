@@ -0,0 +1,188 @@
+package cn.emay.orm;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按工作单元统计语句数测试
+ *
+ * @author Frank
+ */
+public class StatementCounterTest {
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private H2Database database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<StatementCounter.UnitOfWork> reported = new ArrayList<>();
+
+    @Before
+    public void init() {
+        database = new H2Database("counter_" + testName.getMethodName(), TestItem.class);
+        jdbcTemplate = database.getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        JdbcTemplateUtils.saveByAutoNamed(jdbcTemplate, null, Arrays.asList(new TestUser(1L, "a", 1), new TestUser(2L, "b", 2)), false, false);
+    }
+
+    @After
+    public void reset() {
+        // 开关及reporter是全局的，不影响其他测试
+        StatementCounter.enable(StatementCounter.DEFAULT_THRESHOLD, null);
+        StatementCounter.disable();
+        Assert.assertNull(StatementCounter.current());
+    }
+
+    @Test
+    public void reportsRepeatsWhenThresholdReached() {
+        StatementCounter.enable(3, reported::add);
+        long detected = StatementCounter.getDetectedCount();
+        try (StatementCounter.UnitOfWork unit = StatementCounter.begin("users.load")) {
+            findUsers("select * from test_user");
+            for (int i = 1; i <= 5; i++) {
+                findUsers("select * from test_user where id = " + i);
+            }
+            // 结束前不上报
+            Assert.assertTrue(reported.isEmpty());
+            Assert.assertEquals(6, unit.getStatementCount());
+            Assert.assertEquals(2, unit.getDistinctStatementCount());
+        }
+        Assert.assertEquals(1, reported.size());
+        StatementCounter.UnitOfWork unit = reported.get(0);
+        Assert.assertEquals("users.load", unit.getName());
+        List<StatementCounter.Repeat> repeats = unit.getRepeats();
+        Assert.assertEquals(1, repeats.size());
+        StatementCounter.Repeat repeat = repeats.get(0);
+        Assert.assertEquals(5, repeat.getCount());
+        Assert.assertEquals("select * from test_user where id = ?", repeat.getFingerprint());
+        Assert.assertEquals("select * from test_user where id = 1", repeat.getSql());
+        // 跳过cn.emay.orm等框架的栈帧；测试类也在cn.emay.orm包中，调用位置是调用测试方法的JUnit
+        Assert.assertNotNull(repeat.getCaller());
+        Assert.assertTrue(repeat.getCaller(), repeat.getCaller().startsWith("org.junit."));
+        Assert.assertTrue(unit.toString(), unit.toString().startsWith("users.load: 6 statements in "));
+        Assert.assertTrue(unit.toString(), unit.toString().contains("\n  5x " + repeat.getCaller() + " select * from test_user where id = ?"));
+        Assert.assertEquals(detected + 1, StatementCounter.getDetectedCount());
+
+        // 未达到阈值不上报
+        try (StatementCounter.UnitOfWork ignored = StatementCounter.begin("users.few")) {
+            findUsers("select * from test_user where id = 1");
+            findUsers("select * from test_user where id = 2");
+        }
+        Assert.assertEquals(1, reported.size());
+        Assert.assertEquals(detected + 1, StatementCounter.getDetectedCount());
+    }
+
+    @Test
+    public void bindsToSpringTransaction() {
+        StatementCounter.enable(3, reported::add);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(database.getTransactionTemplate().getTransactionManager());
+        transactionTemplate.setName("items.list");
+        TestItemDao dao = new TestItemDao(database);
+        transactionTemplate.execute(status -> {
+            Assert.assertNull(StatementCounter.current());
+            for (int i = 0; i < 4; i++) {
+                dao.getListResult(TestItem.class, "from TestItem where channelId = " + i, null, null);
+            }
+            findUsers("select * from test_user");
+            // 第一条语句时自动绑定事务，Hibernate及JdbcTemplate的语句都统计
+            StatementCounter.UnitOfWork unit = StatementCounter.current();
+            Assert.assertNotNull(unit);
+            Assert.assertEquals("items.list", unit.getName());
+            Assert.assertEquals(5, unit.getStatementCount());
+            return null;
+        });
+        // 事务结束时释放并上报
+        Assert.assertNull(StatementCounter.current());
+        Assert.assertEquals(1, reported.size());
+        Assert.assertEquals(4, reported.get(0).getRepeats().get(0).getCount());
+
+        // 事务外的语句不统计
+        findUsers("select * from test_user");
+        Assert.assertNull(StatementCounter.current());
+
+        // 关闭后事务不再自动绑定
+        StatementCounter.disable();
+        transactionTemplate.execute(status -> {
+            findUsers("select * from test_user");
+            Assert.assertNull(StatementCounter.current());
+            return null;
+        });
+    }
+
+    @Test
+    public void nestedUnitsJoinOutermost() {
+        StatementCounter.enable(2, reported::add);
+        try (StatementCounter.UnitOfWork outer = StatementCounter.begin("outer")) {
+            findUsers("select * from test_user where id = 1");
+            try (StatementCounter.UnitOfWork inner = StatementCounter.begin("inner")) {
+                Assert.assertSame(outer, inner);
+                findUsers("select * from test_user where id = 2");
+            }
+            // 内层结束不上报
+            Assert.assertSame(outer, StatementCounter.current());
+            Assert.assertTrue(reported.isEmpty());
+            // 外层已有工作单元时，事务中的语句加入外层，事务结束不释放
+            database.getTransactionTemplate().execute(status -> {
+                findUsers("select * from test_user");
+                Assert.assertSame(outer, StatementCounter.current());
+                return null;
+            });
+            Assert.assertSame(outer, StatementCounter.current());
+            Assert.assertEquals(3, outer.getStatementCount());
+        }
+        Assert.assertNull(StatementCounter.current());
+        Assert.assertEquals(1, reported.size());
+        Assert.assertEquals("outer", reported.get(0).getName());
+        // 重复close不再上报
+        reported.get(0).close();
+        Assert.assertEquals(1, reported.size());
+
+        // 事务自动绑定的工作单元中begin加入事务的工作单元，直到事务结束
+        database.getTransactionTemplate().execute(status -> {
+            findUsers("select * from test_user");
+            StatementCounter.UnitOfWork transactionUnit = StatementCounter.current();
+            try (StatementCounter.UnitOfWork unit = StatementCounter.begin("service")) {
+                Assert.assertSame(transactionUnit, unit);
+                findUsers("select * from test_user");
+            }
+            Assert.assertSame(transactionUnit, StatementCounter.current());
+            return null;
+        });
+        Assert.assertNull(StatementCounter.current());
+        Assert.assertEquals(2, reported.size());
+        Assert.assertEquals(2, reported.get(1).getStatementCount());
+    }
+
+    @Test
+    public void rejectsThresholdBelowTwo() {
+        try {
+            StatementCounter.enable(1, null);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertFalse(StatementCounter.isEnabled());
+        }
+    }
+
+    /**
+     * 查询用户
+     *
+     * @param sql SQL
+     * @return 用户
+     */
+    private List<TestUser> findUsers(String sql) {
+        return JdbcTemplateUtils.findObjectListByClass(jdbcTemplate, TestUser.class, sql);
+    }
+
+}
@@ -0,0 +1,148 @@
+package cn.emay.orm;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按主键及内容哈希同步全量数据测试
+ *
+ * @author Frank
+ */
+public class TableSyncTest {
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public static void init() {
+        jdbcTemplate = new H2Database("table_sync").getJdbcTemplate();
+        jdbcTemplate.execute(TestUser.CREATE_TABLE);
+        jdbcTemplate.execute("create table test_user_name (id bigint, user_name varchar(50), age int, score decimal(10,2), enabled boolean, create_time timestamp, primary key (user_name, id))");
+    }
+
+    @Before
+    public void clean() {
+        jdbcTemplate.update("delete from test_user");
+        jdbcTemplate.update("delete from test_user_name");
+    }
+
+    @Test
+    public void firstSyncInsertsAll() {
+        SyncResult result = JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users(1, 50), 20);
+        Assert.assertEquals(0, result.getExisting());
+        Assert.assertEquals(50, result.getInserted());
+        Assert.assertEquals(0, result.getUpdated());
+        Assert.assertEquals(0, result.getDeleted());
+        Assert.assertEquals(50, count("test_user"));
+    }
+
+    @Test
+    public void unchangedDataWritesNothing() {
+        List<TestUser> users = users(1, 50);
+        JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users, 20);
+        try (StatementCounter.UnitOfWork unit = StatementCounter.begin("sync")) {
+            SyncResult result = JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, "test_user", TestUser.class, new String[]{"id"}, users, 20);
+            Assert.assertEquals(50, result.getExisting());
+            Assert.assertEquals(50, result.getUnchanged());
+            Assert.assertEquals(0, result.getInserted() + result.getUpdated() + result.getDeleted());
+            // 只有读取已有数据的一条查询
+            Assert.assertEquals(1, unit.getStatementCount());
+        }
+    }
+
+    @Test
+    public void writesOnlyChanges() {
+        JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users(1, 50), 20);
+        // 去掉前10条，修改两条，新增一条
+        List<TestUser> next = users(11, 50);
+        next.get(0).setUserName("changed");
+        next.get(5).setAge(999);
+        next.add(new TestUser(100L, "new", 1));
+        SyncResult result = JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, next.iterator(), 3);
+        Assert.assertEquals(50, result.getExisting());
+        Assert.assertEquals(1, result.getInserted());
+        Assert.assertEquals(2, result.getUpdated());
+        Assert.assertEquals(10, result.getDeleted());
+        Assert.assertEquals(38, result.getUnchanged());
+        Assert.assertEquals(41, count("test_user"));
+        Assert.assertEquals("changed", jdbcTemplate.queryForObject("select user_name from test_user where id = 11", String.class));
+        Assert.assertEquals(Integer.valueOf(999), jdbcTemplate.queryForObject("select age from test_user where id = 16", Integer.class));
+        Assert.assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from test_user where id <= 10", Integer.class));
+    }
+
+    @Test
+    public void readsExistingAcrossChunks() {
+        List<TestUser> users = users(1, 10050);
+        JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users, 0);
+        SyncResult result = JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users, 0);
+        Assert.assertEquals(10050, result.getExisting());
+        Assert.assertEquals(10050, result.getUnchanged());
+    }
+
+    @Test
+    public void compositeKeyByPropertyName() {
+        JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, "test_user_name", TestUser.class, new String[]{"user_name", "id"}, users(1, 10), 0);
+        List<TestUser> next = users(1, 10);
+        // 主键变化：删除旧的并新增
+        next.get(0).setUserName("renamed");
+        next.get(1).setAge(50);
+        SyncResult result = JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, "test_user_name", TestUser.class, new String[]{"userName", "id"}, next, 0);
+        Assert.assertEquals(1, result.getInserted());
+        Assert.assertEquals(1, result.getUpdated());
+        Assert.assertEquals(1, result.getDeleted());
+        Assert.assertEquals(10, count("test_user_name"));
+    }
+
+    @Test
+    public void duplicateKeyRejected() {
+        List<TestUser> users = users(1, 5);
+        users.add(new TestUser(3L, "dup", 3));
+        try {
+            JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"id"}, users, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("duplicate key"));
+        }
+    }
+
+    @Test
+    public void unknownKeyColumnRejected() {
+        try {
+            JdbcTemplateUtils.syncByAutoNamed(jdbcTemplate, null, TestUser.class, new String[]{"no_such"}, users(1, 5), 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("key column no_such"));
+        }
+    }
+
+    /**
+     * 构造主键连续的数据
+     *
+     * @param from 起始主键（含）
+     * @param to   结束主键（含）
+     * @return 数据
+     */
+    private static List<TestUser> users(long from, long to) {
+        List<TestUser> users = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            users.add(new TestUser(id, "u" + id, (int) (id % 90)));
+        }
+        return users;
+    }
+
+    /**
+     * 表中的条数
+     *
+     * @param table 表名
+     * @return 条数
+     */
+    private static int count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+}
@@ -0,0 +1,68 @@
+package cn.emay.orm;
+
+import org.hibernate.SessionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.hibernate5.HibernateTemplate;
+
+/**
+ * 测试DAO，可设置隔离舱、ID生成器和批量控制器
+ *
+ * @author Frank
+ */
+public class TestItemDao extends AbstractPojoDaoSupport<TestItem> {
+
+    private final H2Database database;
+
+    private Bulkhead bulkhead;
+
+    private IdGenerator idGenerator;
+
+    private AdaptiveBatchController batchController;
+
+    public TestItemDao(H2Database database) {
+        this.database = database;
+    }
+
+    @Override
+    protected JdbcTemplate getJdbcTemplate() {
+        return database.getJdbcTemplate();
+    }
+
+    @Override
+    protected HibernateTemplate getHibernateTemplate() {
+        return database.getHibernateTemplate();
+    }
+
+    @Override
+    protected SessionFactory getSessionFactory() {
+        return database.getSessionFactory();
+    }
+
+    @Override
+    protected Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(Bulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    protected IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    public void setIdGenerator(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    protected AdaptiveBatchController getBatchController() {
+        return batchController;
+    }
+
+    public void setBatchController(AdaptiveBatchController batchController) {
+        this.batchController = batchController;
+    }
+
+}
@@ -0,0 +1,88 @@
+package cn.emay.orm;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * JdbcTemplate测试用对象，对应表 test_user
+ *
+ * @author Frank
+ */
+public class TestUser {
+
+    /**
+     * 建表语句
+     */
+    public static final String CREATE_TABLE = "create table test_user (id bigint auto_increment primary key, user_name varchar(50), age int, score decimal(10,2), enabled boolean, create_time timestamp)";
+
+    private Long id;
+
+    private String userName;
+
+    private int age;
+
+    private BigDecimal score;
+
+    private Boolean enabled;
+
+    private Date createTime;
+
+    public TestUser() {
+
+    }
+
+    public TestUser(Long id, String userName, int age) {
+        this.id = id;
+        this.userName = userName;
+        this.age = age;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public BigDecimal getScore() {
+        return score;
+    }
+
+    public void setScore(BigDecimal score) {
+        this.score = score;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+}
@@ -0,0 +1,225 @@
+package cn.emay.orm;
+
+import cn.emay.utils.db.common.Page;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestName;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 按时间分表的存储、查询及分页测试
+ *
+ * @author Frank
+ */
+public class TimePartitionTest {
+
+    private static final String SQL = "select * from ${table} where create_time >= ? and create_time <= ? order by create_time";
+
+    private static final String SQL_DESC = SQL + " desc";
+
+    private static final Timestamp BEGIN = Timestamp.valueOf(LocalDateTime.of(2026, 10, 15, 0, 0));
+
+    private static final Timestamp END = Timestamp.valueOf(LocalDateTime.of(2026, 10, 18, 23, 0));
+
+    @Rule
+    public final TestName testName = new TestName();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TimePartition partition;
+
+    /**
+     * 15、17、18日三个分表，16日的表不存在；每个表10条，id按时间递增：15日1-10，17日11-20，18日21-30
+     */
+    @Before
+    public void init() {
+        jdbcTemplate = new H2Database("partition_" + testName.getMethodName()).getJdbcTemplate();
+        partition = TimePartition.daily("t_report", "createTime");
+        for (int day : new int[]{15, 17, 18}) {
+            createTable(day);
+        }
+    }
+
+    @Test
+    public void savesMixedDatesInInputOrder() {
+        List<TestUser> users = users();
+        Collections.shuffle(users, new Random(1));
+        // 先存一半，再全部以ignore存储：已存在的结果为0，结果与输入顺序一致
+        List<TestUser> half = new ArrayList<>(users.subList(0, 15));
+        int[] counts = JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, half, false, false);
+        Assert.assertEquals(15, counts.length);
+        counts = JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, users, true, false);
+        Assert.assertEquals(30, counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            Assert.assertEquals(half.contains(users.get(i)) ? 0 : 1, counts[i]);
+        }
+        Assert.assertEquals(Arrays.asList(1L, 10L, 10L), range("t_report_20261015"));
+        Assert.assertEquals(Arrays.asList(11L, 20L, 10L), range("t_report_20261017"));
+        Assert.assertEquals(Arrays.asList(21L, 30L, 10L), range("t_report_20261018"));
+
+        try {
+            TestUser user = new TestUser(99L, "u", 0);
+            JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, Collections.singletonList(user), false, false);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(TestUser.class.getName() + ".createTime is null", e.getMessage());
+        }
+    }
+
+    @Test
+    public void skipsMissingTablesUntilRefreshed() {
+        JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, users(), false, false);
+        Assert.assertEquals(Arrays.asList("t_report_20261015", "t_report_20261016", "t_report_20261017", "t_report_20261018"), partition.tablesBetween(BEGIN, END));
+        Assert.assertEquals(Arrays.asList("t_report_20261015", "t_report_20261017", "t_report_20261018"), partition.existingTablesBetween(jdbcTemplate, BEGIN, END));
+
+        Timestamp from = Timestamp.valueOf(LocalDateTime.of(2026, 10, 15, 1, 5));
+        Timestamp to = Timestamp.valueOf(LocalDateTime.of(2026, 10, 17, 0, 0));
+        Assert.assertEquals(Arrays.asList(6L, 7L, 8L, 9L, 10L), ids(JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, SQL, from, to, false, from, to)));
+        List<Long> desc = ids(JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, SQL_DESC, BEGIN, END, true, BEGIN, END));
+        Assert.assertEquals(30, desc.size());
+        for (int i = 0; i < desc.size(); i++) {
+            Assert.assertEquals(30L - i, (long) desc.get(i));
+        }
+
+        // 新建的分表在缓存过期或refreshTables后才查询
+        createTable(16);
+        TestUser user = new TestUser(100L, "u", 0);
+        user.setCreateTime(Timestamp.valueOf(LocalDateTime.of(2026, 10, 16, 12, 0)));
+        JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, Collections.singletonList(user), false, false);
+        Assert.assertEquals(30, JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, SQL, BEGIN, END, false, BEGIN, END).size());
+        partition.refreshTables();
+        List<Long> ids = ids(JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, SQL, BEGIN, END, false, BEGIN, END));
+        Assert.assertEquals(31, ids.size());
+        Assert.assertEquals(100L, (long) ids.get(10));
+
+        // 范围内没有表
+        Timestamp empty = Timestamp.valueOf(LocalDateTime.of(2026, 11, 1, 0, 0));
+        Assert.assertTrue(JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, SQL, empty, empty, false, empty, empty).isEmpty());
+        try {
+            JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, partition, TestUser.class, "select * from t_report", BEGIN, END, false);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("sql has no ${table}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void pagesCrossTables() {
+        JdbcTemplateUtils.saveByPartition(jdbcTemplate, partition, users(), false, false);
+        // 从第一个表中间开始，跨入第二个表
+        Page<TestUser> page = page(false, 8, 5);
+        Assert.assertEquals(30, page.getTotalCount());
+        Assert.assertEquals(Arrays.asList(9L, 10L, 11L, 12L, 13L), ids(page.getList()));
+        // 倒序从18日的表中间开始，跨入17日的表
+        Assert.assertEquals(Arrays.asList(22L, 21L, 20L, 19L, 18L), ids(page(true, 8, 5).getList()));
+        // 只在一个表内
+        Assert.assertEquals(Arrays.asList(13L, 14L, 15L), ids(page(false, 12, 3).getList()));
+        Assert.assertEquals(Arrays.asList(17L, 16L, 15L), ids(page(true, 13, 3).getList()));
+        // 跨越三个表
+        Assert.assertEquals(25, page(false, 3, 25).getList().size());
+        Assert.assertEquals(4L, (long) page(false, 3, 25).getList().get(0).getId());
+        // 最后一页不足limit
+        Assert.assertEquals(Arrays.asList(2L, 1L), ids(page(true, 28, 5).getList()));
+        Page<TestUser> beyond = page(false, 30, 5);
+        Assert.assertTrue(beyond.getList().isEmpty());
+        Assert.assertEquals(30, beyond.getTotalCount());
+    }
+
+    @Test
+    public void rejectsRangeCoveringTooManyTables() {
+        LocalDate begin = LocalDate.of(2000, 1, 1);
+        // 最多10000个表
+        Assert.assertEquals(10000, partition.tablesBetween(begin, begin.plusDays(9999)).size());
+        try {
+            partition.tablesBetween(begin, begin.plusDays(10000));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("covers more than 10000 tables"));
+        }
+        TimePartition hourly = new TimePartition("t_log", "createTime", "yyyyMMddHH", ChronoUnit.HOURS);
+        try {
+            JdbcTemplateUtils.findObjectListByPartition(jdbcTemplate, hourly, TestUser.class, SQL, begin, begin.plusYears(2), false);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("covers more than 10000 tables"));
+        }
+        // 开始晚于结束时没有表
+        Assert.assertTrue(partition.tablesBetween(END, BEGIN).isEmpty());
+    }
+
+    /**
+     * 创建某日的分表
+     *
+     * @param day 日
+     */
+    private void createTable(int day) {
+        jdbcTemplate.execute(TestUser.CREATE_TABLE.replace("test_user", partition.tableOf(LocalDate.of(2026, 10, day))));
+    }
+
+    /**
+     * 三个分表的数据，按时间顺序
+     *
+     * @return 数据
+     */
+    private static List<TestUser> users() {
+        List<TestUser> users = new ArrayList<>();
+        long id = 1;
+        for (int day : new int[]{15, 17, 18}) {
+            for (int i = 0; i < 10; i++) {
+                TestUser user = new TestUser(id++, "u", i);
+                user.setCreateTime(Timestamp.valueOf(LocalDateTime.of(2026, 10, day, 1, i)));
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * 分页查询全部范围
+     *
+     * @param desc  是否倒序
+     * @param start 起始数据index
+     * @param limit 查询条数
+     * @return 分页数据
+     */
+    private Page<TestUser> page(boolean desc, int start, int limit) {
+        return JdbcTemplateUtils.findObjectPageByPartitionInMysql(jdbcTemplate, partition, TestUser.class, desc ? SQL_DESC : SQL, BEGIN, END, desc, start, limit, BEGIN, END);
+    }
+
+    /**
+     * 表中的最小id、最大id及条数
+     *
+     * @param table 表名
+     * @return 统计
+     */
+    private List<Long> range(String table) {
+        return jdbcTemplate.queryForObject("select min(id), max(id), count(*) from " + table, (rs, rowNum) -> Arrays.asList(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /**
+     * 数据的id
+     *
+     * @param users 数据
+     * @return id
+     */
+    private static List<Long> ids(List<TestUser> users) {
+        List<Long> ids = new ArrayList<>();
+        for (TestUser user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+}
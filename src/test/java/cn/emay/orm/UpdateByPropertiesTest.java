@@ -0,0 +1,85 @@
+package cn.emay.orm;
+
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单语句批量更新测试
+ *
+ * @author Frank
+ */
+public class UpdateByPropertiesTest {
+
+    private static H2Database database;
+
+    private static TestItemDao dao;
+
+    @BeforeClass
+    public static void init() {
+        database = new H2Database("update_by_properties", TestItem.class);
+        dao = new TestItemDao(database);
+    }
+
+    @Before
+    public void reset() {
+        database.getTransactionTemplate().execute(status -> {
+            dao.execByHql("delete from TestItem");
+            for (int i = 0; i < 10; i++) {
+                dao.save(new TestItem(i % 2 == 0 ? "ok" : "no", i, "n" + i));
+            }
+            return null;
+        });
+        database.getSessionFactory().getCache().evictAllRegions();
+    }
+
+    @Test
+    public void evictsOnlyAffectedEntities() {
+        database.getTransactionTemplate().execute(status -> {
+            Session session = database.getSessionFactory().getCurrentSession();
+            List<TestItem> items = dao.findAll();
+            TestItem matched = items.get(0);
+            TestItem unmatched = items.get(1);
+            Map<String, Object> set = new HashMap<>();
+            set.put("status", "done");
+            Map<String, Object> where = Collections.singletonMap("status", "ok");
+            Assert.assertEquals(5, dao.updateByProperties(set, where));
+            Assert.assertFalse(session.contains(matched));
+            Assert.assertTrue(session.contains(unmatched));
+            TestItem reloaded = dao.findById(matched.getId());
+            Assert.assertNotSame(matched, reloaded);
+            Assert.assertEquals("done", reloaded.getStatus());
+            return null;
+        });
+    }
+
+    @Test
+    public void updateByPropertyIn() {
+        int updated = database.getTransactionTemplate().execute(status -> dao.updateByPropertyIn(Collections.singletonMap("status", "in"), "channelId", Arrays.asList(1, 3, 5)));
+        Assert.assertEquals(3, updated);
+        Assert.assertEquals(3, (int) database.getJdbcTemplate().queryForObject("select count(*) from test_item where status = 'in'", Integer.class));
+    }
+
+    @Test
+    public void admittedAndCounted() {
+        Bulkhead bulkhead = new Bulkhead();
+        Bulkhead.Compartment oltp = bulkhead.define(Bulkhead.OLTP, 4, 4, 1000L, 0);
+        dao.setBulkhead(bulkhead);
+        try (StatementCounter.UnitOfWork unit = StatementCounter.begin("update")) {
+            database.getTransactionTemplate().execute(status -> dao.updateByProperties(Collections.singletonMap("name", "x"), Collections.singletonMap("status", "no")));
+            Assert.assertEquals(1, oltp.getAdmitted());
+            Assert.assertTrue(unit.getStatementCount() >= 1);
+        } finally {
+            dao.setBulkhead(null);
+        }
+    }
+
+}